@@ -1,16 +1,42 @@
 package com.onlinemarketplace.accountservice;
 
+import com.onlinemarketplace.accountservice.controller.UserCleanupConsumer;
+import com.onlinemarketplace.accountservice.controller.UserDeletionService;
+import com.onlinemarketplace.accountservice.model.DeletionJob;
+import com.onlinemarketplace.common.outbox.OutboxPublisher;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.client.RestClient;
 
+import java.time.Duration;
+
 @SpringBootApplication
 public class AccountServiceApplication {
 
+	// Built from Boot's builder, which records http.client.requests for every downstream call
+	@Bean
+	public RestClient restClient(RestClient.Builder restClientBuilder) {
+		return restClientBuilder.build();
+	}
+
+	@Bean
+	public UserCleanupConsumer marketplaceCleanupConsumer(UserDeletionService userDeletionService, OutboxPublisher outboxPublisher,
+														  RestClient.Builder restClientBuilder,
+														  @Value("${account.deletion.downstream-timeout-ms:10000}") long timeoutMillis,
+														  @Value("${services.marketplace.uri:http://marketplaceservice:8081}") String marketplaceServiceURI) {
+		return new UserCleanupConsumer(DeletionJob.Target.MARKETPLACE, marketplaceServiceURI, userDeletionService, outboxPublisher,
+				restClientBuilder, Duration.ofMillis(timeoutMillis));
+	}
+
 	@Bean
-	public RestClient restClient() {
-		return RestClient.builder().build();
+	public UserCleanupConsumer walletCleanupConsumer(UserDeletionService userDeletionService, OutboxPublisher outboxPublisher,
+													 RestClient.Builder restClientBuilder,
+													 @Value("${account.deletion.downstream-timeout-ms:10000}") long timeoutMillis,
+													 @Value("${services.wallet.uri:http://walletservice:8082}") String walletServiceURI) {
+		return new UserCleanupConsumer(DeletionJob.Target.WALLET, walletServiceURI, userDeletionService, outboxPublisher,
+				restClientBuilder, Duration.ofMillis(timeoutMillis));
 	}
 
 	public static void main(String[] args) {
@@ -1,8 +1,14 @@
 package com.onlinemarketplace.accountservice.controller;
 
+import com.onlinemarketplace.accountservice.model.DeletionJob;
+import com.onlinemarketplace.accountservice.model.DiscountClaim;
 import com.onlinemarketplace.accountservice.model.User;
 import com.onlinemarketplace.accountservice.repository.UserRepository;
+import com.onlinemarketplace.common.concurrent.SingleFlight;
+import com.onlinemarketplace.common.metrics.LockMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
@@ -18,6 +24,9 @@ import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.net.URI;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -25,8 +34,12 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class AccountServiceController {
     private final UserRepository userRepository;
     private final RestClient restClient;
-    private static final String marketplaceServiceURI = "http://marketplaceservice:8081";
-    private static final String walletServiceURI = "http://walletservice:8082";
+    private final UserDeletionService userDeletionService;
+    private final LockMetrics lockMetrics;
+    private final MeterRegistry meterRegistry;
+    private final SingleFlight<Integer, Optional<User>> userReads;
+    private final String marketplaceServiceURI;
+    private final String walletServiceURI;
     
     // Global lock for user operations
     private final ReadWriteLock userOperationsLock = new ReentrantReadWriteLock();
@@ -36,11 +49,31 @@ public class AccountServiceController {
      *
      * @param userRepository The user repository.
      * @param restClient     The REST client for making external service calls.
+     * @param userDeletionService The service cleaning up deleted users in external services.
+     * @param lockMetrics    Acquires the user operations lock, recording the time spent waiting.
+     * @param meterRegistry  Registry of the discount and coalesced user read metrics.
+     * @param marketplaceServiceURI Base URI of the marketplace service.
+     * @param walletServiceURI      Base URI of the wallet service.
      */
     @Autowired
-    public AccountServiceController(UserRepository userRepository, RestClient restClient) {
+    public AccountServiceController(UserRepository userRepository, RestClient restClient,
+                                    UserDeletionService userDeletionService, LockMetrics lockMetrics,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${services.marketplace.uri:http://marketplaceservice:8081}") String marketplaceServiceURI,
+                                    @Value("${services.wallet.uri:http://walletservice:8082}") String walletServiceURI) {
         this.userRepository = userRepository;
         this.restClient = restClient;
+        this.userDeletionService = userDeletionService;
+        this.lockMetrics = lockMetrics;
+        this.meterRegistry = meterRegistry;
+        this.userReads = new SingleFlight<>("user", meterRegistry);
+        this.marketplaceServiceURI = marketplaceServiceURI;
+        this.walletServiceURI = walletServiceURI;
+    }
+
+    // Counts the outcomes of discount claims and resets, e.g. account.discount.claims{outcome=claimed}
+    private void countDiscount(String name, String outcome) {
+        meterRegistry.counter("account.discount." + name, "outcome", outcome).increment();
     }
 
     private boolean isValidPayloadForPostMethod(final User user) {
@@ -68,7 +101,7 @@ public class AccountServiceController {
             maxAttempts = 3, backoff = @Backoff(delay = 500))
     public ResponseEntity<?> discount(@PathVariable("id") Integer id) {
         try {
-            userOperationsLock.writeLock().lock();
+            lockMetrics.lock(userOperationsLock.writeLock(), "user_operations.write");
             try {
                 User user = userRepository.findById(id)
                         .orElseThrow(() -> new ResponseStatusException(
@@ -96,6 +129,44 @@ public class AccountServiceController {
         }
     }
 
+    /**
+     * Claims the first-order discount of a user and returns the user in the same response.
+     * The claim is a single conditional update, so among concurrent callers exactly one wins.
+     * The winner receives a claim token which can be passed to /resetDiscount to compensate the claim.
+     * Only the read lock is taken: the database arbitrates between claims, the lock just keeps out deletions.
+     *
+     * @param id The user ID.
+     * @return ResponseEntity with the user and the outcome of the claim, or an error message.
+     */
+    @PutMapping("/claimDiscount/{id}")
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Retryable(value = {DataAccessException.class},
+            maxAttempts = 3, backoff = @Backoff(delay = 500))
+    public ResponseEntity<?> claimDiscount(@PathVariable("id") Integer id) {
+        try {
+            lockMetrics.lock(userOperationsLock.readLock(), "user_operations.read");
+            try {
+                String claimToken = UUID.randomUUID().toString();
+                boolean claimed;
+                try {
+                    claimed = userRepository.claimDiscountById(id, claimToken) == 1;
+                    countDiscount("claims", claimed ? "claimed" : "already_availed");
+                } catch (Exception e) {
+                    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Discount claim failed!", e);
+                }
+
+                User user = userRepository.findById(id)
+                        .orElseThrow(() -> new ResponseStatusException(
+                                HttpStatus.NOT_FOUND, String.format("User not found with id %d", id)));
+                return new ResponseEntity<>(new DiscountClaim(user, claimed, claimed ? claimToken : null), HttpStatus.OK);
+            } finally {
+                userOperationsLock.readLock().unlock();
+            }
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
+        }
+    }
+
     /**
      * Creates a new user account.
      * Uses transaction isolation to prevent dirty reads and lost updates.
@@ -107,7 +178,7 @@ public class AccountServiceController {
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public ResponseEntity<?> createAccount(@RequestBody User user) {
         try {
-            userOperationsLock.writeLock().lock();
+            lockMetrics.lock(userOperationsLock.writeLock(), "user_operations.write");
             try {
                 if (!isValidPayloadForPostMethod(user)) {
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid payload, all fields must be non-null.");
@@ -135,35 +206,39 @@ public class AccountServiceController {
 
     /**
      * Retrieves a user account by ID.
-     * Uses READ_COMMITTED isolation to allow concurrent reads.
+     * Concurrent requests for the same user, e.g. the lookups of the wallet service, share one read.
+     * The method is not transactional, so the requests waiting for the read do not hold a connection.
      *
      * @param userId The user ID.
      * @return ResponseEntity with user details or an error message.
      */
     @GetMapping(path = "/users/{userId}")
-    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public ResponseEntity<?> getAccount(@PathVariable Integer userId) {
         try {
-            userOperationsLock.readLock().lock();
-            try {
-                User user = userRepository.findById(userId)
-                        .orElseThrow(() -> new ResponseStatusException(
-                                HttpStatus.NOT_FOUND, String.format("User not found with id %d", userId)));
-                return new ResponseEntity<>(user, HttpStatus.OK);
-            } finally {
-                userOperationsLock.readLock().unlock();
-            }
+            User user = userReads.load(userId, () -> {
+                lockMetrics.lock(userOperationsLock.readLock(), "user_operations.read");
+                try {
+                    return userRepository.findById(userId);
+                } finally {
+                    userOperationsLock.readLock().unlock();
+                }
+            }).orElseThrow(() -> new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, String.format("User not found with id %d", userId)));
+            return new ResponseEntity<>(user, HttpStatus.OK);
         } catch (ResponseStatusException e) {
             return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
         }
     }
 
     /**
-     * Deletes a user account by ID and removes related data from external services.
-     * Uses SERIALIZABLE isolation to prevent concurrent modifications.
+     * Deletes a user account by ID and schedules the removal of related data from external services.
+     * Only the local deletion happens under the write lock. The marketplace and wallet cleanups are
+     * delivered through the outbox and run concurrently in the background, so the response is
+     * 202 (ACCEPTED) with a deletion job
+     * which can be polled at /users/deletions/{jobId}.
      *
      * @param id The user ID.
-     * @return ResponseEntity indicating success or failure.
+     * @return ResponseEntity with the deletion job or an error message.
      */
     @DeleteMapping(path= "/users/{id}")
     @Transactional(isolation = Isolation.SERIALIZABLE)
@@ -171,80 +246,45 @@ public class AccountServiceController {
             maxAttempts = 2, backoff = @Backoff(delay = 500))
     public ResponseEntity<?> deleteAccount(@PathVariable Integer id) {
         try {
-            userOperationsLock.writeLock().lock();
+            lockMetrics.lock(userOperationsLock.writeLock(), "user_operations.write");
             try {
-                User user = userRepository.findById(id)
+                userRepository.findById(id)
                         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, 
                                 String.format("User not found with id %d", id)));
-                
-                // Track success of each operation
-                boolean userDeleted = false;
-                boolean marketplaceDeleted = false;
-                boolean walletDeleted = false;
-                String marketplaceResponse = "";
-                String walletResponse = "";
-                
+
                 try {
                     userRepository.deleteById(id);
-                    userDeleted = true;
                 } catch (Exception e) {
                     throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "User deletion failed!", e);
                 }
-
-                // Remove user's orders from Marketplace with error handling
-                try {
-                    marketplaceResponse = restClient.delete()
-                            .uri(marketplaceServiceURI + "/marketplace/users/" + id)
-                            .exchange(((clientRequest, clientResponse) -> {
-                                if (clientResponse.getStatusCode() == HttpStatus.NOT_FOUND) {
-                                    return "No User order found in Marketplace!";
-                                } else if (clientResponse.getStatusCode().is2xxSuccessful()) {
-                                    return "User order(s) successfully cancelled in Marketplace.";
-                                } else {
-                                    throw new ResponseStatusException(clientResponse.getStatusCode(), 
-                                            "User order deletion failed!");
-                                }
-                            }));
-                    marketplaceDeleted = true;
-                } catch (Exception e) {
-                    marketplaceResponse = "Failed to delete marketplace data: " + e.getMessage();
-                }
-
-                // Remove user's wallet data with error handling
-                try {
-                    walletResponse = restClient.delete()
-                            .uri(walletServiceURI + "/wallets/" + id)
-                            .exchange(((clientRequest, clientResponse) -> {
-                                if (clientResponse.getStatusCode() == HttpStatus.NOT_FOUND) {
-                                    return "No User wallet found in Marketplace!";
-                                } else if (clientResponse.getStatusCode().is2xxSuccessful()) {
-                                    return "User wallet successfully deleted.";
-                                } else {
-                                    throw new ResponseStatusException(clientResponse.getStatusCode(), 
-                                            "User wallet deletion failed!");
-                                }
-                            }));
-                    walletDeleted = true;
-                } catch (Exception e) {
-                    walletResponse = "Failed to delete wallet data: " + e.getMessage();
-                }
-
-                String resultMessage = "User deleted successfully.";
-                if (userDeleted && marketplaceDeleted && walletDeleted) {
-                    resultMessage += "\n" + marketplaceResponse + "\n" + walletResponse;
-                    return new ResponseEntity<>(resultMessage, HttpStatus.OK);
-                } else {
-                    resultMessage += "\n" + marketplaceResponse + "\n" + walletResponse;
-                    return new ResponseEntity<>(resultMessage, HttpStatus.PARTIAL_CONTENT);
-                }
             } finally {
                 userOperationsLock.writeLock().unlock();
             }
+
+            // The USER_DELETED event commits with the deletion, the outbox relay then runs the cleanups
+            DeletionJob job = userDeletionService.scheduleCleanup(id);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/users/deletions/" + job.getJob_id()))
+                    .body(job);
         } catch (ResponseStatusException e) {
             return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
         }
     }
 
+    /**
+     * Retrieves the state of a user deletion job.
+     *
+     * @param jobId The job ID returned by DELETE /users/{id}.
+     * @return ResponseEntity with the deletion job or an error message.
+     */
+    @GetMapping(path = "/users/deletions/{jobId}")
+    public ResponseEntity<?> getDeletionJob(@PathVariable String jobId) {
+        return userDeletionService.findJob(jobId)
+                .<ResponseEntity<?>>map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(
+                        String.format("Deletion job not found with id %s", jobId), HttpStatus.NOT_FOUND));
+    }
+
     /**
      * Deletes all user accounts and their related data from external services.
      * Uses SERIALIZABLE isolation to prevent concurrent modifications.
@@ -255,7 +295,7 @@ public class AccountServiceController {
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public ResponseEntity<String> deleteAllAccounts() {
         try {
-            userOperationsLock.writeLock().lock();
+            lockMetrics.lock(userOperationsLock.writeLock(), "user_operations.write");
             try {
                 boolean usersDeleted = false;
                 boolean marketplaceDeleted = false;
@@ -310,23 +350,35 @@ public class AccountServiceController {
     /**
      * Resets a user's discount status to false.
      * Used for reverting discount status changes in failure scenarios.
+     * When a claim token from /claimDiscount is given, only that claim is reset, which makes
+     * the compensation idempotent and harmless if the claim was already reset.
      * 
      * @param userId The user ID
+     * @param token  The claim token returned by /claimDiscount, optional
      * @return ResponseEntity indicating success or failure
      */
     @PutMapping("/resetDiscount/{userId}")
     @Transactional(isolation = Isolation.SERIALIZABLE)
     @Retryable(value = {OptimisticLockingFailureException.class, DataAccessException.class},
             maxAttempts = 3, backoff = @Backoff(delay = 500))
-    public ResponseEntity<?> resetDiscount(@PathVariable Integer userId) {
+    public ResponseEntity<?> resetDiscount(@PathVariable Integer userId,
+                                           @RequestParam(name = "token", required = false) String token) {
         try {
-            userOperationsLock.writeLock().lock();
+            lockMetrics.lock(userOperationsLock.writeLock(), "user_operations.write");
             try {
                 User user = userRepository.findById(userId)
                         .orElseThrow(() -> new ResponseStatusException(
                                 HttpStatus.NOT_FOUND, String.format("User not found with id %d", userId)));
                 
                 try {
+                    if (token != null) {
+                        if (userRepository.resetDiscountByIdAndClaimToken(user.getId(), token) == 0) {
+                            countDiscount("resets", "already_reset");
+                            return new ResponseEntity<>("Discount claim already reset.", HttpStatus.OK);
+                        }
+                        countDiscount("resets", "reset");
+                        return new ResponseEntity<>("Discount reset successfully!", HttpStatus.OK);
+                    }
                     userRepository.updateDiscountAvailedByIdById(user.getId(), false);
                 } catch (Exception e) {
                     throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, 
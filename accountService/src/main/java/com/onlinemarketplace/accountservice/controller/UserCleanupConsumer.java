@@ -0,0 +1,148 @@
+package com.onlinemarketplace.accountservice.controller;
+
+import com.onlinemarketplace.accountservice.model.DeletionJob;
+import com.onlinemarketplace.accountservice.model.UserDeletedEvent;
+import com.onlinemarketplace.common.limit.ConcurrencyLimitFilter;
+import com.onlinemarketplace.common.outbox.OutboxConsumer;
+import com.onlinemarketplace.common.outbox.OutboxEvent;
+import com.onlinemarketplace.common.outbox.OutboxEventType;
+import com.onlinemarketplace.common.outbox.OutboxPublisher;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Delivers USER_DELETED events to one downstream service.
+ * The events of a batch are delivered concurrently on virtual threads, each call with its own deadline.
+ * If any call fails the batch is redelivered by the outbox relay; the downstream deletions are idempotent.
+ * The calls are critical, so the downstream services do not shed them under load.
+ */
+public class UserCleanupConsumer implements OutboxConsumer {
+    private final DeletionJob.Target target;
+    private final String serviceURI;
+    private final UserDeletionService userDeletionService;
+    private final OutboxPublisher outboxPublisher;
+    private final RestClient restClient;
+    private final Duration deadline;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Constructor for UserCleanupConsumer.
+     *
+     * @param target              the downstream service to clean up in.
+     * @param serviceURI          base URI of the downstream service.
+     * @param userDeletionService the service tracking deletion jobs.
+     * @param outboxPublisher     used to read event payloads.
+     * @param restClientBuilder   builder of the client for the downstream calls.
+     * @param deadline            deadline for each downstream call.
+     */
+    public UserCleanupConsumer(DeletionJob.Target target, String serviceURI, UserDeletionService userDeletionService,
+                               OutboxPublisher outboxPublisher, RestClient.Builder restClientBuilder,
+                               Duration deadline) {
+        this.target = target;
+        this.serviceURI = serviceURI;
+        this.userDeletionService = userDeletionService;
+        this.outboxPublisher = outboxPublisher;
+        this.deadline = deadline;
+
+        // Dedicated client so that the deadline also aborts the underlying HTTP exchange
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(deadline);
+        requestFactory.setReadTimeout(deadline);
+        this.restClient = restClientBuilder.clone().requestFactory(requestFactory).build();
+    }
+
+    @Override
+    public String name() {
+        return "account." + target.name().toLowerCase() + "-cleanup";
+    }
+
+    @Override
+    public Set<OutboxEventType> eventTypes() {
+        return Set.of(OutboxEventType.USER_DELETED);
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        List<UserDeletedEvent> deletions = new ArrayList<>();
+        List<Future<String>> calls = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            UserDeletedEvent deletion = outboxPublisher.readPayload(event, UserDeletedEvent.class);
+            deletions.add(deletion);
+            calls.add(executor.submit(() -> cleanUp(deletion.user_id())));
+        }
+
+        int failed = 0;
+        for (int i = 0; i < calls.size(); i++) {
+            String jobId = deletions.get(i).job_id();
+            try {
+                String message = calls.get(i).get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+                userDeletionService.recordOutcome(jobId, target, message, true);
+            } catch (TimeoutException e) {
+                calls.get(i).cancel(true);
+                userDeletionService.recordOutcome(jobId, target, failurePrefix()
+                        + "no response within " + deadline.toMillis() + " ms, retrying", false);
+                failed++;
+            } catch (ExecutionException e) {
+                userDeletionService.recordOutcome(jobId, target, failurePrefix()
+                        + e.getCause().getMessage() + ", retrying", false);
+                failed++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while cleaning up deleted users", e);
+            }
+        }
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " of " + calls.size() + " user cleanups failed in " + target);
+        }
+    }
+
+    private String cleanUp(Integer userId) {
+        String uriTemplate = target == DeletionJob.Target.MARKETPLACE
+                ? serviceURI + "/marketplace/users/{user_id}"
+                : serviceURI + "/wallets/{user_id}";
+        return restClient.delete()
+                .uri(uriTemplate, userId)
+                .header(ConcurrencyLimitFilter.PRIORITY_HEADER, ConcurrencyLimitFilter.CRITICAL_PRIORITY)
+                .exchange(((clientRequest, clientResponse) -> {
+                    if (clientResponse.getStatusCode() == HttpStatus.NOT_FOUND) {
+                        return target == DeletionJob.Target.MARKETPLACE
+                                ? "No User order found in Marketplace!"
+                                : "No User wallet found in Marketplace!";
+                    } else if (clientResponse.getStatusCode().is2xxSuccessful()) {
+                        return target == DeletionJob.Target.MARKETPLACE
+                                ? "User order(s) successfully cancelled in Marketplace."
+                                : "User wallet successfully deleted.";
+                    } else {
+                        throw new ResponseStatusException(clientResponse.getStatusCode(),
+                                target == DeletionJob.Target.MARKETPLACE
+                                        ? "User order deletion failed!"
+                                        : "User wallet deletion failed!");
+                    }
+                }));
+    }
+
+    private String failurePrefix() {
+        return target == DeletionJob.Target.MARKETPLACE
+                ? "Failed to delete marketplace data: "
+                : "Failed to delete wallet data: ";
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
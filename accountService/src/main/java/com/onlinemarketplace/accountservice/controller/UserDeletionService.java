@@ -0,0 +1,97 @@
+package com.onlinemarketplace.accountservice.controller;
+
+import com.onlinemarketplace.accountservice.model.DeletionJob;
+import com.onlinemarketplace.accountservice.model.UserDeletedEvent;
+import com.onlinemarketplace.common.outbox.OutboxEventType;
+import com.onlinemarketplace.common.outbox.OutboxPublisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the cleanup of deleted users in the downstream services.
+ * A deletion publishes a USER_DELETED event to the outbox in the deleting transaction; the
+ * {@link UserCleanupConsumer}s deliver it to the marketplace and wallet services concurrently in
+ * the background and report back into the user's {@link DeletionJob}, which callers can poll.
+ */
+@Service
+public class UserDeletionService {
+    private final OutboxPublisher outboxPublisher;
+    private final Duration jobRetention;
+    private final ConcurrentHashMap<String, DeletionJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for UserDeletionService.
+     *
+     * @param outboxPublisher     the publisher of the USER_DELETED event.
+     * @param jobRetentionMinutes how long finished jobs can still be polled.
+     */
+    public UserDeletionService(OutboxPublisher outboxPublisher,
+                               @Value("${account.deletion.job-retention-minutes:60}") long jobRetentionMinutes) {
+        this.outboxPublisher = outboxPublisher;
+        this.jobRetention = Duration.ofMinutes(jobRetentionMinutes);
+    }
+
+    /**
+     * Creates a deletion job for the user and publishes the USER_DELETED event.
+     * Must be called in the transaction deleting the user: the event is only relayed once it commits,
+     * so a rolled back deletion never reaches the other services.
+     *
+     * @param userId the ID of the deleted user.
+     * @return the pending job.
+     */
+    public DeletionJob scheduleCleanup(Integer userId) {
+        evictExpiredJobs();
+        DeletionJob job = new DeletionJob(UUID.randomUUID().toString(), userId);
+        outboxPublisher.publish(OutboxEventType.USER_DELETED, userId, new UserDeletedEvent(userId, job.getJob_id()));
+        jobs.put(job.getJob_id(), job);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    jobs.remove(job.getJob_id());
+                }
+            }
+        });
+        return job;
+    }
+
+    /**
+     * Looks up a deletion job by its ID.
+     *
+     * @param jobId the job ID.
+     * @return the job, or empty if it is unknown or has expired.
+     */
+    public Optional<DeletionJob> findJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Records the outcome of a cleanup attempt. Outcomes of jobs which are no longer tracked,
+     * for example after a restart, are ignored: the cleanup itself still happens.
+     *
+     * @param jobId   the job ID.
+     * @param target  the downstream service.
+     * @param message the response or error message.
+     * @param done    whether the cleanup succeeded.
+     */
+    void recordOutcome(String jobId, DeletionJob.Target target, String message, boolean done) {
+        DeletionJob job = jobs.get(jobId);
+        if (job != null) {
+            job.recordOutcome(target, message, done);
+        }
+    }
+
+    private void evictExpiredJobs() {
+        Instant cutoff = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.getCompleted_at() != null && job.getCompleted_at().isBefore(cutoff));
+    }
+}
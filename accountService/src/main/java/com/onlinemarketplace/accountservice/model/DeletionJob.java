@@ -0,0 +1,86 @@
+package com.onlinemarketplace.accountservice.model;
+
+import java.time.Instant;
+
+/**
+ * Tracks the cleanup of a deleted user's data in the marketplace and wallet services.
+ * A job is returned by DELETE /users/{id} and can be polled until it is COMPLETED.
+ */
+public class DeletionJob {
+
+    /**
+     * PENDING while at least one downstream cleanup has not succeeded yet, COMPLETED afterwards.
+     * Failed cleanups are retried, their last error is reported in the corresponding result.
+     */
+    public enum Status { PENDING, COMPLETED }
+
+    /**
+     * The downstream services a deleted user has to be cleaned up in.
+     */
+    public enum Target { MARKETPLACE, WALLET }
+
+    private final String job_id;
+    private final Integer user_id;
+    private final Instant created_at = Instant.now();
+    // Updated from the outbox relay threads, read by polling requests
+    private volatile String marketplace_result;
+    private volatile boolean marketplaceDone;
+    private volatile String wallet_result;
+    private volatile boolean walletDone;
+    private volatile Instant completed_at;
+
+    public DeletionJob(String job_id, Integer user_id) {
+        this.job_id = job_id;
+        this.user_id = user_id;
+    }
+
+    /**
+     * Records the outcome of a cleanup attempt in one downstream service.
+     * A successful outcome is final and not overwritten by redeliveries.
+     *
+     * @param target  the downstream service
+     * @param message the response or error message
+     * @param done    whether the cleanup succeeded
+     */
+    public synchronized void recordOutcome(Target target, String message, boolean done) {
+        if (target == Target.MARKETPLACE && !marketplaceDone) {
+            marketplace_result = message;
+            marketplaceDone = done;
+        } else if (target == Target.WALLET && !walletDone) {
+            wallet_result = message;
+            walletDone = done;
+        }
+        if (marketplaceDone && walletDone && completed_at == null) {
+            completed_at = Instant.now();
+        }
+    }
+
+    // Getters
+    public String getJob_id() {
+        return job_id;
+    }
+
+    public Integer getUser_id() {
+        return user_id;
+    }
+
+    public Status getStatus() {
+        return completed_at != null ? Status.COMPLETED : Status.PENDING;
+    }
+
+    public String getMarketplace_result() {
+        return marketplace_result;
+    }
+
+    public String getWallet_result() {
+        return wallet_result;
+    }
+
+    public Instant getCreated_at() {
+        return created_at;
+    }
+
+    public Instant getCompleted_at() {
+        return completed_at;
+    }
+}
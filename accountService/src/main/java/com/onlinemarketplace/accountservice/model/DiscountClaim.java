@@ -0,0 +1,48 @@
+package com.onlinemarketplace.accountservice.model;
+
+/**
+ * Response body of a discount claim.
+ * Carries the user together with the outcome of the claim, so callers need a single round trip.
+ */
+public class DiscountClaim {
+    private User user;
+    /**
+     * True only for the caller whose claim flipped discount_availed from false to true.
+     */
+    private Boolean discount_claimed;
+    /**
+     * Token to pass to /resetDiscount when the claim has to be compensated, null if the claim was lost.
+     */
+    private String claim_token;
+
+    public DiscountClaim(User user, Boolean discount_claimed, String claim_token) {
+        this.user = user;
+        this.discount_claimed = discount_claimed;
+        this.claim_token = claim_token;
+    }
+
+    // Getters and Setters
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Boolean getDiscount_claimed() {
+        return discount_claimed;
+    }
+
+    public void setDiscount_claimed(Boolean discount_claimed) {
+        this.discount_claimed = discount_claimed;
+    }
+
+    public String getClaim_token() {
+        return claim_token;
+    }
+
+    public void setClaim_token(String claim_token) {
+        this.claim_token = claim_token;
+    }
+}
@@ -1,5 +1,6 @@
 package com.onlinemarketplace.accountservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
@@ -18,6 +19,12 @@ public class User {
     @Column(unique=true)
     private String email;
     private Boolean discount_availed = false;
+    /**
+     * Token handed out to the caller that won the discount claim.
+     * Only that caller can reset the claim, so a stale compensation cannot undo a newer claim.
+     */
+    @JsonIgnore
+    private String discount_claim_token;
 
 
     // Getter and Setters
@@ -62,4 +69,12 @@ public class User {
     public void setDiscount_availed(Boolean discount_availed) {
         this.discount_availed = discount_availed;
     }
+
+    public String getDiscount_claim_token() {
+        return discount_claim_token;
+    }
+
+    public void setDiscount_claim_token(String discount_claim_token) {
+        this.discount_claim_token = discount_claim_token;
+    }
 }
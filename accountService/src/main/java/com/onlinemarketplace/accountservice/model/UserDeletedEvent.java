@@ -0,0 +1,10 @@
+package com.onlinemarketplace.accountservice.model;
+
+/**
+ * Payload of the USER_DELETED outbox event.
+ *
+ * @param user_id the ID of the deleted user
+ * @param job_id  the ID of the deletion job tracking the downstream cleanup
+ */
+public record UserDeletedEvent(Integer user_id, String job_id) {
+}
@@ -34,4 +34,31 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     @Modifying
     @Query("UPDATE User u SET u.discount_availed = :discountAvailed WHERE u.id = :id")
     void updateDiscountAvailedByIdById(int id, boolean discountAvailed);
+
+    /**
+     * Atomically marks the discount of a user as availed, provided it has not been availed yet.
+     * Exactly one of several concurrent callers sees a row count of 1 and wins the claim.
+     *
+     * @param id the ID of the user claiming the discount
+     * @param claimToken the token identifying this claim, required later to reset it
+     * @return the number of updated rows, 1 if the claim was won and 0 otherwise
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.discount_availed = true, u.discount_claim_token = :claimToken " +
+            "WHERE u.id = :id AND u.discount_availed = false")
+    int claimDiscountById(int id, String claimToken);
+
+    /**
+     * Resets the discount of a user, but only if it was claimed with the given token.
+     *
+     * @param id the ID of the user whose discount claim is to be reset
+     * @param claimToken the token returned when the discount was claimed
+     * @return the number of updated rows, 0 if the claim was already reset or superseded
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.discount_availed = false, u.discount_claim_token = null " +
+            "WHERE u.id = :id AND u.discount_claim_token = :claimToken")
+    int resetDiscountByIdAndClaimToken(int id, String claimToken);
 }
@@ -0,0 +1,87 @@
+package com.onlinemarketplace.accountservice.repository;
+
+import com.onlinemarketplace.accountservice.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class UserRepositoryTest {
+
+	private static final int USER = 1;
+
+	// The repositories on the embedded database, without the application's beans
+	@SpringBootConfiguration
+	@EntityScan(basePackageClasses = User.class)
+	@EnableJpaRepositories(basePackageClasses = UserRepository.class)
+	static class Repositories {
+	}
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void createUser() {
+		User user = new User();
+		user.setId(USER);
+		user.setName("Alice");
+		user.setEmail("alice@example.com");
+		userRepository.saveAndFlush(user);
+	}
+
+	@Test
+	void onlyFirstClaimWins() {
+		assertThat(userRepository.claimDiscountById(USER, "first")).isEqualTo(1);
+		assertThat(userRepository.claimDiscountById(USER, "second")).isZero();
+
+		User user = userRepository.findById(USER).orElseThrow();
+		assertThat(user.getDiscount_availed()).isTrue();
+		assertThat(user.getDiscount_claim_token()).isEqualTo("first");
+	}
+
+	@Test
+	void resetsOnlyClaimOfItsToken() {
+		userRepository.claimDiscountById(USER, "first");
+
+		assertThat(userRepository.resetDiscountByIdAndClaimToken(USER, "second")).isZero();
+		assertThat(userRepository.findById(USER).orElseThrow().getDiscount_availed()).isTrue();
+
+		assertThat(userRepository.resetDiscountByIdAndClaimToken(USER, "first")).isEqualTo(1);
+		User user = userRepository.findById(USER).orElseThrow();
+		assertThat(user.getDiscount_availed()).isFalse();
+		assertThat(user.getDiscount_claim_token()).isNull();
+	}
+
+	@Test
+	void repeatedResetIsNoOp() {
+		userRepository.claimDiscountById(USER, "first");
+
+		assertThat(userRepository.resetDiscountByIdAndClaimToken(USER, "first")).isEqualTo(1);
+		assertThat(userRepository.resetDiscountByIdAndClaimToken(USER, "first")).isZero();
+	}
+
+	@Test
+	void staleResetDoesNotUndoNewerClaim() {
+		userRepository.claimDiscountById(USER, "first");
+		userRepository.resetDiscountByIdAndClaimToken(USER, "first");
+		assertThat(userRepository.claimDiscountById(USER, "second")).isEqualTo(1);
+
+		// The compensation of the first order is retried after the second order claimed the discount
+		assertThat(userRepository.resetDiscountByIdAndClaimToken(USER, "first")).isZero();
+
+		User user = userRepository.findById(USER).orElseThrow();
+		assertThat(user.getDiscount_availed()).isTrue();
+		assertThat(user.getDiscount_claim_token()).isEqualTo("second");
+	}
+
+	@Test
+	void claimOfUnknownUserUpdatesNothing() {
+		assertThat(userRepository.claimDiscountById(2, "first")).isZero();
+	}
+}
@@ -0,0 +1,70 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.onlinemarketplace.accountservice.controller.AccountServiceController;
+import com.onlinemarketplace.accountservice.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The account service calls made for every order and wallet update: GET /users/{id}, used by the
+ * wallet, and PUT /claimDiscount/{id}, used by the marketplace (after the first claim per user it
+ * is the common "already availed" case).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AccountLookupBenchmark {
+
+    private static final int USERS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private AccountServiceController controller;
+
+    @Setup(Level.Trial)
+    public void startService() {
+        context = ServiceContexts.account();
+        controller = context.getBean(AccountServiceController.class);
+        for (int userId = 1; userId <= USERS; userId++) {
+            User user = new User();
+            user.setId(userId);
+            user.setName("User " + userId);
+            user.setEmail("user" + userId + "@example.com");
+            controller.createAccount(user);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<?> getAccount() {
+        return controller.getAccount(1 + ThreadLocalRandom.current().nextInt(USERS));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> claimDiscount() {
+        return controller.claimDiscount(1 + ThreadLocalRandom.current().nextInt(USERS));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopService() {
+        context.close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.onlinemarketplace.marketplaceservice.controller.ProductService;
+import com.onlinemarketplace.marketplaceservice.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a product catalog of the given size with {@link ProductService#loadProductsFromCSV}.
+ * Every load starts from an empty product table. The larger sizes take minutes per shot and need
+ * the heap given below; select sizes with -p rows=10000,100000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CsvLoadBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductRepository productRepository;
+    private EntityManagerFactory entityManagerFactory;
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void startService() {
+        context = ServiceContexts.marketplace();
+        productService = context.getBean(ProductService.class);
+        productRepository = context.getBean(ProductRepository.class);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        csv = generateCsv(rows);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyCatalog() {
+        productRepository.deleteAllInBatch();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Benchmark
+    public void loadProductsFromCsv() {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8));
+        productService.loadProductsFromCSV(reader);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopService() {
+        context.close();
+    }
+
+    static byte[] generateCsv(int rows) {
+        StringBuilder csv = new StringBuilder(rows * 48);
+        csv.append("id,name,description,price,stock_quantity\n");
+        for (int id = 1; id <= rows; id++) {
+            csv.append(id).append(",Product ").append(id).append(",Benchmark product ")
+                    .append(id % 100).append(',').append(1000 + id % 9000).append(',').append(id % 50).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,133 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.onlinemarketplace.accountservice.controller.AccountServiceController;
+import com.onlinemarketplace.accountservice.model.User;
+import com.onlinemarketplace.common.wire.InternalWireFormat;
+import com.onlinemarketplace.marketplaceservice.model.DiscountClaim;
+import com.onlinemarketplace.marketplaceservice.model.WalletRequestBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The calls between the services on the order path, over loopback HTTP to the account and wallet
+ * services running with their web server: the wallet's user lookup, the marketplace's discount claim
+ * and its wallet debit. The caller is a RestClient on the JDK HttpClient, as in the services, sending
+ * and accepting each {@link InternalWireFormat} over HTTP/1.1 keep-alive connections or HTTP/2 (h2c).
+ * cpu.time.norm from {@link ProcessCpuProfiler} is the CPU of both ends of a call. The warmup is
+ * longer than in the other benchmarks: the whole HTTP stack of client and servers has to be compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 4)
+@Fork(1)
+@Threads(4)
+public class InternalCallBenchmark {
+
+    private static final int USERS = 100;
+
+    @Param({"JSON", "SMILE"})
+    public InternalWireFormat format;
+
+    @Param({"HTTP_1_1", "HTTP_2"})
+    public HttpClient.Version protocol;
+
+    private ConfigurableApplicationContext account;
+    private ConfigurableApplicationContext wallet;
+    private RestClient restClient;
+    private String accountServiceURI;
+    private String walletServiceURI;
+
+    @Setup(Level.Trial)
+    public void startServices() {
+        account = ServiceContexts.accountServer("--server.http2.enabled=true");
+        wallet = ServiceContexts.walletServer("--server.http2.enabled=true");
+        accountServiceURI = "http://127.0.0.1:" + ServiceContexts.port(account);
+        walletServiceURI = "http://127.0.0.1:" + ServiceContexts.port(wallet);
+        restClient = RestClient.builder()
+                .requestFactory(new JdkClientHttpRequestFactory(HttpClient.newBuilder().version(protocol).build()))
+                .build();
+        AccountServiceController accountController = account.getBean(AccountServiceController.class);
+        for (int userId = 1; userId <= USERS; userId++) {
+            User user = new User();
+            user.setId(userId);
+            user.setName("User " + userId);
+            user.setEmail("user" + userId + "@example.com");
+            accountController.createAccount(user);
+            restClient.put()
+                    .uri(walletServiceURI + "/wallets/{user_id}", userId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(new WalletRequestBody("credit", 1_000_000))
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Operation {
+        boolean debit;
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> getUser() {
+        return restClient.get()
+                .uri(accountServiceURI + "/users/{user_id}", randomUser())
+                .accept(format.accept())
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    @Benchmark
+    public DiscountClaim claimDiscount() {
+        return restClient.put()
+                .uri(accountServiceURI + "/claimDiscount/{user_id}", randomUser())
+                .accept(format.accept())
+                .retrieve()
+                .body(DiscountClaim.class);
+    }
+
+    // Credits and debits alternate so balances stay stable
+    @Benchmark
+    public ResponseEntity<Void> updateWallet(Operation operation) {
+        operation.debit = !operation.debit;
+        return restClient.put()
+                .uri(walletServiceURI + "/wallets/{user_id}", randomUser())
+                .contentType(format.contentType())
+                .accept(format.accept())
+                .body(new WalletRequestBody(operation.debit ? "debit" : "credit", 10))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServices() {
+        wallet.close();
+        account.close();
+    }
+
+    private static int randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(USERS);
+    }
+}
@@ -0,0 +1,83 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlinemarketplace.marketplaceservice.model.Order;
+import com.onlinemarketplace.marketplaceservice.model.OrderItem;
+import com.onlinemarketplace.marketplaceservice.model.OrderStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of an {@link Order} with items, as returned by the order endpoints, and
+ * deserialization of the POST /orders payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderSerializationBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int items;
+
+    // Configured like the services' ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Order order;
+    private byte[] orderJson;
+    private byte[] requestJson;
+
+    @Setup(Level.Trial)
+    public void createOrder() throws Exception {
+        order = new Order();
+        order.setOrder_id(1);
+        order.setUser_id(1);
+        order.setTotal_price(items * 1000);
+        order.setStatus(OrderStatus.PLACED);
+        List<OrderItem> orderItems = new ArrayList<>();
+        StringBuilder request = new StringBuilder("{\"user_id\":1,\"items\":[");
+        for (int i = 0; i < items; i++) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setId(i + 1);
+            orderItem.setProduct_id(101 + i % 20);
+            orderItem.setQuantity(1);
+            orderItem.setOrder(order);
+            orderItems.add(orderItem);
+            request.append(i == 0 ? "" : ",").append("{\"product_id\":").append(101 + i % 20).append(",\"quantity\":1}");
+        }
+        order.setItems(orderItems);
+        orderJson = objectMapper.writeValueAsBytes(order);
+        requestJson = request.append("]}").toString().getBytes();
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() throws Exception {
+        return objectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public Order deserializeOrder() throws Exception {
+        return objectMapper.readValue(orderJson, Order.class);
+    }
+
+    @Benchmark
+    public Order deserializeOrderRequest() throws Exception {
+        return objectMapper.readValue(requestJson, Order.class);
+    }
+}
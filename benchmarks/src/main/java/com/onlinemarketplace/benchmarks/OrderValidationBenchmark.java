@@ -0,0 +1,76 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.onlinemarketplace.marketplaceservice.controller.MarketplaceServiceController;
+import com.onlinemarketplace.marketplaceservice.controller.OrderValidation;
+import com.onlinemarketplace.marketplaceservice.model.OrderItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * validateAndCalculateTotalCost against the embedded H2 catalog (products 101 to 120 from
+ * products.csv): per-product locking, a stock query per item and the cached name and price.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderValidationBenchmark {
+
+    private static final int FIRST_PRODUCT_ID = 101;
+    private static final int CATALOG_SIZE = 20;
+
+    @Param({"1", "5", "20"})
+    public int items;
+
+    private ConfigurableApplicationContext context;
+    private MarketplaceServiceController controller;
+    private List<OrderItem> orderItems;
+
+    @Setup(Level.Trial)
+    public void startService() {
+        context = ServiceContexts.marketplace();
+        controller = context.getBean(MarketplaceServiceController.class);
+        orderItems = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setProduct_id(FIRST_PRODUCT_ID + i % CATALOG_SIZE);
+            orderItem.setQuantity(1);
+            orderItems.add(orderItem);
+        }
+    }
+
+    @Benchmark
+    public int validateSingleThreaded() {
+        return OrderValidation.validateAndCalculateTotalCost(controller, orderItems);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int validateContended() {
+        return OrderValidation.validateAndCalculateTotalCost(controller, orderItems);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopService() {
+        context.close();
+    }
+}
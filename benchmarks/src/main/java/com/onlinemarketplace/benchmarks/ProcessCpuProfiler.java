@@ -0,0 +1,45 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.sun.management.OperatingSystemMXBean;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reports the CPU time of the benchmark JVM per operation as cpu.time.norm, as the GC profiler reports
+ * allocations in gc.alloc.rate.norm. With the services in-process it covers both ends of an HTTP call,
+ * and the JIT and GC threads.
+ */
+public class ProcessCpuProfiler implements InternalProfiler {
+
+    private final OperatingSystemMXBean operatingSystem =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private long iterationStartCpuNanos;
+
+    @Override
+    public String getDescription() {
+        return "Process CPU time per operation";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        iterationStartCpuNanos = operatingSystem.getProcessCpuTime();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long cpuNanos = operatingSystem.getProcessCpuTime() - iterationStartCpuNanos;
+        long operations = result.getMetadata().getAllOps();
+        return List.of(new ScalarResult("cpu.time.norm", operations == 0 ? Double.NaN : (double) cpuNanos / operations,
+                "ns/op", AggregationPolicy.AVG));
+    }
+}
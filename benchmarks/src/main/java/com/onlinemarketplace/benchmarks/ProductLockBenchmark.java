@@ -0,0 +1,63 @@
+package com.onlinemarketplace.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The productLocks pattern of the marketplace controller: a lock per product created on demand in a
+ * ConcurrentHashMap and taken with tryLock(3s). Eight threads pick among the given number of hot
+ * products, so 1 is fully contended and 1024 is close to uncontended. The critical section burns
+ * roughly the CPU time of a short stock update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ProductLockBenchmark {
+
+    @Param({"1", "16", "1024"})
+    public int hotProducts;
+
+    @Param({"100"})
+    public int criticalSectionTokens;
+
+    private final ConcurrentHashMap<Integer, Lock> productLocks = new ConcurrentHashMap<>();
+
+    private Lock getProductLock(Integer productId) {
+        return productLocks.computeIfAbsent(productId, k -> new ReentrantLock());
+    }
+
+    @Benchmark
+    public boolean lockProduct() throws InterruptedException {
+        Integer productId = ThreadLocalRandom.current().nextInt(hotProducts);
+        Lock lock = getProductLock(productId);
+        if (!lock.tryLock(3, TimeUnit.SECONDS)) {
+            return false;
+        }
+        try {
+            Blackhole.consumeCPU(criticalSectionTokens);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.onlinemarketplace.marketplaceservice.controller.ProductSearchIndex;
+import com.onlinemarketplace.marketplaceservice.controller.ProductService;
+import com.onlinemarketplace.marketplaceservice.model.ProductSearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches of {@link ProductSearchIndex} over a catalog of the given size, from selective term
+ * queries to filters matching most of the catalog. The catalog names combine a brand, an adjective
+ * and a noun out of a few dozen each, so a term matches between 1% and 10% of the products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ProductSearchBenchmark {
+
+    private static final String[] BRANDS = {"acme", "globex", "initech", "umbrella", "hooli", "stark", "wayne",
+            "wonka", "tyrell", "cyberdyne", "soylent", "aperture", "massive", "vandelay", "oscorp", "gringotts",
+            "monarch", "nakatomi", "pied", "dunder", "sterling", "vehement", "duff", "krusty", "ollivander"};
+    private static final String[] ADJECTIVES = {"compact", "portable", "wireless", "smart", "classic", "ultra",
+            "pro", "mini", "heavy", "light", "premium", "budget", "ergonomic", "silent", "rapid", "solar",
+            "digital", "analog", "foldable", "rugged"};
+    private static final String[] NOUNS = {"laptop", "phone", "tablet", "monitor", "keyboard", "mouse", "speaker",
+            "headphones", "camera", "printer", "router", "charger", "kettle", "toaster", "blender", "vacuum",
+            "lamp", "fan", "heater", "watch", "drone", "projector", "scanner", "microphone", "console",
+            "backpack", "bottle", "chair", "desk", "shelf"};
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ProductSearchIndex productSearchIndex;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        context = ServiceContexts.marketplace();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(generateCsv(rows)), StandardCharsets.UTF_8));
+        context.getBean(ProductService.class).loadProductsFromCSV(reader);
+        productSearchIndex = context.getBean(ProductSearchIndex.class);
+    }
+
+    @Benchmark
+    public ProductSearchResult twoTerms() {
+        return search("wireless headphones", null, null, false, ProductSearchIndex.Sort.ID);
+    }
+
+    @Benchmark
+    public ProductSearchResult threeTermsByPrice() {
+        return search("acme portable laptop", null, null, true, ProductSearchIndex.Sort.PRICE);
+    }
+
+    @Benchmark
+    public ProductSearchResult prefixAndTerm() {
+        return search("head* acme", null, null, false, ProductSearchIndex.Sort.NAME);
+    }
+
+    @Benchmark
+    public ProductSearchResult termInPriceRange() {
+        return search("laptop", 2000, 4000, true, ProductSearchIndex.Sort.PRICE_DESC);
+    }
+
+    @Benchmark
+    public ProductSearchResult allInStockByName() {
+        return search(null, null, null, true, ProductSearchIndex.Sort.NAME);
+    }
+
+    @Benchmark
+    public ProductSearchResult priceRangeByPrice() {
+        return search(null, 5000, 6000, false, ProductSearchIndex.Sort.PRICE);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopService() {
+        context.close();
+    }
+
+    private ProductSearchResult search(String text, Integer minPrice, Integer maxPrice, boolean inStock,
+                                       ProductSearchIndex.Sort sort) {
+        return productSearchIndex.search(new ProductSearchIndex.Query(text, minPrice, maxPrice, inStock, sort, 0, 20));
+    }
+
+    static byte[] generateCsv(int rows) {
+        StringBuilder csv = new StringBuilder(rows * 96);
+        csv.append("id,name,description,price,stock_quantity\n");
+        for (int id = 1; id <= rows; id++) {
+            String brand = BRANDS[(id * 7) % BRANDS.length];
+            String adjective = ADJECTIVES[(id * 13) % ADJECTIVES.length];
+            String noun = NOUNS[(id * 31) % NOUNS.length];
+            csv.append(id).append(',')
+                    .append(brand).append(' ').append(adjective).append(' ').append(noun).append(' ').append(id % 1000).append(',')
+                    .append(ADJECTIVES[(id * 17) % ADJECTIVES.length]).append(' ').append(noun).append(" by ").append(brand).append(',')
+                    .append(100 + (id * 37) % 9900).append(',')
+                    .append(id % 5 == 0 ? 0 : id % 50).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,122 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.onlinemarketplace.accountservice.AccountServiceApplication;
+import com.onlinemarketplace.marketplaceservice.MarketplaceServiceApplication;
+import com.onlinemarketplace.walletService.WalletServiceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the services in-process for the benchmarks, without web server unless asked for, and on a
+ * private in-memory H2 database each. The three service jars all contain an application.properties, so they are not
+ * read at all (spring.config.name points elsewhere) and the needed properties are given here.
+ */
+public final class ServiceContexts {
+
+    private ServiceContexts() {
+    }
+
+    /**
+     * Starts the marketplace service. Its catalog is loaded from products.csv on startup.
+     */
+    public static ConfigurableApplicationContext marketplace(String... extraArgs) {
+        List<String> args = baseArgs("marketplaceService");
+        args.add("--spring.jpa.hibernate.ddl-auto=update");
+        // The benchmarks need the products right after startup
+        args.add("--marketplace.catalog.load-in-background=false");
+        args.add("--spring.jpa.hibernate.naming.physical-strategy=org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl");
+        args.add("--spring.jpa.properties.hibernate.cache.use_second_level_cache=true");
+        args.add("--spring.jpa.properties.hibernate.cache.use_query_cache=true");
+        args.add("--spring.jpa.properties.hibernate.cache.region.factory_class=jcache");
+        args.add("--spring.jpa.properties.hibernate.javax.cache.provider=org.ehcache.jsr107.EhcacheCachingProvider");
+        // Resolved up front: Hibernate's class loader service does not see into the shaded jar from the JMH fork
+        args.add("--spring.jpa.properties.hibernate.javax.cache.uri="
+                + ServiceContexts.class.getResource("/ehcache.xml").toExternalForm());
+        args.addAll(List.of(extraArgs));
+        return start(args, MarketplaceServiceApplication.class, StubDownstreamConfiguration.class);
+    }
+
+    /**
+     * Starts the wallet service, with the account service lookups answered in-process.
+     */
+    public static ConfigurableApplicationContext wallet(String... extraArgs) {
+        List<String> args = baseArgs("walletService");
+        args.addAll(List.of(extraArgs));
+        return start(args, WalletServiceApplication.class, StubDownstreamConfiguration.class);
+    }
+
+    /**
+     * Starts the account service, with the marketplace and wallet calls answered in-process.
+     */
+    public static ConfigurableApplicationContext account(String... extraArgs) {
+        List<String> args = baseArgs("accountService");
+        args.addAll(List.of(extraArgs));
+        return start(args, AccountServiceApplication.class, StubDownstreamConfiguration.class);
+    }
+
+    /**
+     * Starts the account service like {@link #account}, with its web server on a random port, see {@link #port}.
+     */
+    public static ConfigurableApplicationContext accountServer(String... extraArgs) {
+        List<String> args = serverArgs("accountService");
+        args.addAll(List.of(extraArgs));
+        return start(args, WebApplicationType.SERVLET, AccountServiceApplication.class, StubDownstreamConfiguration.class);
+    }
+
+    /**
+     * Starts the wallet service like {@link #wallet}, with its web server on a random port, see {@link #port}.
+     */
+    public static ConfigurableApplicationContext walletServer(String... extraArgs) {
+        List<String> args = serverArgs("walletService");
+        args.addAll(List.of(extraArgs));
+        return start(args, WebApplicationType.SERVLET, WalletServiceApplication.class, StubDownstreamConfiguration.class);
+    }
+
+    /**
+     * @return the port of a service started with its web server.
+     */
+    public static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private static List<String> serverArgs(String name) {
+        List<String> args = baseArgs(name);
+        args.add("--server.port=0");
+        args.add("--server.address=127.0.0.1");
+        // Each service keeps its own registry, as if it ran in its own JVM
+        args.add("--management.metrics.use-global-registry=false");
+        return args;
+    }
+
+    private static List<String> baseArgs(String name) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.config.name=benchmark");
+        args.add("--spring.application.name=" + name);
+        args.add("--spring.main.banner-mode=off");
+        args.add("--logging.level.root=WARN");
+        args.add("--spring.datasource.url=jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        args.add("--spring.datasource.username=sa");
+        args.add("--spring.datasource.password=");
+        // The marketplace brings Reactor Netty and R2DBC into this JVM: the RestClients stay on the JDK
+        // HttpClient and the DataSource is not replaced by an R2DBC ConnectionFactory
+        args.add("--spring.http.client.factory=jdk");
+        args.add("--spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration");
+        return args;
+    }
+
+    private static ConfigurableApplicationContext start(List<String> args, Class<?>... sources) {
+        return start(args, WebApplicationType.NONE, sources);
+    }
+
+    private static ConfigurableApplicationContext start(List<String> args, WebApplicationType web, Class<?>... sources) {
+        return new SpringApplicationBuilder(sources)
+                .web(web)
+                .run(args.toArray(new String[0]));
+    }
+}
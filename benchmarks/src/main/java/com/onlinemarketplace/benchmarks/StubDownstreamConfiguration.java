@@ -0,0 +1,36 @@
+package com.onlinemarketplace.benchmarks;
+
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers every downstream call of the services with 200 OK in-process, so the benchmarks measure
+ * the service's own work and need no network. The body is a minimal user/wallet document.
+ */
+@Configuration(proxyBeanMethods = false)
+public class StubDownstreamConfiguration {
+
+    static final String RESPONSE_BODY =
+            "{\"id\":1,\"name\":\"Benchmark\",\"email\":\"benchmark@example.com\",\"discount_availed\":true,"
+                    + "\"user\":{\"id\":1,\"name\":\"Benchmark\",\"email\":\"benchmark@example.com\",\"discount_availed\":true},"
+                    + "\"discount_claimed\":false,\"user_id\":1,\"balance\":0}";
+
+    @Bean
+    public RestClientCustomizer stubDownstreamCustomizer() {
+        byte[] body = RESPONSE_BODY.getBytes(StandardCharsets.UTF_8);
+        return builder -> builder.requestFactory((uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.setResponse(response);
+            return request;
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.onlinemarketplace.benchmarks;
+
+import com.onlinemarketplace.walletService.controller.WalletServiceController;
+import com.onlinemarketplace.walletService.model.WalletRequestBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PUT /wallets/{user_id} through the wallet controller: global write lock, account lookup (answered
+ * in-process by {@link StubDownstreamConfiguration}), balance update and the outbox event of debits.
+ * Credits and debits alternate so balances stay stable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalletUpdateBenchmark {
+
+    private static final int USERS = 100;
+
+    private ConfigurableApplicationContext context;
+    private WalletServiceController controller;
+
+    @Setup(Level.Trial)
+    public void startService() {
+        context = ServiceContexts.wallet();
+        controller = context.getBean(WalletServiceController.class);
+        for (int userId = 1; userId <= USERS; userId++) {
+            controller.updateWallet(userId, request("credit", 1_000_000));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Operation {
+        boolean debit;
+    }
+
+    @Benchmark
+    public ResponseEntity<?> updateWallet(Operation operation) {
+        operation.debit = !operation.debit;
+        int userId = 1 + ThreadLocalRandom.current().nextInt(USERS);
+        return controller.updateWallet(userId, request(operation.debit ? "debit" : "credit", 10));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ResponseEntity<?> updateWalletContended(Operation operation) {
+        return updateWallet(operation);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopService() {
+        context.close();
+    }
+
+    private static WalletRequestBody request(String action, int amount) {
+        WalletRequestBody body = new WalletRequestBody();
+        body.setAction(action);
+        body.setAmount(amount);
+        return body;
+    }
+}
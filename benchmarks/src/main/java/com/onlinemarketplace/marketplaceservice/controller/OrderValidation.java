@@ -0,0 +1,19 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.OrderItem;
+
+import java.util.List;
+
+/**
+ * Gives the benchmarks access to the protected order validation of {@link MarketplaceServiceController}.
+ * Calls go through the controller bean, so its transaction settings apply as in production.
+ */
+public final class OrderValidation {
+
+    private OrderValidation() {
+    }
+
+    public static int validateAndCalculateTotalCost(MarketplaceServiceController controller, List<OrderItem> orderItems) {
+        return controller.validateAndCalculateTotalCost(orderItems);
+    }
+}
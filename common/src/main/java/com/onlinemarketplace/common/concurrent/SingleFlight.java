@@ -0,0 +1,100 @@
+package com.onlinemarketplace.common.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller runs the load, callers arriving
+ * while it runs wait for it and get its result or exception. The key is released as soon as the load
+ * completes, so nothing is cached; a caller may however get a value read shortly before it arrived.
+ * <p>
+ * To read their own writes, writers call {@link #invalidate} once their change is committed: callers
+ * arriving afterwards start a new load instead of joining one which may have read before the change.
+ * <ul>
+ *     <li>singleflight.calls: counter tagged by name and by result, loaded or coalesced.</li>
+ * </ul>
+ *
+ * @param <K> the key, e.g. the ID of the entity loaded.
+ * @param <V> the loaded value.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loaded;
+    private final Counter coalesced;
+
+    /**
+     * @param name          the name of the loads, used as tag.
+     * @param meterRegistry the registry of singleflight.calls.
+     */
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.loaded = calls(name, "loaded", meterRegistry);
+        this.coalesced = calls(name, "coalesced", meterRegistry);
+    }
+
+    private static Counter calls(String name, String result, MeterRegistry meterRegistry) {
+        return Counter.builder("singleflight.calls")
+                .description("Loads run, and calls which waited for the load of another caller instead")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the value of a key, or waits for the load in flight for the key.
+     *
+     * @param key    the key.
+     * @param loader loads the value; exceptions are rethrown to every caller waiting for it.
+     * @return the loaded value.
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                } else if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        loaded.increment();
+        try {
+            V value = loader.get();
+            inFlight.remove(key, call);
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the key from the load in flight, if any. That load still completes for the callers
+     * waiting for it, the following callers run a new one.
+     *
+     * @param key the key whose value changed.
+     */
+    public void invalidate(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Releases every key, see {@link #invalidate}.
+     */
+    public void invalidateAll() {
+        inFlight.clear();
+    }
+}
@@ -0,0 +1,143 @@
+package com.onlinemarketplace.common.limit;
+
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit which adapts to the latency of the requests it admits, after TCP Vegas as in
+ * Netflix's concurrency-limits. The latencies are averaged over short windows and compared with the
+ * latency without load, the fastest request seen: limit * (1 - noLoad / latency) estimates how many of the
+ * requests in flight are waiting, for locks, connections or downstream services, rather than being served.
+ * While fewer than 3 * log10(limit) wait the limit grows by log10(limit); once more than 6 * log10(limit)
+ * wait it shrinks by half the excess, to at most half. Requests over the limit are rejected instead of
+ * joining the wait.
+ * <p>
+ * The latency without load is measured again every 50 to 100 windows, so the limit follows a service
+ * which got slower for good, and the limit does not grow while fewer than half of it is in use.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double ALPHA = 3;
+    private static final double BETA = 6;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final int MIN_PROBE_WINDOWS = 50;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long minWindowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    // Guarded by this
+    private long noLoadRttNanos;
+    private int windowsUntilProbe = nextProbe();
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private long windowMinRtt;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    /**
+     * @param initialLimit the limit until the first windows are measured.
+     * @param minLimit     the lowest the limit goes.
+     * @param maxLimit     the highest the limit goes.
+     * @param minWindow    how long a window lasts at least.
+     * @param unit         the unit of minWindow.
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long minWindow, TimeUnit unit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limits " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.minWindowNanos = unit.toNanos(minWindow);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Admits a request if fewer than the limit are in flight.
+     *
+     * @return the start time to pass to {@link #release}, or empty if the request is rejected. Any
+     * {@link System#nanoTime} value is a valid start time, negative ones included.
+     */
+    public OptionalLong tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return OptionalLong.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return OptionalLong.of(System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and records its latency.
+     *
+     * @param startNanos the value returned by {@link #tryAcquire}.
+     */
+    public void release(long startNanos) {
+        long now = System.nanoTime();
+        int inFlightBefore = inFlight.getAndDecrement();
+        synchronized (this) {
+            long rtt = now - startNanos;
+            windowRttSum += rtt;
+            windowMinRtt = windowSamples == 0 ? rtt : Math.min(windowMinRtt, rtt);
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+            if (windowSamples >= MIN_WINDOW_SAMPLES && now - windowStart >= minWindowNanos) {
+                update((double) windowRttSum / windowSamples, windowMinRtt);
+                windowStart = now;
+                windowRttSum = 0;
+                windowSamples = 0;
+                windowMaxInFlight = 0;
+            }
+        }
+    }
+
+    // Adjusts the limit to the average and fastest latency of a window
+    private void update(double rttNanos, long minRttNanos) {
+        if (noLoadRttNanos == 0 || minRttNanos < noLoadRttNanos || --windowsUntilProbe <= 0) {
+            noLoadRttNanos = minRttNanos;
+            if (windowsUntilProbe <= 0) {
+                windowsUntilProbe = nextProbe();
+            }
+        }
+        double current = limit;
+        if (windowMaxInFlight < current / 2) {
+            return;
+        }
+        double log = Math.max(1, Math.log10(current));
+        double waiting = current * (1 - noLoadRttNanos / rttNanos);
+        double newLimit;
+        if (waiting < ALPHA * log) {
+            newLimit = current + log;
+        } else if (waiting > BETA * log) {
+            newLimit = Math.max(current / 2, current - (waiting - BETA * log) / 2);
+        } else {
+            return;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    private static int nextProbe() {
+        return MIN_PROBE_WINDOWS + ThreadLocalRandom.current().nextInt(MIN_PROBE_WINDOWS);
+    }
+
+    /**
+     * @return the current limit.
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
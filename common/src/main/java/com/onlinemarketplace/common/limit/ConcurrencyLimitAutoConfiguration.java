@@ -0,0 +1,42 @@
+package com.onlinemarketplace.common.limit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the concurrent write requests of every service depending on this module with
+ * {@link ConcurrencyLimitFilter}. The limit adapts between concurrency.limit.min and the server's threads
+ * less the share concurrency.limit.read-share kept for reads. Set concurrency.limit.enabled=false to turn it off.
+ */
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnBean(MeterRegistry.class)
+@ConditionalOnProperty(prefix = "concurrency.limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitAutoConfiguration {
+
+    @Bean
+    public AdaptiveConcurrencyLimit writeConcurrencyLimit(@Value("${server.tomcat.threads.max:200}") int maxThreads,
+                                                          @Value("${concurrency.limit.read-share:0.25}") double readShare,
+                                                          @Value("${concurrency.limit.initial:20}") int initialLimit,
+                                                          @Value("${concurrency.limit.min:4}") int minLimit,
+                                                          @Value("${concurrency.limit.window-ms:100}") long windowMillis) {
+        int maxLimit = Math.max(minLimit, (int) (maxThreads * (1 - readShare)));
+        return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter(AdaptiveConcurrencyLimit writeConcurrencyLimit,
+                                                         @Value("${concurrency.limit.excluded-paths:/actuator/**,/admin/**}") List<String> excludedPaths,
+                                                         @Value("${concurrency.limit.retry-after-seconds:1}") long retryAfterSeconds,
+                                                         MeterRegistry meterRegistry) {
+        return new ConcurrencyLimitFilter(writeConcurrencyLimit, excludedPaths, retryAfterSeconds, meterRegistry);
+    }
+}
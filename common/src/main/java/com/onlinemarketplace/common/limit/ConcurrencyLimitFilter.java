@@ -0,0 +1,110 @@
+package com.onlinemarketplace.common.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+
+/**
+ * Sheds write requests (POST, PUT, PATCH and DELETE) over the {@link AdaptiveConcurrencyLimit} with
+ * 429 (TOO MANY REQUESTS) and a Retry-After header, before they reach a controller, take a lock or call
+ * another service. Read requests and the excluded paths are not limited: as the write limit stays below
+ * the server's threads, reads always find a thread.
+ * <p>
+ * Nor are the requests marked with {@link #PRIORITY_HEADER}: {@link #CRITICAL_PRIORITY}, which the services
+ * send for the calls that undo or finish work already done, the refunds and discount resets of a failed
+ * order and the cleanups of a deleted user. Shedding them would lose the compensation rather than the
+ * request, and there are few of them. The header is meant for calls between the services; a gateway in
+ * front of them should drop it from outside requests.
+ * <ul>
+ *     <li>concurrency.limit: gauge of the current limit.</li>
+ *     <li>concurrency.in_flight: gauge of the write requests being served.</li>
+ *     <li>concurrency.rejected: counter of the requests shed.</li>
+ * </ul>
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements Ordered {
+
+    /**
+     * Header marking a request which is never shed.
+     */
+    public static final String PRIORITY_HEADER = "X-Request-Priority";
+    public static final String CRITICAL_PRIORITY = "critical";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final List<String> excludedPaths;
+    private final long retryAfterSeconds;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimit limit, List<String> excludedPaths, long retryAfterSeconds,
+                                  MeterRegistry meterRegistry) {
+        this.limit = limit;
+        this.excludedPaths = excludedPaths;
+        this.retryAfterSeconds = retryAfterSeconds;
+        Gauge.builder("concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Write requests served concurrently at most")
+                .register(meterRegistry);
+        Gauge.builder("concurrency.in_flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Write requests being served")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("concurrency.rejected")
+                .description("Write requests rejected with 429 because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+
+    // After the observation filter, so the rejections show up in http.server.requests
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (READ_METHODS.contains(request.getMethod())
+                || CRITICAL_PRIORITY.equalsIgnoreCase(request.getHeader(PRIORITY_HEADER))) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String excludedPath : excludedPaths) {
+            if (pathMatcher.match(excludedPath, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        OptionalLong start = limit.tryAcquire();
+        if (start.isEmpty()) {
+            rejected.increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many requests, please try again later.");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limit.release(start.getAsLong());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.onlinemarketplace.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Acquires the services' in-process locks while recording how long callers waited for them.
+ * <ul>
+ *     <li>lock.wait: timer (with percentile histogram) tagged by lock and whether it was acquired.</li>
+ *     <li>lock.conflicts: requests rejected with 409 CONFLICT because a lock timed out.</li>
+ * </ul>
+ */
+public class LockMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public LockMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Acquires a lock, waiting as long as needed.
+     *
+     * @param lock the lock.
+     * @param name the name of the lock, used as tag.
+     */
+    public void lock(Lock lock, String name) {
+        long start = System.nanoTime();
+        lock.lock();
+        waitTimer(name, true).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Tries to acquire a lock within the timeout.
+     *
+     * @param lock    the lock.
+     * @param name    the name of the lock, used as tag.
+     * @param timeout the maximum time to wait.
+     * @param unit    the unit of the timeout.
+     * @return whether the lock was acquired.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean tryLock(Lock lock, String name, long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean acquired = lock.tryLock(timeout, unit);
+        waitTimer(name, acquired).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return acquired;
+    }
+
+    /**
+     * Counts a request rejected with 409 CONFLICT because the lock could not be acquired.
+     *
+     * @param name the name of the lock.
+     */
+    public void conflict(String name) {
+        Counter.builder("lock.conflicts")
+                .description("Requests rejected because a lock could not be acquired in time")
+                .tag("lock", name)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer waitTimer(String name, boolean acquired) {
+        return Timer.builder("lock.wait")
+                .description("Time spent waiting for an in-process lock")
+                .tag("lock", name)
+                .tag("acquired", String.valueOf(acquired))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
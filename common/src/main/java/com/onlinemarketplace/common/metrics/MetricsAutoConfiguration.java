@@ -0,0 +1,21 @@
+package com.onlinemarketplace.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Provides {@link LockMetrics} to the services, once Actuator has set up the meter registry.
+ */
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean(MeterRegistry.class)
+public class MetricsAutoConfiguration {
+
+    @Bean
+    public LockMetrics lockMetrics(MeterRegistry meterRegistry) {
+        return new LockMetrics(meterRegistry);
+    }
+}
@@ -0,0 +1,50 @@
+package com.onlinemarketplace.common.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * Sets up the outbox in every service depending on this module.
+ * The outbox package is registered as an auto-configuration package, so its entities and
+ * repositories are picked up next to the service's own ones. Set outbox.enabled=false to turn it off.
+ */
+@AutoConfiguration(before = {HibernateJpaAutoConfiguration.class, JpaRepositoriesAutoConfiguration.class})
+@AutoConfigurationPackage(basePackageClasses = OutboxEvent.class)
+@ConditionalOnProperty(prefix = "outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableScheduling
+public class OutboxAutoConfiguration {
+
+    @Bean
+    public OutboxPublisher outboxPublisher(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        return new OutboxPublisher(outboxEventRepository, objectMapper);
+    }
+
+    @Bean
+    public OutboxRelay outboxRelay(ObjectProvider<OutboxConsumer> consumers,
+                                   OutboxEventRepository outboxEventRepository,
+                                   OutboxOffsetRepository outboxOffsetRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${outbox.relay.batch-size:100}") int batchSize,
+                                   @Value("${outbox.relay.max-batches-per-poll:10}") int maxBatchesPerPoll,
+                                   @Value("${outbox.relay.poll-interval-ms:500}") long pollIntervalMillis,
+                                   @Value("${outbox.relay.gap-timeout-ms:60000}") long gapTimeoutMillis,
+                                   @Value("${outbox.relay.lease-ms:60000}") long leaseMillis,
+                                   @Value("${outbox.relay.max-backoff-ms:60000}") long maxBackoffMillis,
+                                   @Value("${outbox.retention-hours:24}") long retentionHours) {
+        return new OutboxRelay(consumers.orderedStream().toList(), outboxEventRepository, outboxOffsetRepository,
+                transactionManager, batchSize, maxBatchesPerPoll, pollIntervalMillis,
+                Duration.ofMillis(gapTimeoutMillis), Duration.ofMillis(leaseMillis), Duration.ofHours(retentionHours),
+                Duration.ofMillis(maxBackoffMillis));
+    }
+}
@@ -0,0 +1,46 @@
+package com.onlinemarketplace.common.outbox;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Receives events from the outbox. Every consumer bean found in the application context
+ * is served by the {@link OutboxRelay} with its own offset.
+ * <p>
+ * Delivery is at-least-once: a batch is redelivered until {@link #deliver(List)} returns normally,
+ * so handlers must tolerate duplicates. A consumer which only writes to the service's own database
+ * can be {@link #transactional()} and get exactly-once processing. Events published by transactions
+ * which commit late are delivered once visible, after events with higher IDs.
+ */
+public interface OutboxConsumer {
+
+    /**
+     * @return a name which is unique among all consumers sharing the outbox table, used as offset key
+     */
+    String name();
+
+    /**
+     * @return the event types this consumer is interested in, other events are skipped
+     */
+    Set<OutboxEventType> eventTypes();
+
+    /**
+     * Delivers a batch of events in ID order.
+     *
+     * @param events the events, never empty
+     * @throws RuntimeException to leave the offset untouched and have the batch redelivered later
+     */
+    void deliver(List<OutboxEvent> events);
+
+    /**
+     * Whether {@link #deliver(List)} only writes to the service's own database. Then it runs in the
+     * transaction which advances the offset, so its writes and the offset commit together. Otherwise it
+     * runs outside of any transaction, so no database lock is held during calls to other services, and the
+     * offset is committed afterwards.
+     *
+     * @return false by default
+     */
+    default boolean transactional() {
+        return false;
+    }
+}
@@ -0,0 +1,87 @@
+package com.onlinemarketplace.common.outbox;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A domain event written to the outbox table in the same transaction as the state change it describes.
+ * Events are delivered to consumers in ID order by the {@link OutboxRelay}.
+ */
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+
+    @Id
+    @SequenceGenerator(
+            name = "outbox_event_generator",
+            allocationSize = 1
+    )
+    @GeneratedValue(
+            strategy = GenerationType.SEQUENCE,
+            generator = "outbox_event_generator"
+    )
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType event_type;
+    /**
+     * ID of the user, order or wallet the event is about.
+     */
+    private Integer aggregate_id;
+    /**
+     * JSON representation of the event payload.
+     */
+    @Lob
+    private String payload;
+    private Instant created_at;
+
+    // Getter and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public OutboxEventType getEvent_type() {
+        return event_type;
+    }
+
+    public void setEvent_type(OutboxEventType event_type) {
+        this.event_type = event_type;
+    }
+
+    public Integer getAggregate_id() {
+        return aggregate_id;
+    }
+
+    public void setAggregate_id(Integer aggregate_id) {
+        this.aggregate_id = aggregate_id;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Instant getCreated_at() {
+        return created_at;
+    }
+
+    public void setCreated_at(Instant created_at) {
+        this.created_at = created_at;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "id=" + id +
+                ", event_type=" + event_type +
+                ", aggregate_id=" + aggregate_id +
+                '}';
+    }
+}
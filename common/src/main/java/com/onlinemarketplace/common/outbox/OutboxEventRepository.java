@@ -0,0 +1,45 @@
+package com.onlinemarketplace.common.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Retrieves the next batch of events after a consumer's offset.
+     *
+     * @param after    the ID of the last event delivered to the consumer
+     * @param pageable the maximum batch size
+     * @return the events in ID order
+     */
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id > :after ORDER BY e.id")
+    List<OutboxEvent> findBatchAfter(Long after, Pageable pageable);
+
+    /**
+     * Retrieves the events which filled some of a consumer's gaps.
+     *
+     * @param ids the IDs of the gaps
+     * @return the events visible by now, in ID order
+     */
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id IN :ids ORDER BY e.id")
+    List<OutboxEvent> findAllByIdIn(Collection<Long> ids);
+
+    /**
+     * Deletes events which are delivered to every consumer and older than the retention period.
+     *
+     * @param upTo   the smallest offset of all consumers
+     * @param before the retention cutoff
+     * @return the number of deleted events
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id <= :upTo AND e.created_at < :before")
+    int deleteDelivered(Long upTo, Instant before);
+}
@@ -0,0 +1,17 @@
+package com.onlinemarketplace.common.outbox;
+
+/**
+ * Domain events exchanged between the services through the outbox.
+ */
+public enum OutboxEventType {
+    /** A user account was deleted, its orders and wallet have to be cleaned up. */
+    USER_DELETED,
+    /** An order was placed and paid. */
+    ORDER_PLACED,
+    /** A placed order was cancelled, its stock restored and its price refunded. */
+    ORDER_CANCELLED,
+    /** Placed orders were delivered. */
+    ORDER_DELIVERED,
+    /** A wallet was debited. */
+    WALLET_DEBITED
+}
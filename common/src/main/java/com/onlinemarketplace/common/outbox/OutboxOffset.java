@@ -0,0 +1,73 @@
+package com.onlinemarketplace.common.outbox;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * The position of one consumer in the outbox.
+ * All events with an ID up to and including last_event_id have been delivered to the consumer, except for
+ * the gaps: IDs the relay moved past which had no visible event yet, see {@link OutboxRelay}.
+ */
+@Entity
+@Table(name = "outbox_offset")
+public class OutboxOffset {
+
+    @Id
+    private String consumer;
+    private Long last_event_id = 0L;
+    /**
+     * The gaps below last_event_id still awaited, as comma separated id:detected-at (epoch millis) pairs.
+     */
+    @Lob
+    private String gaps;
+    /**
+     * Until when a relay is delivering a batch outside of a transaction, null if none is.
+     */
+    private Instant leased_until;
+    private Instant updated_at;
+
+    // Getter and Setters
+    public String getConsumer() {
+        return consumer;
+    }
+
+    public void setConsumer(String consumer) {
+        this.consumer = consumer;
+    }
+
+    public Long getLast_event_id() {
+        return last_event_id;
+    }
+
+    public void setLast_event_id(Long last_event_id) {
+        this.last_event_id = last_event_id;
+    }
+
+    public String getGaps() {
+        return gaps;
+    }
+
+    public void setGaps(String gaps) {
+        this.gaps = gaps;
+    }
+
+    public Instant getLeased_until() {
+        return leased_until;
+    }
+
+    public void setLeased_until(Instant leased_until) {
+        this.leased_until = leased_until;
+    }
+
+    public Instant getUpdated_at() {
+        return updated_at;
+    }
+
+    public void setUpdated_at(Instant updated_at) {
+        this.updated_at = updated_at;
+    }
+}
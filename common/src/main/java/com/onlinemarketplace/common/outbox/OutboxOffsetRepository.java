@@ -0,0 +1,24 @@
+package com.onlinemarketplace.common.outbox;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OutboxOffsetRepository extends JpaRepository<OutboxOffset, String> {
+
+    /**
+     * Retrieves and row-locks the offset of a consumer.
+     * The lock keeps relays of other replicas sharing the database from delivering the same batch.
+     *
+     * @param consumer the name of the consumer
+     * @return an Optional containing the offset, or empty if the consumer has not received anything yet
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM OutboxOffset o WHERE o.consumer = :consumer")
+    Optional<OutboxOffset> findForUpdate(String consumer);
+}
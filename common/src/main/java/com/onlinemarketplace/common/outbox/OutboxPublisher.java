@@ -0,0 +1,61 @@
+package com.onlinemarketplace.common.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Writes domain events to the outbox table.
+ * Publishing requires an active transaction, so the event commits or rolls back together with
+ * the state change it describes. Publish as the last step of the transaction: see {@link OutboxRelay}
+ * for why a long gap between publishing and committing should be avoided.
+ */
+public class OutboxPublisher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxPublisher(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Adds an event to the outbox within the caller's transaction.
+     *
+     * @param eventType   the type of the event
+     * @param aggregateId the ID of the user, order or wallet the event is about
+     * @param payload     the event payload, serialized as JSON
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OutboxEventType eventType, Integer aggregateId, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEvent_type(eventType);
+        event.setAggregate_id(aggregateId);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + e.getMessage(), e);
+        }
+        event.setCreated_at(Instant.now());
+        outboxEventRepository.save(event);
+    }
+
+    /**
+     * Reads the payload of an event back into an object.
+     *
+     * @param event       the event
+     * @param payloadType the type the payload was published as
+     * @return the payload
+     */
+    public <T> T readPayload(OutboxEvent event, Class<T> payloadType) {
+        try {
+            return objectMapper.readValue(event.getPayload(), payloadType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed payload in outbox event " + event.getId(), e);
+        }
+    }
+}
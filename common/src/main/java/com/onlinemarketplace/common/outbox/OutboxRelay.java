@@ -0,0 +1,287 @@
+package com.onlinemarketplace.common.outbox;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Delivers outbox events to the registered {@link OutboxConsumer}s in the background.
+ * <p>
+ * Each consumer has its own offset and is drained concurrently with the others, so a slow or
+ * failing consumer does not hold back the rest. If delivery fails the offset stays put and the batch
+ * is retried with exponential backoff, which gives at-least-once semantics. A
+ * {@link OutboxConsumer#transactional() transactional} consumer gets its batch in the transaction which
+ * locks and advances the offset. Any other consumer gets it outside of a transaction, under a lease
+ * taken on the offset, so no database lock is held while it calls other services; the offset is
+ * advanced once the batch is delivered.
+ * <p>
+ * Event IDs come from a sequence and are allocated before commit, so an event with a lower ID can
+ * become visible after one with a higher ID. The IDs an offset moves past without seeing an event are
+ * kept as gaps and looked up again on every batch; an event filling one is delivered then. A gap
+ * nobody fills within the gap timeout was left by a rolled back transaction and is dropped.
+ */
+public class OutboxRelay {
+
+    // The most gaps kept per consumer, the lowest are dropped beyond
+    static final int MAX_GAPS = 1000;
+
+    private final List<OutboxConsumer> consumers;
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxOffsetRepository outboxOffsetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+    private final Duration gapTimeout;
+    private final Duration lease;
+    private final Duration retention;
+    private final Duration maxBackoff;
+    private final long pollIntervalMillis;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Consecutive failures and the earliest next attempt per consumer
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    private final Map<String, Instant> retryAt = new ConcurrentHashMap<>();
+
+    public OutboxRelay(List<OutboxConsumer> consumers,
+                       OutboxEventRepository outboxEventRepository,
+                       OutboxOffsetRepository outboxOffsetRepository,
+                       PlatformTransactionManager transactionManager,
+                       int batchSize, int maxBatchesPerPoll, long pollIntervalMillis,
+                       Duration gapTimeout, Duration lease, Duration retention, Duration maxBackoff) {
+        this.consumers = consumers;
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxBatchesPerPoll = maxBatchesPerPoll;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.gapTimeout = gapTimeout;
+        this.lease = lease;
+        this.retention = retention;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Drains every consumer concurrently and waits until all of them are done.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:500}")
+    public void relay() throws InterruptedException {
+        if (consumers.isEmpty()) {
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (OutboxConsumer consumer : consumers) {
+            tasks.add(() -> {
+                drain(consumer);
+                return null;
+            });
+        }
+        executor.invokeAll(tasks);
+    }
+
+    /**
+     * Deletes events which every consumer has received and which are older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${outbox.purge-interval-ms:60000}")
+    public void purge() {
+        transactionTemplate.executeWithoutResult(status -> {
+            long deliveredUpTo = Long.MAX_VALUE;
+            for (OutboxConsumer consumer : consumers) {
+                // Events filling a gap are still to be delivered
+                long offset = outboxOffsetRepository.findById(consumer.name())
+                        .map(o -> {
+                            TreeMap<Long, Long> gaps = parseGaps(o.getGaps());
+                            return gaps.isEmpty() ? o.getLast_event_id() : gaps.firstKey() - 1;
+                        })
+                        .orElse(0L);
+                deliveredUpTo = Math.min(deliveredUpTo, offset);
+            }
+            outboxEventRepository.deleteDelivered(deliveredUpTo, Instant.now().minus(retention));
+        });
+    }
+
+    private void drain(OutboxConsumer consumer) {
+        String name = consumer.name();
+        Instant next = retryAt.get(name);
+        if (next != null && Instant.now().isBefore(next)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < maxBatchesPerPoll; i++) {
+                if (deliverBatch(consumer) < batchSize) {
+                    break;
+                }
+            }
+            failures.remove(name);
+            retryAt.remove(name);
+        } catch (Exception e) {
+            int attempt = failures.merge(name, 1, Integer::sum);
+            long backoffMillis = Math.min(maxBackoff.toMillis(), pollIntervalMillis << Math.min(attempt, 20));
+            retryAt.put(name, Instant.now().plusMillis(backoffMillis));
+            System.err.println("Outbox delivery to " + name + " failed (attempt " + attempt + "), retrying in "
+                    + backoffMillis + " ms: " + e.getMessage());
+        }
+    }
+
+    private int deliverBatch(OutboxConsumer consumer) {
+        Batch batch = transactionTemplate.execute(status -> {
+            OutboxOffset offset = outboxOffsetRepository.findForUpdate(consumer.name()).orElseGet(() -> {
+                OutboxOffset newOffset = new OutboxOffset();
+                newOffset.setConsumer(consumer.name());
+                return newOffset;
+            });
+            Instant now = Instant.now();
+            if (offset.getLeased_until() != null && now.isBefore(offset.getLeased_until())) {
+                // Another relay is delivering to this consumer
+                return null;
+            }
+
+            Batch next = nextBatch(offset, now);
+            if (next.events().isEmpty()) {
+                if (!next.gaps().equals(next.fromGaps())) {
+                    offset.setGaps(next.gaps());
+                    outboxOffsetRepository.save(offset);
+                }
+                return next;
+            }
+            if (consumer.transactional()) {
+                deliver(consumer, next.events());
+                offset.setLast_event_id(next.last());
+                offset.setGaps(next.gaps());
+            } else {
+                offset.setLeased_until(now.plus(lease));
+            }
+            offset.setUpdated_at(now);
+            outboxOffsetRepository.save(offset);
+            return next;
+        });
+        if (batch == null) {
+            return 0;
+        }
+        if (!consumer.transactional() && !batch.events().isEmpty()) {
+            try {
+                deliver(consumer, batch.events());
+            } catch (RuntimeException e) {
+                commit(consumer, batch, false);
+                throw e;
+            }
+            commit(consumer, batch, true);
+        }
+        return batch.read();
+    }
+
+    // Reads the events filling gaps and the next events after the offset
+    private Batch nextBatch(OutboxOffset offset, Instant now) {
+        long from = offset.getLast_event_id();
+        String fromGaps = offset.getGaps() == null ? "" : offset.getGaps();
+        TreeMap<Long, Long> gaps = parseGaps(fromGaps);
+        gaps.values().removeIf(detectedAt -> detectedAt < now.minus(gapTimeout).toEpochMilli());
+
+        List<OutboxEvent> events = new ArrayList<>();
+        if (!gaps.isEmpty()) {
+            for (OutboxEvent filled : outboxEventRepository.findAllByIdIn(gaps.keySet())) {
+                gaps.remove(filled.getId());
+                events.add(filled);
+            }
+        }
+        List<OutboxEvent> after = outboxEventRepository.findBatchAfter(from, PageRequest.of(0, batchSize));
+        long last = addGaps(gaps, from, after, now.toEpochMilli());
+        events.addAll(after);
+        return new Batch(from, fromGaps, events, last, formatGaps(gaps), after.size());
+    }
+
+    private static void deliver(OutboxConsumer consumer, List<OutboxEvent> events) {
+        List<OutboxEvent> relevant = events.stream()
+                .filter(event -> consumer.eventTypes().contains(event.getEvent_type()))
+                .toList();
+        if (!relevant.isEmpty()) {
+            consumer.deliver(relevant);
+        }
+    }
+
+    // Advances the offset past a batch delivered outside of a transaction, or only gives up the lease
+    private void commit(OutboxConsumer consumer, Batch batch, boolean delivered) {
+        transactionTemplate.executeWithoutResult(status -> {
+            OutboxOffset offset = outboxOffsetRepository.findForUpdate(consumer.name()).orElseThrow();
+            if (offset.getLast_event_id() != batch.from()
+                    || !batch.fromGaps().equals(offset.getGaps() == null ? "" : offset.getGaps())) {
+                // The lease ran out and another relay delivered the batch meanwhile
+                return;
+            }
+            if (delivered) {
+                offset.setLast_event_id(batch.last());
+                offset.setGaps(batch.gaps());
+            }
+            offset.setLeased_until(null);
+            offset.setUpdated_at(Instant.now());
+            outboxOffsetRepository.save(offset);
+        });
+    }
+
+    /**
+     * Records the IDs skipped by a batch read after an offset as gaps.
+     *
+     * @param gaps       the gaps, by ID, with the epoch millis they were detected at
+     * @param from       the offset the batch was read after
+     * @param events     the batch, in ID order
+     * @param detectedAt the epoch millis to record new gaps with
+     * @return the new offset
+     */
+    static long addGaps(TreeMap<Long, Long> gaps, long from, List<OutboxEvent> events, long detectedAt) {
+        long last = from;
+        for (OutboxEvent event : events) {
+            for (long id = Math.max(last + 1, event.getId() - MAX_GAPS); id < event.getId(); id++) {
+                gaps.put(id, detectedAt);
+            }
+            last = event.getId();
+        }
+        while (gaps.size() > MAX_GAPS) {
+            gaps.pollFirstEntry();
+        }
+        return last;
+    }
+
+    static TreeMap<Long, Long> parseGaps(String gaps) {
+        TreeMap<Long, Long> parsed = new TreeMap<>();
+        if (gaps != null && !gaps.isEmpty()) {
+            for (String gap : gaps.split(",")) {
+                int separator = gap.indexOf(':');
+                parsed.put(Long.parseLong(gap.substring(0, separator)), Long.parseLong(gap.substring(separator + 1)));
+            }
+        }
+        return parsed;
+    }
+
+    static String formatGaps(TreeMap<Long, Long> gaps) {
+        StringJoiner joiner = new StringJoiner(",");
+        gaps.forEach((id, detectedAt) -> joiner.add(id + ":" + detectedAt));
+        return joiner.toString();
+    }
+
+    /**
+     * The events of one batch, those filling gaps first, and the offset and gaps before and after it.
+     */
+    private record Batch(long from, String fromGaps, List<OutboxEvent> events, long last, String gaps, int read) {
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,190 @@
+package com.onlinemarketplace.common.sql;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Data source recording every statement executed through its connections into {@link SqlStatistics}.
+ * Connections, statements and result sets are wrapped in JDK proxies: executions are timed, update
+ * counts are taken from the result and query rows are counted as the result set is read.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final SqlStatistics sqlStatistics;
+
+    public InstrumentedDataSource(DataSource targetDataSource, SqlStatistics sqlStatistics) {
+        super(targetDataSource);
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // Identity semantics for the proxies themselves, everything else goes to the target
+    private static boolean isObjectMethod(Method method) {
+        return method.getDeclaringClass() == Object.class;
+    }
+
+    private static Object invokeObjectMethod(Object proxy, Object target, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> "Instrumented " + target;
+        };
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isObjectMethod(method)) {
+                return invokeObjectMethod(proxy, target, method, args);
+            }
+            Object result = invokeTarget(target, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement", "prepareCall" ->
+                        wrapStatement(method.getReturnType(), (Statement) result, (Connection) proxy, (String) args[0]);
+                case "createStatement" -> wrapStatement(Statement.class, (Statement) result, (Connection) proxy, null);
+                default -> result;
+            };
+        }
+
+        private Object wrapStatement(Class<?> type, Statement statement, Connection connection, String sql) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, connection, sql));
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        private final String preparedSql;
+        private final StatementShapeStatistics preparedShape;
+        private String batchSql;
+        private StatementShapeStatistics lastShape;
+
+        private StatementHandler(Statement target, Connection connection, String preparedSql) {
+            this.target = target;
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+            this.preparedShape = preparedSql != null ? sqlStatistics.forStatement(preparedSql) : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isObjectMethod(method)) {
+                return invokeObjectMethod(proxy, target, method, args);
+            }
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.equals("addBatch") && args != null && args.length == 1 && args[0] instanceof String sql) {
+                batchSql = sql;
+            } else if (name.equals("getConnection")) {
+                return connection;
+            }
+            Object result = invokeTarget(target, method, args);
+            if (name.equals("getResultSet") && result instanceof ResultSet resultSet && lastShape != null) {
+                return wrapResultSet(resultSet, lastShape);
+            }
+            return result;
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s
+                    : preparedSql != null ? preparedSql : batchSql;
+            StatementShapeStatistics shape = sql == null ? null
+                    : sql == preparedSql ? preparedShape : sqlStatistics.forStatement(sql);
+            long start = System.nanoTime();
+            Object result = invokeTarget(target, method, args);
+            long nanos = System.nanoTime() - start;
+            if (shape == null) {
+                return result;
+            }
+            sqlStatistics.recordExecution(shape, sql, nanos, updateCount(result));
+            lastShape = shape;
+            if (result instanceof ResultSet resultSet) {
+                return wrapResultSet(resultSet, shape);
+            }
+            return result;
+        }
+
+        private Object wrapResultSet(ResultSet resultSet, StatementShapeStatistics shape) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                    new ResultSetHandler(resultSet, shape));
+        }
+
+        private static long updateCount(Object result) {
+            long rows = 0;
+            if (result instanceof Number number) {
+                rows = number.longValue();
+            } else if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return Math.max(rows, 0);
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final StatementShapeStatistics shape;
+
+        private ResultSetHandler(ResultSet target, StatementShapeStatistics shape) {
+            this.target = target;
+            this.shape = shape;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isObjectMethod(method)) {
+                return invokeObjectMethod(proxy, target, method, args);
+            }
+            Object result = invokeTarget(target, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                shape.recordRow();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.onlinemarketplace.common.sql;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the statements executed through an {@link InstrumentedDataSource}.
+ * <p>
+ * Statements are grouped by shape, the SQL with literals and IN lists replaced by placeholders.
+ * Statements run while a request is tracked (see {@link SqlStatisticsFilter}) are also counted per
+ * request; a request running the same shape more than the N+1 threshold is flagged, which is what
+ * lazily loading a collection per entity looks like. Slow statements are sampled to System.err.
+ */
+public class SqlStatistics {
+
+    static final String OTHER_SHAPES = "<other>";
+    private static final int MAX_FLAGGED_REQUESTS = 50;
+
+    // No repeated groups per character or list element: java.util.regex recurses on each repetition
+    // of a group and overflowed the stack on the thousands of parameters of a batched IN list
+    private static final Pattern STRING_LITERAL = Pattern.compile("'[^']*(?:''[^']*)*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?[\\s,?]*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int nPlusOneThreshold;
+    private final Duration slowQueryThreshold;
+    private final double slowQuerySampleRate;
+    private final int maxShapes;
+    private final Map<String, StatementShapeStatistics> shapes = new ConcurrentHashMap<>();
+    // Shapes by statement text, so the same statement is only normalized once
+    private final Map<String, StatementShapeStatistics> statements = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<Map<String, Object>> flaggedRequests = new ConcurrentLinkedDeque<>();
+    private final ThreadLocal<RequestStatistics> currentRequest = new ThreadLocal<>();
+    private volatile Instant since = Instant.now();
+
+    public SqlStatistics(int nPlusOneThreshold, Duration slowQueryThreshold, double slowQuerySampleRate, int maxShapes) {
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.slowQueryThreshold = slowQueryThreshold;
+        this.slowQuerySampleRate = slowQuerySampleRate;
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Reduces a statement to its shape: literals and IN lists become placeholders, whitespace is
+     * collapsed and the statement is lower-cased.
+     *
+     * @param sql the statement.
+     * @return the shape.
+     */
+    public static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("in (?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase();
+    }
+
+    /**
+     * Returns the statistics of the shape of a statement.
+     */
+    StatementShapeStatistics forStatement(String sql) {
+        StatementShapeStatistics stats = statements.get(sql);
+        if (stats == null) {
+            stats = shape(shapeOf(sql));
+            if (statements.size() < maxShapes * 4) {
+                statements.put(sql, stats);
+            }
+        }
+        return stats;
+    }
+
+    // The statistics of a shape, or of all other shapes once the maximum is reached
+    private StatementShapeStatistics shape(String shape) {
+        StatementShapeStatistics stats = shapes.get(shape);
+        if (stats != null) {
+            return stats;
+        }
+        if (shapes.size() >= maxShapes) {
+            shape = OTHER_SHAPES;
+        }
+        return shapes.computeIfAbsent(shape, StatementShapeStatistics::new);
+    }
+
+    /**
+     * Records an executed statement.
+     *
+     * @param stats        the statistics of its shape.
+     * @param sql          the statement, for the slow-query log.
+     * @param nanos        the execution time.
+     * @param rowsAffected the update count, or 0 for queries whose rows are counted as they are read.
+     */
+    void recordExecution(StatementShapeStatistics stats, String sql, long nanos, long rowsAffected) {
+        stats.recordExecution(nanos, rowsAffected);
+        RequestStatistics request = currentRequest.get();
+        if (request != null) {
+            request.statements++;
+            request.shapeCounts.merge(stats.getShape(), 1, Integer::sum);
+        }
+        if (nanos >= slowQueryThreshold.toNanos() && ThreadLocalRandom.current().nextDouble() < slowQuerySampleRate) {
+            System.err.println("Slow SQL (" + nanos / 1_000_000 + " ms"
+                    + (request != null ? ", " + request.description : "") + "): " + sql);
+        }
+    }
+
+    /**
+     * Starts counting the statements of a request on the current thread.
+     *
+     * @param description the request, e.g. "GET /orders/1".
+     */
+    public void beginRequest(String description) {
+        currentRequest.set(new RequestStatistics(description));
+    }
+
+    /**
+     * Stops counting and flags the request if it ran a shape more often than the N+1 threshold.
+     *
+     * @return the number of statements the request executed.
+     */
+    public int endRequest() {
+        RequestStatistics request = currentRequest.get();
+        currentRequest.remove();
+        if (request == null) {
+            return 0;
+        }
+        request.shapeCounts.forEach((shape, count) -> {
+            if (count > nPlusOneThreshold) {
+                Map<String, Object> flagged = new LinkedHashMap<>();
+                flagged.put("request", request.description);
+                flagged.put("shape", shape);
+                flagged.put("executions", count);
+                flagged.put("statements", request.statements);
+                flagged.put("at", Instant.now());
+                flaggedRequests.addFirst(flagged);
+                while (flaggedRequests.size() > MAX_FLAGGED_REQUESTS) {
+                    flaggedRequests.pollLast();
+                }
+                System.err.println("Possible N+1: " + request.description + " ran " + count + " times: " + shape);
+            }
+        });
+        return request.statements;
+    }
+
+    /**
+     * Summarizes the statistics, the shapes sorted by total time.
+     *
+     * @return the summary.
+     */
+    public Map<String, Object> snapshot() {
+        List<StatementShapeStatistics> sorted = new ArrayList<>(shapes.values());
+        sorted.sort(Comparator.comparingLong(StatementShapeStatistics::getTotalNanos).reversed());
+        List<Map<String, Object>> shapeSummaries = new ArrayList<>();
+        long executions = 0;
+        for (StatementShapeStatistics stats : sorted) {
+            shapeSummaries.add(stats.toMap());
+            executions += stats.getExecutions();
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("since", since);
+        summary.put("executions", executions);
+        summary.put("n_plus_one_threshold", nPlusOneThreshold);
+        summary.put("flagged_requests", new ArrayList<>(flaggedRequests));
+        summary.put("shapes", shapeSummaries);
+        return summary;
+    }
+
+    /**
+     * Clears all statistics.
+     */
+    public void reset() {
+        statements.clear();
+        shapes.clear();
+        flaggedRequests.clear();
+        since = Instant.now();
+    }
+
+    private static final class RequestStatistics {
+        private final String description;
+        private final Map<String, Integer> shapeCounts = new HashMap<>();
+        private int statements;
+
+        private RequestStatistics(String description) {
+            this.description = description;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.onlinemarketplace.common.sql;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Instruments the "dataSource" bean of every service depending on this module with
+ * {@link InstrumentedDataSource}, replacing spring.jpa.show-sql. Statistics are served at /admin/sql.
+ * Set sql.statistics.enabled=false to turn it off.
+ */
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "sql.statistics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatisticsAutoConfiguration {
+
+    static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Bean
+    public SqlStatistics sqlStatistics(@Value("${sql.statistics.n-plus-one-threshold:5}") int nPlusOneThreshold,
+                                       @Value("${sql.statistics.slow-query-ms:100}") long slowQueryMillis,
+                                       @Value("${sql.statistics.slow-query-sample-rate:1.0}") double slowQuerySampleRate,
+                                       @Value("${sql.statistics.max-shapes:500}") int maxShapes) {
+        return new SqlStatistics(nPlusOneThreshold, Duration.ofMillis(slowQueryMillis), slowQuerySampleRate, maxShapes);
+    }
+
+    // Static, so the post processor does not pull in the configuration and its beans early
+    @Bean
+    public static BeanPostProcessor sqlStatisticsDataSourcePostProcessor(ObjectProvider<SqlStatistics> sqlStatistics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource(dataSource, sqlStatistics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class SqlStatisticsWebConfiguration {
+
+        @Bean
+        public SqlStatisticsFilter sqlStatisticsFilter(SqlStatistics sqlStatistics) {
+            return new SqlStatisticsFilter(sqlStatistics);
+        }
+
+        @Bean
+        public SqlStatisticsController sqlStatisticsController(SqlStatistics sqlStatistics) {
+            return new SqlStatisticsController(sqlStatistics);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.onlinemarketplace.common.sql;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes the {@link SqlStatistics} of the service at /admin/sql.
+ */
+@RestController
+public class SqlStatisticsController {
+
+    private final SqlStatistics sqlStatistics;
+
+    public SqlStatisticsController(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    /**
+     * Returns the statement shapes sorted by total time and the requests flagged as possible N+1.
+     *
+     * @return a ResponseEntity with the statistics.
+     */
+    @GetMapping("/admin/sql")
+    public ResponseEntity<?> getSqlStatistics() {
+        return new ResponseEntity<>(sqlStatistics.snapshot(), HttpStatus.OK);
+    }
+
+    /**
+     * Clears the statistics.
+     *
+     * @return a ResponseEntity indicating the result of the operation.
+     */
+    @DeleteMapping("/admin/sql")
+    public ResponseEntity<?> resetSqlStatistics() {
+        sqlStatistics.reset();
+        return new ResponseEntity<>("SQL statistics reset!", HttpStatus.OK);
+    }
+}
@@ -0,0 +1,33 @@
+package com.onlinemarketplace.common.sql;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Counts the statements of each HTTP request, for the N+1 detection of {@link SqlStatistics}.
+ * Only statements run on the request thread are attributed to the request.
+ */
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    private final SqlStatistics sqlStatistics;
+
+    public SqlStatisticsFilter(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        sqlStatistics.beginRequest(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            sqlStatistics.endRequest();
+        }
+    }
+}
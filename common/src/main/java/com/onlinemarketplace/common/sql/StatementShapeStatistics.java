@@ -0,0 +1,102 @@
+package com.onlinemarketplace.common.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and row count of one statement shape.
+ * Latencies go into power-of-two microsecond buckets, so percentiles are reported as the upper
+ * bound of their bucket: cheap to record from every thread, precise enough to spot slow shapes.
+ */
+public class StatementShapeStatistics {
+
+    private static final int BUCKETS = 32;
+
+    private final String shape;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    StatementShapeStatistics(String shape) {
+        this.shape = shape;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void recordExecution(long nanos, long rowsAffected) {
+        executions.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        long micros = Math.max(1, nanos / 1_000);
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+        if (rowsAffected > 0) {
+            rows.add(rowsAffected);
+        }
+    }
+
+    void recordRow() {
+        rows.increment();
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Summarizes the shape with times in milliseconds.
+     *
+     * @return the summary, with snake_case keys like the rest of the API.
+     */
+    public Map<String, Object> toMap() {
+        long count = executions.sum();
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("shape", shape);
+        summary.put("executions", count);
+        summary.put("rows", rows.sum());
+        summary.put("total_ms", totalNanos.sum() / 1_000_000.0);
+        summary.put("mean_ms", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count);
+        double max = maxNanos.get() / 1_000_000.0;
+        summary.put("p50_ms", Math.min(percentile(counts, 0.50), max));
+        summary.put("p95_ms", Math.min(percentile(counts, 0.95), max));
+        summary.put("p99_ms", Math.min(percentile(counts, 0.99), max));
+        summary.put("max_ms", max);
+        return summary;
+    }
+
+    private static double percentile(long[] counts, double quantile) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Bucket i holds latencies below 2^i microseconds
+                return (1L << i) / 1_000.0;
+            }
+        }
+        return (1L << (counts.length - 1)) / 1_000.0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.onlinemarketplace.common.wire;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Lets the controllers and RestClients of every service depending on this module read and write
+ * {@link InternalWireFormat#SMILE} next to JSON. JSON stays first, so it is what requests without an
+ * Accept header get.
+ */
+@AutoConfiguration(after = JacksonAutoConfiguration.class, before = HttpMessageConvertersAutoConfiguration.class)
+@ConditionalOnClass({SmileFactory.class, MappingJackson2SmileHttpMessageConverter.class})
+public class InternalWireAutoConfiguration {
+
+    // Replaces Spring's default Smile converter with one configured like the JSON converter, e.g. by spring.jackson.*
+    @Bean
+    @ConditionalOnMissingBean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(jackson2ObjectMapperBuilder.createXmlMapper(false)
+                .factory(new SmileFactory())
+                .build());
+    }
+}
@@ -0,0 +1,38 @@
+package com.onlinemarketplace.common.wire;
+
+import org.springframework.http.MediaType;
+
+/**
+ * The encoding of the calls between the services, set on the calling side by internal.wire.format.
+ * Every service reads and writes both (see {@link InternalWireAutoConfiguration}) and answers in the
+ * format the caller asks for, so callers can switch one at a time. Public clients, which do not ask
+ * for Smile, keep getting JSON.
+ */
+public enum InternalWireFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    /** Jackson's binary JSON: the same documents, without text parsing and with repeated field names sent once. */
+    SMILE(MediaType.parseMediaType(InternalWireFormat.SMILE_VALUE));
+
+    /** The media type of {@link #SMILE}, for the consumes of the endpoints called by other services. */
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MediaType mediaType;
+
+    InternalWireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * @return the content type of request bodies.
+     */
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the accepted response types, preferring this format and falling back to JSON.
+     */
+    public MediaType[] accept() {
+        return this == JSON ? new MediaType[]{MediaType.APPLICATION_JSON} : new MediaType[]{mediaType, MediaType.APPLICATION_JSON};
+    }
+}
@@ -0,0 +1,125 @@
+package com.onlinemarketplace.common.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void callersArrivingDuringLoadShareIt() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> first = load(blockingLoader(release, "balance 10"));
+		CompletableFuture<String> second = load(blockingLoader(release, "balance 20"));
+		awaitCoalesced(1);
+
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("balance 10");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("balance 10");
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void rethrowsLoadFailureToEveryCaller() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Supplier<String> failing = () -> {
+			blockingLoader(release, null).get();
+			throw new IllegalStateException("database unavailable");
+		};
+		CompletableFuture<String> first = load(failing);
+		CompletableFuture<String> second = load(failing);
+		awaitCoalesced(1);
+
+		release.countDown();
+
+		assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.cause().isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.cause().isInstanceOf(IllegalStateException.class);
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void loadsAgainOnceCompleted() {
+		assertThat(singleFlight.load(1, () -> "balance 10")).isEqualTo("balance 10");
+		assertThat(singleFlight.load(1, () -> "balance 20")).isEqualTo("balance 20");
+		assertThat(coalesced()).isZero();
+	}
+
+	@Test
+	void callerArrivingAfterInvalidateDoesNotJoinEarlierLoad() throws Exception {
+		CountDownLatch releaseStale = new CountDownLatch(1);
+		CompletableFuture<String> stale = load(blockingLoader(releaseStale, "balance 10"));
+		awaitLoads(1);
+
+		// A write commits while the first read is in flight
+		singleFlight.invalidate(1);
+		CountDownLatch releaseFresh = new CountDownLatch(1);
+		CompletableFuture<String> fresh = load(blockingLoader(releaseFresh, "balance 20"));
+		awaitLoads(2);
+		// Joins the read started after the write, not the one before
+		CompletableFuture<String> joined = load(blockingLoader(releaseFresh, "balance 30"));
+		awaitCoalesced(1);
+
+		releaseStale.countDown();
+		assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("balance 10");
+		releaseFresh.countDown();
+		assertThat(fresh.get(5, TimeUnit.SECONDS)).isEqualTo("balance 20");
+		assertThat(joined.get(5, TimeUnit.SECONDS)).isEqualTo("balance 20");
+		assertThat(loads).hasValue(2);
+	}
+
+	private CompletableFuture<String> load(Supplier<String> loader) {
+		return CompletableFuture.supplyAsync(() -> singleFlight.load(1, loader),
+				command -> Thread.ofVirtual().start(command));
+	}
+
+	private Supplier<String> blockingLoader(CountDownLatch release, String value) {
+		return () -> {
+			loads.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return value;
+		};
+	}
+
+	private void awaitLoads(int expected) throws InterruptedException {
+		await(() -> loads.get() == expected);
+	}
+
+	private void awaitCoalesced(double expected) throws InterruptedException {
+		await(() -> coalesced() == expected);
+	}
+
+	private double coalesced() {
+		return meterRegistry.get("singleflight.calls").tag("result", "coalesced").counter().count();
+	}
+
+	private static void await(Supplier<Boolean> condition) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!condition.get()) {
+			assertThat(System.nanoTime()).as("waited 5 seconds").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.onlinemarketplace.common.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class AdaptiveConcurrencyLimitTest {
+
+	@Test
+	void rejectsOverTheLimitUntilReleased() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 1, 10, 0, TimeUnit.MILLISECONDS);
+
+		long first = limit.tryAcquire().orElseThrow();
+		assertThat(limit.tryAcquire()).isPresent();
+		assertThat(limit.tryAcquire()).isPresent();
+		assertThat(limit.tryAcquire()).isEmpty();
+		assertThat(limit.getInFlight()).isEqualTo(3);
+
+		limit.release(first);
+		assertThat(limit.getInFlight()).isEqualTo(2);
+		assertThat(limit.tryAcquire()).isPresent();
+	}
+
+	@Test
+	void growsWhileLatencyStaysAtNoLoad() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 0, TimeUnit.MILLISECONDS);
+
+		window(limit, 10, 1);
+		assertThat(limit.getLimit()).isEqualTo(11);
+		window(limit, 11, 1);
+		assertThat(limit.getLimit()).isEqualTo(12);
+	}
+
+	@Test
+	void shrinksOnceRequestsWait() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 0, TimeUnit.MILLISECONDS);
+		window(limit, 10, 1);
+		assertThat(limit.getLimit()).isEqualTo(11);
+
+		// 11 * (1 - 1 / 100) requests wait, over 6 * log10(11): down by half the excess, to 8
+		window(limit, 11, 100);
+		assertThat(limit.getLimit()).isEqualTo(8);
+	}
+
+	@Test
+	void doesNotGrowWhileMostlyUnused() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(30, 1, 100, 0, TimeUnit.MILLISECONDS);
+
+		window(limit, 10, 1);
+		assertThat(limit.getLimit()).isEqualTo(30);
+	}
+
+	@Test
+	void staysWithinBounds() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 8, 10, 0, TimeUnit.MILLISECONDS);
+		assertThat(limit.getLimit()).isEqualTo(10);
+
+		window(limit, 10, 1);
+		assertThat(limit.getLimit()).isEqualTo(10);
+		for (int i = 0; i < 3; i++) {
+			window(limit, limit.getLimit(), 1000);
+		}
+		assertThat(limit.getLimit()).isEqualTo(8);
+
+		assertThatIllegalArgumentException().isThrownBy(() -> new AdaptiveConcurrencyLimit(1, 0, 10, 0, TimeUnit.MILLISECONDS));
+		assertThatIllegalArgumentException().isThrownBy(() -> new AdaptiveConcurrencyLimit(1, 5, 4, 0, TimeUnit.MILLISECONDS));
+	}
+
+	// Admits the given requests at once and releases them as if each took the given milliseconds,
+	// topped up to the samples a window needs
+	private static void window(AdaptiveConcurrencyLimit limit, int requests, long latencyMillis) {
+		int samples = Math.max(requests, 10);
+		for (int i = 0; i < requests; i++) {
+			assertThat(limit.tryAcquire()).isPresent();
+		}
+		for (int i = 0; i < samples; i++) {
+			if (i >= requests) {
+				assertThat(limit.tryAcquire()).isPresent();
+			}
+			limit.release(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+		}
+	}
+}
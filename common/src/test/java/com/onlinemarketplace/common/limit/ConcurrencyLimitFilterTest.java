@@ -0,0 +1,77 @@
+package com.onlinemarketplace.common.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTest {
+
+	private AdaptiveConcurrencyLimit limit;
+	private ConcurrencyLimitFilter filter;
+
+	@BeforeEach
+	void saturateLimit() {
+		limit = new AdaptiveConcurrencyLimit(2, 2, 2, 100, TimeUnit.MILLISECONDS);
+		filter = new ConcurrencyLimitFilter(limit, List.of("/actuator/**"), 1, new SimpleMeterRegistry());
+		assertThat(limit.tryAcquire()).isPresent();
+		assertThat(limit.tryAcquire()).isPresent();
+	}
+
+	@Test
+	void shedsWritesAtTheLimit() throws Exception {
+		MockFilterChain chain = new MockFilterChain();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("PUT", "/wallets/1"), response, chain);
+
+		assertThat(response.getStatus()).isEqualTo(429);
+		assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(chain.getRequest()).isNull();
+	}
+
+	@Test
+	void servesReadsAndExcludedPathsAtTheLimit() throws Exception {
+		MockFilterChain readChain = new MockFilterChain();
+		filter.doFilter(new MockHttpServletRequest("GET", "/wallets/1"), new MockHttpServletResponse(), readChain);
+		MockFilterChain excludedChain = new MockFilterChain();
+		filter.doFilter(new MockHttpServletRequest("POST", "/actuator/refresh"), new MockHttpServletResponse(),
+				excludedChain);
+
+		assertThat(readChain.getRequest()).isNotNull();
+		assertThat(excludedChain.getRequest()).isNotNull();
+	}
+
+	@Test
+	void servesRefundAtTheLimit() throws Exception {
+		MockHttpServletRequest refund = new MockHttpServletRequest("PUT", "/wallets/1");
+		refund.addHeader(ConcurrencyLimitFilter.PRIORITY_HEADER, ConcurrencyLimitFilter.CRITICAL_PRIORITY);
+		MockFilterChain chain = new MockFilterChain();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(refund, response, chain);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(chain.getRequest()).isSameAs(refund);
+		assertThat(limit.getInFlight()).isEqualTo(2);
+	}
+
+	@Test
+	void admitsWritesAgainOnceReleased() throws Exception {
+		limit.release(System.nanoTime());
+		MockFilterChain chain = new MockFilterChain();
+
+		filter.doFilter(new MockHttpServletRequest("DELETE", "/wallets/1"), new MockHttpServletResponse(), chain);
+
+		assertThat(chain.getRequest()).isNotNull();
+		assertThat(limit.getInFlight()).isEqualTo(1);
+	}
+}
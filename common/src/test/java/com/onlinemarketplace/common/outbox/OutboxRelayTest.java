@@ -0,0 +1,239 @@
+package com.onlinemarketplace.common.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+	private static final String NAME = "test.consumer";
+
+	// The committed events and the consumer's offset row
+	private final List<OutboxEvent> table = new ArrayList<>();
+	private OutboxOffset offset;
+	private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+	private OutboxEventRepository outboxEventRepository;
+	private OutboxOffsetRepository outboxOffsetRepository;
+
+	@BeforeEach
+	void setUp() {
+		outboxEventRepository = mock(OutboxEventRepository.class);
+		when(outboxEventRepository.findBatchAfter(anyLong(), any())).thenAnswer(invocation -> {
+			long after = invocation.getArgument(0);
+			Pageable pageable = invocation.getArgument(1);
+			return table.stream()
+					.filter(event -> event.getId() > after)
+					.sorted(Comparator.comparing(OutboxEvent::getId))
+					.limit(pageable.getPageSize())
+					.toList();
+		});
+		when(outboxEventRepository.findAllByIdIn(any())).thenAnswer(invocation -> {
+			Collection<Long> ids = invocation.getArgument(0);
+			return table.stream()
+					.filter(event -> ids.contains(event.getId()))
+					.sorted(Comparator.comparing(OutboxEvent::getId))
+					.toList();
+		});
+		outboxOffsetRepository = mock(OutboxOffsetRepository.class);
+		when(outboxOffsetRepository.findForUpdate(NAME)).thenAnswer(invocation -> Optional.ofNullable(offset));
+		when(outboxOffsetRepository.save(any())).thenAnswer(invocation -> offset = invocation.getArgument(0));
+	}
+
+	@Test
+	void deliversEventOfLateCommitOnceVisible() throws Exception {
+		TestConsumer consumer = new TestConsumer(false);
+		OutboxRelay relay = relay(consumer, Duration.ofMinutes(1));
+
+		table.add(event(1));
+		table.add(event(3));
+		relay.relay();
+		assertThat(consumer.delivered).containsExactly(1L, 3L);
+		assertThat(offset.getLast_event_id()).isEqualTo(3);
+		assertThat(OutboxRelay.parseGaps(offset.getGaps())).containsOnlyKeys(2L);
+
+		// The transaction which got ID 2 commits after the one which got 3
+		table.add(event(2));
+		table.add(event(4));
+		relay.relay();
+		assertThat(consumer.delivered).containsExactly(1L, 3L, 2L, 4L);
+		assertThat(offset.getLast_event_id()).isEqualTo(4);
+		assertThat(offset.getGaps()).isEmpty();
+	}
+
+	@Test
+	void dropsGapsNobodyFills() throws Exception {
+		TestConsumer consumer = new TestConsumer(false);
+		OutboxRelay relay = relay(consumer, Duration.ofMinutes(1));
+		offset = new OutboxOffset();
+		offset.setConsumer(NAME);
+		offset.setLast_event_id(5L);
+		long now = Instant.now().toEpochMilli();
+		offset.setGaps("2:" + (now - 120_000) + ",4:" + now);
+
+		relay.relay();
+
+		assertThat(OutboxRelay.parseGaps(offset.getGaps())).containsOnlyKeys(4L);
+		assertThat(consumer.delivered).isEmpty();
+	}
+
+	@Test
+	void deliversOutsideOfTransactionAndCommitsOffsetAfterwards() throws Exception {
+		TestConsumer consumer = new TestConsumer(false);
+		List<Object> duringDelivery = new ArrayList<>();
+		consumer.onDeliver = events -> {
+			duringDelivery.add(transactionManager.active);
+			duringDelivery.add(offset.getLast_event_id());
+			duringDelivery.add(offset.getLeased_until() != null);
+		};
+		table.add(event(1));
+
+		relay(consumer, Duration.ofMinutes(1)).relay();
+
+		assertThat(duringDelivery).containsExactly(false, 0L, true);
+		assertThat(consumer.delivered).containsExactly(1L);
+		assertThat(offset.getLast_event_id()).isEqualTo(1);
+		assertThat(offset.getLeased_until()).isNull();
+	}
+
+	@Test
+	void deliversTransactionalConsumerInOffsetTransaction() throws Exception {
+		TestConsumer consumer = new TestConsumer(true);
+		List<Boolean> duringDelivery = new ArrayList<>();
+		consumer.onDeliver = events -> duringDelivery.add(transactionManager.active);
+		table.add(event(1));
+
+		relay(consumer, Duration.ofMinutes(1)).relay();
+
+		assertThat(duringDelivery).containsExactly(true);
+		assertThat(consumer.delivered).containsExactly(1L);
+		assertThat(offset.getLast_event_id()).isEqualTo(1);
+		assertThat(offset.getLeased_until()).isNull();
+	}
+
+	@Test
+	void keepsOffsetAndReleasesLeaseWhenDeliveryFails() throws Exception {
+		TestConsumer consumer = new TestConsumer(false);
+		consumer.onDeliver = events -> {
+			throw new IllegalStateException("downstream unavailable");
+		};
+		table.add(event(1));
+
+		relay(consumer, Duration.ofMinutes(1)).relay();
+
+		assertThat(offset.getLast_event_id()).isZero();
+		assertThat(offset.getLeased_until()).isNull();
+	}
+
+	@Test
+	void skipsConsumerLeasedByAnotherRelay() throws Exception {
+		TestConsumer consumer = new TestConsumer(false);
+		offset = new OutboxOffset();
+		offset.setConsumer(NAME);
+		offset.setLeased_until(Instant.now().plusSeconds(30));
+		table.add(event(1));
+
+		relay(consumer, Duration.ofMinutes(1)).relay();
+
+		assertThat(consumer.delivered).isEmpty();
+		assertThat(offset.getLast_event_id()).isZero();
+	}
+
+	@Test
+	void keepsAtMostMaxGaps() {
+		TreeMap<Long, Long> gaps = new TreeMap<>();
+
+		long last = OutboxRelay.addGaps(gaps, 0, List.of(event(10), event(5000)), 1);
+
+		assertThat(last).isEqualTo(5000);
+		assertThat(gaps).hasSize(OutboxRelay.MAX_GAPS);
+		assertThat(gaps.firstKey()).isEqualTo(4000);
+		assertThat(gaps.lastKey()).isEqualTo(4999);
+		assertThat(OutboxRelay.parseGaps(OutboxRelay.formatGaps(gaps))).isEqualTo(gaps);
+	}
+
+	private OutboxRelay relay(OutboxConsumer consumer, Duration gapTimeout) {
+		return new OutboxRelay(List.of(consumer), outboxEventRepository, outboxOffsetRepository, transactionManager,
+				100, 10, 500, gapTimeout, Duration.ofMinutes(1), Duration.ofHours(24), Duration.ofMinutes(1));
+	}
+
+	private static OutboxEvent event(long id) {
+		OutboxEvent event = new OutboxEvent();
+		event.setId(id);
+		event.setEvent_type(OutboxEventType.USER_DELETED);
+		event.setCreated_at(Instant.now());
+		return event;
+	}
+
+	private static class TestConsumer implements OutboxConsumer {
+		private final boolean transactional;
+		private final List<Long> delivered = new ArrayList<>();
+		private Consumer<List<OutboxEvent>> onDeliver = events -> {
+		};
+
+		TestConsumer(boolean transactional) {
+			this.transactional = transactional;
+		}
+
+		@Override
+		public String name() {
+			return NAME;
+		}
+
+		@Override
+		public Set<OutboxEventType> eventTypes() {
+			return Set.of(OutboxEventType.USER_DELETED);
+		}
+
+		@Override
+		public void deliver(List<OutboxEvent> events) {
+			onDeliver.accept(events);
+			events.forEach(event -> delivered.add(event.getId()));
+		}
+
+		@Override
+		public boolean transactional() {
+			return transactional;
+		}
+	}
+
+	private static class RecordingTransactionManager implements PlatformTransactionManager {
+		private volatile boolean active;
+
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			active = true;
+			return new SimpleTransactionStatus();
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+			active = false;
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+			active = false;
+		}
+	}
+}
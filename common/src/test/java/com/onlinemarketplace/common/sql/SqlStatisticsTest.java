@@ -0,0 +1,81 @@
+package com.onlinemarketplace.common.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlStatisticsTest {
+
+	@Test
+	void replacesLiteralsWithPlaceholders() {
+		assertThat(SqlStatistics.shapeOf("SELECT * FROM users WHERE email = 'a@b.com' AND id = 42"))
+				.isEqualTo("select * from users where email = ? and id = ?");
+		assertThat(SqlStatistics.shapeOf("update wallet set balance = -12.5 where name = 'O''Brien'"))
+				.isEqualTo("update wallet set balance = ? where name = ?");
+	}
+
+	@Test
+	void keepsDigitsOfIdentifiers() {
+		assertThat(SqlStatistics.shapeOf("select p1_0.product_id, p1_0.price from product p1_0 where p1_0.product_id=7"))
+				.isEqualTo("select p1_0.product_id, p1_0.price from product p1_0 where p1_0.product_id=?");
+	}
+
+	@Test
+	void collapsesInListsAndWhitespace() {
+		assertThat(SqlStatistics.shapeOf("select *\n\tfrom orders  where order_id IN (?, ?,?)"))
+				.isEqualTo("select * from orders where order_id in (?)");
+		assertThat(SqlStatistics.shapeOf("select * from orders where order_id in (1, 2, 3)"))
+				.isEqualTo("select * from orders where order_id in (?)");
+	}
+
+	@Test
+	void shapesBatchedInListOfThousandsOfParameters() {
+		String parameters = IntStream.range(0, 20_000).mapToObj(i -> "?").collect(Collectors.joining(", "));
+
+		assertThat(SqlStatistics.shapeOf("select * from product where product_id in (" + parameters + ")"))
+				.isEqualTo("select * from product where product_id in (?)");
+	}
+
+	@Test
+	void groupsStatementsByShapeUpToMaximum() {
+		SqlStatistics statistics = new SqlStatistics(10, Duration.ofHours(1), 0, 2);
+
+		StatementShapeStatistics first = statistics.forStatement("select * from users where id = 1");
+		assertThat(statistics.forStatement("select * from users where id = 2")).isSameAs(first);
+		statistics.forStatement("select * from orders where id = 1");
+		StatementShapeStatistics other = statistics.forStatement("select * from wallet where id = 1");
+
+		assertThat(first.getShape()).isEqualTo("select * from users where id = ?");
+		assertThat(other.getShape()).isEqualTo(SqlStatistics.OTHER_SHAPES);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void flagsRequestRunningShapeMoreThanThreshold() {
+		SqlStatistics statistics = new SqlStatistics(2, Duration.ofHours(1), 0, 10);
+
+		statistics.beginRequest("GET /orders");
+		for (int id = 1; id <= 3; id++) {
+			String sql = "select * from order_item where order_id = " + id;
+			statistics.recordExecution(statistics.forStatement(sql), sql, 1000, 0);
+		}
+		assertThat(statistics.endRequest()).isEqualTo(3);
+		statistics.beginRequest("GET /orders/1");
+		String sql = "select * from orders where order_id = 1";
+		statistics.recordExecution(statistics.forStatement(sql), sql, 1000, 0);
+		statistics.endRequest();
+
+		List<Map<String, Object>> flagged = (List<Map<String, Object>>) statistics.snapshot().get("flagged_requests");
+		assertThat(flagged).hasSize(1);
+		assertThat(flagged.getFirst())
+				.containsEntry("request", "GET /orders")
+				.containsEntry("shape", "select * from order_item where order_id = ?")
+				.containsEntry("executions", 3);
+	}
+}
@@ -8,9 +8,9 @@ echo "Setting Docker environment for minikube..."
 eval $(minikube docker-env)
 
 echo "Building Docker images inside minikube's Docker daemon..."
-docker build -t vansh-pinakin-accountservice:latest ./accountService
-docker build -t vansh-pinakin-marketplaceservice:latest ./marketplaceService
-docker build -t vansh-pinakin-walletservice:latest ./walletService
+docker build -t vansh-pinakin-accountservice:latest -f accountService/Dockerfile .
+docker build -t vansh-pinakin-marketplaceservice:latest -f marketplaceService/Dockerfile .
+docker build -t vansh-pinakin-walletservice:latest -f walletService/Dockerfile .
 docker build -t vansh-pinakin-h2-database:latest ./h2-database
 
 echo "Deploying services to minikube..."
@@ -0,0 +1,95 @@
+package com.onlinemarketplace.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Many readers browsing the marketplace: half look up a product, a quarter read a page of the catalog
+ * and a quarter read the order history of a user. The reads go to --marketplace-read-uri, so the same
+ * load can be run against the servlet controller and the reactive read server.
+ *
+ * Invariants: every read succeeds.
+ */
+public class CatalogReadScenario implements Scenario {
+    private static final int USERS = 20;
+    private static final int ORDERS_PER_USER = 3;
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = 50;
+
+    private List<Integer> userIds;
+    private int[] productIds;
+    private final LongAdder failed = new LongAdder();
+
+    @Override
+    public String name() {
+        return "catalog-read";
+    }
+
+    @Override
+    public void setUp(ServiceClient client, LoadProfile profile) {
+        ServiceClient.Response products = client.getProducts();
+        if (!products.is(200) || products.body().isEmpty()) {
+            throw new IllegalStateException("Could not read the catalog: " + products.status());
+        }
+        productIds = new int[products.body().size()];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = products.body().get(i).path("id").asInt();
+        }
+        // The orders are spread over the stock of the catalog, to have order histories to read
+        List<Integer> units = new ArrayList<>();
+        for (JsonNode product : products.body()) {
+            for (int i = product.path("stock_quantity").asInt(); i > 0 && units.size() < USERS * ORDERS_PER_USER; i--) {
+                units.add(product.path("id").asInt());
+            }
+        }
+        if (units.size() < USERS * ORDERS_PER_USER) {
+            throw new IllegalStateException("The catalog holds fewer than " + USERS * ORDERS_PER_USER + " products in stock");
+        }
+        userIds = Fixtures.freshUserIds(USERS);
+        for (int u = 0; u < USERS; u++) {
+            int userId = userIds.get(u);
+            Fixtures.createFundedUser(client, userId, 1_000_000);
+            for (int i = 0; i < ORDERS_PER_USER; i++) {
+                ServiceClient.Response order = client.placeOrder(userId, units.get(u * ORDERS_PER_USER + i), 1);
+                if (!order.is(201)) {
+                    throw new IllegalStateException("Could not place an order for user " + userId + ": " + order);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Outcome arrive(ServiceClient client, long sequence) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(4);
+        String operation;
+        ServiceClient.Response response;
+        if (pick < 2) {
+            operation = "product";
+            response = client.getProduct(productIds[random.nextInt(productIds.length)]);
+        } else if (pick == 2) {
+            operation = "catalog_page";
+            response = client.getProductPage(random.nextInt(PAGES), PAGE_SIZE);
+        } else {
+            operation = "order_history";
+            response = client.getOrdersOfUser(userIds.get(random.nextInt(userIds.size())));
+        }
+        if (!response.is(200)) {
+            failed.increment();
+        }
+        return new Outcome(operation, response.status());
+    }
+
+    @Override
+    public List<String> verify(ServiceClient client) {
+        List<String> violations = new ArrayList<>();
+        if (failed.sum() > 0) {
+            violations.add(failed.sum() + " reads did not return 200");
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,68 @@
+package com.onlinemarketplace.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Set-up shared by the scenarios.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Picks a random block of user IDs, so that repeated runs against the same services do not collide.
+     *
+     * @param count the number of IDs needed.
+     * @return consecutive user IDs.
+     */
+    static List<Integer> freshUserIds(int count) {
+        int first = ThreadLocalRandom.current().nextInt(1_000, 1_000_000) * 1_000;
+        List<Integer> userIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            userIds.add(first + i);
+        }
+        return userIds;
+    }
+
+    /**
+     * Creates a user and credits their new wallet.
+     *
+     * @throws IllegalStateException if either request fails.
+     */
+    static void createFundedUser(ServiceClient client, int userId, int balance) {
+        ServiceClient.Response created = client.createUser(userId);
+        if (!created.is(201)) {
+            throw new IllegalStateException("Could not create user " + userId + ": " + created);
+        }
+        ServiceClient.Response credited = client.updateWallet(userId, "credit", balance);
+        if (!credited.is(200)) {
+            throw new IllegalStateException("Could not credit the wallet of user " + userId + ": " + credited);
+        }
+    }
+
+    /**
+     * Reads the current stock of a product.
+     *
+     * @throws IllegalStateException if the product cannot be read.
+     */
+    static int stockOf(ServiceClient client, int productId) {
+        ServiceClient.Response product = client.getProduct(productId);
+        if (!product.is(200)) {
+            throw new IllegalStateException("Could not read product " + productId + ": " + product);
+        }
+        return product.body().path("stock_quantity").asInt();
+    }
+
+    /**
+     * Reads the wallet balance of a user.
+     *
+     * @return the balance, or null if the wallet does not exist or cannot be read.
+     */
+    static Integer balanceOf(ServiceClient client, int userId) {
+        ServiceClient.Response wallet = client.getWallet(userId);
+        return wallet.is(200) ? wallet.body().path("balance").asInt() : null;
+    }
+}
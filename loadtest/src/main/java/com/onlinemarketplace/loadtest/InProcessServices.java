@@ -0,0 +1,134 @@
+package com.onlinemarketplace.loadtest;
+
+import com.onlinemarketplace.accountservice.AccountServiceApplication;
+import com.onlinemarketplace.marketplaceservice.MarketplaceServiceApplication;
+import com.onlinemarketplace.walletService.WalletServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Runs the three services in this JVM, each with its own web server on a random free port and its
+ * own in-memory H2 database, calling each other over HTTP as they do when deployed.
+ * The service jars all contain an application.properties, so they are not read at all
+ * (spring.config.name points elsewhere) and the needed properties are given here.
+ */
+public class InProcessServices implements AutoCloseable {
+    private final int accountPort = freePort();
+    private final int marketplacePort = freePort();
+    private final int walletPort = freePort();
+    private final int reactiveReadPort = freePort();
+    private final String databaseSuffix = UUID.randomUUID().toString();
+    private final boolean reactiveReads;
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    /**
+     * @param reactiveReads whether the marketplace also serves its reads on the reactive read server,
+     *                      see {@link #marketplaceReadURI}.
+     */
+    public InProcessServices(boolean reactiveReads) {
+        this.reactiveReads = reactiveReads;
+    }
+
+    /**
+     * Starts the services. The ports are picked before any service starts, as each needs the
+     * others' URIs in its configuration.
+     */
+    public InProcessServices start() {
+        contexts.add(run(WalletServiceApplication.class, "walletService", walletPort));
+        contexts.add(run(AccountServiceApplication.class, "accountService", accountPort));
+        contexts.add(run(MarketplaceServiceApplication.class, "marketplaceService", marketplacePort,
+                "--spring.jpa.hibernate.ddl-auto=update",
+                // The scenarios need the products right after startup
+                "--marketplace.catalog.load-in-background=false",
+                "--spring.jpa.hibernate.naming.physical-strategy=org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=true",
+                "--spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+                "--spring.jpa.properties.hibernate.javax.cache.provider=org.ehcache.jsr107.EhcacheCachingProvider",
+                // Resolved up front: Hibernate's class loader service does not see into the shaded jar
+                "--spring.jpa.properties.hibernate.javax.cache.uri="
+                        + InProcessServices.class.getResource("/ehcache.xml").toExternalForm(),
+                "--marketplace.reactive.enabled=" + reactiveReads,
+                "--marketplace.reactive.port=" + reactiveReadPort,
+                "--marketplace.reactive.r2dbc.url=r2dbc:h2:mem:///" + database("marketplaceService")));
+        return this;
+    }
+
+    public URI accountServiceURI() {
+        return localhost(accountPort);
+    }
+
+    public URI marketplaceServiceURI() {
+        return localhost(marketplacePort);
+    }
+
+    public URI walletServiceURI() {
+        return localhost(walletPort);
+    }
+
+    /**
+     * @return the reactive read server of the marketplace if enabled, else the marketplace itself.
+     */
+    public URI marketplaceReadURI() {
+        return reactiveReads ? localhost(reactiveReadPort) : marketplaceServiceURI();
+    }
+
+    @Override
+    public void close() {
+        // Stop the marketplace first, it is the only service calling both others
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            contexts.get(i).close();
+        }
+        contexts.clear();
+    }
+
+    private ConfigurableApplicationContext run(Class<?> application, String name, int port, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.config.name=loadtest",
+                "--spring.application.name=" + name,
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                // The logging system is shared by the three contexts and would label every line with the last one
+                "--logging.include-application-name=false",
+                "--server.port=" + port,
+                "--server.address=127.0.0.1",
+                "--spring.datasource.url=jdbc:h2:mem:" + database(name) + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                // Each service keeps its own registry, as if it ran in its own JVM
+                "--management.metrics.use-global-registry=false",
+                // The marketplace brings Reactor Netty and R2DBC into this JVM: the RestClients stay on the JDK
+                // HttpClient and the DataSource is not replaced by an R2DBC ConnectionFactory
+                "--spring.http.client.factory=jdk",
+                "--spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration",
+                "--services.account.uri=" + accountServiceURI(),
+                "--services.marketplace.uri=" + marketplaceServiceURI(),
+                "--services.wallet.uri=" + walletServiceURI()));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(application).run(args.toArray(new String[0]));
+    }
+
+    private String database(String name) {
+        return name + "-" + databaseSuffix;
+    }
+
+    private static URI localhost(int port) {
+        return URI.create("http://127.0.0.1:" + port);
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No free port for an in-process service", e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.onlinemarketplace.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and status codes per operation of a scenario.
+ * Latencies are measured from the intended start of a request, not from when it was actually sent,
+ * so that a stalled service shows up in the percentiles instead of silently lowering the offered load.
+ */
+public class LatencyRecorder {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> statusCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Records one completed request.
+     *
+     * @param operation        the operation, e.g. place_order.
+     * @param status           the HTTP status, or {@link ServiceClient#NO_RESPONSE}.
+     * @param intendedStartNanos when the request should have been sent, in System.nanoTime().
+     */
+    public void record(String operation, int status, long intendedStartNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos);
+        histograms.computeIfAbsent(operation, k -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3))
+                .recordValue(Math.min(Math.max(micros, 1), HIGHEST_TRACKABLE_MICROS));
+        statusCounts.computeIfAbsent(operation + " " + (status == ServiceClient.NO_RESPONSE ? "no_response" : status),
+                k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Prints the latency percentiles and status counts of each operation.
+     */
+    public void printSummary(PrintStream out) {
+        out.printf("  %-16s %8s %9s %9s %9s %9s %9s%n", "operation", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        new TreeMap<>(histograms).forEach((operation, histogram) -> out.printf("  %-16s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                operation, histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue())));
+        out.print("  status counts:");
+        new TreeMap<>(statusCounts).forEach((key, count) -> out.print("  " + key + "=" + count.sum()));
+        out.println();
+    }
+
+    /**
+     * Writes the full percentile distribution of each operation as .hgrm files, which the
+     * HdrHistogram plotter reads.
+     *
+     * @param directory the directory to write to.
+     * @param scenario  prefix of the file names.
+     */
+    public void writeDistributions(Path directory, String scenario) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Path file = directory.resolve(scenario + "-" + entry.getKey() + ".hgrm");
+            try (PrintStream out = new PrintStream(new FileOutputStream(file.toFile()))) {
+                // Recorded in microseconds, reported in milliseconds
+                entry.getValue().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
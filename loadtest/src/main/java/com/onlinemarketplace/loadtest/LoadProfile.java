@@ -0,0 +1,36 @@
+package com.onlinemarketplace.loadtest;
+
+import java.time.Duration;
+
+/**
+ * An open-model load: arrivals at a fixed rate for a fixed duration, independent of how fast the
+ * services respond.
+ *
+ * @param ratePerSecond the target arrival rate.
+ * @param duration      how long arrivals are scheduled.
+ */
+public record LoadProfile(double ratePerSecond, Duration duration) {
+
+    public LoadProfile {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be greater than zero!");
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be greater than zero!");
+        }
+    }
+
+    /**
+     * @return the number of arrivals scheduled over the whole duration.
+     */
+    public long arrivals() {
+        return (long) (ratePerSecond * duration.toNanos() / 1_000_000_000.0);
+    }
+
+    /**
+     * @return the time between two arrivals.
+     */
+    public long intervalNanos() {
+        return (long) (1_000_000_000.0 / ratePerSecond);
+    }
+}
@@ -0,0 +1,112 @@
+package com.onlinemarketplace.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Entry point of the load tests.
+ * Runs the selected scenarios one after another with an open-model load and prints latency percentiles,
+ * status counts and invariant violations. Exits with 1 if any invariant is violated.
+ *
+ * Options (all optional):
+ * --scenarios=product-contention,wallet-race,user-deletion,catalog-read  the scenarios to run, default all
+ * --rate=50                 arrivals per second
+ * --duration=20             seconds of load per scenario
+ * --product-id=101          the product of the product-contention scenario
+ * --results=loadtest-results  directory for the .hgrm latency distributions
+ * --account-uri, --marketplace-uri, --wallet-uri  run against deployed services (the others default to
+ *                           localhost:8080, 8081 and 8082); without any of them the services are started
+ *                           in-process on random ports
+ * --marketplace-read-uri    serves the GET requests of the marketplace, e.g. its reactive read server on
+ *                           localhost:8091; default --marketplace-uri
+ * --marketplace-reads=reactive  in-process, serve them by the reactive read server instead of the controller
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        LoadProfile profile = new LoadProfile(Double.parseDouble(options.getOrDefault("rate", "50")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "20"))));
+        int productId = Integer.parseInt(options.getOrDefault("product-id", "101"));
+        Path results = Path.of(options.getOrDefault("results", "loadtest-results"));
+
+        Map<String, Supplier<Scenario>> available = new LinkedHashMap<>();
+        available.put("product-contention", () -> new ProductContentionScenario(productId));
+        available.put("wallet-race", WalletRaceScenario::new);
+        available.put("user-deletion", UserDeletionScenario::new);
+        available.put("catalog-read", CatalogReadScenario::new);
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : options.getOrDefault("scenarios", String.join(",", available.keySet())).split(",")) {
+            Supplier<Scenario> scenario = available.get(name.trim());
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario " + name + ", expected one of " + available.keySet());
+            }
+            scenarios.add(scenario.get());
+        }
+
+        boolean external = options.containsKey("account-uri") || options.containsKey("marketplace-uri")
+                || options.containsKey("wallet-uri") || options.containsKey("marketplace-read-uri");
+        int violations;
+        if (external) {
+            String marketplaceURI = options.getOrDefault("marketplace-uri", "http://localhost:8081");
+            ServiceClient client = new ServiceClient(URI.create(options.getOrDefault("account-uri", "http://localhost:8080")),
+                    URI.create(marketplaceURI), URI.create(options.getOrDefault("marketplace-read-uri", marketplaceURI)),
+                    URI.create(options.getOrDefault("wallet-uri", "http://localhost:8082")));
+            violations = runAll(client, scenarios, profile, results);
+        } else {
+            boolean reactiveReads = options.getOrDefault("marketplace-reads", "servlet").equals("reactive");
+            try (InProcessServices services = new InProcessServices(reactiveReads).start()) {
+                System.out.printf("Services started in-process: account %s, marketplace %s (reads %s), wallet %s%n",
+                        services.accountServiceURI(), services.marketplaceServiceURI(), services.marketplaceReadURI(),
+                        services.walletServiceURI());
+                ServiceClient client = new ServiceClient(services.accountServiceURI(), services.marketplaceServiceURI(),
+                        services.marketplaceReadURI(), services.walletServiceURI());
+                violations = runAll(client, scenarios, profile, results);
+            }
+        }
+        System.exit(violations == 0 ? 0 : 1);
+    }
+
+    private static int runAll(ServiceClient client, List<Scenario> scenarios, LoadProfile profile, Path results) throws IOException {
+        OpenLoadGenerator generator = new OpenLoadGenerator(client);
+        int violations = 0;
+        for (Scenario scenario : scenarios) {
+            System.out.printf("%n%s: %.1f arrivals/s for %ds%n", scenario.name(), profile.ratePerSecond(),
+                    profile.duration().toSeconds());
+            scenario.setUp(client, profile);
+            OpenLoadGenerator.Result result = generator.run(scenario, profile);
+            System.out.printf("  sent %d, achieved %.1f/s, generator lag max %.2f ms, max in flight %d%n",
+                    result.sent(), result.achievedRatePerSecond(), result.maxLagNanos() / 1e6, result.maxInFlight());
+            result.latencies().printSummary(System.out);
+            result.latencies().writeDistributions(results, scenario.name());
+
+            List<String> scenarioViolations = scenario.verify(client);
+            if (scenarioViolations.isEmpty()) {
+                System.out.println("  invariants: OK");
+            } else {
+                scenarioViolations.forEach(violation -> System.out.println("  VIOLATED: " + violation));
+            }
+            violations += scenarioViolations.size();
+        }
+        return violations;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,97 @@
+package com.onlinemarketplace.loadtest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link Scenario} with an open-model load.
+ * Arrivals are scheduled at fixed intervals and each runs on its own virtual thread, so slow responses
+ * do not hold back the following requests the way a closed loop of worker threads does.
+ */
+public class OpenLoadGenerator {
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+
+    private final ServiceClient client;
+
+    /**
+     * The result of a run.
+     *
+     * @param latencies      latencies and statuses per operation.
+     * @param sent           the number of arrivals sent.
+     * @param elapsedNanos   time from the first arrival until the last response.
+     * @param maxLagNanos    how far the generator itself fell behind the schedule at worst.
+     * @param maxInFlight    the highest number of concurrently outstanding requests.
+     */
+    public record Result(LatencyRecorder latencies, long sent, long elapsedNanos, long maxLagNanos, int maxInFlight) {
+        public double achievedRatePerSecond() {
+            return sent * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    public OpenLoadGenerator(ServiceClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Runs the scenario with the given load and waits for all its requests to complete.
+     * The scenario must already be set up.
+     */
+    public Result run(Scenario scenario, LoadProfile profile) {
+        LatencyRecorder latencies = new LatencyRecorder();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        long arrivals = profile.arrivals();
+        long interval = profile.intervalNanos();
+        long maxLag = 0;
+
+        Thread sampler = Thread.ofVirtual().name("loadtest-sampler").start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                scenario.sample(client);
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long sequence = 0; sequence < arrivals; sequence++) {
+                long intendedStart = start + sequence * interval;
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                maxLag = Math.max(maxLag, -wait);
+
+                long arrival = sequence;
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                executor.execute(() -> {
+                    try {
+                        Scenario.Outcome outcome = scenario.arrive(client, arrival);
+                        latencies.record(outcome.operation(), outcome.status(), intendedStart);
+                    } catch (RuntimeException e) {
+                        System.err.println("Arrival " + arrival + " of " + scenario.name() + " failed: " + e);
+                        latencies.record("failed_arrival", ServiceClient.NO_RESPONSE, intendedStart);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+            // Closing the executor waits for the outstanding requests
+        } finally {
+            sampler.interrupt();
+        }
+        long elapsed = System.nanoTime() - start;
+        try {
+            sampler.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new Result(latencies, arrivals, elapsed, maxLag, maxInFlight.get());
+    }
+}
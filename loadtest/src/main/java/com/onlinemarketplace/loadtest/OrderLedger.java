@@ -0,0 +1,93 @@
+package com.onlinemarketplace.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The orders of a set of users as the marketplace reports them after a run, aggregated for the
+ * stock and balance conservation checks.
+ */
+final class OrderLedger {
+    /** Quantity of each product in PLACED orders. */
+    final Map<Integer, Integer> placedQuantityByProduct = new HashMap<>();
+    /** Total price of the PLACED orders of each user. */
+    final Map<Integer, Integer> placedTotalByUser = new HashMap<>();
+    /** Number of PLACED orders of each user. */
+    final Map<Integer, Integer> placedOrdersByUser = new HashMap<>();
+    /** Orders left in an intermediate state, e.g. CANCELLING. */
+    final List<String> unfinishedOrders = new ArrayList<>();
+    /** Users whose orders could not be read. */
+    final List<String> unreadableUsers = new ArrayList<>();
+
+    private OrderLedger() {
+    }
+
+    static OrderLedger read(ServiceClient client, Collection<Integer> userIds) {
+        OrderLedger ledger = new OrderLedger();
+        for (Integer userId : userIds) {
+            ServiceClient.Response orders = client.getOrdersOfUser(userId);
+            if (!orders.is(200)) {
+                ledger.unreadableUsers.add(userId + " (" + orders.status() + ")");
+                continue;
+            }
+            for (JsonNode order : orders.body()) {
+                String status = order.path("status").asText();
+                if (status.equals("PLACED")) {
+                    ledger.placedTotalByUser.merge(userId, order.path("total_price").asInt(), Integer::sum);
+                    ledger.placedOrdersByUser.merge(userId, 1, Integer::sum);
+                    for (JsonNode item : order.path("items")) {
+                        ledger.placedQuantityByProduct.merge(item.path("product_id").asInt(), item.path("quantity").asInt(), Integer::sum);
+                    }
+                } else if (!status.equals("CANCELLED") && !status.equals("DELIVERED")) {
+                    ledger.unfinishedOrders.add(order.path("order_id").asText() + " " + status);
+                }
+            }
+        }
+        return ledger;
+    }
+
+    int placedQuantityOf(int productId) {
+        return placedQuantityByProduct.getOrDefault(productId, 0);
+    }
+
+    int placedTotalOf(int userId) {
+        return placedTotalByUser.getOrDefault(userId, 0);
+    }
+
+    int placedOrdersOf(int userId) {
+        return placedOrdersByUser.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Checks that the orders could be read and none was left half-way.
+     */
+    void verifyComplete(List<String> violations) {
+        if (!unreadableUsers.isEmpty()) {
+            violations.add("Could not read the orders of users " + unreadableUsers);
+        }
+        if (!unfinishedOrders.isEmpty()) {
+            violations.add("Orders left in an intermediate state: " + unfinishedOrders);
+        }
+    }
+
+    /**
+     * Checks that no money was created or lost: each user's balance plus what their placed orders
+     * cost must equal what was credited initially, as cancellations refund the full price.
+     */
+    void verifyBalances(ServiceClient client, Collection<Integer> userIds, int initialBalance, List<String> violations) {
+        for (Integer userId : userIds) {
+            Integer balance = Fixtures.balanceOf(client, userId);
+            if (balance == null) {
+                violations.add("Wallet of user " + userId + " is missing");
+            } else if (balance + placedTotalOf(userId) != initialBalance) {
+                violations.add(String.format("Balance of user %d not conserved: %d + %d in placed orders != %d credited",
+                        userId, balance, placedTotalOf(userId), initialBalance));
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.onlinemarketplace.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Many users ordering the same product, as concurrent_test_cases/test_case_2.py does with three threads.
+ * A quarter of the arrivals cancel one of the placed orders instead, which puts the stock back so the
+ * product does not simply stay sold out after the first few orders.
+ *
+ * Invariants: the stock never goes negative, the final stock equals the initial stock minus the
+ * quantity in placed orders, the marketplace holds exactly the orders the responses reported, and
+ * the users' balances plus their placed orders add up to what they were credited.
+ */
+public class ProductContentionScenario implements Scenario {
+    private static final int USERS = 20;
+    private static final int INITIAL_BALANCE = 1_000_000_000;
+
+    private final int productId;
+    private List<Integer> userIds = List.of();
+    private int initialStock;
+    private final Queue<Integer> placedOrderIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger minObservedStock = new AtomicInteger(Integer.MAX_VALUE);
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder unknownOutcomes = new LongAdder();
+
+    /**
+     * @param productId the product all orders are for.
+     */
+    public ProductContentionScenario(int productId) {
+        this.productId = productId;
+    }
+
+    @Override
+    public String name() {
+        return "product-contention";
+    }
+
+    @Override
+    public void setUp(ServiceClient client, LoadProfile profile) {
+        userIds = Fixtures.freshUserIds(USERS);
+        for (Integer userId : userIds) {
+            Fixtures.createFundedUser(client, userId, INITIAL_BALANCE);
+        }
+        initialStock = Fixtures.stockOf(client, productId);
+    }
+
+    @Override
+    public Outcome arrive(ServiceClient client, long sequence) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer orderId = random.nextInt(4) == 0 ? placedOrderIds.poll() : null;
+        if (orderId != null) {
+            ServiceClient.Response response = client.cancelOrder(orderId);
+            if (response.is(200)) {
+                cancelled.increment();
+            } else if (response.is(ServiceClient.NO_RESPONSE)) {
+                unknownOutcomes.increment();
+            } else {
+                // Conflicts and failed cancellations leave the order placed
+                placedOrderIds.add(orderId);
+            }
+            return new Outcome("cancel_order", response.status());
+        }
+
+        int userId = userIds.get(random.nextInt(userIds.size()));
+        ServiceClient.Response response = client.placeOrder(userId, productId, 1);
+        if (response.is(201)) {
+            placed.increment();
+            placedOrderIds.add(response.body().path("order_id").asInt());
+        } else if (response.is(ServiceClient.NO_RESPONSE)) {
+            unknownOutcomes.increment();
+        }
+        return new Outcome("place_order", response.status());
+    }
+
+    @Override
+    public void sample(ServiceClient client) {
+        ServiceClient.Response product = client.getProduct(productId);
+        if (product.is(200)) {
+            minObservedStock.accumulateAndGet(product.body().path("stock_quantity").asInt(), Math::min);
+        }
+    }
+
+    @Override
+    public List<String> verify(ServiceClient client) {
+        List<String> violations = new ArrayList<>();
+        int finalStock = Fixtures.stockOf(client, productId);
+        if (minObservedStock.get() < 0 || finalStock < 0) {
+            violations.add(String.format("Stock of product %d went negative: lowest observed %d, final %d",
+                    productId, Math.min(minObservedStock.get(), finalStock), finalStock));
+        }
+
+        OrderLedger ledger = OrderLedger.read(client, userIds);
+        ledger.verifyComplete(violations);
+        int placedQuantity = ledger.placedQuantityOf(productId);
+        if (finalStock != initialStock - placedQuantity) {
+            violations.add(String.format("Stock of product %d not conserved: %d initially, %d in placed orders, %d left",
+                    productId, initialStock, placedQuantity, finalStock));
+        }
+
+        int placedOrders = userIds.stream().mapToInt(ledger::placedOrdersOf).sum();
+        long reportedOrders = placed.sum() - cancelled.sum();
+        if (unknownOutcomes.sum() > 0) {
+            violations.add(unknownOutcomes.sum() + " requests got no response, the placed orders cannot be reconciled");
+        } else if (placedOrders != reportedOrders) {
+            violations.add(String.format("Marketplace holds %d placed orders, the responses reported %d placed and %d cancelled",
+                    placedOrders, placed.sum(), cancelled.sum()));
+        }
+
+        ledger.verifyBalances(client, userIds, INITIAL_BALANCE, violations);
+        return violations;
+    }
+}
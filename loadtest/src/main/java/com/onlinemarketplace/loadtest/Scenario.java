@@ -0,0 +1,62 @@
+package com.onlinemarketplace.loadtest;
+
+import java.util.List;
+
+/**
+ * A workload driven by the {@link OpenLoadGenerator}.
+ * The generator calls {@link #setUp} once, then {@link #arrive} for every scheduled arrival on its own
+ * virtual thread, {@link #sample} periodically while the load runs, and {@link #verify} once all
+ * requests have completed.
+ */
+public interface Scenario {
+
+    /**
+     * The outcome of one arrival.
+     *
+     * @param operation the operation performed, used to group the latencies.
+     * @param status    the HTTP status of the response.
+     */
+    record Outcome(String operation, int status) {
+    }
+
+    /**
+     * @return the name used on the command line and in the report.
+     */
+    String name();
+
+    /**
+     * Creates the users, wallets and whatever else the scenario needs, and records the initial state
+     * the invariants are checked against.
+     *
+     * @param client  the client of the services.
+     * @param profile the load the scenario will be driven with.
+     * @throws IllegalStateException if the services could not be set up.
+     */
+    void setUp(ServiceClient client, LoadProfile profile);
+
+    /**
+     * Performs the request of one arrival. Called concurrently.
+     *
+     * @param client   the client of the services.
+     * @param sequence the number of the arrival, starting at 0.
+     * @return the outcome of the request.
+     */
+    Outcome arrive(ServiceClient client, long sequence);
+
+    /**
+     * Observes the state of the services while the load runs, e.g. to catch a negative stock which
+     * is corrected later on.
+     *
+     * @param client the client of the services.
+     */
+    default void sample(ServiceClient client) {
+    }
+
+    /**
+     * Checks the invariants of the scenario after the load has completed.
+     *
+     * @param client the client of the services.
+     * @return descriptions of the violated invariants; empty if all hold.
+     */
+    List<String> verify(ServiceClient client);
+}
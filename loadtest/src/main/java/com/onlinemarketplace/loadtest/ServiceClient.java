@@ -0,0 +1,140 @@
+package com.onlinemarketplace.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal JSON client of the three services, on the JDK HttpClient with virtual threads.
+ * Failures are returned as responses with status -1 instead of being thrown, so that a scenario
+ * can count them like any other outcome.
+ */
+public class ServiceClient {
+    /** Status of requests which got no response, e.g. on timeouts or refused connections. */
+    public static final int NO_RESPONSE = -1;
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI accountServiceURI;
+    private final URI marketplaceServiceURI;
+    private final URI marketplaceReadURI;
+    private final URI walletServiceURI;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    /**
+     * A response of one of the services.
+     *
+     * @param status the HTTP status, or {@link #NO_RESPONSE}.
+     * @param body   the JSON body; plain text bodies are a text node, empty bodies a missing node.
+     */
+    public record Response(int status, JsonNode body) {
+        public boolean is(int expectedStatus) {
+            return status == expectedStatus;
+        }
+    }
+
+    /**
+     * @param marketplaceReadURI serves the GET requests of the marketplace, e.g. its reactive read server.
+     */
+    public ServiceClient(URI accountServiceURI, URI marketplaceServiceURI, URI marketplaceReadURI, URI walletServiceURI) {
+        this.accountServiceURI = accountServiceURI;
+        this.marketplaceServiceURI = marketplaceServiceURI;
+        this.marketplaceReadURI = marketplaceReadURI;
+        this.walletServiceURI = walletServiceURI;
+    }
+
+    public Response createUser(int userId) {
+        return send("POST", accountServiceURI, "/users",
+                Map.of("id", userId, "name", "Load Test " + userId, "email", "loadtest-" + userId + "@example.com"));
+    }
+
+    public Response deleteUser(int userId) {
+        return send("DELETE", accountServiceURI, "/users/" + userId, null);
+    }
+
+    public Response getDeletionJob(String jobId) {
+        return send("GET", accountServiceURI, "/users/deletions/" + jobId, null);
+    }
+
+    public Response getWallet(int userId) {
+        return send("GET", walletServiceURI, "/wallets/" + userId, null);
+    }
+
+    public Response updateWallet(int userId, String action, int amount) {
+        return send("PUT", walletServiceURI, "/wallets/" + userId, Map.of("action", action, "amount", amount));
+    }
+
+    public Response getProduct(int productId) {
+        return send("GET", marketplaceReadURI, "/products/" + productId, null);
+    }
+
+    public Response getProducts() {
+        return send("GET", marketplaceReadURI, "/products", null);
+    }
+
+    public Response getProductPage(int page, int size) {
+        return send("GET", marketplaceReadURI, "/products?page=" + page + "&size=" + size, null);
+    }
+
+    public Response placeOrder(int userId, int productId, int quantity) {
+        return send("POST", marketplaceServiceURI, "/orders",
+                Map.of("user_id", userId, "items", List.of(Map.of("product_id", productId, "quantity", quantity))));
+    }
+
+    public Response cancelOrder(int orderId) {
+        return send("DELETE", marketplaceServiceURI, "/orders/" + orderId, null);
+    }
+
+    public Response getOrdersOfUser(int userId) {
+        return send("GET", marketplaceReadURI, "/orders/users/" + userId, null);
+    }
+
+    private Response send(String method, URI service, String path, Object body) {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(service.resolve(path))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Accept", "application/json");
+            if (body == null) {
+                request.method(method, HttpRequest.BodyPublishers.noBody());
+            } else {
+                request.header("Content-Type", "application/json")
+                        .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+            }
+            HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            return new Response(response.statusCode(), parse(response.body()));
+        } catch (IOException e) {
+            return new Response(NO_RESPONSE, TextNode.valueOf(e.toString()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Response(NO_RESPONSE, TextNode.valueOf("interrupted"));
+        }
+    }
+
+    private JsonNode parse(String body) {
+        if (body == null || body.isEmpty()) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            // Error responses of the services are plain text
+            return TextNode.valueOf(body);
+        }
+    }
+}
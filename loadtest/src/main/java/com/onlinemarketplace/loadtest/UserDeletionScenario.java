@@ -0,0 +1,160 @@
+package com.onlinemarketplace.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Users being deleted while they and others keep ordering random products.
+ * Half of the users are deleted one by one during the middle half of the run; every other arrival
+ * places an order of one item for a random user.
+ *
+ * Invariants: every deletion job completes, a deleted user has no wallet and no placed order left,
+ * no stock goes negative, the stock of every product equals its initial stock minus the quantity in
+ * placed orders, and the remaining users' balances plus their placed orders add up to what they were
+ * credited.
+ */
+public class UserDeletionScenario implements Scenario {
+    private static final int USERS = 20;
+    private static final int INITIAL_BALANCE = 1_000_000_000;
+    private static final long JOB_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private List<Integer> userIds = List.of();
+    private List<Integer> productIds = List.of();
+    private final Map<Integer, Integer> initialStock = new HashMap<>();
+    private final Map<Long, Integer> deletionSchedule = new HashMap<>();
+    private final Map<Integer, String> deletionJobs = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> minObservedStock = new ConcurrentHashMap<>();
+
+    @Override
+    public String name() {
+        return "user-deletion";
+    }
+
+    @Override
+    public void setUp(ServiceClient client, LoadProfile profile) {
+        if (profile.arrivals() < 4 * USERS) {
+            throw new IllegalStateException("The user-deletion scenario needs at least " + 4 * USERS + " arrivals");
+        }
+        userIds = Fixtures.freshUserIds(USERS);
+        for (Integer userId : userIds) {
+            Fixtures.createFundedUser(client, userId, INITIAL_BALANCE);
+        }
+
+        ServiceClient.Response products = client.getProducts();
+        if (!products.is(200)) {
+            throw new IllegalStateException("Could not read the products: " + products);
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (JsonNode product : products.body()) {
+            ids.add(product.path("id").asInt());
+            initialStock.put(product.path("id").asInt(), product.path("stock_quantity").asInt());
+        }
+        productIds = List.copyOf(ids);
+
+        // Spread the deletions of the first half of the users over the middle half of the run
+        List<Integer> deleted = userIds.subList(0, USERS / 2);
+        long arrivals = profile.arrivals();
+        for (int i = 0; i < deleted.size(); i++) {
+            deletionSchedule.put(arrivals / 4 + i * (arrivals / 2) / deleted.size(), deleted.get(i));
+        }
+    }
+
+    @Override
+    public Outcome arrive(ServiceClient client, long sequence) {
+        Integer deletedUser = deletionSchedule.get(sequence);
+        if (deletedUser != null) {
+            ServiceClient.Response response = client.deleteUser(deletedUser);
+            if (response.is(202)) {
+                deletionJobs.put(deletedUser, response.body().path("job_id").asText());
+            }
+            return new Outcome("delete_user", response.status());
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = userIds.get(random.nextInt(userIds.size()));
+        int productId = productIds.get(random.nextInt(productIds.size()));
+        return new Outcome("place_order", client.placeOrder(userId, productId, 1).status());
+    }
+
+    @Override
+    public void sample(ServiceClient client) {
+        ServiceClient.Response products = client.getProducts();
+        if (products.is(200)) {
+            for (JsonNode product : products.body()) {
+                minObservedStock.merge(product.path("id").asInt(), product.path("stock_quantity").asInt(), Math::min);
+            }
+        }
+    }
+
+    @Override
+    public List<String> verify(ServiceClient client) {
+        List<String> violations = new ArrayList<>();
+        List<Integer> deletedUsers = new ArrayList<>(deletionSchedule.values());
+        List<Integer> remainingUsers = new ArrayList<>(userIds);
+        remainingUsers.removeAll(deletedUsers);
+
+        for (Integer userId : deletedUsers) {
+            String jobId = deletionJobs.get(userId);
+            if (jobId == null) {
+                violations.add("User " + userId + " could not be deleted");
+            } else if (!awaitCompletion(client, jobId)) {
+                violations.add("Deletion job " + jobId + " of user " + userId + " did not complete");
+            }
+        }
+
+        OrderLedger ledger = OrderLedger.read(client, userIds);
+        ledger.verifyComplete(violations);
+        for (Integer userId : deletedUsers) {
+            if (ledger.placedOrdersOf(userId) > 0) {
+                violations.add(String.format("Deleted user %d still has %d placed orders", userId, ledger.placedOrdersOf(userId)));
+            }
+            if (client.getWallet(userId).status() != 404) {
+                violations.add("Deleted user " + userId + " still has a wallet");
+            }
+        }
+
+        Map<Integer, Integer> finalStock = new HashMap<>();
+        for (JsonNode product : client.getProducts().body()) {
+            finalStock.put(product.path("id").asInt(), product.path("stock_quantity").asInt());
+        }
+        for (Integer productId : productIds) {
+            int stock = finalStock.getOrDefault(productId, 0);
+            int lowest = Math.min(stock, minObservedStock.getOrDefault(productId, stock));
+            if (lowest < 0) {
+                violations.add(String.format("Stock of product %d went negative: lowest observed %d", productId, lowest));
+            }
+            int placedQuantity = ledger.placedQuantityOf(productId);
+            if (stock != initialStock.get(productId) - placedQuantity) {
+                violations.add(String.format("Stock of product %d not conserved: %d initially, %d in placed orders, %d left",
+                        productId, initialStock.get(productId), placedQuantity, stock));
+            }
+        }
+
+        ledger.verifyBalances(client, remainingUsers, INITIAL_BALANCE, violations);
+        return violations;
+    }
+
+    private boolean awaitCompletion(ServiceClient client, String jobId) {
+        long deadline = System.currentTimeMillis() + JOB_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            ServiceClient.Response job = client.getDeletionJob(jobId);
+            if (job.is(200) && job.body().path("status").asText().equals("COMPLETED")) {
+                return true;
+            }
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package com.onlinemarketplace.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Credits and debits racing on a single wallet, as concurrent_test_cases/test_case_1.py does with
+ * one credit and one debit thread: credits of 10 to 100 and debits of 5 to 50, half of each.
+ *
+ * Invariants: the balance never goes negative, and the final balance equals the initial balance plus
+ * the accepted credits minus the accepted debits.
+ */
+public class WalletRaceScenario implements Scenario {
+    private static final int INITIAL_BALANCE = 1000;
+
+    private int userId;
+    private final LongAdder credited = new LongAdder();
+    private final LongAdder debited = new LongAdder();
+    private final LongAdder unknownOutcomes = new LongAdder();
+    private final AtomicInteger minObservedBalance = new AtomicInteger(Integer.MAX_VALUE);
+
+    @Override
+    public String name() {
+        return "wallet-race";
+    }
+
+    @Override
+    public void setUp(ServiceClient client, LoadProfile profile) {
+        userId = Fixtures.freshUserIds(1).get(0);
+        Fixtures.createFundedUser(client, userId, INITIAL_BALANCE);
+    }
+
+    @Override
+    public Outcome arrive(ServiceClient client, long sequence) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean credit = random.nextBoolean();
+        int amount = credit ? random.nextInt(10, 101) : random.nextInt(5, 51);
+        ServiceClient.Response response = client.updateWallet(userId, credit ? "credit" : "debit", amount);
+        if (response.is(200)) {
+            (credit ? credited : debited).add(amount);
+            minObservedBalance.accumulateAndGet(response.body().path("balance").asInt(), Math::min);
+        } else if (response.is(ServiceClient.NO_RESPONSE)) {
+            unknownOutcomes.increment();
+        }
+        return new Outcome(credit ? "credit" : "debit", response.status());
+    }
+
+    @Override
+    public void sample(ServiceClient client) {
+        Integer balance = Fixtures.balanceOf(client, userId);
+        if (balance != null) {
+            minObservedBalance.accumulateAndGet(balance, Math::min);
+        }
+    }
+
+    @Override
+    public List<String> verify(ServiceClient client) {
+        List<String> violations = new ArrayList<>();
+        Integer finalBalance = Fixtures.balanceOf(client, userId);
+        if (finalBalance == null) {
+            violations.add("Wallet of user " + userId + " is missing");
+            return violations;
+        }
+        if (minObservedBalance.get() < 0 || finalBalance < 0) {
+            violations.add("Balance went negative: lowest observed " + Math.min(minObservedBalance.get(), finalBalance));
+        }
+
+        long expectedBalance = INITIAL_BALANCE + credited.sum() - debited.sum();
+        if (unknownOutcomes.sum() > 0) {
+            violations.add(unknownOutcomes.sum() + " requests got no response, the balance cannot be reconciled");
+        } else if (finalBalance != expectedBalance) {
+            violations.add(String.format("Balance not conserved: %d + %d credited - %d debited = %d, but the wallet holds %d",
+                    INITIAL_BALANCE, credited.sum(), debited.sum(), expectedBalance, finalBalance));
+        }
+        return violations;
+    }
+}
@@ -3,15 +3,20 @@ package com.onlinemarketplace.marketplaceservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchProperties;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestClient;
 
-@SpringBootApplication
+// The R2DBC pool of the reactive read server is created by ReactiveReadConfiguration, only when enabled
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableScheduling
 public class MarketplaceServiceApplication {
 
+	// Built from Boot's builder, which records http.client.requests for every downstream call
 	@Bean
-	public RestClient restClient() {
-		return RestClient.builder().build();
+	public RestClient restClient(RestClient.Builder restClientBuilder) {
+		return restClientBuilder.build();
 	}
 
 	public static void main(String[] args) {
@@ -0,0 +1,73 @@
+package com.onlinemarketplace.marketplaceservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlinemarketplace.marketplaceservice.controller.ProductCatalogSnapshot;
+import com.onlinemarketplace.marketplaceservice.controller.ReactiveReadHandler;
+import com.onlinemarketplace.marketplaceservice.controller.ReactiveReadServer;
+import io.micrometer.observation.ObservationRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.observation.DefaultServerRequestObservationConvention;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+/**
+ * Serves the read endpoints of the marketplace on the reactive stack as well, on a second port, when
+ * marketplace.reactive.enabled is true. See {@link ReactiveReadHandler} and {@link ReactiveReadServer}.
+ * The requests are timed as http.server.reactive.requests.
+ * <p>
+ * Properties:
+ * <ul>
+ *     <li>marketplace.reactive.port: the port of the reactive server</li>
+ *     <li>marketplace.reactive.event-loop-threads: the threads serving its connections</li>
+ *     <li>marketplace.reactive.r2dbc.url, .username, .password: the database, the same as spring.datasource.url</li>
+ *     <li>marketplace.reactive.r2dbc.pool-size: connections of the R2DBC pool</li>
+ * </ul>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "marketplace.reactive", name = "enabled", havingValue = "true")
+public class ReactiveReadConfiguration {
+
+    // The pool is not a bean: the DataSource auto-configuration backs off when there is a ConnectionFactory bean
+    @Bean(destroyMethod = "close")
+    public ReactiveReadHandler reactiveReadHandler(
+            ProductCatalogSnapshot productCatalogSnapshot,
+            @Value("${marketplace.reactive.r2dbc.url:r2dbc:h2:tcp://h2-database:9082/~/test}") String url,
+            @Value("${marketplace.reactive.r2dbc.username:sa}") String username,
+            @Value("${marketplace.reactive.r2dbc.password:}") String password,
+            @Value("${marketplace.reactive.r2dbc.pool-size:10}") int poolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        ConnectionPool connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive-read")
+                .maxSize(poolSize)
+                .build());
+        return new ReactiveReadHandler(connectionPool, productCatalogSnapshot);
+    }
+
+    @Bean
+    public ReactiveReadServer reactiveReadServer(ReactiveReadHandler reactiveReadHandler, ObjectMapper objectMapper,
+                                                 ObservationRegistry observationRegistry,
+                                                 @Value("${marketplace.reactive.port:8091}") int port,
+                                                 @Value("${marketplace.reactive.event-loop-threads:4}") int eventLoopThreads) {
+        // The application's ObjectMapper, so the JSON is the same as on the servlet stack
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .build();
+        WebHttpHandlerBuilder httpHandler = WebHttpHandlerBuilder
+                .webHandler(RouterFunctions.toWebHandler(reactiveReadHandler.routes(), strategies))
+                .observationRegistry(observationRegistry)
+                .observationConvention(new DefaultServerRequestObservationConvention("http.server.reactive.requests"));
+        return new ReactiveReadServer(httpHandler.build(), port, eventLoopThreads);
+    }
+}
@@ -0,0 +1,76 @@
+package com.onlinemarketplace.marketplaceservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Splits reads from writes when marketplace.datasource.replica.url is set.
+ * Read-only transactions (the catalog and order lookups) then get their connections from a separate
+ * replica pool, so they no longer compete with the SERIALIZABLE order writes on the primary.
+ * <p>
+ * Properties:
+ * <ul>
+ *     <li>marketplace.datasource.replica.url, .username, .password: the replica, e.g. a second H2 server</li>
+ *     <li>marketplace.datasource.replica.hikari.*: pool settings of the replica</li>
+ *     <li>marketplace.datasource.replica.max-lag-ms: replication lag assumed for read-your-writes</li>
+ *     <li>marketplace.datasource.replica.sync-from-primary: let this service copy the primary into the
+ *     replica, for testing with a local H2 instance</li>
+ * </ul>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "marketplace.datasource.replica", name = "url")
+public class ReadReplicaConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("marketplace.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${marketplace.datasource.replica.url}") String url,
+            @Value("${marketplace.datasource.replica.username:sa}") String username,
+            @Value("${marketplace.datasource.replica.password:}") String password) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicationLagGuard replicationLagGuard) {
+        ReadWriteRoutingDataSource routingDataSource =
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicationLagGuard);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "marketplace.datasource.replica", name = "sync-from-primary", havingValue = "true")
+    public ReplicaSynchronizer replicaSynchronizer(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                   @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                                   ReplicationLagGuard replicationLagGuard) {
+        return new ReplicaSynchronizer(primaryDataSource, replicaDataSource, replicationLagGuard);
+    }
+}
@@ -0,0 +1,33 @@
+package com.onlinemarketplace.marketplaceservice.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Routes connections of read-only transactions to the read replica and everything else to the primary.
+ * Has to sit behind a LazyConnectionDataSourceProxy, so the target connection is only fetched at the
+ * first statement, after the transaction has been marked read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, REPLICA }
+
+    private final ReplicationLagGuard replicationLagGuard;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicationLagGuard replicationLagGuard) {
+        this.replicationLagGuard = replicationLagGuard;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !replicationLagGuard.isPrimaryRequired()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+}
@@ -0,0 +1,125 @@
+package com.onlinemarketplace.marketplaceservice.config;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Keeps a local H2 replica in sync with the primary by periodically copying a consistent snapshot
+ * of the catalog, order and order archive tables. Meant for running the read/write split without real database
+ * replication, e.g. in tests; a production replica is kept in sync by the database itself.
+ * <p>
+ * Each copy reads the primary in one REPEATABLE READ transaction and replaces the replica tables in
+ * one transaction, so replica readers always see a complete snapshot.
+ */
+public class ReplicaSynchronizer {
+
+    // Parents before children, so inserts never violate a reference
+    private static final List<String> TABLES = List.of("PRODUCT", "ORDERS", "ORDERITEM", "ORDERS_ARCHIVE", "ORDER_ITEM_ARCHIVE");
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicationLagGuard replicationLagGuard;
+    private volatile boolean schemaCreated = false;
+
+    public ReplicaSynchronizer(DataSource primary, DataSource replica, ReplicationLagGuard replicationLagGuard) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicationLagGuard = replicationLagGuard;
+    }
+
+    /**
+     * Copies the current snapshot of the primary to the replica.
+     */
+    @Scheduled(fixedDelayString = "${marketplace.datasource.replica.sync-interval-ms:1000}")
+    public synchronized void sync() {
+        Instant snapshotTime = Instant.now();
+        try (Connection source = primary.getConnection(); Connection target = replica.getConnection()) {
+            source.setAutoCommit(false);
+            source.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            source.setReadOnly(true);
+            target.setAutoCommit(false);
+            try {
+                if (!schemaCreated) {
+                    createSchema(source, target);
+                    schemaCreated = true;
+                }
+                for (String table : TABLES.reversed()) {
+                    try (Statement delete = target.createStatement()) {
+                        delete.executeUpdate("DELETE FROM " + table);
+                    }
+                }
+                for (String table : TABLES) {
+                    copyTable(source, target, table);
+                }
+                target.commit();
+                source.commit();
+            } catch (SQLException e) {
+                target.rollback();
+                source.rollback();
+                throw e;
+            }
+            replicationLagGuard.replicaSyncedAsOf(snapshotTime);
+        } catch (SQLException e) {
+            // Tables may not exist yet while the primary schema is being created
+            System.err.println("Failed to sync read replica: " + e.getMessage());
+        }
+    }
+
+    private void createSchema(Connection source, Connection target) throws SQLException {
+        try (Statement script = source.createStatement();
+             ResultSet statements = script.executeQuery(
+                     "SCRIPT NODATA NOPASSWORDS NOSETTINGS TABLE " + String.join(", ", TABLES));
+             Statement ddl = target.createStatement()) {
+            for (String table : TABLES.reversed()) {
+                ddl.execute("DROP TABLE IF EXISTS " + table + " CASCADE");
+            }
+            while (statements.next()) {
+                String statement = statements.getString(1);
+                // Tables, primary keys and indexes only: the copy is consistent, references need no checks
+                if (statement.startsWith("CREATE MEMORY TABLE") || statement.startsWith("CREATE CACHED TABLE")
+                        || statement.startsWith("CREATE INDEX") || statement.startsWith("CREATE UNIQUE INDEX")
+                        || (statement.startsWith("ALTER TABLE") && statement.contains("PRIMARY KEY"))) {
+                    ddl.execute(statement);
+                }
+            }
+        }
+    }
+
+    private void copyTable(Connection source, Connection target, String table) throws SQLException {
+        try (Statement select = source.createStatement();
+             ResultSet rows = select.executeQuery("SELECT * FROM " + table)) {
+            ResultSetMetaData metaData = rows.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            StringBuilder columns = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 1; i <= columnCount; i++) {
+                columns.append(i > 1 ? ", " : "").append('"').append(metaData.getColumnName(i)).append('"');
+                placeholders.append(i > 1 ? ", ?" : "?");
+            }
+
+            try (PreparedStatement insert = target.prepareStatement(
+                    "INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")")) {
+                int batched = 0;
+                while (rows.next()) {
+                    for (int i = 1; i <= columnCount; i++) {
+                        insert.setObject(i, rows.getObject(i));
+                    }
+                    insert.addBatch();
+                    if (++batched % 1000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+}
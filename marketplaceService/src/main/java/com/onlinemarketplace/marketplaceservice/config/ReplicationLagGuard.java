@@ -0,0 +1,121 @@
+package com.onlinemarketplace.marketplaceservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Provides read-your-writes on top of the read replica.
+ * Writes record the keys they touched (e.g. "user:7", "order:12") once they commit. A read of a key
+ * written after the point the replica is known to be consistent with is routed to the primary.
+ * <p>
+ * The replica is consistent as of the last snapshot copied by the {@link ReplicaSynchronizer}, or,
+ * for an externally replicated replica, as of now minus the configured maximum replication lag.
+ */
+@Component
+public class ReplicationLagGuard {
+
+    private final boolean enabled;
+    private final Duration maxLag;
+    private final ConcurrentHashMap<String, Instant> lastWrites = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> primaryRequired = ThreadLocal.withInitial(() -> false);
+    private volatile Instant replicaSyncedAsOf;
+
+    public ReplicationLagGuard(@Value("${marketplace.datasource.replica.url:}") String replicaUrl,
+                               @Value("${marketplace.datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+        this.enabled = !replicaUrl.isBlank();
+        this.maxLag = Duration.ofMillis(maxLagMillis);
+    }
+
+    /**
+     * Records that the current transaction wrote the given keys.
+     * The write becomes visible to the guard when the transaction commits.
+     *
+     * @param keys the keys written, e.g. "user:7"
+     */
+    public void recordWrite(String... keys) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markWritten(keys);
+                }
+            });
+        } else {
+            markWritten(keys);
+        }
+    }
+
+    /**
+     * Runs a read, on the primary if the key has a write the replica may not have yet.
+     *
+     * @param key  the key read, e.g. "user:7"
+     * @param read the read, executed in a read-only transaction
+     * @return the result of the read
+     */
+    public <T> T read(String key, Supplier<T> read) {
+        if (!enabled || !isStale(key)) {
+            return read.get();
+        }
+        primaryRequired.set(true);
+        try {
+            return read.get();
+        } finally {
+            primaryRequired.remove();
+        }
+    }
+
+    /**
+     * @return whether reads are routed to a replica, i.e. whether writes need to be recorded at all
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return whether the current thread has to read from the primary even in a read-only transaction
+     */
+    public boolean isPrimaryRequired() {
+        return primaryRequired.get();
+    }
+
+    /**
+     * Called by the {@link ReplicaSynchronizer} once the replica holds everything committed before the given instant.
+     *
+     * @param snapshotTime the instant the copied snapshot was taken at
+     */
+    void replicaSyncedAsOf(Instant snapshotTime) {
+        this.replicaSyncedAsOf = snapshotTime;
+        lastWrites.values().removeIf(writtenAt -> writtenAt.isBefore(snapshotTime));
+    }
+
+    private boolean isStale(String key) {
+        Instant writtenAt = lastWrites.get(key);
+        return writtenAt != null && !writtenAt.isBefore(consistentAsOf());
+    }
+
+    private Instant consistentAsOf() {
+        return replicaSyncedAsOf != null ? replicaSyncedAsOf : Instant.now().minus(maxLag);
+    }
+
+    private void markWritten(String... keys) {
+        Instant now = Instant.now();
+        for (String key : keys) {
+            lastWrites.put(key, now);
+        }
+        // Without a synchronizer nothing else prunes entries older than the maximum lag
+        if (replicaSyncedAsOf == null && lastWrites.size() > 10_000) {
+            Instant cutoff = now.minus(maxLag);
+            lastWrites.values().removeIf(writtenAt -> writtenAt.isBefore(cutoff));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.model.ProductDetails;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports the Hibernate second-level cache statistics of this marketplace instance.
+ * Reset the statistics, place an order and compare prepared_statements with transactions
+ * to see the database round trips per order.
+ */
+@RestController
+public class CacheStatisticsController {
+
+    private final Statistics statistics;
+
+    /**
+     * Constructor for CacheStatisticsController.
+     *
+     * @param entityManagerFactory the JPA entity manager factory.
+     */
+    public CacheStatisticsController(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Returns the cache and statement statistics since startup or the last reset.
+     *
+     * @return a ResponseEntity with the statistics.
+     */
+    @GetMapping("/marketplace/cache")
+    public ResponseEntity<?> getCacheStatistics() {
+        if (!statistics.isStatisticsEnabled()) {
+            return new ResponseEntity<>("Statistics are disabled (hibernate.generate_statistics)", HttpStatus.NOT_FOUND);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("statistics_since", statistics.getStart());
+        body.put("product_region", regionStatistics(statistics.getDomainDataRegionStatistics(Product.CACHE_REGION)));
+        body.put("product_details_region",
+                regionStatistics(statistics.getDomainDataRegionStatistics(ProductDetails.CACHE_REGION)));
+        body.put("query_cache_hits", statistics.getQueryCacheHitCount());
+        body.put("query_cache_misses", statistics.getQueryCacheMissCount());
+        body.put("query_cache_puts", statistics.getQueryCachePutCount());
+        body.put("transactions", statistics.getTransactionCount());
+        body.put("prepared_statements", statistics.getPrepareStatementCount());
+        body.put("entity_loads", statistics.getEntityLoadCount());
+        body.put("queries", statistics.getQueryExecutionCount());
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    /**
+     * Resets the statistics. The cached entries are kept.
+     *
+     * @return a ResponseEntity indicating the result of the operation.
+     */
+    @DeleteMapping("/marketplace/cache/statistics")
+    public ResponseEntity<?> resetCacheStatistics() {
+        statistics.clear();
+        return new ResponseEntity<>("Cache statistics reset!", HttpStatus.OK);
+    }
+
+    private static Map<String, Object> regionStatistics(CacheRegionStatistics region) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", region.getHitCount());
+        stats.put("misses", region.getMissCount());
+        stats.put("puts", region.getPutCount());
+        return stats;
+    }
+}
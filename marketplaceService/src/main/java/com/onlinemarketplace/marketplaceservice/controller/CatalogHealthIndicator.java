@@ -0,0 +1,50 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.CatalogImport;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * The "catalog" health of /actuator/health, part of the readiness group.
+ * OUT_OF_SERVICE while {@link ProductInitializer} syncs the catalog in the background, so a new
+ * replica gets no traffic before its products are there, UP once synced and DOWN if the sync failed.
+ */
+@Component
+public class CatalogHealthIndicator implements HealthIndicator {
+
+    private volatile Health health = Health.outOfService().withDetail("catalog", "not loaded yet").build();
+
+    @Override
+    public Health health() {
+        return health;
+    }
+
+    void loading(String source) {
+        health = Health.outOfService()
+                .withDetail("catalog", "loading")
+                .withDetail("source", source)
+                .withDetail("started_at", Instant.now())
+                .build();
+    }
+
+    void loaded(String source, Optional<CatalogImport> catalogImport) {
+        Health.Builder builder = Health.up()
+                .withDetail("catalog", "loaded")
+                .withDetail("source", source)
+                .withDetail("loaded_at", Instant.now());
+        // Empty if another replica synced it
+        catalogImport.ifPresent(synced -> builder
+                .withDetail("rows_imported", synced.getRows_imported())
+                .withDetail("rows_unchanged", synced.getRows_unchanged())
+                .withDetail("rows_rejected", synced.getRows_rejected()));
+        health = builder.build();
+    }
+
+    void failed(String source, Exception e) {
+        health = Health.down(e).withDetail("catalog", "failed").withDetail("source", source).build();
+    }
+}
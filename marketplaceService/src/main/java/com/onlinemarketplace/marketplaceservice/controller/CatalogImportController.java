@@ -0,0 +1,94 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.CatalogImport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Re-imports the product catalog at runtime, see {@link CatalogImporter}: only new and changed
+ * products are written, and the stock of existing products is kept.
+ * Only one import runs at a time; a second one is rejected with 409 (CONFLICT).
+ */
+@RestController
+public class CatalogImportController {
+
+    private final CatalogImporter catalogImporter;
+    private final ResourceLoader resourceLoader;
+    private final String catalogLocation;
+
+    /**
+     * Constructor for CatalogImportController.
+     *
+     * @param catalogImporter the importer.
+     * @param resourceLoader  resolves the catalog location.
+     * @param catalogLocation the catalog loaded on startup, e.g. file:/data/products.csv.
+     */
+    public CatalogImportController(CatalogImporter catalogImporter, ResourceLoader resourceLoader,
+                                   @Value("${marketplace.catalog.location:classpath:static/products.csv}") String catalogLocation) {
+        this.catalogImporter = catalogImporter;
+        this.resourceLoader = resourceLoader;
+        this.catalogLocation = catalogLocation;
+    }
+
+    /**
+     * Imports the CSV catalog in the request body, streaming it as it is uploaded.
+     * Returns the import with a 200 (OK) status once completed, or with a 400 (BAD REQUEST) status
+     * if it failed; products written before the failure are kept.
+     *
+     * @param body the CSV catalog, with a header line.
+     * @return ResponseEntity containing the import.
+     */
+    @PostMapping(value = "/admin/catalog/import", consumes = "text/csv")
+    public ResponseEntity<?> importCatalog(InputStream body) {
+        try {
+            Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+            CatalogImport catalogImport = catalogImporter.importCatalog(reader, "upload");
+            return new ResponseEntity<>(catalogImport, catalogImport.getStatus() == CatalogImport.Status.COMPLETED
+                    ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
+        }
+    }
+
+    /**
+     * Re-imports the configured catalog (marketplace.catalog.location) in the background.
+     * Returns the running import with a 202 (ACCEPTED) status; poll GET /admin/catalog/import for its progress.
+     *
+     * @return ResponseEntity containing the running import.
+     */
+    @PostMapping("/admin/catalog/reload")
+    public ResponseEntity<?> reloadCatalog() {
+        try {
+            CatalogImport catalogImport = catalogImporter.startImport(resourceLoader.getResource(catalogLocation));
+            return ResponseEntity.accepted()
+                    .location(URI.create("/admin/catalog/import"))
+                    .body(catalogImport);
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
+        }
+    }
+
+    /**
+     * Returns the running or most recent catalog import.
+     *
+     * @return ResponseEntity containing the import, or a 404 (NOT FOUND) status if there was none.
+     */
+    @GetMapping("/admin/catalog/import")
+    public ResponseEntity<?> getCatalogImport() {
+        return catalogImporter.lastImport()
+                .<ResponseEntity<?>>map(catalogImport -> new ResponseEntity<>(catalogImport, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>("No catalog import since startup", HttpStatus.NOT_FOUND));
+    }
+}
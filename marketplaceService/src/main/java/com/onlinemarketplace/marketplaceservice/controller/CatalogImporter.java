@@ -0,0 +1,416 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.CatalogImport;
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.model.ProductDetails;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Imports the product catalog from CSV, streaming, so that catalogs of millions of rows can be
+ * (re-)imported with bounded memory while the service runs.
+ * <p>
+ * The file is parsed with commons-csv in chunks. The chunks are validated in parallel, and written
+ * in file order with JDBC batch MERGEs. Upserting keeps re-imports idempotent: a product listed twice
+ * ends up with its last row. At most {@code parallelism + 1} chunks are held in memory. Each chunk
+ * commits on its own, so an import that fails part-way keeps the chunks written so far and can simply
+ * be run again. Invalid rows are skipped and reported, they do not fail the import.
+ * <p>
+ * Only rows whose name, description or price changed since they were last written are written again,
+ * compared by a hash per row in catalog_row_hash, and the stock is set only for new products, so live
+ * inventory is never reset to the CSV values, neither on startup (see {@link CatalogSynchronizer}) nor
+ * by a runtime import. Products missing from the file are left alone.
+ * <p>
+ * After an import the cached products are evicted and the search index and catalog snapshot rebuilt,
+ * on every replica: the importing one increments the {@link CatalogVersion}, which the others check
+ * every marketplace.catalog.version-check-ms.
+ */
+@Service
+public class CatalogImporter {
+    // Updates an existing product without touching its stock, inserts a new one with the stock of the file;
+    // Hibernate is bypassed, so the product cache regions are evicted after the import
+    private static final String SYNC_PRODUCT = """
+            MERGE INTO Product p
+            USING (VALUES (CAST(? AS INTEGER), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS INTEGER), CAST(? AS INTEGER)))
+                AS s(id, name, description, price, stock_quantity)
+            ON p.id = s.id
+            WHEN MATCHED THEN UPDATE SET p.name = s.name, p.description = s.description, p.price = s.price
+            WHEN NOT MATCHED THEN INSERT (id, name, description, price, stock_quantity)
+                VALUES (s.id, s.name, s.description, s.price, s.stock_quantity)""";
+    private static final String UPSERT_ROW_HASH = "MERGE INTO catalog_row_hash (product_id, row_hash) KEY (product_id) VALUES (?, ?)";
+    private static final String SELECT_ROW_HASHES = "SELECT product_id, row_hash FROM catalog_row_hash WHERE product_id IN (:ids)";
+    private static final Set<String> COLUMNS = Set.of("id", "name", "description", "price", "stock_quantity");
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT
+            .withFirstRecordAsHeader()
+            .withTrim()
+            .withIgnoreEmptyLines();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductCatalogSnapshot productCatalogSnapshot;
+    private final CatalogVersion catalogVersion;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long progressInterval;
+    private final ExecutorService validators;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile CatalogImport lastImport;
+    // The catalog version the products held by this replica were read at, -1 until the catalog is loaded
+    private volatile long loadedVersion = -1;
+
+    /**
+     * Constructor for CatalogImporter.
+     *
+     * @param jdbcTemplate           writes the product batches.
+     * @param transactionManager     runs each chunk in its own transaction.
+     * @param entityManagerFactory   evicts the cached products after an import.
+     * @param productSearchIndex     rebuilt after an import.
+     * @param productCatalogSnapshot rebuilt after an import.
+     * @param catalogVersion         incremented after an import, checked for imports of other replicas.
+     * @param chunkSize              rows per chunk and JDBC batch.
+     * @param parallelism            threads validating chunks; 0 for one per processor.
+     * @param progressInterval       rows between two progress log lines.
+     */
+    public CatalogImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           EntityManagerFactory entityManagerFactory, ProductSearchIndex productSearchIndex,
+                           ProductCatalogSnapshot productCatalogSnapshot, CatalogVersion catalogVersion,
+                           @Value("${marketplace.catalog.import.chunk-size:5000}") int chunkSize,
+                           @Value("${marketplace.catalog.import.parallelism:0}") int parallelism,
+                           @Value("${marketplace.catalog.import.progress-interval:100000}") long progressInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.productSearchIndex = productSearchIndex;
+        this.productCatalogSnapshot = productCatalogSnapshot;
+        this.catalogVersion = catalogVersion;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.progressInterval = progressInterval;
+        this.validators = Executors.newFixedThreadPool(this.parallelism,
+                Thread.ofPlatform().name("catalog-validator-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validators.shutdownNow();
+    }
+
+    /**
+     * Imports a catalog in the calling thread: only new and changed rows are written, and the stock
+     * of existing products is kept.
+     *
+     * @param reader the CSV, with a header line naming the columns id, name, description, price
+     *               and stock_quantity in any order.
+     * @param source description of the catalog for the report.
+     * @return the completed or failed import.
+     * @throws ResponseStatusException with 409 (CONFLICT) if another import is running.
+     */
+    public CatalogImport importCatalog(Reader reader, String source) {
+        CatalogImport catalogImport = begin(source);
+        try {
+            run(reader, catalogImport);
+        } finally {
+            running.set(false);
+        }
+        return catalogImport;
+    }
+
+    /**
+     * Starts importing a catalog in the background.
+     *
+     * @param resource the CSV file.
+     * @return the running import, which can be polled through {@link #lastImport()}.
+     * @throws ResponseStatusException with 409 (CONFLICT) if another import is running.
+     */
+    public CatalogImport startImport(Resource resource) {
+        CatalogImport catalogImport = begin(resource.getDescription());
+        Thread.ofVirtual().name("catalog-import").start(() -> {
+            try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+                run(reader, catalogImport);
+            } catch (IOException e) {
+                catalogImport.fail("Error reading CSV file: " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+        return catalogImport;
+    }
+
+    /**
+     * @return the running or most recent import since the service started.
+     */
+    public Optional<CatalogImport> lastImport() {
+        return Optional.ofNullable(lastImport);
+    }
+
+    private CatalogImport begin(String source) {
+        if (!running.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A catalog import is already running!");
+        }
+        CatalogImport catalogImport = new CatalogImport(source);
+        lastImport = catalogImport;
+        return catalogImport;
+    }
+
+    private void run(Reader reader, CatalogImport catalogImport) {
+        long nextProgress = progressInterval;
+        productSearchIndex.catalogChanging();
+        productCatalogSnapshot.catalogChanging();
+        try (CSVParser parser = FORMAT.parse(reader)) {
+            if (!parser.getHeaderMap().keySet().containsAll(COLUMNS)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "CSV header must name the columns " + COLUMNS + ", got " + parser.getHeaderNames());
+            }
+
+            // Validated chunks in file order; the oldest is written once the window is full
+            Deque<Future<ValidatedChunk>> pending = new ArrayDeque<>();
+            List<CSVRecord> chunk = new ArrayList<>(chunkSize);
+            for (CSVRecord record : parser) {
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    List<CSVRecord> full = chunk;
+                    pending.add(validators.submit(() -> validate(full)));
+                    chunk = new ArrayList<>(chunkSize);
+                    if (pending.size() > parallelism) {
+                        write(pending.removeFirst().get(), catalogImport);
+                    }
+                }
+                if (catalogImport.getRows_read() + chunk.size() >= nextProgress) {
+                    logProgress(catalogImport);
+                    nextProgress += progressInterval;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                List<CSVRecord> last = chunk;
+                pending.add(validators.submit(() -> validate(last)));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst().get(), catalogImport);
+            }
+            catalogImport.complete();
+            System.out.printf("Catalog import from %s completed: %d products written, %d unchanged, %d rows rejected (%d rows/s)%n",
+                    catalogImport.getSource(), catalogImport.getRows_imported(),
+                    catalogImport.getRows_unchanged(), catalogImport.getRows_rejected(), catalogImport.getRows_per_second());
+        } catch (ResponseStatusException e) {
+            catalogImport.fail(e.getReason());
+        } catch (IOException | IllegalStateException e) {
+            // commons-csv reports malformed input, e.g. an unterminated quote, as IllegalStateException
+            catalogImport.fail("Error reading CSV file: " + e.getMessage());
+        } catch (ExecutionException e) {
+            catalogImport.fail("Error validating CSV file: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            catalogImport.fail("Import interrupted");
+        } catch (Exception e) {
+            catalogImport.fail("Error while importing products: " + e.getMessage());
+        } finally {
+            incrementCatalogVersion();
+            evictCachedProducts();
+            rebuildSearchIndex();
+            rebuildCatalogSnapshot();
+        }
+        if (catalogImport.getStatus() == CatalogImport.Status.FAILED) {
+            System.err.println("Catalog import from " + catalogImport.getSource() + " failed after "
+                    + catalogImport.getRows_imported() + " products: " + catalogImport.getFailure());
+        }
+    }
+
+    /**
+     * Evicts the cached products and rebuilds the search index and catalog snapshot from the database,
+     * for a catalog synced by another replica.
+     */
+    public void loadFromDatabase() {
+        loadedVersion = catalogVersion.current();
+        evictCachedProducts();
+        productSearchIndex.rebuild();
+        productCatalogSnapshot.rebuild();
+    }
+
+    /**
+     * Rebuilds what this replica holds of the products if another replica imported the catalog since
+     * it was loaded here: names and prices are not covered by the stock refreshes.
+     */
+    @Scheduled(initialDelayString = "${marketplace.catalog.version-check-ms:5000}",
+            fixedDelayString = "${marketplace.catalog.version-check-ms:5000}")
+    public void checkCatalogVersion() {
+        if (loadedVersion < 0 || running.get()) {
+            // Not loaded yet, or an import of this replica rebuilds everything when done
+            return;
+        }
+        try {
+            long version = catalogVersion.current();
+            if (version != loadedVersion) {
+                System.out.println("Catalog changed by another replica (version " + version + "), reloading the products");
+                loadedVersion = version;
+                evictCachedProducts();
+                rebuildSearchIndex();
+                rebuildCatalogSnapshot();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to check the catalog version: " + e.getMessage());
+        }
+    }
+
+    // Each row holds id, name, description, price and stock_quantity, followed by the row hash
+    private record ValidatedChunk(int records, List<Object[]> rows, List<String> errors) {
+    }
+
+    private ValidatedChunk validate(List<CSVRecord> records) {
+        List<Object[]> rows = new ArrayList<>(records.size());
+        List<String> errors = new ArrayList<>();
+        for (CSVRecord record : records) {
+            if (!record.isConsistent()) {
+                errors.add("Row " + record.getRecordNumber() + ": incorrect column count");
+                continue;
+            }
+            try {
+                int id = Integer.parseInt(record.get("id"));
+                String name = record.get("name");
+                int price = Integer.parseInt(record.get("price"));
+                int stockQuantity = Integer.parseInt(record.get("stock_quantity"));
+                if (name.isEmpty()) {
+                    errors.add("Row " + record.getRecordNumber() + ": name is empty");
+                } else if (price < 0 || stockQuantity < 0) {
+                    errors.add("Row " + record.getRecordNumber() + ": price and stock_quantity must not be negative");
+                } else {
+                    String description = record.get("description");
+                    rows.add(new Object[]{id, name, description, price, stockQuantity, rowHash(name, description, price)});
+                }
+            } catch (NumberFormatException e) {
+                errors.add("Row " + record.getRecordNumber() + ": invalid number format: " + e.getMessage());
+            }
+        }
+        return new ValidatedChunk(records.size(), rows, errors);
+    }
+
+    // The stock is not part of the hash: a changed stock in the file is not written anyway
+    private static String rowHash(String name, String description, int price) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // Separated by a control character, so that moving text between columns changes the hash
+            digest.update((name + '\u001f' + description + '\u001f' + price).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void write(ValidatedChunk chunk, CatalogImport catalogImport) {
+        int written = transactionTemplate.execute(status -> writeChanged(chunk.rows()));
+        catalogImport.rowsRead(chunk.records());
+        catalogImport.rowsImported(written);
+        catalogImport.rowsUnchanged(chunk.rows().size() - written);
+        if (!chunk.errors().isEmpty()) {
+            catalogImport.rowsRejected(chunk.errors());
+        }
+    }
+
+    // Writes the rows whose hash differs from the stored one, returns how many
+    private int writeChanged(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, String> storedHashes = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_ROW_HASHES,
+                Map.of("ids", rows.stream().map(row -> row[0]).distinct().toList()),
+                resultSet -> {
+                    storedHashes.put(resultSet.getInt("product_id"), resultSet.getString("row_hash"));
+                });
+
+        List<Object[]> products = new ArrayList<>();
+        List<Object[]> hashes = new ArrayList<>();
+        for (Object[] row : rows) {
+            // A product listed twice in the chunk is compared with its previous row, the last one wins
+            if (!row[5].equals(storedHashes.put((Integer) row[0], (String) row[5]))) {
+                products.add(Arrays.copyOf(row, 5));
+                hashes.add(new Object[]{row[0], row[5]});
+            }
+        }
+        if (!products.isEmpty()) {
+            jdbcTemplate.batchUpdate(SYNC_PRODUCT, products);
+            jdbcTemplate.batchUpdate(UPSERT_ROW_HASH, hashes);
+        }
+        return products.size();
+    }
+
+    private void logProgress(CatalogImport catalogImport) {
+        System.out.printf("Catalog import from %s: %d rows written, %d rejected (%d rows/s)%n", catalogImport.getSource(),
+                catalogImport.getRows_imported(), catalogImport.getRows_rejected(), catalogImport.getRows_per_second());
+    }
+
+    // Incremented by a failed import too, whose chunks written before the failure are kept
+    private void incrementCatalogVersion() {
+        try {
+            loadedVersion = catalogVersion.increment();
+        } catch (Exception e) {
+            System.err.println("Failed to increment the catalog version, other replicas keep the previous products: "
+                    + e.getMessage());
+            // Still check for the imports of other replicas
+            loadedVersion = Math.max(loadedVersion, 0);
+        }
+    }
+
+    // Names, prices and stock may all have changed behind Hibernate's back
+    // Also after a failed import, the chunks written before the failure are kept
+    private void rebuildSearchIndex() {
+        try {
+            productSearchIndex.rebuild();
+        } catch (Exception e) {
+            System.err.println("Failed to rebuild the product search index: " + e.getMessage());
+        }
+    }
+
+    private void rebuildCatalogSnapshot() {
+        try {
+            productCatalogSnapshot.rebuild();
+        } catch (Exception e) {
+            System.err.println("Failed to rebuild the product catalog snapshot: " + e.getMessage());
+        }
+    }
+
+    private void evictCachedProducts() {
+        entityManagerFactory.getCache().evict(Product.class);
+        entityManagerFactory.getCache().evict(ProductDetails.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+    }
+}
@@ -0,0 +1,194 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.CatalogImport;
+import com.onlinemarketplace.marketplaceservice.model.CatalogSyncLease;
+import com.onlinemarketplace.marketplaceservice.repository.CatalogSyncLeaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Syncs the catalog file into the database on startup, once for all replicas sharing the database.
+ * <p>
+ * The replicas race for a lease in catalog_sync_lease. The winner syncs the changed rows (see
+ * {@link CatalogImporter#importCatalog}), renewing the lease while it runs, and then stores the hash
+ * of the file as ready marker. The other replicas wait until the marker matches their file. If the
+ * owner dies, they take over once its lease expires. A replica starting with a file that was
+ * already synced, as on every rolling restart without catalog changes, finds the marker and skips
+ * the sync.
+ */
+@Service
+public class CatalogSynchronizer {
+    static final String LEASE = "catalog";
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    enum Decision { READY, ACQUIRED, HELD_ELSEWHERE }
+
+    private final CatalogImporter catalogImporter;
+    private final CatalogSyncLeaseRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration leaseDuration;
+    private final Duration waitTimeout;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Constructor for CatalogSynchronizer.
+     *
+     * @param catalogImporter    writes the changed rows.
+     * @param leaseRepository    the lease shared by the replicas.
+     * @param transactionManager runs the lease updates in their own transactions.
+     * @param leaseSeconds       how long a lease lasts without renewal.
+     * @param waitTimeoutSeconds how long to wait for another replica's sync before failing the startup.
+     */
+    public CatalogSynchronizer(CatalogImporter catalogImporter, CatalogSyncLeaseRepository leaseRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${marketplace.catalog.sync.lease-seconds:60}") long leaseSeconds,
+                               @Value("${marketplace.catalog.sync.wait-timeout-seconds:600}") long waitTimeoutSeconds) {
+        this.catalogImporter = catalogImporter;
+        this.leaseRepository = leaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaseDuration = Duration.ofSeconds(leaseSeconds);
+        this.waitTimeout = Duration.ofSeconds(waitTimeoutSeconds);
+    }
+
+    /**
+     * Makes sure the catalog file has been synced, by this or another replica.
+     *
+     * @param catalog the catalog file.
+     * @return the sync, if this replica ran it.
+     * @throws ResponseStatusException if the file cannot be read, the sync fails, or another replica's
+     *                                 sync does not complete in time.
+     */
+    public Optional<CatalogImport> synchronize(Resource catalog) {
+        String catalogHash = hash(catalog);
+        Instant deadline = Instant.now().plus(waitTimeout);
+        boolean waiting = false;
+        while (true) {
+            Decision decision;
+            try {
+                decision = transactionTemplate.execute(status -> decide(catalogHash));
+            } catch (DataIntegrityViolationException e) {
+                // Another replica created the lease at the same time, look again
+                decision = Decision.HELD_ELSEWHERE;
+            }
+
+            if (decision == Decision.READY) {
+                System.out.println("Catalog " + catalog.getDescription() + " already synced (" + catalogHash + ")");
+                return Optional.empty();
+            } else if (decision == Decision.ACQUIRED) {
+                return Optional.of(syncUnderLease(catalog, catalogHash));
+            }
+
+            if (Instant.now().isAfter(deadline)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Catalog sync by another replica did not complete within " + waitTimeout);
+            }
+            if (!waiting) {
+                System.out.println("Waiting for another replica to sync the catalog");
+                waiting = true;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the catalog sync");
+            }
+        }
+    }
+
+    // Takes the lease unless the file was synced or another replica holds it; in a transaction, the lease row is locked
+    Decision decide(String catalogHash) {
+        CatalogSyncLease lease = leaseRepository.findForUpdate(LEASE).orElseGet(() -> {
+            CatalogSyncLease newLease = new CatalogSyncLease();
+            newLease.setName(LEASE);
+            return newLease;
+        });
+        if (catalogHash.equals(lease.getSynced_hash())) {
+            return Decision.READY;
+        }
+        if (lease.getOwner() != null && !lease.getOwner().equals(instanceId) && lease.getLease_until().isAfter(Instant.now())) {
+            return Decision.HELD_ELSEWHERE;
+        }
+        lease.setOwner(instanceId);
+        lease.setLease_until(Instant.now().plus(leaseDuration));
+        leaseRepository.save(lease);
+        return Decision.ACQUIRED;
+    }
+
+    private CatalogImport syncUnderLease(Resource catalog, String catalogHash) {
+        Thread renewal = Thread.ofVirtual().name("catalog-lease-renewal").start(this::renewLease);
+        CatalogImport catalogImport;
+        try (Reader reader = new InputStreamReader(catalog.getInputStream(), StandardCharsets.UTF_8)) {
+            catalogImport = catalogImporter.importCatalog(reader, catalog.getDescription());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error reading CSV file", e);
+        } finally {
+            renewal.interrupt();
+        }
+
+        boolean completed = catalogImport.getStatus() == CatalogImport.Status.COMPLETED;
+        transactionTemplate.executeWithoutResult(status -> leaseRepository.findForUpdate(LEASE).ifPresent(lease -> {
+            // Release the lease; on failure another replica may try, e.g. after this one restarted
+            // Set after the import, whose version increment cleared the previous marker
+            if (completed) {
+                lease.setSynced_hash(catalogHash);
+                lease.setSynced_at(Instant.now());
+            }
+            lease.setOwner(null);
+            lease.setLease_until(null);
+            leaseRepository.save(lease);
+        }));
+        if (!completed) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, catalogImport.getFailure());
+        }
+        return catalogImport;
+    }
+
+    private void renewLease() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(leaseDuration.toMillis() / 3);
+                int renewed = transactionTemplate.execute(status ->
+                        leaseRepository.renew(LEASE, instanceId, Instant.now().plus(leaseDuration)));
+                if (renewed == 0) {
+                    System.err.println("Catalog sync lease was lost, another replica may sync concurrently");
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("Failed to renew the catalog sync lease: " + e.getMessage());
+            }
+        }
+    }
+
+    // SHA-256 of the whole file, the ready marker of a completed sync
+    static String hash(Resource catalog) {
+        try (DigestInputStream in = new DigestInputStream(catalog.getInputStream(), MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error reading CSV file", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.CatalogSyncLease;
+import com.onlinemarketplace.marketplaceservice.repository.CatalogSyncLeaseRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The version of the catalog, shared by the replicas next to the catalog sync lease. Every import or
+ * sync which wrote products increments it, so that the other replicas, which only re-read the stock,
+ * notice that names and prices may have changed and rebuild what they hold of the products, see
+ * {@link CatalogImporter#checkCatalogVersion}.
+ */
+@Service
+public class CatalogVersion {
+
+    private final CatalogSyncLeaseRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Constructor for CatalogVersion.
+     *
+     * @param leaseRepository    the lease the version is recorded with.
+     * @param transactionManager runs the increment in its own transaction.
+     */
+    public CatalogVersion(CatalogSyncLeaseRepository leaseRepository, PlatformTransactionManager transactionManager) {
+        this.leaseRepository = leaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @return the current version, 0 if the catalog was never imported.
+     */
+    public long current() {
+        return leaseRepository.findCatalog_version(CatalogSynchronizer.LEASE).orElse(0L);
+    }
+
+    /**
+     * Records that the products changed. This also clears the ready marker of the last sync, since the
+     * products may no longer match its file: a catalog imported at runtime is replaced again by the file
+     * of the next startup, which only writes the rows that differ.
+     *
+     * @return the new version.
+     */
+    public long increment() {
+        return transactionTemplate.execute(status -> {
+            CatalogSyncLease lease = leaseRepository.findForUpdate(CatalogSynchronizer.LEASE).orElseGet(() -> {
+                CatalogSyncLease newLease = new CatalogSyncLease();
+                newLease.setName(CatalogSynchronizer.LEASE);
+                return newLease;
+            });
+            long version = (lease.getCatalog_version() == null ? 0 : lease.getCatalog_version()) + 1;
+            lease.setCatalog_version(version);
+            lease.setSynced_hash(null);
+            leaseRepository.save(lease);
+            return version;
+        });
+    }
+}
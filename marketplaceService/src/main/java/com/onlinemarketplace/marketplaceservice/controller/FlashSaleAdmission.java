@@ -0,0 +1,378 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.common.metrics.LockMetrics;
+import com.onlinemarketplace.marketplaceservice.model.ProductDetails;
+import com.onlinemarketplace.marketplaceservice.repository.ProductDetailsRepository;
+import com.onlinemarketplace.marketplaceservice.repository.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Admits the orders of products in flash sale mode, where every buyer orders the same product at once.
+ * Instead of each request taking the new order and product locks, the requests queue up per product and
+ * a single writer thread takes them in micro-batches: it waits marketplace.flash-sale.batch-window-ms for
+ * more requests after the first, up to marketplace.flash-sale.max-batch-size, reads the stock once,
+ * allocates it in arrival order and commits the total decrement in one statement. Every waiter then gets
+ * a definite answer, the unit price or out of stock, and pays and saves its order on its own.
+ * <p>
+ * Stock an admitted order does not use after all, e.g. because the wallet debit failed, is given back
+ * through the same queue. A request still waiting after marketplace.flash-sale.max-wait-ms gives up
+ * with 503 (SERVICE UNAVAILABLE); stock allocated to it afterwards is given back too.
+ * <p>
+ * Products are put in flash sale mode by marketplace.flash-sale.products or at runtime, see
+ * {@link FlashSaleController}.
+ */
+@Service
+public class FlashSaleAdmission {
+
+    private final ProductRepository productRepository;
+    private final ProductDetailsRepository productDetailsRepository;
+    private final OrderLocks orderLocks;
+    private final LockMetrics lockMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributionSummary batchSizes;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final ConcurrentHashMap<Integer, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for FlashSaleAdmission.
+     *
+     * @param productRepository        updates the stock.
+     * @param productDetailsRepository the cached names and prices.
+     * @param orderLocks               the locks also held by the order endpoints.
+     * @param lockMetrics              records the time the writers wait for the locks.
+     * @param transactionManager       runs each batch in its own transaction.
+     * @param meterRegistry            registry of marketplace.flash_sale.batch.size.
+     * @param products                 the products in flash sale mode on startup.
+     * @param batchWindowMs            how long a writer waits for more requests after the first of a batch.
+     * @param maxBatchSize             how many requests a batch takes at most.
+     * @param maxWaitMs                how long a request waits for its answer.
+     */
+    public FlashSaleAdmission(ProductRepository productRepository,
+                              ProductDetailsRepository productDetailsRepository,
+                              OrderLocks orderLocks,
+                              LockMetrics lockMetrics,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${marketplace.flash-sale.products:}") List<Integer> products,
+                              @Value("${marketplace.flash-sale.batch-window-ms:2}") long batchWindowMs,
+                              @Value("${marketplace.flash-sale.max-batch-size:500}") int maxBatchSize,
+                              @Value("${marketplace.flash-sale.max-wait-ms:10000}") long maxWaitMs) {
+        this.productRepository = productRepository;
+        this.productDetailsRepository = productDetailsRepository;
+        this.orderLocks = orderLocks;
+        this.lockMetrics = lockMetrics;
+        // Stock given back from within an order transaction is committed on its own
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSizes = DistributionSummary.builder("marketplace.flash_sale.batch.size")
+                .description("Requests admitted per flash sale batch")
+                .register(meterRegistry);
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        products.forEach(this::enable);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        new ArrayList<>(lanes.keySet()).forEach(this::disable);
+    }
+
+    /**
+     * Puts a product in flash sale mode.
+     *
+     * @param productId the ID of the product.
+     * @return false if it already was.
+     */
+    public boolean enable(Integer productId) {
+        boolean[] enabled = {false};
+        lanes.computeIfAbsent(productId, id -> {
+            Lane lane = new Lane(id);
+            Thread.ofVirtual().name("flash-sale-" + id).start(() -> run(lane));
+            enabled[0] = true;
+            return lane;
+        });
+        return enabled[0];
+    }
+
+    /**
+     * Ends the flash sale mode of a product. Requests already queued are still answered.
+     *
+     * @param productId the ID of the product.
+     * @return false if it was not in flash sale mode.
+     */
+    public boolean disable(Integer productId) {
+        Lane lane = lanes.remove(productId);
+        if (lane == null) {
+            return false;
+        }
+        synchronized (lane) {
+            lane.open = false;
+        }
+        return true;
+    }
+
+    /**
+     * @param productId the ID of the product.
+     * @return whether the product is in flash sale mode.
+     */
+    public boolean isEnabled(Integer productId) {
+        return lanes.containsKey(productId);
+    }
+
+    /**
+     * @return the IDs of the products in flash sale mode, ascending.
+     */
+    public Set<Integer> products() {
+        return new TreeSet<>(lanes.keySet());
+    }
+
+    /**
+     * Reserves stock of a product in flash sale mode, waiting for the writer's answer.
+     * The reserved stock is already taken off the product; give it back with {@link #release}
+     * if the order is not placed.
+     *
+     * @param productId the ID of the product.
+     * @param quantity  the quantity, greater than zero.
+     * @return the unit price of the product.
+     * @throws ResponseStatusException with 400 (BAD REQUEST) if the product is out of stock,
+     *                                 404 (NOT FOUND) if it does not exist, or 503 (SERVICE UNAVAILABLE) if
+     *                                 no answer came in time or the product is no longer in flash sale mode.
+     */
+    public int reserve(Integer productId, int quantity) {
+        Reservation reservation = new Reservation(quantity, new CompletableFuture<>());
+        Lane lane = lanes.get(productId);
+        if (lane == null || !offer(lane, reservation)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "The flash sale of product " + productId + " has ended, please try again.");
+        }
+        try {
+            reservation.result().get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // Give up unless answered meanwhile; the writer gives back stock it allocates afterwards
+            reservation.result().completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many orders for product " + productId + ", please try again later."));
+        } catch (ExecutionException e) {
+            // Rethrown below
+        }
+        try {
+            return reservation.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ResponseStatusException cause) {
+                throw cause;
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while reserving stock!", e.getCause());
+        }
+    }
+
+    /**
+     * Gives back stock reserved by {@link #reserve}, to be allocated to the following requests.
+     * The stock is increased by the writer, or right away if the product is no longer in flash sale mode.
+     *
+     * @param productId the ID of the product.
+     * @param quantity  the reserved quantity.
+     */
+    public void release(Integer productId, int quantity) {
+        Lane lane = lanes.get(productId);
+        if (lane == null || !offer(lane, new Release(quantity))) {
+            releaseNow(productId, quantity);
+        }
+    }
+
+    private boolean offer(Lane lane, Request request) {
+        synchronized (lane) {
+            if (lane.stopped) {
+                return false;
+            }
+            lane.queue.add(request);
+            return true;
+        }
+    }
+
+    private void releaseNow(Integer productId, int quantity) {
+        Lock productLock = orderLocks.product(productId);
+        try {
+            lockMetrics.lock(productLock, "product");
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        productRepository.increaseStockQuantityByProduct_id(productId, quantity));
+            } finally {
+                productLock.unlock();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to revert inventory change: " + e.getMessage());
+        }
+    }
+
+    // The writer of a product: takes the queued requests a batch at a time until the flash sale ends
+    private void run(Lane lane) {
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (true) {
+                Request first = lane.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    synchronized (lane) {
+                        if (!lane.open && lane.queue.isEmpty()) {
+                            lane.stopped = true;
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                batch.add(first);
+                collect(lane, batch);
+                admit(lane.productId, batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            synchronized (lane) {
+                lane.stopped = true;
+            }
+            batch.addAll(lane.queue);
+            for (Request request : batch) {
+                if (request instanceof Release release) {
+                    releaseNow(lane.productId, release.quantity());
+                } else if (request instanceof Reservation reservation) {
+                    reservation.result().completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "The flash sale of product " + lane.productId + " has ended, please try again."));
+                }
+            }
+        }
+    }
+
+    // Adds the requests arriving within the batch window after the first one
+    private void collect(Lane lane, List<Request> batch) throws InterruptedException {
+        lane.queue.drainTo(batch, maxBatchSize - batch.size());
+        long deadline = System.nanoTime() + batchWindowNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            Request next = remaining > 0 ? lane.queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            lane.queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    // Allocates the stock to a batch and answers its reservations once the decrement is committed
+    private void admit(Integer productId, List<Request> batch) {
+        List<Reservation> sold = new ArrayList<>();
+        List<Reservation> soldOut = new ArrayList<>();
+        ProductDetails product;
+        Lock newOrderLock = orderLocks.newOrder();
+        Lock productLock = orderLocks.product(productId);
+        try {
+            // The new order lock keeps the stock still while the other order endpoints validate and decrement it
+            lockMetrics.lock(newOrderLock, "new_order");
+            try {
+                lockMetrics.lock(productLock, "product");
+                try {
+                    product = transactionTemplate.execute(status -> allocate(productId, batch, sold, soldOut));
+                } finally {
+                    productLock.unlock();
+                }
+            } finally {
+                newOrderLock.unlock();
+            }
+        } catch (Exception e) {
+            ResponseStatusException failure = e instanceof ResponseStatusException rse ? rse
+                    : new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while reserving stock!", e);
+            // Nothing of the batch is committed: the stock given back is increased on its own
+            for (Request request : batch) {
+                if (request instanceof Reservation reservation) {
+                    reservation.result().completeExceptionally(failure);
+                } else if (request instanceof Release release) {
+                    releaseNow(productId, release.quantity());
+                }
+            }
+            return;
+        }
+        batchSizes.record(batch.size());
+        for (Reservation reservation : sold) {
+            if (!reservation.result().complete(product.getPrice())) {
+                // The request gave up meanwhile
+                release(productId, reservation.quantity());
+            }
+        }
+        for (Reservation reservation : soldOut) {
+            reservation.result().completeExceptionally(
+                    new ResponseStatusException(HttpStatus.BAD_REQUEST, product.getName() + " is out of stock!"));
+        }
+    }
+
+    private ProductDetails allocate(Integer productId, List<Request> batch, List<Reservation> sold, List<Reservation> soldOut) {
+        int stock = productRepository.findStock_quantityByProduct_id(productId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Error while fetching product stock!"));
+        ProductDetails product = productDetailsRepository.findById(productId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Error while fetching product!"));
+        int change = 0;
+        for (Request request : batch) {
+            if (request instanceof Release release) {
+                change += release.quantity();
+            } else if (request instanceof Reservation reservation && !reservation.result().isDone()) {
+                if (reservation.quantity() <= stock + change) {
+                    change -= reservation.quantity();
+                    sold.add(reservation);
+                } else {
+                    soldOut.add(reservation);
+                }
+            }
+        }
+        if (change < 0) {
+            productRepository.decreaseStockQuantityByProduct_id(productId, -change);
+        } else if (change > 0) {
+            productRepository.increaseStockQuantityByProduct_id(productId, change);
+        }
+        return product;
+    }
+
+    private sealed interface Request permits Reservation, Release {
+    }
+
+    private record Reservation(int quantity, CompletableFuture<Integer> result) implements Request {
+    }
+
+    private record Release(int quantity) implements Request {
+    }
+
+    // The queue of a product in flash sale mode; open and stopped are guarded by the lane
+    private static final class Lane {
+        private final Integer productId;
+        private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+        private boolean open = true;
+        private boolean stopped;
+
+        private Lane(Integer productId) {
+            this.productId = productId;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.repository.ProductRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Puts products in and out of flash sale mode at runtime, see {@link FlashSaleAdmission}.
+ * The mode is kept in memory; products listed in marketplace.flash-sale.products are in it on startup.
+ */
+@RestController
+public class FlashSaleController {
+
+    private final FlashSaleAdmission flashSaleAdmission;
+    private final ProductRepository productRepository;
+
+    /**
+     * Constructor for FlashSaleController.
+     *
+     * @param flashSaleAdmission the admission of the flash sale orders.
+     * @param productRepository  checks the products exist.
+     */
+    public FlashSaleController(FlashSaleAdmission flashSaleAdmission, ProductRepository productRepository) {
+        this.flashSaleAdmission = flashSaleAdmission;
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * @return ResponseEntity containing the IDs of the products in flash sale mode with a 200 (OK) status.
+     */
+    @GetMapping("/admin/flash-sale/products")
+    public ResponseEntity<?> getFlashSaleProducts() {
+        return new ResponseEntity<>(flashSaleAdmission.products(), HttpStatus.OK);
+    }
+
+    /**
+     * Puts a product in flash sale mode.
+     *
+     * @param product_id the ID of the product.
+     * @return ResponseEntity with a 200 (OK) status, or a 404 (NOT FOUND) status if the product does not exist.
+     */
+    @PutMapping("/admin/flash-sale/products/{product_id}")
+    public ResponseEntity<?> enableFlashSale(@PathVariable Integer product_id) {
+        if (!productRepository.existsById(product_id)) {
+            return new ResponseEntity<>("Product not found!", HttpStatus.NOT_FOUND);
+        }
+        flashSaleAdmission.enable(product_id);
+        return new ResponseEntity<>("Product " + product_id + " is in flash sale mode.", HttpStatus.OK);
+    }
+
+    /**
+     * Ends the flash sale mode of a product; orders already waiting are still answered.
+     *
+     * @param product_id the ID of the product.
+     * @return ResponseEntity with a 200 (OK) status, or a 404 (NOT FOUND) status if the product was not in flash sale mode.
+     */
+    @DeleteMapping("/admin/flash-sale/products/{product_id}")
+    public ResponseEntity<?> disableFlashSale(@PathVariable Integer product_id) {
+        if (!flashSaleAdmission.disable(product_id)) {
+            return new ResponseEntity<>("Product " + product_id + " is not in flash sale mode!", HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>("Product " + product_id + " is no longer in flash sale mode.", HttpStatus.OK);
+    }
+}
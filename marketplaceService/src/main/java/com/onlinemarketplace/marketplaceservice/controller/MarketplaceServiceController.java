@@ -1,19 +1,36 @@
 package com.onlinemarketplace.marketplaceservice.controller;
 
+import com.onlinemarketplace.common.concurrent.SingleFlight;
+import com.onlinemarketplace.common.limit.ConcurrencyLimitFilter;
+import com.onlinemarketplace.common.metrics.LockMetrics;
+import com.onlinemarketplace.common.outbox.OutboxEventType;
+import com.onlinemarketplace.common.outbox.OutboxPublisher;
+import com.onlinemarketplace.common.wire.InternalWireFormat;
+import com.onlinemarketplace.marketplaceservice.config.ReplicationLagGuard;
 import com.onlinemarketplace.marketplaceservice.model.*;
 import com.onlinemarketplace.marketplaceservice.repository.OrderRepository;
+import com.onlinemarketplace.marketplaceservice.repository.ProductDetailsRepository;
 import com.onlinemarketplace.marketplaceservice.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
@@ -21,69 +38,209 @@ import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 @RestController
 public class MarketplaceServiceController {
 
     private final OrderRepository orderRepository;
+    private final OrderArchiver orderArchiver;
     private final ProductRepository productRepository;
+    private final ProductDetailsRepository productDetailsRepository;
+    private final ProductCatalogSnapshot productCatalogSnapshot;
     private final RestClient restClient;
-    private static final String accountServiceURI = "http://accountservice:8080";
-    private static final String walletServiceURI = "http://walletservice:8082";
-    private static final String accountServiceEndpoint = "/users/";
-    private static final String discountUpdateEndpoint = "/updateDiscount/";
+    private final OutboxPublisher outboxPublisher;
+    private final ReplicationLagGuard replicationLagGuard;
+    private final LockMetrics lockMetrics;
+    private final OrderLocks orderLocks;
+    private final FlashSaleAdmission flashSaleAdmission;
+    private final TransactionTemplate orderTransaction;
+    private final TransactionTemplate cancelTransaction;
+    private final SingleFlight<Integer, Optional<Product>> productReads;
+    private final MeterRegistry meterRegistry;
+    private final String accountServiceURI;
+    private final String walletServiceURI;
+    private final InternalWireFormat internalWireFormat;
+    private static final String discountClaimEndpoint = "/claimDiscount/";
     private static final String discountResetEndpoint = "/resetDiscount/";
     private static final String walletServiceEndpoint = "/wallets/";
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_DELIVERY_SIZE = 100_000;
+    private static final int DELIVERY_CHUNK_SIZE = 1000;
     
-    // Per-product locks to handle concurrent inventory modifications
-    private final ConcurrentHashMap<Integer, Lock> productLocks = new ConcurrentHashMap<>();
-    // Per-order locks to handle concurrent order operations
-    private final ConcurrentHashMap<Integer, Lock> orderLocks = new ConcurrentHashMap<>();
     // Lock for creating new orders (to synchronize order ID generation)
-    private final Lock newOrderLock = new ReentrantLock();
+    private final Lock newOrderLock;
 
     // Get or create a lock for a specific product
     private Lock getProductLock(Integer productId) {
-        return productLocks.computeIfAbsent(productId, k -> new ReentrantLock());
+        return orderLocks.product(productId);
     }
     
-    // Get or create a lock for a specific order
-    private Lock getOrderLock(Integer orderId) {
-        return orderLocks.computeIfAbsent(orderId, k -> new ReentrantLock());
-    }
-
     /**
      * Constructor for dependency injection.
      * @param orderRepository Repository for handling Order entities.
+     * @param orderArchiver Reads orders from both the hot tier and the archive.
      * @param productRepository Repository for handling Product entities.
+     * @param productDetailsRepository Cached names and prices of the products.
+     * @param productCatalogSnapshot The products as pre-serialized JSON.
      * @param restClient Rest client for making external API calls.
+     * @param outboxPublisher Publisher of order events, written in the order transactions.
+     * @param replicationLagGuard Routes reads of recently written orders and products to the primary.
+     * @param lockMetrics Acquires the product locks, recording the time spent waiting.
+     * @param orderLocks The new order and product locks.
+     * @param flashSaleAdmission Admits the orders of products in flash sale mode.
+     * @param transactionManager Runs the SERIALIZABLE transactions of addOrder.
+     * @param meterRegistry Registry of the order phase, compensation and coalesced product read metrics.
+     * @param accountServiceURI Base URI of the account service.
+     * @param walletServiceURI Base URI of the wallet service.
+     * @param internalWireFormat Encoding of the calls to the account and wallet services.
      */
     @Autowired
-    public MarketplaceServiceController(OrderRepository orderRepository, ProductRepository productRepository, RestClient restClient) {
+    public MarketplaceServiceController(OrderRepository orderRepository, OrderArchiver orderArchiver, ProductRepository productRepository,
+                                        ProductDetailsRepository productDetailsRepository, ProductCatalogSnapshot productCatalogSnapshot,
+                                        RestClient restClient, OutboxPublisher outboxPublisher,
+                                        ReplicationLagGuard replicationLagGuard, LockMetrics lockMetrics,
+                                        OrderLocks orderLocks, FlashSaleAdmission flashSaleAdmission,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${services.account.uri:http://accountservice:8080}") String accountServiceURI,
+                                        @Value("${services.wallet.uri:http://walletservice:8082}") String walletServiceURI,
+                                        @Value("${internal.wire.format:json}") InternalWireFormat internalWireFormat) {
         this.orderRepository = orderRepository;
+        this.orderArchiver = orderArchiver;
         this.productRepository = productRepository;
+        this.productDetailsRepository = productDetailsRepository;
+        this.productCatalogSnapshot = productCatalogSnapshot;
         this.restClient = restClient;
+        this.outboxPublisher = outboxPublisher;
+        this.replicationLagGuard = replicationLagGuard;
+        this.lockMetrics = lockMetrics;
+        this.orderLocks = orderLocks;
+        this.newOrderLock = orderLocks.newOrder();
+        this.flashSaleAdmission = flashSaleAdmission;
+        this.orderTransaction = new TransactionTemplate(transactionManager);
+        this.orderTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        // Read committed: a concurrent transition of the same order waits for the row and then finds it moved,
+        // where serializable isolation would fail it instead. Its own transaction also when the orders of
+        // a user are cancelled in a loop
+        this.cancelTransaction = new TransactionTemplate(transactionManager);
+        this.cancelTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.productReads = new SingleFlight<>("product", meterRegistry);
+        this.meterRegistry = meterRegistry;
+        this.accountServiceURI = accountServiceURI;
+        this.walletServiceURI = walletServiceURI;
+        this.internalWireFormat = internalWireFormat;
+    }
+
+    // Records a completed phase of addOrder in marketplace.order.phase
+    private void recordPhase(String phase, long startNanos) {
+        Timer.builder("marketplace.order.phase")
+                .description("Duration of the completed phases of order placement")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Counts a compensating call of revertExternalServiceCalls in marketplace.compensations
+    private void countCompensation(String action, boolean succeeded) {
+        Counter.builder("marketplace.compensations")
+                .description("Compensating calls made to undo external effects of failed orders")
+                .tag("action", action)
+                .tag("outcome", succeeded ? "success" : "failure")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Keys of the rows an order write touched, for read-your-writes on the read replica
+    private static String[] writtenKeys(Order order) {
+        List<String> keys = new ArrayList<>();
+        keys.add("order:" + order.getOrder_id());
+        keys.add("user:" + order.getUser_id());
+        for (OrderItem orderItem : order.getItems()) {
+            keys.add("product:" + orderItem.getProduct_id());
+        }
+        return keys.toArray(new String[0]);
     }
 
     /**
      * Retrieves all products.
-     * Handles GET requests to "/products".
-     * Returns a list of products with a 200 (OK) status.
-     * If an error occurs during retrieval, a 500 (INTERNAL SERVER ERROR) status is thrown.
+     * Handles GET requests to "/products" without parameters.
+     * Writes the JSON kept by {@link ProductCatalogSnapshot}, compressed with brotli or gzip if the
+     * client accepts it, with a 200 (OK) status. While the snapshot is not built, e.g. during a catalog
+     * import, the products are read from the query cache instead.
      *
+     * @param acceptEncoding the content codings the client accepts.
      * @return ResponseEntity containing the list of products.
      */
+    @GetMapping(value = "/products", params = {"!page", "!size", "!cursor", "!sort", "!fields"})
+    public ResponseEntity<?> getProductCatalog(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ProductCatalogSnapshot.Body body = productCatalogSnapshot.catalog(acceptEncoding);
+        if (body == null) {
+            try {
+                return new ResponseEntity<>(productRepository.findAll(), HttpStatus.OK);
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching Products!", e);
+            }
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (body.encoding() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, body.encoding());
+        }
+        return response.body(body.bytes());
+    }
+
+    /**
+     * Retrieves the products.
+     * Handles GET requests to "/products" with parameters, see {@link #getProductCatalog} for none.
+     * Without page, size or cursor, returns the list of all products in the given order with a 200 (OK) status.
+     * With page, size or cursor, returns a {@link ProductPage} instead, e.g. /products?size=20&sort=-price&fields=id,name,price;
+     * follow its next_cursor for the next page. Only the columns named in fields are selected and returned.
+     * An invalid parameter gives a 400 (BAD REQUEST) status.
+     * If an error occurs during retrieval, a 500 (INTERNAL SERVER ERROR) status is thrown.
+     *
+     * @param page   the page, from 0, of size products.
+     * @param size   products per page, at most 100; 20 if a page or cursor is given without size.
+     * @param cursor the next_cursor of the previous page, instead of page.
+     * @param sort   id, name, price or stock_quantity, prefixed with - for descending order; id by default.
+     * @param fields comma-separated fields to return, all by default.
+     * @param acceptEncoding the content codings the client accepts, for the whole catalog by id.
+     * @return ResponseEntity containing the list or page of products.
+     */
     @GetMapping("/products")
     @Transactional(readOnly = true)
-    public ResponseEntity<?> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) Integer page,
+                                            @RequestParam(required = false) Integer size,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "id") String sort,
+                                            @RequestParam(required = false) List<String> fields,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean paged = page != null || size != null || cursor != null;
+        if (!paged && sort.equals("id") && fields == null) {
+            // The whole catalog as without parameters, e.g. for ?sort=id
+            return getProductCatalog(acceptEncoding);
+        }
         try {
-            List<Product> productList = productRepository.findAll();
-            return new ResponseEntity<>(productList, HttpStatus.OK);
+            ProductPageQuery query = ProductPageQuery.of(page, size, cursor, sort, fields);
+            ProductCursor after = query.after();
+            List<Map<String, Object>> products = productRepository.findPage(query.selected(), query.sortField(), query.descending(),
+                    after != null ? after.value() : null, after != null ? after.id() : null,
+                    query.offset(), query.limit());
+            return new ResponseEntity<>(query.response(products), HttpStatus.OK);
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching Products!", e);
         }
@@ -94,15 +251,21 @@ public class MarketplaceServiceController {
      * Handles GET requests to "/products/{product_id}".
      * Returns the product details with a 200 (OK) status if found,
      * or a 404 (NOT FOUND) status with an error message if not.
+     * The JSON kept by {@link ProductCatalogSnapshot} is written as is; products not in it are read
+     * from the database, once for all the concurrent requests of a product.
      *
      * @param product_id the unique identifier of the product.
      * @return ResponseEntity containing the product or an error message.
      */
     @GetMapping("/products/{product_id}")
-    @Transactional(readOnly = true)
     public ResponseEntity<?> getProductById(@PathVariable Integer product_id) {
+        byte[] json = productCatalogSnapshot.product(product_id);
+        if (json != null) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+        }
         try {
-            Product product = productRepository.findById(product_id)
+            Product product = productReads.load(product_id,
+                            () -> replicationLagGuard.read("product:" + product_id, () -> productRepository.findById(product_id)))
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found!"));
             return new ResponseEntity<>(product, HttpStatus.OK);
         } catch (ResponseStatusException e) {
@@ -136,8 +299,8 @@ public class MarketplaceServiceController {
     /**
      * Handles the HTTP POST request to add a new order.
      *
-     * This method processes an incoming order request, validates the order items,
-     * checks the user's eligibility for discounts, updates the user's wallet,
+     * This method processes an incoming order request, claims the user's first-order
+     * discount (which also verifies the user), validates the order items, updates the user's wallet,
      * and decreases the stock quantity of the ordered products. If any step fails,
      * appropriate exceptions are thrown, and a relevant HTTP response is returned.
      *
@@ -145,18 +308,29 @@ public class MarketplaceServiceController {
      * modifications to the database, and includes logic to revert changes to external
      * services if the transaction fails.
      *
+     * Orders of a single product in flash sale mode are placed by {@link #addFlashSaleOrder} instead,
+     * outside of a transaction until the order is saved: while waiting for admission they hold no connection.
+     *
      * @param order The order object containing user ID and order items to be processed.
      * @return A ResponseEntity containing the created order and HTTP status code.
      *         If an error occurs, it returns an error message and the corresponding HTTP status.
      */
     @PostMapping(value = "/orders", consumes = "application/json")
-    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = Exception.class)
     @Retryable(value = {OptimisticLockingFailureException.class, DataAccessException.class},
             maxAttempts = 3, backoff = @Backoff(delay = 1000))
     public ResponseEntity<?> addOrder(@RequestBody Order order) {
+        if (isValidPayloadForPostMethod(order) && order.getItems().size() == 1
+                && flashSaleAdmission.isEnabled(order.getItems().get(0).getProduct_id())) {
+            return addFlashSaleOrder(order);
+        }
+        return orderTransaction.execute(status -> placeOrder(order));
+    }
+
+    // Places an order in the SERIALIZABLE transaction of addOrder
+    private ResponseEntity<?> placeOrder(Order order) {
         // Keep track of service calls that need to be reverted in case of failure
         boolean walletUpdated = false;
-        boolean discountUpdated = false;
+        String discountClaimToken = null;
         List<Integer> reservedProductIds = new ArrayList<>();
 
         try {
@@ -164,55 +338,55 @@ public class MarketplaceServiceController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid payload!");
             }
 
-            // Get user information
-            User user = getUserInfo(order.getUser_id());
+            // Get user information and claim the discount in one account service round trip
+            long phaseStart = System.nanoTime();
+            DiscountClaim discountClaim = claimDiscount(order.getUser_id());
+            discountClaimToken = discountClaim.getClaim_token();
+            recordPhase("user_lookup_and_discount", phaseStart);
 
             // Acquire new order lock to ensure consistent order creation
-            newOrderLock.lock();
+            lockMetrics.lock(newOrderLock, "new_order");
             try {
                 // Validate products and calculate total cost atomically
-                int totalCost = validateAndCalculateTotalCost(order.getItems());
+                int totalCost;
+                phaseStart = System.nanoTime();
+                try {
+                    totalCost = validateAndCalculateTotalCost(order.getItems());
+                    recordPhase("validation", phaseStart);
+                } catch (ResponseStatusException e) {
+                    // Give the discount back, the order is rejected before anything else happened
+                    revertExternalServiceCalls(order.getUser_id(), 0, false, discountClaimToken);
+                    discountClaimToken = null;
+                    throw e;
+                }
 
-                // Apply discount if eligible
-                assert user != null;
-                if (!user.getDiscount_availed()) {
+                // Apply discount if this order won the claim
+                if (discountClaim.getDiscount_claimed()) {
                     totalCost = (int) (totalCost * 0.9);
                 }
 
                 // Update user's wallet - this is an external service call
+                phaseStart = System.nanoTime();
                 try {
                     updateWallet(order.getUser_id(), "debit", totalCost);
                     walletUpdated = true;
+                    recordPhase("wallet_debit", phaseStart);
                 } catch (RestClientResponseException e) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getResponseBodyAsString(), e);
-                }
-
-                // Update user's discount status - another external service call
-                try {
-                    updateDiscount(order.getUser_id());
-                    discountUpdated = true;
-                } catch (RestClientResponseException e) {
-                    // Revert wallet update if discount update fails
-                    if (walletUpdated) {
-                        try {
-                            updateWallet(order.getUser_id(), "credit", totalCost);
-                            walletUpdated = false;
-                        } catch (Exception revertException) {
-                            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
-                                    "Failed to update discount and could not revert wallet update: " +
-                                            revertException.getMessage(), revertException);
-                        }
-                    }
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getResponseBodyAsString(), e);
+                    // Revert discount claim if wallet update fails
+                    revertExternalServiceCalls(order.getUser_id(), totalCost, false, discountClaimToken);
+                    discountClaimToken = null;
+                    throw walletError(e);
                 }
 
                 // Decrease product stock quantities atomically with proper locking
+                phaseStart = System.nanoTime();
                 try {
                     for (OrderItem orderItem : order.getItems()) {
                         Lock productLock = getProductLock(orderItem.getProduct_id());
                         
                         try {
-                            if (!productLock.tryLock(3, TimeUnit.SECONDS)) {
+                            if (!lockMetrics.tryLock(productLock, "product", 3, TimeUnit.SECONDS)) {
+                                lockMetrics.conflict("product");
                                 throw new ResponseStatusException(HttpStatus.CONFLICT, 
                                         "Could not acquire lock for product " + orderItem.getProduct_id() + ", please try again later.");
                             }
@@ -228,6 +402,7 @@ public class MarketplaceServiceController {
                             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Operation interrupted");
                         }
                     }
+                    recordPhase("stock_decrement", phaseStart);
                 } catch (Exception e) {
                     // Revert inventory changes
                     for (int i = 0; i < reservedProductIds.size(); i++) {
@@ -236,7 +411,7 @@ public class MarketplaceServiceController {
                             Lock productLock = getProductLock(item.getProduct_id());
                             boolean locked = false;
                             try {
-                                locked = productLock.tryLock(1, TimeUnit.SECONDS);
+                                locked = lockMetrics.tryLock(productLock, "product", 1, TimeUnit.SECONDS);
                                 if (locked) {
                                     productRepository.increaseStockQuantityByProduct_id(item.getProduct_id(), item.getQuantity());
                                 }
@@ -254,22 +429,26 @@ public class MarketplaceServiceController {
                     }
                     
                     // Revert external service calls if stock update fails
-                    revertExternalServiceCalls(order.getUser_id(), totalCost, walletUpdated, discountUpdated);
+                    revertExternalServiceCalls(order.getUser_id(), totalCost, walletUpdated, discountClaimToken);
                     throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while decreasing stock quantity!", e);
                 }
 
                 // Save the order
                 order.setTotal_price(totalCost);
-                order.setStatus("PLACED");
+                order.setStatus(OrderStatus.PLACED);
+                phaseStart = System.nanoTime();
                 try {
                     orderRepository.save(order);
+                    outboxPublisher.publish(OutboxEventType.ORDER_PLACED, order.getOrder_id(), OrderEvent.of(order));
+                    replicationLagGuard.recordWrite(writtenKeys(order));
+                    recordPhase("save", phaseStart);
                 } catch (Exception e) {
                     // Revert inventory changes
                     for (int i = 0; i < reservedProductIds.size(); i++) {
                         OrderItem item = order.getItems().get(i);
                         try {
                             Lock productLock = getProductLock(item.getProduct_id());
-                            if (productLock.tryLock(1, TimeUnit.SECONDS)) {
+                            if (lockMetrics.tryLock(productLock, "product", 1, TimeUnit.SECONDS)) {
                                 try {
                                     productRepository.increaseStockQuantityByProduct_id(item.getProduct_id(), item.getQuantity());
                                 } finally {
@@ -284,7 +463,7 @@ public class MarketplaceServiceController {
                     }
                     
                     // Revert external service calls and stock changes if order save fails
-                    revertExternalServiceCalls(order.getUser_id(), totalCost, walletUpdated, discountUpdated);
+                    revertExternalServiceCalls(order.getUser_id(), totalCost, walletUpdated, discountClaimToken);
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error while saving order!", e);
                 }
             } finally {
@@ -297,25 +476,387 @@ public class MarketplaceServiceController {
             return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
         } catch (Exception e) {
             // Ensure we revert any external service calls for unexpected exceptions
-            revertExternalServiceCalls(order.getUser_id(), order.getTotal_price(), walletUpdated, discountUpdated);
+            revertExternalServiceCalls(order.getUser_id(), order.getTotal_price(), walletUpdated, discountClaimToken);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Helper method to get user information from the account service.
+     * Places a single-product order of a product in flash sale mode, see {@link FlashSaleAdmission}.
+     * The user's discount is claimed, the stock reserved by the product's writer instead of under the
+     * new order and product locks, the wallet debited and the order saved, only the last in a transaction.
+     * If a step fails, the discount claim, the wallet debit and the reserved stock are given back.
+     *
+     * @param order the order, with one item.
+     * @return ResponseEntity containing the created order with a 201 (CREATED) status, or the error
+     *         message and status the order was rejected with.
+     */
+    private ResponseEntity<?> addFlashSaleOrder(Order order) {
+        OrderItem orderItem = order.getItems().get(0);
+        try {
+            long phaseStart = System.nanoTime();
+            DiscountClaim discountClaim = claimDiscount(order.getUser_id());
+            recordPhase("user_lookup_and_discount", phaseStart);
+            if (orderItem.getQuantity() <= 0) {
+                revertExternalServiceCalls(order.getUser_id(), 0, false, discountClaim.getClaim_token());
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product quantity is less than or equal to zero!");
+            }
+
+            // Wait for the writer to allocate the stock
+            int unitPrice;
+            phaseStart = System.nanoTime();
+            try {
+                unitPrice = flashSaleAdmission.reserve(orderItem.getProduct_id(), orderItem.getQuantity());
+                recordPhase("flash_sale_admission", phaseStart);
+            } catch (ResponseStatusException e) {
+                revertExternalServiceCalls(order.getUser_id(), 0, false, discountClaim.getClaim_token());
+                throw e;
+            }
+            orderItem.setUnit_price(unitPrice);
+            int totalCost = unitPrice * orderItem.getQuantity();
+            if (discountClaim.getDiscount_claimed()) {
+                totalCost = (int) (totalCost * 0.9);
+            }
+
+            phaseStart = System.nanoTime();
+            try {
+                updateWallet(order.getUser_id(), "debit", totalCost);
+                recordPhase("wallet_debit", phaseStart);
+            } catch (Exception e) {
+                flashSaleAdmission.release(orderItem.getProduct_id(), orderItem.getQuantity());
+                revertExternalServiceCalls(order.getUser_id(), totalCost, false, discountClaim.getClaim_token());
+                if (e instanceof RestClientResponseException responseException) {
+                    throw walletError(responseException);
+                }
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage(), e);
+            }
+
+            order.setTotal_price(totalCost);
+            order.setStatus(OrderStatus.PLACED);
+            phaseStart = System.nanoTime();
+            try {
+                orderTransaction.executeWithoutResult(status -> {
+                    orderRepository.save(order);
+                    outboxPublisher.publish(OutboxEventType.ORDER_PLACED, order.getOrder_id(), OrderEvent.of(order));
+                });
+                replicationLagGuard.recordWrite(writtenKeys(order));
+                recordPhase("save", phaseStart);
+            } catch (Exception e) {
+                flashSaleAdmission.release(orderItem.getProduct_id(), orderItem.getQuantity());
+                revertExternalServiceCalls(order.getUser_id(), totalCost, true, discountClaim.getClaim_token());
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error while saving order!", e);
+            }
+            return new ResponseEntity<>(order, HttpStatus.CREATED);
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
+        }
+    }
+
+    /**
+     * Places many orders at once.
+     * Handles POST requests to "/orders/batch" with a JSON array of orders, each as for POST /orders.
+     *
+     * The orders are placed as if one after another, user by user in the order of their first order and
+     * the orders of each user in the order given, with far fewer calls and
+     * statements: the discount of each user is claimed once and applied to their first order placed,
+     * all orders are priced against one read of the stock and prices, the wallet of each user is debited
+     * once for all their orders, and the stock of each product is decreased once for all orders.
+     * Orders fail on their own: an order which cannot be priced or debited leaves its stock to the
+     * following ones, and if the combined debit of a user is refused, their orders are debited one by one
+     * so that only those the balance does not cover fail, the discount going to the first one debited.
+     * An unclaimed or unused discount is given back.
+     * If decreasing the stock or saving the orders fails, the debits and discounts are reverted
+     * and no order of the batch is placed.
+     *
+     * @param orders the orders, at most 1000.
+     * @return ResponseEntity with a 200 (OK) status and the result of each order in the order given,
+     *         a 400 (BAD REQUEST) status if the batch is empty or too large, or the error which failed the batch.
+     */
+    @PostMapping(value = "/orders/batch", consumes = "application/json")
+    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = Exception.class)
+    public ResponseEntity<?> addOrders(@RequestBody List<Order> orders) {
+        if (orders.isEmpty() || orders.size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity<>("A batch holds 1 to " + MAX_BATCH_SIZE + " orders!", HttpStatus.BAD_REQUEST);
+        }
+        OrderBatchResult[] results = new OrderBatchResult[orders.size()];
+
+        // The valid orders of each user, by position in the batch
+        Map<Integer, List<Integer>> ordersByUser = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            if (isValidPayloadForPostMethod(orders.get(i))) {
+                ordersByUser.computeIfAbsent(orders.get(i).getUser_id(), k -> new ArrayList<>()).add(i);
+            } else {
+                results[i] = OrderBatchResult.failed(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid payload!"));
+            }
+        }
+
+        // One discount claim per user, which also verifies the user
+        long phaseStart = System.nanoTime();
+        Map<Integer, DiscountClaim> discountClaims = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> userOrders : ordersByUser.entrySet()) {
+            try {
+                discountClaims.put(userOrders.getKey(), claimDiscount(userOrders.getKey()));
+            } catch (Exception e) {
+                failAll(results, userOrders.getValue(), e);
+            }
+        }
+        recordPhase("batch_user_lookup_and_discount", phaseStart);
+
+        int[] totalCosts = new int[orders.size()];
+        // Discount claims won by this batch and not (yet) used by a placed order
+        Map<Integer, String> unusedClaimTokens = new HashMap<>();
+        Map<Integer, Integer> debitedByUser = new HashMap<>();
+        List<Integer> debitedOrders = new ArrayList<>();
+        lockMetrics.lock(newOrderLock, "new_order");
+        try {
+            // Price the orders against one read of the stock and prices
+            phaseStart = System.nanoTime();
+            Map<Integer, Integer> remainingStock = new HashMap<>();
+            Map<Integer, ProductDetails> products = new HashMap<>();
+            readCatalogSnapshot(orders, ordersByUser, discountClaims.keySet(), remainingStock, products);
+            long validationNanos = System.nanoTime() - phaseStart;
+
+            // Price and debit the orders of one user after the other, as if placed one after another:
+            // the stock of the orders whose debit is refused is left to the orders which follow
+            long debitNanos = 0;
+            for (Map.Entry<Integer, List<Integer>> userOrders : ordersByUser.entrySet()) {
+                Integer userId = userOrders.getKey();
+                DiscountClaim discountClaim = discountClaims.get(userId);
+                if (discountClaim == null) {
+                    continue;
+                }
+                phaseStart = System.nanoTime();
+                List<Integer> priced = new ArrayList<>();
+                for (int i : userOrders.getValue()) {
+                    try {
+                        totalCosts[i] = reserveAndPrice(orders.get(i).getItems(), remainingStock, products);
+                        priced.add(i);
+                    } catch (ResponseStatusException e) {
+                        results[i] = OrderBatchResult.failed(e);
+                    }
+                }
+                if (discountClaim.getDiscount_claimed()) {
+                    unusedClaimTokens.put(userId, discountClaim.getClaim_token());
+                }
+                validationNanos += System.nanoTime() - phaseStart;
+
+                // One debit per user; if refused, one per order to find those the balance covers
+                phaseStart = System.nanoTime();
+                UserDebit debit = debitOrders(userId, priced, totalCosts, discountClaim.getDiscount_claimed(), results);
+                debitedOrders.addAll(debit.orders());
+                debitedByUser.put(userId, debit.orders().stream().mapToInt(i -> totalCosts[i]).sum());
+                if (debit.discounted()) {
+                    unusedClaimTokens.remove(userId);
+                }
+                for (int i : priced) {
+                    if (!debit.orders().contains(i)) {
+                        releaseReserved(orders.get(i).getItems(), remainingStock);
+                    }
+                }
+                debitNanos += System.nanoTime() - phaseStart;
+            }
+            // Recorded once per batch, with the time spent on them for all users
+            recordPhase("batch_validation", System.nanoTime() - validationNanos);
+            recordPhase("batch_wallet_debit", System.nanoTime() - debitNanos);
+
+            // One decrement per product, for all debited orders; locked in product order
+            phaseStart = System.nanoTime();
+            Map<Integer, Integer> quantities = new TreeMap<>();
+            for (int i : debitedOrders) {
+                for (OrderItem orderItem : orders.get(i).getItems()) {
+                    quantities.merge(orderItem.getProduct_id(), orderItem.getQuantity(), Integer::sum);
+                }
+            }
+            for (Map.Entry<Integer, Integer> quantity : quantities.entrySet()) {
+                Lock productLock = getProductLock(quantity.getKey());
+                if (!lockMetrics.tryLock(productLock, "product", 3, TimeUnit.SECONDS)) {
+                    lockMetrics.conflict("product");
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Could not acquire lock for product " + quantity.getKey() + ", please try again later.");
+                }
+                try {
+                    productRepository.decreaseStockQuantityByProduct_id(quantity.getKey(), quantity.getValue());
+                } finally {
+                    productLock.unlock();
+                }
+            }
+            recordPhase("batch_stock_decrement", phaseStart);
+
+            // Save the orders
+            phaseStart = System.nanoTime();
+            List<Order> placedOrders = new ArrayList<>(debitedOrders.size());
+            for (int i : debitedOrders) {
+                Order order = orders.get(i);
+                order.setTotal_price(totalCosts[i]);
+                order.setStatus(OrderStatus.PLACED);
+                placedOrders.add(order);
+            }
+            orderRepository.saveAll(placedOrders);
+            for (int i : debitedOrders) {
+                Order order = orders.get(i);
+                outboxPublisher.publish(OutboxEventType.ORDER_PLACED, order.getOrder_id(), OrderEvent.of(order));
+                replicationLagGuard.recordWrite(writtenKeys(order));
+                results[i] = OrderBatchResult.placed(order);
+            }
+            recordPhase("batch_save", phaseStart);
+        } catch (Exception e) {
+            // The transaction rolls back the stock and orders, the external calls are reverted here
+            discountClaims.forEach((userId, discountClaim) -> {
+                int debited = debitedByUser.getOrDefault(userId, 0);
+                String claimToken = discountClaim.getDiscount_claimed() ? discountClaim.getClaim_token() : null;
+                if (debited > 0 || claimToken != null) {
+                    revertExternalServiceCalls(userId, debited, debited > 0, claimToken);
+                }
+            });
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e instanceof ResponseStatusException responseStatusException) {
+                throw responseStatusException;
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while placing the orders: " + e.getMessage(), e);
+        } finally {
+            newOrderLock.unlock();
+        }
+
+        // Give back the discounts no placed order used
+        unusedClaimTokens.forEach((userId, claimToken) -> revertExternalServiceCalls(userId, 0, false, claimToken));
+        return new ResponseEntity<>(List.of(results), HttpStatus.OK);
+    }
+
+    // Fails the orders with the response POST /orders gives for the exception
+    private static void failAll(OrderBatchResult[] results, List<Integer> orderIndexes, Exception e) {
+        ResponseStatusException failure = e instanceof ResponseStatusException responseStatusException
+                ? responseStatusException
+                : new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage(), e);
+        for (int i : orderIndexes) {
+            results[i] = OrderBatchResult.failed(failure);
+        }
+    }
+
+    // Reads the stock of all ordered products in one query, and their names and prices from the product cache
+    private void readCatalogSnapshot(List<Order> orders, Map<Integer, List<Integer>> ordersByUser, Set<Integer> userIds,
+                                     Map<Integer, Integer> stock, Map<Integer, ProductDetails> products) {
+        Set<Integer> productIds = new HashSet<>();
+        for (Integer userId : userIds) {
+            for (int i : ordersByUser.get(userId)) {
+                for (OrderItem orderItem : orders.get(i).getItems()) {
+                    productIds.add(orderItem.getProduct_id());
+                }
+            }
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+        for (Object[] row : productRepository.findStock_quantitiesByProduct_ids(productIds)) {
+            stock.put((Integer) row[0], (Integer) row[1]);
+            productDetailsRepository.findById((Integer) row[0]).ifPresent(product -> products.put(product.getId(), product));
+        }
+    }
+
+    // Prices an order and takes its quantities from the remaining stock, or throws as validateAndCalculateTotalCost does
+    static int reserveAndPrice(List<OrderItem> orderItems, Map<Integer, Integer> remainingStock,
+                              Map<Integer, ProductDetails> products) {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        int totalCost = 0;
+        for (OrderItem orderItem : orderItems) {
+            Integer productStock = remainingStock.get(orderItem.getProduct_id());
+            ProductDetails product = products.get(orderItem.getProduct_id());
+            if (productStock == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error while fetching product stock!");
+            } else if (product == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error while fetching product!");
+            }
+            int quantity = quantities.merge(orderItem.getProduct_id(), orderItem.getQuantity(), Integer::sum);
+            if (quantity > productStock) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, product.getName() + " is out of stock!");
+            } else if (orderItem.getQuantity() > 0) {
+                totalCost += orderItem.getQuantity() * product.getPrice();
+                orderItem.setUnit_price(product.getPrice());
+            } else {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product quantity is less than or equal to zero!");
+            }
+        }
+        quantities.forEach((productId, quantity) -> remainingStock.merge(productId, -quantity, Integer::sum));
+        return totalCost;
+    }
+
+    // Gives the quantities of an order priced by reserveAndPrice back to the remaining stock
+    static void releaseReserved(List<OrderItem> orderItems, Map<Integer, Integer> remainingStock) {
+        for (OrderItem orderItem : orderItems) {
+            remainingStock.merge(orderItem.getProduct_id(), orderItem.getQuantity(), Integer::sum);
+        }
+    }
+
+    /**
+     * The orders of a user debited by {@link #debitOrders}.
+     *
+     * @param orders     the positions of the debited orders in the batch.
+     * @param discounted whether one of them was debited with the user's discount.
+     */
+    private record UserDebit(List<Integer> orders, boolean discounted) {
+    }
+
+    // Debits the orders of a user, all at once if the balance allows, the first order debited with the
+    // discount if the user won it; the total costs of the orders are updated with the discount
+    private UserDebit debitOrders(Integer userId, List<Integer> orderIndexes, int[] totalCosts, boolean discount,
+                                  OrderBatchResult[] results) {
+        if (orderIndexes.isEmpty()) {
+            return new UserDebit(orderIndexes, false);
+        }
+        int first = orderIndexes.get(0);
+        int total = orderIndexes.stream().mapToInt(i -> totalCosts[i]).sum()
+                - (discount ? totalCosts[first] - (int) (totalCosts[first] * 0.9) : 0);
+        try {
+            updateWallet(userId, "debit", total);
+            if (discount) {
+                totalCosts[first] = (int) (totalCosts[first] * 0.9);
+            }
+            return new UserDebit(orderIndexes, discount);
+        } catch (RestClientResponseException e) {
+            if (orderIndexes.size() == 1) {
+                failAll(results, orderIndexes, walletError(e));
+                return new UserDebit(List.of(), false);
+            }
+        } catch (Exception e) {
+            failAll(results, orderIndexes, e);
+            return new UserDebit(List.of(), false);
+        }
+        List<Integer> debited = new ArrayList<>();
+        boolean discounted = false;
+        for (int i : orderIndexes) {
+            // The discount goes to the first order the balance covers, as if the refused ones were not placed
+            boolean applyDiscount = discount && !discounted;
+            int cost = applyDiscount ? (int) (totalCosts[i] * 0.9) : totalCosts[i];
+            try {
+                updateWallet(userId, "debit", cost);
+                totalCosts[i] = cost;
+                debited.add(i);
+                discounted |= applyDiscount;
+            } catch (RestClientResponseException e) {
+                results[i] = OrderBatchResult.failed(walletError(e));
+            } catch (Exception e) {
+                failAll(results, List.of(i), e);
+            }
+        }
+        return new UserDebit(debited, discounted);
+    }
+
+    /**
+     * Helper method to claim the user's first-order discount in the account service.
+     * The response carries the user information as well, so no separate lookup is needed.
      *
      * @param userId the ID of the user
-     * @return User object with user information
+     * @return DiscountClaim with user information and the outcome of the claim
      * @throws ResponseStatusException if the user is not found or an error occurs
      */
-    private User getUserInfo(Integer userId) {
-        return restClient.get()
-                .uri(accountServiceURI + accountServiceEndpoint + userId)
-                .accept(MediaType.APPLICATION_JSON)
+    private DiscountClaim claimDiscount(Integer userId) {
+        return restClient.put()
+                .uri(accountServiceURI + discountClaimEndpoint + "{user_id}", userId)
+                .accept(internalWireFormat.accept())
                 .exchange(((clientRequest, clientResponse) -> {
                     if (clientResponse.getStatusCode().is2xxSuccessful()) {
-                        return clientResponse.bodyTo(User.class);
+                        return clientResponse.bodyTo(DiscountClaim.class);
                     } else if (clientResponse.getStatusCode() == HttpStatus.NOT_FOUND) {
                         throw new ResponseStatusException(HttpStatus.BAD_REQUEST, clientResponse.bodyTo(String.class));
                     } else {
@@ -324,6 +865,13 @@ public class MarketplaceServiceController {
                 }));
     }
 
+    // The response to a failed wallet update: 429 if the wallet service shed it, so the client retries, otherwise 400
+    private static ResponseStatusException walletError(RestClientResponseException e) {
+        HttpStatus status = e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.BAD_REQUEST;
+        return new ResponseStatusException(status, e.getResponseBodyAsString(), e);
+    }
+
     /**
      * Validates order items and calculates the total cost.
      * Uses per-product locking to prevent concurrent updates to product inventory
@@ -339,22 +887,24 @@ public class MarketplaceServiceController {
             Lock lock = getProductLock(orderItem.getProduct_id());
             try {
                 // Try to acquire lock with timeout to prevent deadlocks
-                if (!lock.tryLock(3, TimeUnit.SECONDS)) {
+                if (!lockMetrics.tryLock(lock, "product", 3, TimeUnit.SECONDS)) {
+                    lockMetrics.conflict("product");
                     throw new ResponseStatusException(HttpStatus.CONFLICT, 
                             "Could not acquire lock for product " + orderItem.getProduct_id() + ", please try again later.");
                 }
                 
                 try {
+                    // Stock always comes from the database, name and price from the product cache
                     int productStock = productRepository.findStock_quantityByProduct_id(orderItem.getProduct_id())
                             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Error while fetching product stock!"));
+                    ProductDetails product = productDetailsRepository.findById(orderItem.getProduct_id())
+                            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Error while fetching product!"));
 
                     if (orderItem.getQuantity() > productStock) {
-                        String productName = productRepository.findById(orderItem.getProduct_id()).get().getName();
-                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, productName + " is out of stock!");
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, product.getName() + " is out of stock!");
                     } else if (orderItem.getQuantity() > 0) {
-                        int productPrice = productRepository.findPriceById(orderItem.getProduct_id())
-                                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Error while fetching product price!"));
-                        totalCost += orderItem.getQuantity() * productPrice;
+                        totalCost += orderItem.getQuantity() * product.getPrice();
+                        orderItem.setUnit_price(product.getPrice());
                     } else {
                         throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product quantity is less than or equal to zero!");
                     }
@@ -380,57 +930,62 @@ public class MarketplaceServiceController {
     @Retryable(value = {RestClientException.class}, maxAttempts = 3, 
                backoff = @Backoff(delay = 1000, multiplier = 2))
     private void updateWallet(Integer userId, String action, int amount) {
-        ResponseEntity<Void> walletServiceResponse = restClient.put()
-                .uri(walletServiceURI + walletServiceEndpoint + userId)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(new WalletRequestBody(action, amount))
-                .retrieve()
-                .toBodilessEntity();
-    }
-    
-    @Recover
-    private void walletUpdateFallback(RestClientException e, Integer userId, String action, int amount) {
-        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, 
-                "Wallet service is unavailable after multiple attempts: " + e.getMessage(), e);
+        updateWallet(userId, action, amount, false);
     }
 
     /**
-     * Updates a user's discount status with improved error handling and retries.
+     * Updates a user's wallet balance, with a critical call for refunds and reverted credits:
+     * the wallet service never sheds those, see {@link ConcurrencyLimitFilter}.
      *
      * @param userId the ID of the user
-     * @throws RestClientResponseException if the account service returns an error
+     * @param action "credit" or "debit"
+     * @param amount the amount to credit or debit
+     * @param critical whether the update undoes an earlier one
      */
-    @Retryable(value = {RestClientException.class}, maxAttempts = 3, 
-               backoff = @Backoff(delay = 1000, multiplier = 2))
-    private void updateDiscount(Integer userId) {
-        ResponseEntity<Void> discountResponse = restClient.put()
-                .uri(accountServiceURI + discountUpdateEndpoint + userId)
+    private void updateWallet(Integer userId, String action, int amount, boolean critical) {
+        ResponseEntity<Void> walletServiceResponse = restClient.put()
+                .uri(walletServiceURI + walletServiceEndpoint + "{user_id}", userId)
+                .headers(headers -> {
+                    if (critical) {
+                        headers.set(ConcurrencyLimitFilter.PRIORITY_HEADER, ConcurrencyLimitFilter.CRITICAL_PRIORITY);
+                    }
+                })
+                .contentType(internalWireFormat.contentType())
+                .accept(internalWireFormat.accept())
+                .body(new WalletRequestBody(action, amount))
                 .retrieve()
                 .toBodilessEntity();
     }
     
     @Recover
-    private void discountUpdateFallback(RestClientException e, Integer userId) {
+    private void walletUpdateFallback(RestClientException e, Integer userId, String action, int amount) {
         throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, 
-                "Account service is unavailable after multiple attempts: " + e.getMessage(), e);
+                "Wallet service is unavailable after multiple attempts: " + e.getMessage(), e);
     }
-    
+
     /**
-     * Resets a user's discount status - needed for proper error recovery
+     * Resets a user's discount claim - needed for proper error recovery.
+     * Only the claim identified by the token is reset, so the call is safe to repeat.
      * 
      * @param userId the ID of the user
+     * @param claimToken the token returned by the discount claim
+     * @return whether the discount was reset
      */
     @Retryable(value = {RestClientException.class}, maxAttempts = 3, 
                backoff = @Backoff(delay = 1000, multiplier = 2))
-    private void resetDiscount(Integer userId) {
+    private boolean resetDiscount(Integer userId, String claimToken) {
         try {
             ResponseEntity<Void> discountResponse = restClient.put()
-                    .uri(accountServiceURI + discountResetEndpoint + userId)
+                    .uri(accountServiceURI + discountResetEndpoint + "{user_id}?token={token}", userId, claimToken)
+                    .header(ConcurrencyLimitFilter.PRIORITY_HEADER, ConcurrencyLimitFilter.CRITICAL_PRIORITY)
+                    .accept(internalWireFormat.accept())
                     .retrieve()
                     .toBodilessEntity();
+            return true;
         } catch (Exception e) {
             // Just log the error since this is a recovery operation
             System.err.println("Failed to reset discount for user " + userId + ": " + e.getMessage());
+            return false;
         }
     }
 
@@ -440,33 +995,37 @@ public class MarketplaceServiceController {
      * @param userId the ID of the user
      * @param amount the amount to revert
      * @param walletUpdated whether the wallet was updated
-     * @param discountUpdated whether the discount was updated
+     * @param discountClaimToken the token of the discount claim won by this order, null if none
      */
-    private void revertExternalServiceCalls(Integer userId, int amount, boolean walletUpdated, boolean discountUpdated) {
+    private void revertExternalServiceCalls(Integer userId, int amount, boolean walletUpdated, String discountClaimToken) {
         // If wallet was debited, credit it back
         if (walletUpdated) {
             try {
-                updateWallet(userId, "credit", amount);
+                updateWallet(userId, "credit", amount, true);
+                countCompensation("wallet_credit", true);
             } catch (Exception e) {
                 // Log the error but continue with other reversions
                 System.err.println("Failed to revert wallet update: " + e.getMessage());
+                countCompensation("wallet_credit", false);
             }
         }
 
-        // If discount was updated, reset it
-        if (discountUpdated) {
+        // If discount was claimed, reset it
+        if (discountClaimToken != null) {
             try {
-                resetDiscount(userId);
+                countCompensation("discount_reset", resetDiscount(userId, discountClaimToken));
             } catch (Exception e) {
                 // Log the error but continue
                 System.err.println("Failed to reset discount update: " + e.getMessage());
+                countCompensation("discount_reset", false);
             }
         }
     }
 
     /**
      * Retrieves an order by its ID.
-     * This method fetches the order from the repository based on the provided order ID.
+     * This method fetches the order from the repository based on the provided order ID,
+     * or from the archive if it was delivered or cancelled long ago.
      *
      * @param order_id the ID of the order to be retrieved
      * @return a ResponseEntity containing the order and HTTP status
@@ -475,7 +1034,7 @@ public class MarketplaceServiceController {
     @Transactional(readOnly = true)
     public ResponseEntity<?> getOrderById(@PathVariable Integer order_id) {
         try {
-            Order order = orderRepository.findById(order_id)
+            Order order = replicationLagGuard.read("order:" + order_id, () -> orderArchiver.findById(order_id))
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found!"));
             return new ResponseEntity<>(order, HttpStatus.OK);
         } catch (ResponseStatusException e) {
@@ -485,7 +1044,7 @@ public class MarketplaceServiceController {
 
     /**
      * Retrieves all orders associated with a specific user.
-     * This method fetches the list of orders for the given user ID from the repository.
+     * This method fetches the list of orders for the given user ID from the repository and the archive.
      *
      * @param user_id the ID of the user whose orders are to be retrieved
      * @return a ResponseEntity containing the list of orders and HTTP status
@@ -495,7 +1054,7 @@ public class MarketplaceServiceController {
     public ResponseEntity<?> getOrdersByUserId(@PathVariable Integer user_id) {
         try {
             try {
-                List<Order> orders = orderRepository.findAllByUserId(user_id);
+                List<Order> orders = replicationLagGuard.read("user:" + user_id, () -> orderArchiver.findAllByUserId(user_id));
                 return new ResponseEntity<>(orders, HttpStatus.OK);
             } catch (Exception e) {
                 throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching orders!", e);
@@ -509,52 +1068,60 @@ public class MarketplaceServiceController {
      * Deletes an order by its ID.
      * This method cancels the order if it is in the "PLACED" state, increases the stock quantity
      * of the associated products, and credits the user's wallet with the order's total price.
+     * The order is claimed by a conditional UPDATE from PLACED to CANCELLING, which only one of
+     * concurrent cancellations and deliveries wins. The claim commits on its own, so the order shows
+     * as being cancelled and its row is not locked while the wallet is credited. The stock increase,
+     * the move to CANCELLED and the event then commit together; if that fails, the credit is taken back
+     * and the order is PLACED again.
      *
      * @param order_id the ID of the order to be deleted
      * @return a ResponseEntity indicating the result of the operation
      */
     @DeleteMapping("/orders/{order_id}")
-    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = Exception.class)
     @Retryable(value = {OptimisticLockingFailureException.class, DataAccessException.class},
             maxAttempts = 3, backoff = @Backoff(delay = 1000))
     public ResponseEntity<?> deleteOrderById(@PathVariable Integer order_id) {
-        Lock orderLock = getOrderLock(order_id);
-        boolean lockAcquired = false;
-
         try {
-            // Try to acquire lock with timeout to prevent deadlocks
-            if (!orderLock.tryLock(3, TimeUnit.SECONDS)) {
-                return new ResponseEntity<>("Order is currently being modified by another request, please try again.", 
-                        HttpStatus.CONFLICT);
-            }
-            
-            lockAcquired = true;
-            
-            Order order = orderRepository.findById(order_id)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order not found!"));
-
-            if (order.getStatus().equals("PLACED")) {
-                // Update order status first to prevent concurrent cancellations
-                order.setStatus("CANCELLING");
-                orderRepository.save(order);
-
-                boolean stockIncreased = false;
-                boolean walletCredited = false;
-                List<OrderItem> processedItems = new ArrayList<>();
+            // Claim the cancellation; of concurrent cancellations and deliveries only one moves the order
+            Order order = cancelTransaction.execute(status -> {
+                if (!orderRepository.transition(order_id, OrderStatus.PLACED, OrderStatus.CANCELLING)) {
+                    return null;
+                }
+                Order claimed = orderRepository.findById(order_id)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order not found!"));
+                claimed.getItems().size();
+                return claimed;
+            });
+            if (order == null) {
+                if (!orderRepository.existsById(order_id) && !orderArchiver.isArchived(order_id)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order not found!");
+                }
+                return new ResponseEntity<>("Order Cancelled or Delivered!", HttpStatus.BAD_REQUEST);
+            }
 
-                try {
-                    // Increase stock quantities with proper locking
+            // Credit wallet
+            try {
+                updateWallet(order.getUser_id(), "credit", order.getTotal_price(), true);
+            } catch (Exception e) {
+                releaseCancellation(order_id);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error while crediting wallet: " + e.getMessage());
+            }
+
+            try {
+                // Increase stock quantities with proper locking, and complete the cancellation claimed above;
+                // a failure rolls back the stock already increased
+                cancelTransaction.executeWithoutResult(status -> {
                     for (OrderItem orderItem : order.getItems()) {
                         Lock productLock = getProductLock(orderItem.getProduct_id());
                         try {
-                            if (!productLock.tryLock(3, TimeUnit.SECONDS)) {
-                                throw new ResponseStatusException(HttpStatus.CONFLICT, 
+                            if (!lockMetrics.tryLock(productLock, "product", 3, TimeUnit.SECONDS)) {
+                                lockMetrics.conflict("product");
+                                throw new ResponseStatusException(HttpStatus.CONFLICT,
                                         "Could not update inventory, please try again later.");
                             }
-                            
+
                             try {
                                 productRepository.increaseStockQuantityByProduct_id(orderItem.getProduct_id(), orderItem.getQuantity());
-                                processedItems.add(orderItem);
                             } finally {
                                 productLock.unlock();
                             }
@@ -563,73 +1130,39 @@ public class MarketplaceServiceController {
                             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Operation interrupted");
                         }
                     }
-                    stockIncreased = true;
-
-                    // Credit wallet
-                    try {
-                        updateWallet(order.getUser_id(), "credit", order.getTotal_price());
-                        walletCredited = true;
-                    } catch (Exception e) {
-                        // If wallet credit fails, revert stock changes
-                        if (stockIncreased) {
-                            for (OrderItem orderItem : processedItems) {
-                                try {
-                                    Lock productLock = getProductLock(orderItem.getProduct_id());
-                                    if (productLock.tryLock(1, TimeUnit.SECONDS)) {
-                                        try {
-                                            productRepository.decreaseStockQuantityByProduct_id(orderItem.getProduct_id(), orderItem.getQuantity());
-                                        } finally {
-                                            productLock.unlock();
-                                        }
-                                    }
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    System.err.println("Operation interrupted while reverting inventory change");
-                                } catch (Exception ex) {
-                                    // Log error but continue with reversion
-                                    System.err.println("Failed to revert inventory change: " + ex.getMessage());
-                                }
-                            }
-                        }
-                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error while crediting wallet: " + e.getMessage());
-                    }
-
-                    // Set final status to CANCELLED
-                    order.setStatus("CANCELLED");
-                    orderRepository.save(order);
-
-                    // Clean up the lock to prevent memory leaks
-                    orderLocks.remove(order_id);
-                    
-                    return new ResponseEntity<>(String.format("Order %d Cancelled.", order_id), HttpStatus.OK);
-                } catch (Exception e) {
-                    // Revert any changes if an exception occurred
-                    if (walletCredited) {
-                        try {
-                            updateWallet(order.getUser_id(), "debit", order.getTotal_price());
-                        } catch (Exception revertException) {
-                            // Log error but continue
-                            System.err.println("Failed to revert wallet credit: " + revertException.getMessage());
-                        }
-                    }
-
-                    // Revert order status
-                    order.setStatus("PLACED");
-                    orderRepository.save(order);
+                    orderRepository.transition(order_id, OrderStatus.CANCELLING, OrderStatus.CANCELLED);
+                    outboxPublisher.publish(OutboxEventType.ORDER_CANCELLED, order_id, OrderEvent.of(order));
+                });
+            } catch (Exception e) {
+                // Revert the wallet credit, the stock was rolled back
+                try {
+                    updateWallet(order.getUser_id(), "debit", order.getTotal_price(), true);
+                } catch (Exception revertException) {
+                    // Log error but continue
+                    System.err.println("Failed to revert wallet credit: " + revertException.getMessage());
+                }
+                releaseCancellation(order_id);
 
-                    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while cancelling order: " + e.getMessage(), e);
+                if (e instanceof ResponseStatusException responseStatusException) {
+                    throw responseStatusException;
                 }
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while cancelling order: " + e.getMessage(), e);
             }
-            return new ResponseEntity<>("Order Cancelled or Delivered!", HttpStatus.BAD_REQUEST);
+            replicationLagGuard.recordWrite(writtenKeys(order));
+
+            return new ResponseEntity<>(String.format("Order %d Cancelled.", order_id), HttpStatus.OK);
         } catch (ResponseStatusException e) {
             return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return new ResponseEntity<>("Operation interrupted", HttpStatus.INTERNAL_SERVER_ERROR);
-        } finally {
-            if (lockAcquired) {
-                orderLock.unlock();
-            }
+        }
+    }
+
+    // Gives a claimed order back, it may be cancelled or delivered again
+    private void releaseCancellation(Integer order_id) {
+        try {
+            cancelTransaction.executeWithoutResult(status ->
+                    orderRepository.transition(order_id, OrderStatus.CANCELLING, OrderStatus.PLACED));
+        } catch (Exception e) {
+            System.err.println("Failed to give back order " + order_id + " after a failed cancellation: " + e.getMessage());
         }
     }
 
@@ -643,70 +1176,136 @@ public class MarketplaceServiceController {
     }
 
     /**
-     * Updates the status of an existing order to "DELIVERED" with improved concurrency control.
+     * Updates the status of an existing order to "DELIVERED".
+     * A single conditional UPDATE moves the order from PLACED, so a concurrent cancellation or delivery,
+     * on this or another replica, either wins before it or finds the order delivered.
      *
      * @param order_id the ID of the order to be updated
      * @param order    the order object containing the new status
      * @return a ResponseEntity indicating the result of the operation
      */
     @PutMapping(value = "/orders/{order_id}", consumes = "application/json")
-    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = Exception.class)
+    @Transactional(rollbackFor = Exception.class)
     @Retryable(value = {OptimisticLockingFailureException.class, DataAccessException.class},
             maxAttempts = 3, backoff = @Backoff(delay = 1000))
     public ResponseEntity<?> updateOrder(@PathVariable Integer order_id, @RequestBody Order order) {
-        Lock orderLock = getOrderLock(order_id);
-        boolean lockAcquired = false;
-        
         try {
-            // Try to acquire lock with timeout to prevent deadlocks
-            if (!orderLock.tryLock(3, TimeUnit.SECONDS)) {
-                return new ResponseEntity<>("Order is currently being modified by another request, please try again.", 
-                        HttpStatus.CONFLICT);
-            }
-            
-            lockAcquired = true;
-            
             if (!isValidPayloadForPutMethod(order)) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid payload!");
             }
-
-            Order existingOrder = orderRepository.findById(order_id)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order not found!"));
-
-            if (!order.getStatus().equals("DELIVERED")) {
+            if (order.getStatus() != OrderStatus.DELIVERED) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad request body!");
             }
 
-            if (existingOrder.getStatus().equals("PLACED")) {
-                try {
-                    // Use optimistic locking by first updating to an intermediate state
-                    existingOrder.setStatus("DELIVERING");
-                    orderRepository.save(existingOrder);
-
-                    // Then update to the final state
-                    existingOrder.setStatus("DELIVERED");
-                    orderRepository.save(existingOrder);
-                    
-                    // Clean up the lock to prevent memory leaks
-                    orderLocks.remove(order_id);
-
-                    return new ResponseEntity<>("Order delivered Successfully!", HttpStatus.OK);
-                } catch (Exception e) {
-                    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while updating order status!", e);
+            boolean delivered;
+            try {
+                delivered = orderRepository.transition(order_id, OrderStatus.PLACED, OrderStatus.DELIVERED);
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while updating order status!", e);
+            }
+            if (!delivered) {
+                // Only a failed delivery reads the order, to tell why
+                if (!orderRepository.existsById(order_id) && !orderArchiver.isArchived(order_id)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Order not found!");
                 }
-            } else {
                 return new ResponseEntity<>("Order was CANCELLED or DELIVERED!", HttpStatus.BAD_REQUEST);
             }
+            outboxPublisher.publish(OutboxEventType.ORDER_DELIVERED, order_id, new OrdersDeliveredEvent(List.of(order_id)));
+            if (replicationLagGuard.isEnabled()) {
+                orderRepository.findUserIdByOrder_id(order_id).ifPresent(user_id ->
+                        replicationLagGuard.recordWrite("order:" + order_id, "user:" + user_id));
+            }
+            return new ResponseEntity<>("Order delivered Successfully!", HttpStatus.OK);
         } catch (ResponseStatusException e) {
             return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return new ResponseEntity<>("Operation interrupted", HttpStatus.INTERNAL_SERVER_ERROR);
-        } finally {
-            if (lockAcquired) {
-                orderLock.unlock();
+        }
+    }
+
+    /**
+     * Marks many orders as delivered at once.
+     * Handles PUT requests to "/orders/deliver" with a JSON array of order IDs.
+     *
+     * The orders are read and moved from PLACED to DELIVERED a chunk at a time, with one SELECT
+     * FOR UPDATE and one conditional UPDATE per chunk. A concurrent cancellation of an order in the
+     * chunk waits for the delivery and then finds the order delivered; an order whose cancellation was
+     * claimed before is skipped as being cancelled, see {@link #deleteOrderById}. If a chunk fails, the whole
+     * request is rolled back and no order is delivered.
+     *
+     * @param order_ids the IDs of the orders, at most 100000.
+     * @return ResponseEntity with a 200 (OK) status, the number of orders delivered and the orders skipped
+     *         with the reason, or a 400 (BAD REQUEST) status if the list is empty or too large.
+     */
+    @PutMapping(value = "/orders/deliver", consumes = "application/json")
+    @Transactional(rollbackFor = Exception.class)
+    public ResponseEntity<?> deliverOrders(@RequestBody List<Integer> order_ids) {
+        if (order_ids.isEmpty() || order_ids.size() > MAX_DELIVERY_SIZE) {
+            return new ResponseEntity<>("Between 1 and " + MAX_DELIVERY_SIZE + " order IDs must be given!", HttpStatus.BAD_REQUEST);
+        }
+        OrderDeliveryReport report = new OrderDeliveryReport();
+        Set<Integer> distinctIds = new LinkedHashSet<>();
+        for (Integer order_id : order_ids) {
+            if (order_id == null) {
+                report.skip(null, "Invalid payload!");
+            } else if (!distinctIds.add(order_id)) {
+                report.skip(order_id, "Duplicate order ID!");
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>(distinctIds);
+        try {
+            for (int from = 0; from < ids.size(); from += DELIVERY_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + DELIVERY_CHUNK_SIZE, ids.size()));
+                Map<Integer, Object[]> found = new HashMap<>();
+                for (Object[] row : orderRepository.findStatusesByOrder_idsForUpdate(chunk)) {
+                    found.put((Integer) row[0], row);
+                }
+                List<Integer> placed = new ArrayList<>();
+                List<Integer> missing = new ArrayList<>();
+                for (Integer order_id : chunk) {
+                    Object[] row = found.get(order_id);
+                    if (row == null) {
+                        missing.add(order_id);
+                    } else if (row[2] == OrderStatus.PLACED) {
+                        placed.add(order_id);
+                    } else {
+                        report.skip(order_id, deliverySkipReason((OrderStatus) row[2]));
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    Map<Integer, OrderStatus> archived = orderArchiver.findArchivedStatuses(missing);
+                    for (Integer order_id : missing) {
+                        OrderStatus status = archived.get(order_id);
+                        report.skip(order_id, status == null ? "Order not found!" : deliverySkipReason(status));
+                    }
+                }
+                if (placed.isEmpty()) {
+                    continue;
+                }
+
+                // The rows are locked since they were read, so exactly the orders read as PLACED are delivered
+                orderRepository.transitionAll(placed, OrderStatus.PLACED, OrderStatus.DELIVERED);
+                outboxPublisher.publish(OutboxEventType.ORDER_DELIVERED, null, new OrdersDeliveredEvent(placed));
+                report.delivered(placed.size());
+                if (replicationLagGuard.isEnabled()) {
+                    for (Integer order_id : placed) {
+                        replicationLagGuard.recordWrite("order:" + order_id, "user:" + found.get(order_id)[1]);
+                    }
+                }
             }
+        } catch (Exception e) {
+            // All or nothing: the chunks already delivered and their events are rolled back with the failed one
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            System.err.println("Failed to deliver orders, no order was delivered: " + e.getMessage());
+            return new ResponseEntity<>("Error while updating order status, no order was delivered!",
+                    HttpStatus.INTERNAL_SERVER_ERROR);
         }
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    // Why an order in the given status, other than PLACED, cannot be delivered; CANCELLING is committed
+    // by a cancellation before it credits the wallet
+    private static String deliverySkipReason(OrderStatus status) {
+        return status == OrderStatus.CANCELLING ? "Order is being cancelled!" : "Order was " + status + "!";
     }
 
     /**
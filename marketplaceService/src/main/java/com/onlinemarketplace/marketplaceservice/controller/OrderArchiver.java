@@ -0,0 +1,163 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.ArchivedOrder;
+import com.onlinemarketplace.marketplaceservice.model.Order;
+import com.onlinemarketplace.marketplaceservice.model.OrderStatus;
+import com.onlinemarketplace.marketplaceservice.repository.OrderArchiveRepository;
+import com.onlinemarketplace.marketplaceservice.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the orders table small by moving DELIVERED and CANCELLED orders, once their status has not
+ * changed for marketplace.orders.archive.min-age-seconds, to the orders_archive and order_item_archive
+ * tables. Orders are moved in batches, each in its own transaction, so an order is always in exactly one
+ * of the two tiers. Terminal orders never change status again, which makes the move safe while orders
+ * are being placed, cancelled and delivered.
+ * <p>
+ * Readers go through {@link #findById} and {@link #findAllByUserId}, which look at both tiers.
+ * Replicas sharing the database may archive at the same time: a batch one of them already moved
+ * fails on the archive's primary key, rolls back and is picked up again without those orders.
+ */
+@Service
+public class OrderArchiver {
+    private static final Set<OrderStatus> TERMINAL_STATUSES = Set.of(OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+
+    private final OrderRepository orderRepository;
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    /**
+     * Constructor for OrderArchiver.
+     *
+     * @param orderRepository        the hot tier.
+     * @param orderArchiveRepository the archive tier.
+     * @param transactionManager     runs each batch in its own transaction.
+     * @param enabled                whether this replica archives orders.
+     * @param minAgeSeconds          how long a terminal order stays in the hot tier.
+     * @param batchSize              how many orders are moved per transaction.
+     * @param maxBatchesPerRun       how many batches a run moves at most, leaving the rest for the next run.
+     */
+    public OrderArchiver(OrderRepository orderRepository,
+                         OrderArchiveRepository orderArchiveRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${marketplace.orders.archive.enabled:true}") boolean enabled,
+                         @Value("${marketplace.orders.archive.min-age-seconds:604800}") long minAgeSeconds,
+                         @Value("${marketplace.orders.archive.batch-size:1000}") int batchSize,
+                         @Value("${marketplace.orders.archive.max-batches-per-run:100}") int maxBatchesPerRun) {
+        this.orderRepository = orderRepository;
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.minAge = Duration.ofSeconds(minAgeSeconds);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /**
+     * Moves the terminal orders older than the minimum age to the archive, a batch at a time.
+     */
+    @Scheduled(initialDelayString = "${marketplace.orders.archive.interval-ms:60000}",
+            fixedDelayString = "${marketplace.orders.archive.interval-ms:60000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(minAge);
+        int archived = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+                if (moved == null || moved == 0) {
+                    break;
+                }
+                archived += moved;
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to archive orders: " + e.getMessage());
+        }
+        if (archived > 0) {
+            System.out.println("Archived " + archived + " orders");
+        }
+    }
+
+    private int archiveBatch(Instant cutoff) {
+        List<Integer> order_ids = orderRepository.findOrder_idsByStatusChangedBefore(
+                TERMINAL_STATUSES, cutoff, PageRequest.of(0, batchSize));
+        if (order_ids.isEmpty()) {
+            return 0;
+        }
+        orderArchiveRepository.copyOrders(order_ids);
+        orderArchiveRepository.copyItems(order_ids);
+        orderArchiveRepository.deleteHotItems(order_ids);
+        return orderArchiveRepository.deleteHotOrders(order_ids);
+    }
+
+    /**
+     * Retrieves an order from the hot tier, or else from the archive.
+     *
+     * @param order_id the ID of the order
+     * @return the order, or empty if it does not exist
+     */
+    public Optional<Order> findById(Integer order_id) {
+        Optional<Order> order = orderRepository.findById(order_id);
+        if (order.isPresent()) {
+            return order;
+        }
+        return orderArchiveRepository.findWithItemsById(order_id).map(ArchivedOrder::toOrder);
+    }
+
+    /**
+     * Retrieves the orders of a user from both tiers.
+     *
+     * @param user_id the ID of the user
+     * @return the orders, by ascending ID
+     */
+    public List<Order> findAllByUserId(Integer user_id) {
+        List<Order> orders = new ArrayList<>(orderRepository.findAllByUserId(user_id));
+        for (ArchivedOrder archivedOrder : orderArchiveRepository.findAllByUserId(user_id)) {
+            orders.add(archivedOrder.toOrder());
+        }
+        orders.sort(Comparator.comparing(Order::getOrder_id));
+        return orders;
+    }
+
+    /**
+     * @param order_id the ID of the order
+     * @return whether the order is archived, i.e. was delivered or cancelled
+     */
+    public boolean isArchived(Integer order_id) {
+        return orderArchiveRepository.existsById(order_id);
+    }
+
+    /**
+     * @param order_ids the IDs of orders not found in the hot tier
+     * @return the status of each of them which is archived
+     */
+    public Map<Integer, OrderStatus> findArchivedStatuses(Collection<Integer> order_ids) {
+        Map<Integer, OrderStatus> statuses = new HashMap<>();
+        for (Object[] row : orderArchiveRepository.findStatusesByOrder_ids(order_ids)) {
+            statuses.put((Integer) row[0], (OrderStatus) row[1]);
+        }
+        return statuses;
+    }
+}
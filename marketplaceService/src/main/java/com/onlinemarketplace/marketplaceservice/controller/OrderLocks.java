@@ -0,0 +1,38 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The in-process locks serializing stock changes, shared by the order endpoints and the
+ * {@link FlashSaleAdmission} writers. Order placement holds the new order lock from validating the
+ * stock until it is decremented; every stock update holds the product's lock.
+ */
+@Component
+public class OrderLocks {
+
+    // Per-product locks to handle concurrent inventory modifications
+    private final ConcurrentHashMap<Integer, Lock> productLocks = new ConcurrentHashMap<>();
+    // Lock for creating new orders (to synchronize order ID generation)
+    private final Lock newOrderLock = new ReentrantLock();
+
+    /**
+     * @return the lock held while placing orders.
+     */
+    public Lock newOrder() {
+        return newOrderLock;
+    }
+
+    /**
+     * Gets or creates the lock of a product.
+     *
+     * @param productId the ID of the product.
+     * @return the lock held while updating its stock.
+     */
+    public Lock product(Integer productId) {
+        return productLocks.computeIfAbsent(productId, k -> new ReentrantLock());
+    }
+}
@@ -0,0 +1,473 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.model.ProductStockChangedEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The product catalog as ready-to-send JSON, for GET /products and GET /products/{product_id}.
+ * <p>
+ * Each product is serialized once with the application's ObjectMapper, and the whole catalog is kept
+ * as one JSON array, plain, gzip and brotli compressed. The responses write these bytes as they are,
+ * so serving the catalog maps no objects and allocates next to nothing, whatever its size.
+ * <p>
+ * A stock change re-serializes its product only. The gzip body is a single deflate stream made of
+ * chunks of {@value #CHUNK_SIZE} products, each compressed on its own and ending on a full flush,
+ * so only the chunk of the changed product is compressed again. The bodies are reassembled on the
+ * first request after a change. Brotli streams cannot be spliced like that: the brotli body is
+ * compressed again in the background, at most every {@value #BROTLI_MIN_INTERVAL_MILLIS} ms, and
+ * clients accepting br get gzip until it caught up.
+ * <p>
+ * Like {@link ProductSearchIndex}, the snapshot is built when the catalog is loaded or imported,
+ * applies the committed stock changes of this instance and re-reads the stock every
+ * marketplace.catalog.snapshot.stock-refresh-ms for the orders of other replicas. Names and prices
+ * only change through a catalog import, which rebuilds it, also on the other replicas (see
+ * {@link CatalogVersion}).
+ */
+@Service
+public class ProductCatalogSnapshot {
+    private static final String SELECT_PRODUCTS = "SELECT id, name, description, price, stock_quantity FROM Product ORDER BY id";
+    private static final String SELECT_STOCK = "SELECT id, stock_quantity FROM Product ORDER BY id";
+    private static final int FETCH_SIZE = 10_000;
+    private static final int CHUNK_SIZE = 256;
+    private static final int BROTLI_QUALITY = 5;
+    private static final long BROTLI_MIN_INTERVAL_MILLIS = 1000;
+
+    // Gzip member header: deflate, no flags, no modification time, unknown OS
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] OPEN_DEFLATED = deflate("[".getBytes(StandardCharsets.US_ASCII));
+    private static final byte[] CLOSE_DEFLATED = deflate("]".getBytes(StandardCharsets.US_ASCII));
+    private static final byte[] FINAL_BLOCK = finalBlock();
+
+    /**
+     * A response body in one content coding.
+     *
+     * @param bytes    the body.
+     * @param encoding the Content-Encoding, or null for none.
+     */
+    public record Body(byte[] bytes, String encoding) {
+    }
+
+    // The published catalog bodies, replaced as a whole; brotli is null until compressed
+    private record Bodies(Body identity, Body gzip, Body brotli) {
+    }
+
+    // The products in id order with their JSON and the compressed chunks; replaced by a rebuild
+    private static final class Catalog {
+        final int[] ids;
+        final Product[] products;
+        final AtomicReferenceArray<byte[]> json;
+        final byte[][] deflatedChunks;
+        final boolean[] dirtyChunks;
+
+        Catalog(List<Product> products, ObjectMapper objectMapper) {
+            this.products = products.toArray(new Product[0]);
+            this.ids = new int[this.products.length];
+            this.json = new AtomicReferenceArray<>(this.products.length);
+            for (int doc = 0; doc < this.products.length; doc++) {
+                ids[doc] = this.products[doc].getId();
+                json.set(doc, serialize(objectMapper, this.products[doc]));
+            }
+            int chunks = (this.products.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            this.deflatedChunks = new byte[chunks][];
+            this.dirtyChunks = new boolean[chunks];
+            Arrays.fill(dirtyChunks, true);
+        }
+
+        // The JSON array of all products
+        byte[] join() {
+            int length = 2 + Math.max(products.length - 1, 0);
+            for (int doc = 0; doc < products.length; doc++) {
+                length += json.get(doc).length;
+            }
+            byte[] body = new byte[length];
+            int offset = 0;
+            body[offset++] = '[';
+            for (int doc = 0; doc < products.length; doc++) {
+                if (doc > 0) {
+                    body[offset++] = ',';
+                }
+                byte[] product = json.get(doc);
+                System.arraycopy(product, 0, body, offset, product.length);
+                offset += product.length;
+            }
+            body[offset] = ']';
+            return body;
+        }
+
+        // The part of the JSON array between [ and ] made by a chunk, led by a comma after the first chunk
+        byte[] chunk(int chunk) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(CHUNK_SIZE * 128);
+            int end = Math.min((chunk + 1) * CHUNK_SIZE, products.length);
+            for (int doc = chunk * CHUNK_SIZE; doc < end; doc++) {
+                if (doc > 0) {
+                    out.write(',');
+                }
+                out.writeBytes(json.get(doc));
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean brotliAvailable;
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean brotliRunning = new AtomicBoolean();
+    // Changed under this; the chunks and bodies are brought up to date by the next request
+    private volatile Catalog catalog = new Catalog(List.of(), null);
+    private volatile Bodies bodies;
+    private volatile boolean dirty = true;
+    // False until the catalog was loaded and while it is imported again
+    private volatile boolean built = false;
+
+    /**
+     * Constructor for ProductCatalogSnapshot.
+     *
+     * @param jdbcTemplate reads the products, bypassing Hibernate and its caches.
+     * @param objectMapper serializes the products as the other responses do.
+     */
+    public ProductCatalogSnapshot(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.brotliAvailable = Brotli4jLoader.isAvailable();
+        if (!brotliAvailable) {
+            System.err.println("Brotli is not available on this platform, the catalog is served with gzip only: "
+                    + Brotli4jLoader.getUnavailabilityCause());
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from the products in the database and replaces the current one.
+     * Requests keep getting the previous snapshot until the new one is complete.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.nanoTime();
+            List<Product> products = new ArrayList<>();
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_PRODUCTS);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, resultSet -> {
+                Product product = new Product();
+                product.setId(resultSet.getInt(1));
+                product.setName(resultSet.getString(2));
+                product.setDescription(resultSet.getString(3));
+                product.setPrice(resultSet.getInt(4));
+                product.setStock_quantity(resultSet.getInt(5));
+                products.add(product);
+            });
+            Catalog rebuilt = new Catalog(products, objectMapper);
+            synchronized (this) {
+                catalog = rebuilt;
+                dirty = true;
+            }
+            Bodies current = refresh();
+            built = true;
+            System.out.printf("Product catalog snapshot built: %d products, %d bytes, %d gzipped in %d ms%n",
+                    products.size(), current.identity().bytes().length, current.gzip().bytes().length,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Stops serving the snapshot until the next rebuild, while a catalog import writes the products.
+     */
+    public void catalogChanging() {
+        built = false;
+    }
+
+    /**
+     * Re-reads the stock of all products. Rebuilds the snapshot instead if products were added or
+     * removed since it was built, e.g. by a catalog import on another replica still running.
+     */
+    @Scheduled(initialDelayString = "${marketplace.catalog.snapshot.stock-refresh-ms:10000}",
+            fixedDelayString = "${marketplace.catalog.snapshot.stock-refresh-ms:10000}")
+    public void refreshStock() {
+        if (!built) {
+            // Not while the catalog is being loaded, the products change with every chunk written
+            return;
+        }
+        Catalog current = catalog;
+        int[] stock = new int[current.ids.length];
+        int[] position = {0};
+        boolean[] changed = {false};
+        try {
+            // Read without holding the lock, the stock changes committed meanwhile are applied as they come
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_STOCK);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, resultSet -> {
+                int doc = position[0]++;
+                if (changed[0] || doc >= current.ids.length || current.ids[doc] != resultSet.getInt(1)) {
+                    changed[0] = true;
+                    return;
+                }
+                stock[doc] = resultSet.getInt(2);
+            });
+            if (changed[0] || position[0] != current.ids.length) {
+                rebuild();
+                return;
+            }
+            synchronized (this) {
+                if (catalog == current) {
+                    for (int doc = 0; doc < stock.length; doc++) {
+                        setStock(current, doc, stock[doc]);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // The product table may not exist yet while the schema is being created
+            System.err.println("Failed to refresh the stock of the product catalog snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a committed stock change of this instance.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStockChanged(ProductStockChangedEvent event) {
+        Catalog current = catalog;
+        int doc = Arrays.binarySearch(current.ids, event.product_id());
+        if (doc >= 0) {
+            setStock(current, doc, current.products[doc].getStock_quantity() + event.delta());
+        }
+    }
+
+    /**
+     * Returns the whole catalog, as JSON array of all products in id order.
+     *
+     * @param acceptEncoding the Accept-Encoding header of the request, or null.
+     * @return the body in the best coding the client accepts, or null while the snapshot is not built.
+     */
+    public Body catalog(String acceptEncoding) {
+        if (!built) {
+            return null;
+        }
+        Bodies current = dirty ? refresh() : bodies;
+        if (current.brotli() != null && accepts(acceptEncoding, "br")) {
+            return current.brotli();
+        }
+        if (accepts(acceptEncoding, "gzip")) {
+            return current.gzip();
+        }
+        return current.identity();
+    }
+
+    /**
+     * Returns one product as JSON.
+     *
+     * @param productId the product.
+     * @return the JSON of the product, or null if it is not in the snapshot or the snapshot is not built.
+     */
+    public byte[] product(int productId) {
+        if (!built) {
+            return null;
+        }
+        Catalog current = catalog;
+        int doc = Arrays.binarySearch(current.ids, productId);
+        return doc >= 0 ? current.json.get(doc) : null;
+    }
+
+    // Under this
+    private void setStock(Catalog current, int doc, int stock) {
+        Product product = current.products[doc];
+        if (product.getStock_quantity() == stock) {
+            return;
+        }
+        product.setStock_quantity(stock);
+        current.json.set(doc, serialize(objectMapper, product));
+        current.dirtyChunks[doc / CHUNK_SIZE] = true;
+        dirty = true;
+    }
+
+    // Compresses the changed chunks and publishes the reassembled bodies
+    private synchronized Bodies refresh() {
+        if (!dirty) {
+            return bodies;
+        }
+        Catalog current = catalog;
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            for (int chunk = 0; chunk < current.dirtyChunks.length; chunk++) {
+                if (current.dirtyChunks[chunk]) {
+                    current.deflatedChunks[chunk] = deflate(deflater, current.chunk(chunk));
+                    current.dirtyChunks[chunk] = false;
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        byte[] identity = current.join();
+        bodies = new Bodies(new Body(identity, null), new Body(gzip(current, identity), "gzip"), null);
+        dirty = false;
+        compressBrotliInBackground();
+        return bodies;
+    }
+
+    // A gzip member of the deflated [, chunks and ], closed by an empty final block and the trailer
+    private static byte[] gzip(Catalog current, byte[] identity) {
+        CRC32 crc = new CRC32();
+        crc.update(identity);
+        int length = GZIP_HEADER.length + OPEN_DEFLATED.length + CLOSE_DEFLATED.length + FINAL_BLOCK.length + 8;
+        for (byte[] chunk : current.deflatedChunks) {
+            length += chunk.length;
+        }
+        ByteBuffer gzip = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        gzip.put(GZIP_HEADER).put(OPEN_DEFLATED);
+        for (byte[] chunk : current.deflatedChunks) {
+            gzip.put(chunk);
+        }
+        gzip.put(CLOSE_DEFLATED).put(FINAL_BLOCK);
+        gzip.putInt((int) crc.getValue()).putInt(identity.length);
+        return gzip.array();
+    }
+
+    private void compressBrotliInBackground() {
+        if (brotliAvailable && brotliRunning.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("catalog-brotli").start(this::compressBrotli);
+        }
+    }
+
+    private void compressBrotli() {
+        Encoder.Parameters parameters = new Encoder.Parameters().setQuality(BROTLI_QUALITY).setMode(Encoder.Mode.TEXT);
+        do {
+            try {
+                Bodies current;
+                while ((current = bodies).brotli() == null) {
+                    byte[] compressed = Encoder.compress(current.identity().bytes(), parameters);
+                    synchronized (this) {
+                        if (bodies == current) {
+                            bodies = new Bodies(current.identity(), current.gzip(), new Body(compressed, "br"));
+                        }
+                    }
+                    Thread.sleep(BROTLI_MIN_INTERVAL_MILLIS);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to compress the product catalog with brotli: " + e.getMessage());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                brotliRunning.set(false);
+            }
+            // A change published just before the flag was cleared found the compression still running
+        } while (bodies.brotli() == null && brotliRunning.compareAndSet(false, true));
+    }
+
+    // Whether the Accept-Encoding header names the coding without q=0
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        int start = 0;
+        while (start < acceptEncoding.length()) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = acceptEncoding.length();
+            }
+            int parameters = acceptEncoding.indexOf(';', start);
+            int nameEnd = parameters >= 0 && parameters < end ? parameters : end;
+            int from = start;
+            int to = nameEnd;
+            while (from < to && acceptEncoding.charAt(from) == ' ') {
+                from++;
+            }
+            while (to > from && acceptEncoding.charAt(to - 1) == ' ') {
+                to--;
+            }
+            if (to - from == coding.length() && acceptEncoding.regionMatches(true, from, coding, 0, coding.length())) {
+                return nameEnd == end || !isQZero(acceptEncoding.substring(nameEnd + 1, end));
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static boolean isQZero(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2)) == 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static byte[] serialize(ObjectMapper objectMapper, Product product) {
+        try {
+            return objectMapper.writeValueAsBytes(product);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize product " + product.getId(), e);
+        }
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            return deflate(deflater, input);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Raw deflate ending on a full flush: byte aligned and without references to earlier input,
+    // so that it can be followed by any other such piece in the same stream
+    private static byte[] deflate(Deflater deflater, byte[] input) {
+        deflater.reset();
+        deflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        int length;
+        do {
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.FULL_FLUSH);
+            out.write(buffer, 0, length);
+        } while (length == buffer.length);
+        return out.toByteArray();
+    }
+
+    // The empty final block which ends the deflate stream
+    private static byte[] finalBlock() {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position after the last product of a page of GET /products: the sort, and the id and sort
+ * value of that product. Opaque to clients, as URL-safe Base64 of "sort,id,value".
+ *
+ * @param sort  the sort of the page, e.g. -price.
+ * @param id    the id of the last product.
+ * @param value its value of the sort field, null when sorting by id.
+ */
+record ProductCursor(String sort, Integer id, Object value) {
+
+    String encode() {
+        String cursor = sort + "," + id + "," + (value != null ? value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor the encoded cursor.
+     * @param sort   the requested sort, which the cursor must have been created for.
+     * @return the decoded cursor.
+     * @throws ResponseStatusException with 400 (BAD REQUEST) if the cursor is malformed or for another sort.
+     */
+    static ProductCursor decode(String cursor, String sort) {
+        try {
+            // The value comes last, a name may contain commas
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", 3);
+            if (parts.length != 3 || !parts[0].equals(sort)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor does not belong to sort " + sort + "!");
+            }
+            String field = sort.startsWith("-") ? sort.substring(1) : sort;
+            Object value = switch (field) {
+                case "id" -> null;
+                case "name" -> parts[2];
+                default -> Integer.valueOf(parts[2]);
+            };
+            return new ProductCursor(sort, Integer.valueOf(parts[1]), value);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor!");
+        }
+    }
+}
@@ -1,46 +1,92 @@
 package com.onlinemarketplace.marketplaceservice.controller;
 
+import com.onlinemarketplace.marketplaceservice.model.CatalogImport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.Optional;
 
 @Component
 public class ProductInitializer implements CommandLineRunner {
 
     @Autowired
-    private ProductService productService;
+    private CatalogSynchronizer catalogSynchronizer;
+
+    @Autowired
+    private CatalogHealthIndicator catalogHealthIndicator;
+
+    @Autowired
+    private CatalogImporter catalogImporter;
 
     @Autowired
     private ResourceLoader resourceLoader;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${marketplace.catalog.location:classpath:static/products.csv}")
+    private String catalogLocation;
+
+    @Value("${marketplace.catalog.load-in-background:true}")
+    private boolean loadInBackground;
+
     /**
-     * Loads product data from a CSV file when the application starts.
+     * Syncs the product data from a CSV file when the application starts.
+     * Only new and changed rows are written, and only by one of the replicas, see {@link CatalogSynchronizer}.
+     * The product search index and catalog snapshot are built from the synced catalog.
+     * <p>
+     * In the background by default: the server starts right away and readiness is held back by
+     * {@link CatalogHealthIndicator} until the catalog is loaded. If the sync fails, the liveness
+     * state turns BROKEN so the replica gets restarted, as a failed startup did before.
      *
      * @param args command line arguments passed to the application
-     * @throws Exception if an error occurs while reading the CSV file or loading products
+     * @throws Exception if an error occurs while reading the CSV file or syncing products, when not loaded in the background
      */
     @Override
     public void run(String... args) throws Exception {
-        Resource resource = resourceLoader.getResource("classpath:static/products.csv");
+        if (!loadInBackground) {
+            loadCatalog();
+            return;
+        }
+        Thread.ofVirtual().name("catalog-loader").start(() -> {
+            try {
+                loadCatalog();
+            } catch (ResponseStatusException e) {
+                System.err.println("Failed to load the catalog: " + e.getReason());
+                AvailabilityChangeEvent.publish(eventPublisher, this, LivenessState.BROKEN);
+            }
+        });
+    }
 
-        try (InputStream inputStream = resource.getInputStream();
-             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+    private void loadCatalog() {
+        Resource resource = resourceLoader.getResource(catalogLocation);
+        catalogHealthIndicator.loading(resource.getDescription());
 
-            productService.loadProductsFromCSV(reader);
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error reading CSV file", e);
+        try {
+            Optional<CatalogImport> catalogImport = catalogSynchronizer.synchronize(resource);
+            catalogImport.ifPresent(synced ->
+                    synced.getErrors().forEach(error -> System.err.println("Product rejected: " + error)));
+            if (catalogImport.isEmpty()) {
+                // Synced by another replica, the import did not build the search index and snapshot
+                catalogImporter.loadFromDatabase();
+            }
+            catalogHealthIndicator.loaded(resource.getDescription(), catalogImport);
+            System.out.println("Products loaded successfully!");
+        } catch (ResponseStatusException e) {
+            catalogHealthIndicator.failed(resource.getDescription(), e);
+            throw e;
         } catch (Exception e) {
+            catalogHealthIndicator.failed(resource.getDescription(), e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error while loading products", e);
         }
     }
 }
-
@@ -0,0 +1,106 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.ProductPage;
+import com.onlinemarketplace.marketplaceservice.repository.ProductPageRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The validated parameters of GET /products with parameters, shared by
+ * {@link MarketplaceServiceController#getAllProducts} and {@link ReactiveReadHandler}.
+ *
+ * @param paged      whether a page, size or cursor was given.
+ * @param sort       the sort, e.g. -price.
+ * @param sortField  the field sorted by, e.g. price.
+ * @param descending whether the sort is descending.
+ * @param requested  the fields to return.
+ * @param page       the page, null if not paged or paged by cursor.
+ * @param size       products per page.
+ * @param after      the decoded cursor, or null.
+ */
+record ProductPageQuery(boolean paged, String sort, String sortField, boolean descending, List<String> requested,
+                        Integer page, int size, ProductCursor after) {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * @return the validated parameters.
+     * @throws ResponseStatusException with 400 (BAD REQUEST) if a parameter is invalid.
+     */
+    static ProductPageQuery of(Integer page, Integer size, String cursor, String sort, List<String> fields) {
+        boolean paged = page != null || size != null || cursor != null;
+        String sortField = sort.startsWith("-") ? sort.substring(1) : sort;
+        if (!ProductPageRepository.SORT_FIELDS.contains(sortField)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be one of " + ProductPageRepository.SORT_FIELDS + ", optionally prefixed with -!");
+        }
+        List<String> requested = fields != null ? fields : ProductPageRepository.FIELDS;
+        if (requested.isEmpty() || !ProductPageRepository.FIELDS.containsAll(requested)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields must be among " + ProductPageRepository.FIELDS + "!");
+        }
+
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        if (paged) {
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE || (page != null && (page < 0 || page > Integer.MAX_VALUE / pageSize))) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be 0 or more and size between 1 and " + MAX_PAGE_SIZE + "!");
+            }
+            if (page != null && cursor != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Give either page or cursor, not both!");
+            }
+        }
+        ProductCursor after = cursor != null ? ProductCursor.decode(cursor, sort) : null;
+        return new ProductPageQuery(paged, sort, sortField, sort.startsWith("-"), requested, page, pageSize, after);
+    }
+
+    /**
+     * @return the fields to read: the requested ones, and when paged the id and sort field which make the next cursor.
+     */
+    List<String> selected() {
+        if (!paged) {
+            return requested;
+        }
+        List<String> selected = new ArrayList<>(requested);
+        selected.add("id");
+        selected.add(sortField);
+        return selected;
+    }
+
+    /**
+     * @return the products to skip.
+     */
+    int offset() {
+        return page != null ? page * size : 0;
+    }
+
+    /**
+     * @return the most products to read, one more than the page to tell whether there is a next one; null if not paged.
+     */
+    Integer limit() {
+        return paged ? size + 1 : null;
+    }
+
+    /**
+     * @param products the products read with {@link #selected}, {@link #offset} and {@link #limit}.
+     * @return the list of products, or the {@link ProductPage} if paged.
+     */
+    Object response(List<Map<String, Object>> products) {
+        if (!paged) {
+            return products;
+        }
+        String nextCursor = null;
+        if (products.size() > size) {
+            products = products.subList(0, size);
+            Map<String, Object> last = products.get(size - 1);
+            nextCursor = new ProductCursor(sort, (Integer) last.get("id"),
+                    sortField.equals("id") ? null : last.get(sortField)).encode();
+        }
+        for (Map<String, Object> product : products) {
+            product.keySet().retainAll(requested);
+        }
+        return new ProductPage(products, after != null ? null : (page != null ? page : 0), size, nextCursor);
+    }
+}
@@ -0,0 +1,87 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.ProductSearchResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Searches the product catalog, see {@link ProductSearchIndex}.
+ */
+@RestController
+public class ProductSearchController {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ProductSearchIndex productSearchIndex;
+    private final Timer searchTimer;
+
+    /**
+     * Constructor for ProductSearchController.
+     *
+     * @param productSearchIndex the index.
+     * @param meterRegistry      registry of the search latency.
+     */
+    public ProductSearchController(ProductSearchIndex productSearchIndex, MeterRegistry meterRegistry) {
+        this.productSearchIndex = productSearchIndex;
+        this.searchTimer = Timer.builder("marketplace.search")
+                .description("Duration of product searches in the in-memory index")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Searches the products by name and description.
+     * Handles GET requests to "/products/search", e.g. /products/search?q=laptop pro*&max_price=60000&in_stock=true&sort=-price.
+     * Returns a page of the matching products and their total count with a 200 (OK) status,
+     * or a 400 (BAD REQUEST) status if a parameter is invalid.
+     *
+     * @param q         terms which must all appear in the name or description; a term ending with * matches as prefix.
+     * @param min_price lowest price, inclusive.
+     * @param max_price highest price, inclusive.
+     * @param in_stock  only products in stock.
+     * @param sort      id, price or name, prefixed with - for descending order.
+     * @param page      the page, from 0.
+     * @param size      products per page, at most 100.
+     * @return ResponseEntity containing the page of products or an error message.
+     */
+    @GetMapping("/products/search")
+    public ResponseEntity<?> searchProducts(@RequestParam(required = false) String q,
+                                            @RequestParam(required = false) Integer min_price,
+                                            @RequestParam(required = false) Integer max_price,
+                                            @RequestParam(defaultValue = "false") boolean in_stock,
+                                            @RequestParam(defaultValue = "id") String sort,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size) {
+        try {
+            if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be 0 or more and size between 1 and " + MAX_PAGE_SIZE + "!");
+            }
+            if (min_price != null && max_price != null && min_price > max_price) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "min_price must not be above max_price!");
+            }
+            ProductSearchIndex.Query query = new ProductSearchIndex.Query(q, min_price, max_price, in_stock, parseSort(sort), page, size);
+            ProductSearchResult result = searchTimer.record(() -> productSearchIndex.search(query));
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
+        }
+    }
+
+    private static ProductSearchIndex.Sort parseSort(String sort) {
+        return switch (sort) {
+            case "id" -> ProductSearchIndex.Sort.ID;
+            case "-id" -> ProductSearchIndex.Sort.ID_DESC;
+            case "price" -> ProductSearchIndex.Sort.PRICE;
+            case "-price" -> ProductSearchIndex.Sort.PRICE_DESC;
+            case "name" -> ProductSearchIndex.Sort.NAME;
+            case "-name" -> ProductSearchIndex.Sort.NAME_DESC;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "sort must be one of id, price or name, optionally prefixed with -!");
+        };
+    }
+}
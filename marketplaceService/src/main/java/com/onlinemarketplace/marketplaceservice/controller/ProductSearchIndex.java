@@ -0,0 +1,586 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.model.ProductSearchResult;
+import com.onlinemarketplace.marketplaceservice.model.ProductStockChangedEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory inverted index over the name and description of the products, for GET /products/search.
+ * <p>
+ * Built from the database whenever the catalog is loaded or imported. The products are numbered in id
+ * order and kept in columns (ids, names, prices, ...); each term maps to the sorted numbers of the
+ * products containing it, and the products are presorted by price and by name. A query intersects the
+ * postings of its terms, filters the candidates on price and stock, and pages through them in the
+ * requested order without sorting more than the page needs. Searches without text use the price
+ * order and a count of the products in stock instead of a pass over the whole catalog.
+ * <p>
+ * Stock changes of this instance are applied once committed. The stock of all products is also
+ * re-read every marketplace.search.stock-refresh-ms, which picks up the orders of other replicas.
+ * Name, description and price only change through a catalog import, which rebuilds the index, also on
+ * the other replicas (see {@link CatalogVersion}).
+ */
+@Service
+public class ProductSearchIndex {
+    private static final String SELECT_PRODUCTS = "SELECT id, name, description, price, stock_quantity FROM Product ORDER BY id";
+    private static final String SELECT_STOCK = "SELECT id, stock_quantity FROM Product ORDER BY id";
+    private static final int FETCH_SIZE = 10_000;
+
+    /**
+     * A search: all products matching every term of the text, within the price range and in stock
+     * if asked, in the given order.
+     *
+     * @param text     terms to match in name or description; a term ending with * matches as prefix.
+     *                 Empty or null matches all products.
+     * @param minPrice lowest price, inclusive, or null.
+     * @param maxPrice highest price, inclusive, or null.
+     * @param inStock  only products with a stock quantity above 0.
+     * @param sort     the order of the results.
+     * @param page     the page, from 0.
+     * @param size     products per page.
+     */
+    public record Query(String text, Integer minPrice, Integer maxPrice, boolean inStock, Sort sort, int page, int size) {
+    }
+
+    /**
+     * Orders of the search results, ascending and descending by id, price or name.
+     */
+    public enum Sort {
+        ID, ID_DESC, PRICE, PRICE_DESC, NAME, NAME_DESC;
+
+        boolean descending() {
+            return this == ID_DESC || this == PRICE_DESC || this == NAME_DESC;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot = new Snapshot(new Columns());
+    // False until the catalog was loaded and while it is imported again
+    private volatile boolean built = false;
+
+    /**
+     * Constructor for ProductSearchIndex.
+     *
+     * @param jdbcTemplate reads the products, bypassing Hibernate and its caches.
+     */
+    public ProductSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Rebuilds the index from the products in the database and replaces the current one.
+     * Searches keep using the previous index until the new one is complete.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Columns columns = new Columns();
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_PRODUCTS);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, resultSet -> {
+            columns.add(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3),
+                    resultSet.getInt(4), resultSet.getInt(5));
+        });
+        snapshot = new Snapshot(columns);
+        built = true;
+        System.out.printf("Product search index built: %d products, %d terms in %d ms%n",
+                snapshot.ids.length, snapshot.terms.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Pauses the stock refresh until the next rebuild, while a catalog import writes the products.
+     */
+    public void catalogChanging() {
+        built = false;
+    }
+
+    /**
+     * Re-reads the stock of all products. Rebuilds the index instead if products were added or
+     * removed since it was built, e.g. by a catalog import on another replica still running.
+     */
+    @Scheduled(initialDelayString = "${marketplace.search.stock-refresh-ms:10000}",
+            fixedDelayString = "${marketplace.search.stock-refresh-ms:10000}")
+    public synchronized void refreshStock() {
+        if (!built) {
+            // Not while the catalog is being loaded, the products change with every chunk written
+            return;
+        }
+        Snapshot current = snapshot;
+        int[] position = {0};
+        boolean[] changed = {false};
+        try {
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(SELECT_STOCK);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, resultSet -> {
+                int doc = position[0]++;
+                if (changed[0] || doc >= current.ids.length || current.ids[doc] != resultSet.getInt(1)) {
+                    changed[0] = true;
+                    return;
+                }
+                current.setStock(doc, resultSet.getInt(2));
+            });
+            if (changed[0] || position[0] != current.ids.length) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            // The product table may not exist yet while the schema is being created
+            System.err.println("Failed to refresh the stock of the product search index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a committed stock change of this instance.
+     *
+     * @param event the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        Snapshot current = snapshot;
+        int doc = Arrays.binarySearch(current.ids, event.product_id());
+        if (doc >= 0) {
+            current.addStock(doc, event.delta());
+        }
+    }
+
+    /**
+     * Searches the products.
+     *
+     * @param query the search.
+     * @return the requested page of the matching products, and their total count.
+     */
+    public ProductSearchResult search(Query query) {
+        Snapshot current = snapshot;
+        long offset = (long) query.page() * query.size();
+        // Null if the text has no terms
+        int[] candidates = current.match(query.text());
+        Page page = candidates != null ? current.search(candidates, query, offset) : current.searchAll(query, offset);
+        List<Product> products = new ArrayList<>(page.docs().length);
+        for (int doc : page.docs()) {
+            products.add(current.product(doc));
+        }
+        return new ProductSearchResult(page.total(), query.page(), query.size(), products);
+    }
+
+    // Lower-case runs of letters and digits
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letterOrDigit = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    // The total count of matches and the numbers of the products on the requested page
+    private record Page(int total, int[] docs) {
+        static final Page EMPTY = new Page(0, new int[0]);
+    }
+
+    // The products while the index is being built, in id order
+    private static final class Columns {
+        private int size;
+        private int[] ids = new int[1024];
+        private String[] names = new String[1024];
+        private String[] descriptions = new String[1024];
+        private int[] prices = new int[1024];
+        private int[] stock = new int[1024];
+        private final Map<String, IntList> postings = new HashMap<>();
+
+        void add(int id, String name, String description, int price, int stockQuantity) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                descriptions = Arrays.copyOf(descriptions, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                stock = Arrays.copyOf(stock, capacity);
+            }
+            int doc = size++;
+            ids[doc] = id;
+            names[doc] = name;
+            descriptions[doc] = description;
+            prices[doc] = price;
+            stock[doc] = stockQuantity;
+            index(doc, name);
+            index(doc, description);
+        }
+
+        private void index(int doc, String text) {
+            for (String term : terms(text)) {
+                postings.computeIfAbsent(term, t -> new IntList()).addOnce(doc);
+            }
+        }
+    }
+
+    // Growable list of ascending product numbers
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addOnce(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // An immutable index, except for the stock
+    private static final class Snapshot {
+        private final int[] ids;
+        private final String[] names;
+        private final String[] descriptions;
+        private final int[] prices;
+        private final AtomicIntegerArray stock;
+        private final AtomicInteger inStockCount = new AtomicInteger();
+        // Sorted terms and the products containing each
+        private final String[] terms;
+        private final int[][] postings;
+        // Products by ascending price and name, and the position of each product in these orders
+        private final int[] byPrice;
+        private final int[] byName;
+        private final int[] priceRank;
+        private final int[] nameRank;
+
+        private Snapshot(Columns columns) {
+            int n = columns.size;
+            ids = Arrays.copyOf(columns.ids, n);
+            names = Arrays.copyOf(columns.names, n);
+            descriptions = Arrays.copyOf(columns.descriptions, n);
+            prices = Arrays.copyOf(columns.prices, n);
+            stock = new AtomicIntegerArray(Arrays.copyOf(columns.stock, n));
+            for (int doc = 0; doc < n; doc++) {
+                if (columns.stock[doc] > 0) {
+                    inStockCount.incrementAndGet();
+                }
+            }
+
+            terms = columns.postings.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            postings = new int[terms.length][];
+            for (int i = 0; i < terms.length; i++) {
+                postings[i] = columns.postings.get(terms[i]).toArray();
+            }
+
+            // Sorted as (price, number) pairs packed in longs, to avoid boxing a million Integers
+            long[] priceKeys = new long[n];
+            for (int doc = 0; doc < n; doc++) {
+                priceKeys[doc] = ((long) prices[doc] << 32) | doc;
+            }
+            Arrays.sort(priceKeys);
+            byPrice = new int[n];
+            for (int i = 0; i < n; i++) {
+                byPrice[i] = (int) priceKeys[i];
+            }
+            byName = IntStream.range(0, n).boxed()
+                    .sorted((a, b) -> {
+                        int byText = String.CASE_INSENSITIVE_ORDER.compare(nullToEmpty(names[a]), nullToEmpty(names[b]));
+                        return byText != 0 ? byText : Integer.compare(a, b);
+                    })
+                    .mapToInt(Integer::intValue).toArray();
+            priceRank = ranks(byPrice);
+            nameRank = ranks(byName);
+        }
+
+        // The products matching all terms of the text, ascending; null if the text has no terms
+        int[] match(String text) {
+            int[] result = null;
+            for (String word : text == null ? new String[0] : text.trim().split("\\s+")) {
+                List<String> wordTerms = terms(word);
+                for (int i = 0; i < wordTerms.size(); i++) {
+                    boolean prefix = i == wordTerms.size() - 1 && word.endsWith("*");
+                    int[] docs = prefix ? prefixPostings(wordTerms.get(i)) : termPostings(wordTerms.get(i));
+                    result = result == null ? docs : intersect(result, docs);
+                    if (result.length == 0) {
+                        return result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        private int[] termPostings(String term) {
+            int i = Arrays.binarySearch(terms, term);
+            return i >= 0 ? postings[i] : new int[0];
+        }
+
+        // Union of the postings of all terms starting with the prefix
+        private int[] prefixPostings(String prefix) {
+            int from = insertionPoint(prefix);
+            int to = insertionPoint(prefix + Character.MAX_VALUE);
+            if (to - from == 1) {
+                return postings[from];
+            }
+            long[] bits = new long[(ids.length + 63) / 64];
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                for (int doc : postings[i]) {
+                    long mask = 1L << doc;
+                    if ((bits[doc >>> 6] & mask) == 0) {
+                        bits[doc >>> 6] |= mask;
+                        count++;
+                    }
+                }
+            }
+            return toDocs(bits, count);
+        }
+
+        private int insertionPoint(String term) {
+            int i = Arrays.binarySearch(terms, term);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        // Text search: filters the candidates, then orders the ones up to the requested page
+        Page search(int[] candidates, Query query, long offset) {
+            int minPrice = query.minPrice() != null ? query.minPrice() : Integer.MIN_VALUE;
+            int maxPrice = query.maxPrice() != null ? query.maxPrice() : Integer.MAX_VALUE;
+            int[] matches = new int[candidates.length];
+            int count = 0;
+            for (int doc : candidates) {
+                if (passes(doc, minPrice, maxPrice, query.inStock())) {
+                    matches[count++] = doc;
+                }
+            }
+            return page(matches, count, query, offset);
+        }
+
+        /**
+         * Search without text, over the whole catalog: the price range is a slice of the products
+         * sorted by price, and the in-stock products are counted as the stock changes, so neither
+         * takes a pass over all products. The page is found by walking the requested order.
+         */
+        Page searchAll(Query query, long offset) {
+            int from = query.minPrice() != null ? pricePosition(query.minPrice()) : 0;
+            int to = query.maxPrice() != null ? pricePosition(query.maxPrice() + 1L) : ids.length;
+            if (from >= to) {
+                return Page.EMPTY;
+            }
+            int total;
+            if (!query.inStock()) {
+                total = to - from;
+            } else if (from == 0 && to == ids.length) {
+                total = inStockCount.get();
+            } else {
+                total = 0;
+                for (int i = from; i < to; i++) {
+                    if (stock.get(byPrice[i]) > 0) {
+                        total++;
+                    }
+                }
+            }
+            if (offset >= total) {
+                return new Page(total, new int[0]);
+            }
+            int limit = (int) Math.min(offset + query.size(), total);
+            int minPrice = query.minPrice() != null ? query.minPrice() : Integer.MIN_VALUE;
+            int maxPrice = query.maxPrice() != null ? query.maxPrice() : Integer.MAX_VALUE;
+            Sort sort = query.sort();
+
+            if (sort == Sort.PRICE || sort == Sort.PRICE_DESC) {
+                return new Page(total, walk(byPrice, from, to, sort.descending(), minPrice, maxPrice, query.inStock(), offset, limit));
+            }
+            if ((long) (to - from) * 16 < ids.length) {
+                // A narrow price range: cheaper to order its products than to walk the whole order
+                int[] matches = new int[to - from];
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    if (!query.inStock() || stock.get(byPrice[i]) > 0) {
+                        matches[count++] = byPrice[i];
+                    }
+                }
+                Arrays.sort(matches, 0, count);
+                return page(matches, count, query, offset);
+            }
+            int[] order = sort == Sort.NAME || sort == Sort.NAME_DESC ? byName : null;
+            return new Page(total, walk(order, 0, ids.length, sort.descending(), minPrice, maxPrice, query.inStock(), offset, limit));
+        }
+
+        /**
+         * The page of the matches, given in ascending product number. Few matches are ordered by
+         * sorting their positions in the requested order; otherwise the presorted products are walked
+         * until the page is complete.
+         */
+        private Page page(int[] matches, int count, Query query, long offset) {
+            if (offset >= count) {
+                return new Page(count, new int[0]);
+            }
+            int limit = (int) Math.min(offset + query.size(), count);
+            int[] docs = new int[limit - (int) offset];
+            Sort sort = query.sort();
+            if (sort == Sort.ID || sort == Sort.ID_DESC) {
+                for (int i = 0; i < docs.length; i++) {
+                    int position = (int) offset + i;
+                    docs[i] = matches[sort.descending() ? count - 1 - position : position];
+                }
+                return new Page(count, docs);
+            }
+            int[] order = sort == Sort.PRICE || sort == Sort.PRICE_DESC ? byPrice : byName;
+            int[] rank = sort == Sort.PRICE || sort == Sort.PRICE_DESC ? priceRank : nameRank;
+
+            if ((long) count * 16 < ids.length) {
+                int[] ranks = new int[count];
+                for (int i = 0; i < count; i++) {
+                    ranks[i] = rank[matches[i]];
+                }
+                Arrays.sort(ranks);
+                for (int i = 0; i < docs.length; i++) {
+                    int position = (int) offset + i;
+                    docs[i] = order[ranks[sort.descending() ? count - 1 - position : position]];
+                }
+                return new Page(count, docs);
+            }
+
+            long[] bits = new long[(ids.length + 63) / 64];
+            for (int i = 0; i < count; i++) {
+                bits[matches[i] >>> 6] |= 1L << matches[i];
+            }
+            int passed = 0;
+            int found = 0;
+            for (int i = 0; i < order.length && found < docs.length; i++) {
+                int doc = order[sort.descending() ? order.length - 1 - i : i];
+                if ((bits[doc >>> 6] & (1L << doc)) != 0 && passed++ >= offset) {
+                    docs[found++] = doc;
+                }
+            }
+            return new Page(count, docs);
+        }
+
+        // The products from offset to limit among those passing the filters, in the order (null for id order) between from and to
+        private int[] walk(int[] order, int from, int to, boolean descending, int minPrice, int maxPrice, boolean inStock,
+                           long offset, int limit) {
+            int[] docs = new int[limit - (int) offset];
+            int passed = 0;
+            int found = 0;
+            for (int i = 0; i < to - from && found < docs.length; i++) {
+                int position = descending ? to - 1 - i : from + i;
+                int doc = order != null ? order[position] : position;
+                if (passes(doc, minPrice, maxPrice, inStock) && passed++ >= offset) {
+                    docs[found++] = doc;
+                }
+            }
+            // Fewer if stock changed since the total was counted
+            return found == docs.length ? docs : Arrays.copyOf(docs, found);
+        }
+
+        private boolean passes(int doc, int minPrice, int maxPrice, boolean inStock) {
+            int price = prices[doc];
+            return price >= minPrice && price <= maxPrice && (!inStock || stock.get(doc) > 0);
+        }
+
+        // The first position in byPrice with a price of at least the given one
+        private int pricePosition(long price) {
+            int low = 0;
+            int high = byPrice.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (prices[byPrice[middle]] < price) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        void addStock(int doc, int delta) {
+            int after = stock.addAndGet(doc, delta);
+            countInStock(after - delta, after);
+        }
+
+        void setStock(int doc, int quantity) {
+            countInStock(stock.getAndSet(doc, quantity), quantity);
+        }
+
+        private void countInStock(int before, int after) {
+            if (before <= 0 && after > 0) {
+                inStockCount.incrementAndGet();
+            } else if (before > 0 && after <= 0) {
+                inStockCount.decrementAndGet();
+            }
+        }
+
+        Product product(int doc) {
+            Product product = new Product();
+            product.setId(ids[doc]);
+            product.setName(names[doc]);
+            product.setDescription(descriptions[doc]);
+            product.setPrice(prices[doc]);
+            product.setStock_quantity(stock.get(doc));
+            return product;
+        }
+
+        private static int[] intersect(int[] a, int[] b) {
+            int[] result = new int[Math.min(a.length, b.length)];
+            int i = 0, j = 0, count = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[count++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        private static int[] toDocs(long[] bits, int count) {
+            int[] docs = new int[count];
+            int next = 0;
+            for (int word = 0; word < bits.length; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    docs[next++] = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                }
+            }
+            return docs;
+        }
+
+        private static int[] ranks(int[] order) {
+            int[] ranks = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                ranks[order[i]] = i;
+            }
+            return ranks;
+        }
+
+        private static String nullToEmpty(String value) {
+            return value != null ? value : "";
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.Order;
+import com.onlinemarketplace.marketplaceservice.model.OrderItem;
+import com.onlinemarketplace.marketplaceservice.model.OrderStatus;
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.repository.ProductPageRepository;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Statement;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.observation.ServerRequestObservationContext;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The read endpoints of {@link MarketplaceServiceController} on the reactive stack, served by
+ * {@link ReactiveReadServer}: GET /products, /products/{product_id}, /orders/{order_id} and
+ * /orders/users/{user_id}, with the same responses and errors.
+ * <p>
+ * The catalog and products come from {@link ProductCatalogSnapshot} as on the servlet stack; everything
+ * else is read with R2DBC, from the primary, so the event-loop threads never wait for a JDBC connection.
+ * Products missing from the snapshot are read directly, without the coalescing of the servlet stack.
+ */
+public class ReactiveReadHandler {
+
+    private static final String SELECT_PRODUCTS = "SELECT id, name, description, price, stock_quantity FROM Product";
+    private static final String SELECT_ORDER = "SELECT order_id, user_id, total_price, status FROM orders WHERE order_id = $1";
+    private static final String SELECT_ORDER_ITEMS = "SELECT id, order_id, product_id, quantity, unit_price FROM OrderItem WHERE order_id = $1 ORDER BY id";
+    private static final String SELECT_USER_ORDERS = "SELECT order_id, user_id, total_price, status FROM orders WHERE user_id = $1";
+    private static final String SELECT_USER_ORDER_ITEMS = "SELECT i.id, i.order_id, i.product_id, i.quantity, i.unit_price " +
+            "FROM OrderItem i JOIN orders o ON o.order_id = i.order_id WHERE o.user_id = $1 ORDER BY i.id";
+    private static final String SELECT_ARCHIVED_ORDER = "SELECT order_id, user_id, total_price, status FROM orders_archive WHERE order_id = $1";
+    private static final String SELECT_ARCHIVED_ORDER_ITEMS = "SELECT id, order_id, product_id, quantity, unit_price FROM order_item_archive WHERE order_id = $1 ORDER BY id";
+    private static final String SELECT_ARCHIVED_USER_ORDERS = "SELECT order_id, user_id, total_price, status FROM orders_archive WHERE user_id = $1";
+    private static final String SELECT_ARCHIVED_USER_ORDER_ITEMS = "SELECT i.id, i.order_id, i.product_id, i.quantity, i.unit_price " +
+            "FROM order_item_archive i JOIN orders_archive o ON o.order_id = i.order_id WHERE o.user_id = $1 ORDER BY i.id";
+    private static final List<String> PAGE_PARAMS = List.of("page", "size", "cursor", "sort", "fields");
+    private static final OrderStatus.Codes STATUS_CODES = new OrderStatus.Codes();
+
+    private final ConnectionPool connectionPool;
+    private final ProductCatalogSnapshot productCatalogSnapshot;
+
+    /**
+     * Constructor for ReactiveReadHandler.
+     *
+     * @param connectionPool         the R2DBC connections to the database, closed by {@link #close}.
+     * @param productCatalogSnapshot the products as pre-serialized JSON.
+     */
+    public ReactiveReadHandler(ConnectionPool connectionPool, ProductCatalogSnapshot productCatalogSnapshot) {
+        this.connectionPool = connectionPool;
+        this.productCatalogSnapshot = productCatalogSnapshot;
+    }
+
+    /**
+     * Closes the connections.
+     */
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    /**
+     * @return the routes of the read endpoints.
+     */
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/products", this::getAllProducts)
+                .GET("/products/{product_id}", this::getProductById)
+                .GET("/orders/users/{user_id}", this::getOrdersByUserId)
+                .GET("/orders/{order_id}", this::getOrderById)
+                // Tags the timings with the route, as RouterFunctionMapping does in a WebFlux application
+                .filter((request, next) -> {
+                    request.attribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE).ifPresent(pattern ->
+                            ServerRequestObservationContext.findCurrent(request.exchange().getAttributes())
+                                    .ifPresent(context -> context.setPathPattern(pattern.toString())));
+                    return next.handle(request);
+                })
+                .build();
+    }
+
+    /**
+     * GET /products, see {@link MarketplaceServiceController#getProductCatalog} without parameters and
+     * {@link MarketplaceServiceController#getAllProducts} with.
+     */
+    Mono<ServerResponse> getAllProducts(ServerRequest request) {
+        MultiValueMap<String, String> params = request.queryParams();
+        if (PAGE_PARAMS.stream().noneMatch(params::containsKey)) {
+            return getProductCatalog(request);
+        }
+        try {
+            Integer page = intParam(request, "page");
+            Integer size = intParam(request, "size");
+            String cursor = request.queryParam("cursor").orElse(null);
+            String sort = request.queryParam("sort").orElse("id");
+            List<String> fields = params.containsKey("fields")
+                    ? params.get("fields").stream().flatMap(value -> Arrays.stream(value.split(","))).toList()
+                    : null;
+            boolean paged = page != null || size != null || cursor != null;
+            if (!paged && sort.equals("id") && fields == null) {
+                return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                        .body(query(SELECT_PRODUCTS + " ORDER BY id", List.of(), ReactiveReadHandler::product), Product.class);
+            }
+
+            ProductPageQuery query = ProductPageQuery.of(page, size, cursor, sort, fields);
+            return readPage(query)
+                    .flatMap(products -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(query.response(products)))
+                    .onErrorResume(e -> error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching Products!", e)));
+        } catch (ResponseStatusException e) {
+            return error(e);
+        }
+    }
+
+    // The snapshot may have to compress the catalog again after stock changes, off the event loop
+    private Mono<ServerResponse> getProductCatalog(ServerRequest request) {
+        String acceptEncoding = request.headers().firstHeader(HttpHeaders.ACCEPT_ENCODING);
+        return Mono.fromCallable(() -> productCatalogSnapshot.catalog(acceptEncoding))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(body -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                    if (body.encoding() != null) {
+                        response.header(HttpHeaders.CONTENT_ENCODING, body.encoding());
+                    }
+                    return response.bodyValue(body.bytes());
+                })
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                        .body(query(SELECT_PRODUCTS + " ORDER BY id", List.of(), ReactiveReadHandler::product), Product.class)));
+    }
+
+    // The columns of the page, as ProductPageRepositoryImpl selects them, in SQL
+    private Mono<List<Map<String, Object>>> readPage(ProductPageQuery query) {
+        // Only known names get into the query, ProductPageQuery validated them
+        List<String> selected = ProductPageRepository.FIELDS.stream().filter(query.selected()::contains).toList();
+        String sortField = query.sortField();
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", selected)).append(" FROM Product");
+        ProductCursor after = query.after();
+        List<Object> parameters = new ArrayList<>();
+        String comparison = query.descending() ? "<" : ">";
+        if (after != null) {
+            parameters.add(after.id());
+            if (sortField.equals("id")) {
+                sql.append(" WHERE id ").append(comparison).append(" $1");
+            } else {
+                parameters.add(after.value());
+                sql.append(" WHERE ").append(sortField).append(' ').append(comparison).append(" $2 OR (")
+                        .append(sortField).append(" = $2 AND id ").append(comparison).append(" $1)");
+            }
+        }
+        String direction = query.descending() ? " DESC" : " ASC";
+        sql.append(" ORDER BY ").append(sortField).append(direction);
+        if (!sortField.equals("id")) {
+            sql.append(", id").append(direction);
+        }
+        sql.append(" OFFSET ").append(query.offset()).append(" ROWS");
+        if (query.limit() != null) {
+            sql.append(" FETCH NEXT ").append(query.limit()).append(" ROWS ONLY");
+        }
+        return query(sql.toString(), parameters, row -> {
+            Map<String, Object> product = new LinkedHashMap<>();
+            for (String field : selected) {
+                product.put(field, row.get(field));
+            }
+            return product;
+        }).collectList();
+    }
+
+    /**
+     * GET /products/{product_id}, see {@link MarketplaceServiceController#getProductById}.
+     */
+    Mono<ServerResponse> getProductById(ServerRequest request) {
+        int product_id;
+        try {
+            product_id = intPathVariable(request, "product_id");
+        } catch (ResponseStatusException e) {
+            return error(e);
+        }
+        byte[] json = productCatalogSnapshot.product(product_id);
+        if (json != null) {
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(json);
+        }
+        return query(SELECT_PRODUCTS + " WHERE id = $1", List.of(product_id), ReactiveReadHandler::product)
+                .next()
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found!")))
+                .flatMap(product -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(product))
+                .onErrorResume(ResponseStatusException.class, this::error);
+    }
+
+    /**
+     * GET /orders/{order_id}, see {@link MarketplaceServiceController#getOrderById}.
+     */
+    Mono<ServerResponse> getOrderById(ServerRequest request) {
+        int order_id;
+        try {
+            order_id = intPathVariable(request, "order_id");
+        } catch (ResponseStatusException e) {
+            return error(e);
+        }
+        return readOrder(SELECT_ORDER, SELECT_ORDER_ITEMS, order_id)
+                .switchIfEmpty(Mono.defer(() -> readOrder(SELECT_ARCHIVED_ORDER, SELECT_ARCHIVED_ORDER_ITEMS, order_id)))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found!")))
+                .flatMap(order -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(order))
+                .onErrorResume(ResponseStatusException.class, this::error);
+    }
+
+    /**
+     * GET /orders/users/{user_id}, see {@link MarketplaceServiceController#getOrdersByUserId}.
+     */
+    Mono<ServerResponse> getOrdersByUserId(ServerRequest request) {
+        int user_id;
+        try {
+            user_id = intPathVariable(request, "user_id");
+        } catch (ResponseStatusException e) {
+            return error(e);
+        }
+        return Flux.concat(readOrders(SELECT_USER_ORDERS, SELECT_USER_ORDER_ITEMS, user_id),
+                        readOrders(SELECT_ARCHIVED_USER_ORDERS, SELECT_ARCHIVED_USER_ORDER_ITEMS, user_id))
+                .collectSortedList(Comparator.comparing(Order::getOrder_id))
+                .flatMap(orders -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(orders))
+                .onErrorResume(e -> error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while fetching orders!", e)));
+    }
+
+    // An order and its items, from the hot tier or the archive
+    private Mono<Order> readOrder(String orderSql, String itemsSql, int order_id) {
+        return query(orderSql, List.of(order_id), ReactiveReadHandler::order)
+                .next()
+                .flatMap(order -> query(itemsSql, List.of(order_id), ReactiveReadHandler::orderItem)
+                        .collectList()
+                        .map(items -> {
+                            order.setItems(items);
+                            return order;
+                        }));
+    }
+
+    // The orders of a user and their items, from the hot tier or the archive
+    private Flux<Order> readOrders(String ordersSql, String itemsSql, int user_id) {
+        return query(ordersSql, List.of(user_id), ReactiveReadHandler::order)
+                .collectList()
+                .flatMapMany(orders -> orders.isEmpty() ? Flux.empty() : query(itemsSql, List.of(user_id),
+                        row -> Map.entry(row.get("order_id", Integer.class), orderItem(row)))
+                        .collectMultimap(Map.Entry::getKey, Map.Entry::getValue)
+                        .flatMapIterable(items -> {
+                            for (Order order : orders) {
+                                order.setItems(new ArrayList<>(items.getOrDefault(order.getOrder_id(), List.of())));
+                            }
+                            return orders;
+                        }));
+    }
+
+    // Runs a statement on a connection of the pool, which is closed once the rows are mapped
+    private <T> Flux<T> query(String sql, List<Object> parameters, Function<Readable, T> mapper) {
+        return Flux.usingWhen(connectionPool.create(), connection -> {
+            Statement statement = connection.createStatement(sql);
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.bind(i, parameters.get(i));
+            }
+            return Flux.from(statement.execute()).flatMap(result -> result.map(mapper));
+        }, Connection::close);
+    }
+
+    private static Product product(Readable row) {
+        Product product = new Product();
+        product.setId(row.get("id", Integer.class));
+        product.setName(row.get("name", String.class));
+        product.setDescription(row.get("description", String.class));
+        product.setPrice(row.get("price", Integer.class));
+        product.setStock_quantity(row.get("stock_quantity", Integer.class));
+        return product;
+    }
+
+    private static Order order(Readable row) {
+        Order order = new Order();
+        order.setOrder_id(row.get("order_id", Integer.class));
+        order.setUser_id(row.get("user_id", Integer.class));
+        order.setTotal_price(row.get("total_price", Integer.class));
+        order.setStatus(STATUS_CODES.convertToEntityAttribute(row.get("status", Byte.class)));
+        return order;
+    }
+
+    private static OrderItem orderItem(Readable row) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(row.get("id", Integer.class));
+        orderItem.setProduct_id(row.get("product_id", Integer.class));
+        orderItem.setQuantity(row.get("quantity", Integer.class));
+        orderItem.setUnit_price(row.get("unit_price", Integer.class));
+        return orderItem;
+    }
+
+    private static Integer intParam(ServerRequest request, String name) {
+        return request.queryParam(name).map(value -> parseInt(name, value)).orElse(null);
+    }
+
+    private static int intPathVariable(ServerRequest request, String name) {
+        return parseInt(name, request.pathVariable(name));
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, name + " must be a number!");
+        }
+    }
+
+    // The message and status, as the servlet controller returns a caught ResponseStatusException
+    private Mono<ServerResponse> error(ResponseStatusException e) {
+        return ServerResponse.status(e.getStatusCode()).contentType(MediaType.TEXT_PLAIN).bodyValue(e.getMessage());
+    }
+}
@@ -0,0 +1,62 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Serves {@link ReactiveReadHandler} with Reactor Netty on its own port, next to the servlet server
+ * which keeps serving every endpoint. A few event-loop threads serve all connections: a request only
+ * holds one while it runs, not while it waits for the database or the client.
+ */
+public class ReactiveReadServer implements SmartLifecycle {
+
+    private final HttpHandler httpHandler;
+    private final int port;
+    private final int eventLoopThreads;
+    private volatile LoopResources loopResources;
+    private volatile DisposableServer server;
+
+    /**
+     * Constructor for ReactiveReadServer.
+     *
+     * @param httpHandler      the routes of {@link ReactiveReadHandler}.
+     * @param port             the port to listen on.
+     * @param eventLoopThreads the threads serving the connections.
+     */
+    public ReactiveReadServer(HttpHandler httpHandler, int port, int eventLoopThreads) {
+        this.httpHandler = httpHandler;
+        this.port = port;
+        this.eventLoopThreads = eventLoopThreads;
+    }
+
+    @Override
+    public void start() {
+        loopResources = LoopResources.create("reactive-read", 1, eventLoopThreads, true);
+        server = HttpServer.create()
+                .port(port)
+                .runOn(loopResources)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        System.out.printf("Reactive read server started on port %d with %d event-loop threads%n",
+                server.port(), eventLoopThreads);
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer current = server;
+        if (current != null) {
+            current.disposeNow();
+            loopResources.dispose();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+}
@@ -0,0 +1,388 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.common.outbox.OutboxConsumer;
+import com.onlinemarketplace.common.outbox.OutboxEvent;
+import com.onlinemarketplace.common.outbox.OutboxEventType;
+import com.onlinemarketplace.common.outbox.OutboxOffset;
+import com.onlinemarketplace.common.outbox.OutboxOffsetRepository;
+import com.onlinemarketplace.common.outbox.OutboxPublisher;
+import com.onlinemarketplace.marketplaceservice.model.OrderEvent;
+import com.onlinemarketplace.marketplaceservice.model.OrderStatus;
+import com.onlinemarketplace.marketplaceservice.model.OrdersDeliveredEvent;
+import com.onlinemarketplace.marketplaceservice.model.RevenueDay;
+import com.onlinemarketplace.marketplaceservice.model.TopProduct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the sales aggregates in product_sales and daily_sales from the ORDER_PLACED, ORDER_CANCELLED
+ * and ORDER_DELIVERED outbox events, so sales are never computed by scanning the orders.
+ * <p>
+ * Each batch of events is folded into per-key deltas in memory and applied with one JDBC batch MERGE per
+ * table, in the outbox relay's transaction: the aggregates and the consumer offset commit together, so
+ * every event is counted exactly once, also with replicas sharing the database. Deliveries only carry
+ * order IDs; their items are read from the orders, in either tier.
+ * <p>
+ * {@link #rebuild()} recomputes the aggregates from the orders, for recovery.
+ */
+@Service
+public class SalesAggregator implements OutboxConsumer {
+    private static final String NAME = "marketplace.sales-aggregates";
+    private static final int ORDER_ID_CHUNK_SIZE = 1000;
+    // Adds the deltas to the day's row, creating it if needed
+    private static final String ADD_PRODUCT_SALES = """
+            MERGE INTO product_sales t
+            USING (VALUES (CAST(? AS INTEGER), CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS BIGINT),
+                           CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT)))
+                AS s(product_id, sales_date, units_sold, revenue, units_cancelled, revenue_cancelled, units_delivered)
+            ON t.product_id = s.product_id AND t.sales_date = s.sales_date
+            WHEN MATCHED THEN UPDATE SET t.units_sold = t.units_sold + s.units_sold, t.revenue = t.revenue + s.revenue,
+                t.units_cancelled = t.units_cancelled + s.units_cancelled,
+                t.revenue_cancelled = t.revenue_cancelled + s.revenue_cancelled,
+                t.units_delivered = t.units_delivered + s.units_delivered
+            WHEN NOT MATCHED THEN INSERT (product_id, sales_date, units_sold, revenue, units_cancelled, revenue_cancelled, units_delivered)
+                VALUES (s.product_id, s.sales_date, s.units_sold, s.revenue, s.units_cancelled, s.revenue_cancelled, s.units_delivered)""";
+    private static final String ADD_DAILY_SALES = """
+            MERGE INTO daily_sales t
+            USING (VALUES (CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT),
+                           CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT)))
+                AS s(sales_date, orders_placed, revenue, orders_cancelled, revenue_cancelled, orders_delivered, revenue_delivered)
+            ON t.sales_date = s.sales_date
+            WHEN MATCHED THEN UPDATE SET t.orders_placed = t.orders_placed + s.orders_placed, t.revenue = t.revenue + s.revenue,
+                t.orders_cancelled = t.orders_cancelled + s.orders_cancelled,
+                t.revenue_cancelled = t.revenue_cancelled + s.revenue_cancelled,
+                t.orders_delivered = t.orders_delivered + s.orders_delivered,
+                t.revenue_delivered = t.revenue_delivered + s.revenue_delivered
+            WHEN NOT MATCHED THEN INSERT (sales_date, orders_placed, revenue, orders_cancelled, revenue_cancelled, orders_delivered, revenue_delivered)
+                VALUES (s.sales_date, s.orders_placed, s.revenue, s.orders_cancelled, s.revenue_cancelled, s.orders_delivered, s.revenue_delivered)""";
+    private static final String SELECT_DELIVERED_ITEMS = """
+            SELECT o.order_id, o.total_price, i.product_id, i.quantity
+            FROM orders o JOIN OrderItem i ON i.order_id = o.order_id WHERE o.order_id IN (:ids)
+            UNION ALL
+            SELECT o.order_id, o.total_price, i.product_id, i.quantity
+            FROM orders_archive o JOIN order_item_archive i ON i.order_id = o.order_id WHERE o.order_id IN (:ids)""";
+    private static final String SELECT_ALL_ITEMS = """
+            SELECT o.order_id, o.total_price, o.status, o.placed_at, o.status_changed_at, i.product_id, i.quantity, i.unit_price
+            FROM orders o JOIN OrderItem i ON i.order_id = o.order_id
+            UNION ALL
+            SELECT o.order_id, o.total_price, o.status, o.placed_at, o.status_changed_at, i.product_id, i.quantity, i.unit_price
+            FROM orders_archive o JOIN order_item_archive i ON i.order_id = o.order_id
+            ORDER BY 1""";
+    // Products no longer in the catalog are listed without a name
+    private static final String SELECT_TOP_PRODUCTS = """
+            SELECT s.product_id, p.name, SUM(s.units_sold) - SUM(s.units_cancelled) AS units,
+                SUM(s.revenue) - SUM(s.revenue_cancelled) AS net_revenue,
+                SUM(s.units_cancelled) AS cancelled, SUM(s.units_delivered) AS delivered
+            FROM product_sales s LEFT JOIN Product p ON p.id = s.product_id
+            WHERE s.sales_date BETWEEN ? AND ?
+            GROUP BY s.product_id, p.name ORDER BY %s DESC, s.product_id LIMIT ?""";
+    private static final String SELECT_REVENUE = """
+            SELECT sales_date, orders_placed, revenue, orders_cancelled, revenue_cancelled, orders_delivered, revenue_delivered
+            FROM daily_sales WHERE sales_date BETWEEN ? AND ? ORDER BY sales_date""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxPublisher outboxPublisher;
+    private final OutboxOffsetRepository outboxOffsetRepository;
+
+    /**
+     * Constructor for SalesAggregator.
+     *
+     * @param jdbcTemplate           reads and writes the aggregates.
+     * @param transactionManager     runs the rebuild in one transaction.
+     * @param outboxPublisher        reads the event payloads.
+     * @param outboxOffsetRepository the offset of this consumer, moved past the events a rebuild covers.
+     */
+    public SalesAggregator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           OutboxPublisher outboxPublisher, OutboxOffsetRepository outboxOffsetRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outboxPublisher = outboxPublisher;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Set<OutboxEventType> eventTypes() {
+        return Set.of(OutboxEventType.ORDER_PLACED, OutboxEventType.ORDER_CANCELLED, OutboxEventType.ORDER_DELIVERED);
+    }
+
+    @Override
+    public boolean transactional() {
+        return true;
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        Deltas deltas = new Deltas();
+        Map<Integer, LocalDate> deliveries = new HashMap<>();
+        for (OutboxEvent event : events) {
+            LocalDate day = LocalDate.ofInstant(event.getCreated_at(), ZoneOffset.UTC);
+            switch (event.getEvent_type()) {
+                case ORDER_PLACED -> deltas.placed(day, outboxPublisher.readPayload(event, OrderEvent.class));
+                case ORDER_CANCELLED -> deltas.cancelled(day, outboxPublisher.readPayload(event, OrderEvent.class));
+                case ORDER_DELIVERED -> {
+                    for (Integer order_id : outboxPublisher.readPayload(event, OrdersDeliveredEvent.class).order_ids()) {
+                        deliveries.put(order_id, day);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        if (!deliveries.isEmpty()) {
+            addDeliveries(deltas, deliveries);
+        }
+        apply(deltas);
+    }
+
+    // Reads the items of the delivered orders, a chunk of IDs per query
+    private void addDeliveries(Deltas deltas, Map<Integer, LocalDate> deliveries) {
+        List<Integer> order_ids = new ArrayList<>(deliveries.keySet());
+        Map<Integer, Integer> totalPrices = new HashMap<>();
+        Map<Integer, List<OrderEvent.Item>> items = new HashMap<>();
+        for (int from = 0; from < order_ids.size(); from += ORDER_ID_CHUNK_SIZE) {
+            List<Integer> chunk = order_ids.subList(from, Math.min(from + ORDER_ID_CHUNK_SIZE, order_ids.size()));
+            namedParameterJdbcTemplate.query(SELECT_DELIVERED_ITEMS, Map.of("ids", chunk), rs -> {
+                int order_id = rs.getInt("order_id");
+                totalPrices.put(order_id, rs.getInt("total_price"));
+                items.computeIfAbsent(order_id, k -> new ArrayList<>())
+                        .add(new OrderEvent.Item(rs.getInt("product_id"), rs.getInt("quantity"), null));
+            });
+        }
+        totalPrices.forEach((order_id, total_price) -> deltas.delivered(deliveries.get(order_id),
+                new OrderEvent(order_id, null, total_price, items.get(order_id))));
+    }
+
+    private void apply(Deltas deltas) {
+        List<Object[]> productRows = new ArrayList<>(deltas.products.size());
+        deltas.products.forEach((key, values) -> productRows.add(new Object[]{key.product_id(), key.sales_date(),
+                values[0], values[1], values[2], values[3], values[4]}));
+        List<Object[]> dayRows = new ArrayList<>(deltas.days.size());
+        deltas.days.forEach((day, values) -> dayRows.add(new Object[]{day,
+                values[0], values[1], values[2], values[3], values[4], values[5]}));
+        if (!productRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_PRODUCT_SALES, productRows);
+        }
+        if (!dayRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_DAILY_SALES, dayRows);
+        }
+    }
+
+    /**
+     * Recomputes the aggregates from all orders of both tiers, replacing the current ones, and moves this
+     * consumer past the events published so far. Holds the consumer's offset lock meanwhile, so that no
+     * batch of events is applied concurrently. Orders placed, cancelled or delivered while the rebuild
+     * reads the orders may be counted twice; run it when the marketplace is quiet.
+     *
+     * @return the number of orders read
+     */
+    public int rebuild() {
+        Integer orders = transactionTemplate.execute(status -> {
+            OutboxOffset offset = outboxOffsetRepository.findForUpdate(NAME).orElseGet(() -> {
+                OutboxOffset newOffset = new OutboxOffset();
+                newOffset.setConsumer(NAME);
+                return newOffset;
+            });
+            Long lastEventId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM outbox_event", Long.class);
+
+            Deltas deltas = new Deltas();
+            OrderRows rows = new OrderRows(deltas);
+            jdbcTemplate.query(SELECT_ALL_ITEMS, rows::add);
+            rows.flush();
+            jdbcTemplate.update("DELETE FROM product_sales");
+            jdbcTemplate.update("DELETE FROM daily_sales");
+            apply(deltas);
+
+            offset.setLast_event_id(Math.max(lastEventId, offset.getLast_event_id()));
+            offset.setGaps(null);
+            offset.setUpdated_at(Instant.now());
+            outboxOffsetRepository.save(offset);
+            return rows.orders;
+        });
+        System.out.println("Rebuilt the sales aggregates from " + orders + " orders");
+        return orders == null ? 0 : orders;
+    }
+
+    /**
+     * @param from        first day, inclusive
+     * @param to          last day, inclusive
+     * @param limit       how many products
+     * @param sortRevenue whether to rank by revenue instead of units
+     * @return the products with the most units, or revenue, sold and not cancelled in the range
+     */
+    public List<TopProduct> topProducts(LocalDate from, LocalDate to, int limit, boolean sortRevenue) {
+        return jdbcTemplate.query(SELECT_TOP_PRODUCTS.formatted(sortRevenue ? "net_revenue" : "units"),
+                (rs, rowNum) -> new TopProduct(rs.getInt("product_id"), rs.getString("name"), rs.getLong("units"),
+                        rs.getLong("net_revenue"), rs.getLong("cancelled"), rs.getLong("delivered")), from, to, limit);
+    }
+
+    /**
+     * @param from first day, inclusive
+     * @param to   last day, inclusive
+     * @return the days in the range with any order activity, in order
+     */
+    public List<RevenueDay> revenue(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(SELECT_REVENUE, (rs, rowNum) -> new RevenueDay(
+                rs.getObject("sales_date", LocalDate.class), rs.getLong("orders_placed"), rs.getLong("revenue"),
+                rs.getLong("orders_cancelled"), rs.getLong("revenue_cancelled"), rs.getLong("orders_delivered"),
+                rs.getLong("revenue_delivered"), rs.getLong("revenue") - rs.getLong("revenue_cancelled")), from, to);
+    }
+
+    /**
+     * Spreads the price paid for an order over its items, in proportion to their undiscounted price, so that
+     * the item revenues add up to the order's. Without unit prices (orders placed before they were recorded)
+     * the price is spread by quantity.
+     *
+     * @param total the price paid for the order
+     * @param items the items of the order
+     * @return the revenue of each item
+     */
+    static long[] allocate(int total, List<OrderEvent.Item> items) {
+        long[] weights = new long[items.size()];
+        long totalWeight = 0;
+        boolean priced = items.stream().allMatch(item -> item.unit_price() != null);
+        for (int i = 0; i < weights.length; i++) {
+            OrderEvent.Item item = items.get(i);
+            weights[i] = priced ? (long) item.unit_price() * item.quantity() : item.quantity();
+            totalWeight += weights[i];
+        }
+        long[] revenues = new long[weights.length];
+        long allocated = 0;
+        for (int i = 0; i < weights.length - 1; i++) {
+            revenues[i] = totalWeight == 0 ? 0 : total * weights[i] / totalWeight;
+            allocated += revenues[i];
+        }
+        if (weights.length > 0) {
+            revenues[weights.length - 1] = total - allocated;
+        }
+        return revenues;
+    }
+
+    /**
+     * Changes to the aggregates, per product and day (units sold, revenue, units cancelled, revenue cancelled,
+     * units delivered) and per day (orders placed, revenue, orders cancelled, revenue cancelled, orders
+     * delivered, revenue delivered).
+     */
+    private static class Deltas {
+        private final Map<ProductDay, long[]> products = new HashMap<>();
+        private final Map<LocalDate, long[]> days = new HashMap<>();
+
+        long[] product(Integer product_id, LocalDate day) {
+            return products.computeIfAbsent(new ProductDay(product_id, day), k -> new long[5]);
+        }
+
+        long[] day(LocalDate day) {
+            return days.computeIfAbsent(day, k -> new long[6]);
+        }
+
+        void placed(LocalDate day, OrderEvent order) {
+            day(day)[0]++;
+            day(day)[1] += order.total_price();
+            long[] revenues = allocate(order.total_price(), order.items());
+            for (int i = 0; i < revenues.length; i++) {
+                long[] product = product(order.items().get(i).product_id(), day);
+                product[0] += order.items().get(i).quantity();
+                product[1] += revenues[i];
+            }
+        }
+
+        void cancelled(LocalDate day, OrderEvent order) {
+            day(day)[2]++;
+            day(day)[3] += order.total_price();
+            long[] revenues = allocate(order.total_price(), order.items());
+            for (int i = 0; i < revenues.length; i++) {
+                long[] product = product(order.items().get(i).product_id(), day);
+                product[2] += order.items().get(i).quantity();
+                product[3] += revenues[i];
+            }
+        }
+
+        void delivered(LocalDate day, OrderEvent order) {
+            day(day)[4]++;
+            day(day)[5] += order.total_price();
+            for (OrderEvent.Item item : order.items()) {
+                product(item.product_id(), day)[4] += item.quantity();
+            }
+        }
+    }
+
+    private record ProductDay(Integer product_id, LocalDate sales_date) {
+    }
+
+    // Collects the item rows of each order, sorted by order ID, into deltas as if replaying its events
+    private static class OrderRows {
+        private final Deltas deltas;
+        private final OrderStatus.Codes codes = new OrderStatus.Codes();
+        private int orders;
+        private Integer order_id;
+        private int total_price;
+        private OrderStatus status;
+        private LocalDate placedDay;
+        private LocalDate changedDay;
+        private final List<OrderEvent.Item> items = new ArrayList<>();
+
+        OrderRows(Deltas deltas) {
+            this.deltas = deltas;
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            int id = rs.getInt("order_id");
+            if (order_id == null || id != order_id) {
+                flush();
+                order_id = id;
+                total_price = rs.getInt("total_price");
+                status = codes.convertToEntityAttribute(rs.getByte("status"));
+                changedDay = day(rs.getObject("status_changed_at", OffsetDateTime.class), null);
+                placedDay = day(rs.getObject("placed_at", OffsetDateTime.class), changedDay);
+            }
+            Integer unit_price = rs.getObject("unit_price", Integer.class);
+            items.add(new OrderEvent.Item(rs.getInt("product_id"), rs.getInt("quantity"), unit_price));
+        }
+
+        void flush() {
+            if (order_id == null) {
+                return;
+            }
+            OrderEvent order = new OrderEvent(order_id, null, total_price, List.copyOf(items));
+            deltas.placed(placedDay, order);
+            if (status == OrderStatus.CANCELLED) {
+                deltas.cancelled(changedDay, order);
+            } else if (status == OrderStatus.DELIVERED) {
+                deltas.delivered(changedDay, order);
+            }
+            orders++;
+            items.clear();
+            order_id = null;
+        }
+
+        // Orders from before the timestamps were recorded count as of today
+        private static LocalDate day(OffsetDateTime timestamp, LocalDate fallback) {
+            if (timestamp != null) {
+                return LocalDate.ofInstant(timestamp.toInstant(), ZoneOffset.UTC);
+            }
+            return fallback != null ? fallback : LocalDate.now(ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Serves the sales aggregates maintained by {@link SalesAggregator}.
+ * Days are UTC dates; without a range the last 30 days up to today are returned.
+ */
+@RestController
+public class SalesAnalyticsController {
+    private static final int MAX_LIMIT = 100;
+    private static final int DEFAULT_DAYS = 30;
+
+    private final SalesAggregator salesAggregator;
+
+    /**
+     * Constructor for SalesAnalyticsController.
+     *
+     * @param salesAggregator the aggregates.
+     */
+    public SalesAnalyticsController(SalesAggregator salesAggregator) {
+        this.salesAggregator = salesAggregator;
+    }
+
+    /**
+     * Returns the best selling products, e.g. /analytics/top-products?from=2026-10-01&to=2026-10-31&limit=10&sort=revenue.
+     * Units and revenue are net of cancellations.
+     *
+     * @param from  first day, inclusive.
+     * @param to    last day, inclusive, by default today.
+     * @param limit how many products, at most 100.
+     * @param sort  units or revenue.
+     * @return ResponseEntity containing the products with a 200 (OK) status, or a 400 (BAD REQUEST) status
+     *         if a parameter is invalid.
+     */
+    @GetMapping("/analytics/top-products")
+    public ResponseEntity<?> getTopProducts(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(defaultValue = "10") int limit,
+                                            @RequestParam(defaultValue = "units") String sort) {
+        try {
+            if (limit < 1 || limit > MAX_LIMIT) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT + "!");
+            }
+            if (!sort.equals("units") && !sort.equals("revenue")) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be units or revenue!");
+            }
+            LocalDate last = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+            LocalDate first = from != null ? from : last.minusDays(DEFAULT_DAYS - 1);
+            validateRange(first, last);
+            return new ResponseEntity<>(salesAggregator.topProducts(first, last, limit, sort.equals("revenue")), HttpStatus.OK);
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
+        }
+    }
+
+    /**
+     * Returns the orders and revenue per day, e.g. /analytics/revenue?from=2026-10-01&to=2026-10-31.
+     * Days without any order activity are left out.
+     *
+     * @param from first day, inclusive.
+     * @param to   last day, inclusive, by default today.
+     * @return ResponseEntity containing the days with a 200 (OK) status, or a 400 (BAD REQUEST) status
+     *         if the range is invalid.
+     */
+    @GetMapping("/analytics/revenue")
+    public ResponseEntity<?> getRevenue(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            LocalDate last = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+            LocalDate first = from != null ? from : last.minusDays(DEFAULT_DAYS - 1);
+            validateRange(first, last);
+            return new ResponseEntity<>(salesAggregator.revenue(first, last), HttpStatus.OK);
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
+        }
+    }
+
+    /**
+     * Recomputes the aggregates from all orders, for recovery; see {@link SalesAggregator#rebuild()}.
+     *
+     * @return ResponseEntity with a 200 (OK) status once rebuilt.
+     */
+    @PostMapping("/admin/analytics/rebuild")
+    public ResponseEntity<?> rebuild() {
+        int orders = salesAggregator.rebuild();
+        return new ResponseEntity<>("Rebuilt the sales aggregates from " + orders + " orders.", HttpStatus.OK);
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to!");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A DELIVERED or CANCELLED order moved out of the orders table by the
+ * {@link com.onlinemarketplace.marketplaceservice.controller.OrderArchiver}, with the same ID.
+ * Archived orders never change again; they are read through {@link #toOrder()}.
+ */
+@Entity
+@Table(name = "orders_archive", indexes = @Index(name = "orders_archive_user_id", columnList = "user_id"))
+public class ArchivedOrder {
+
+    @Id
+    private Integer order_id;
+    private Integer user_id;
+    private Integer total_price;
+    @Convert(converter = OrderStatus.Codes.class)
+    private OrderStatus status;
+    private Instant placed_at;
+    private Instant status_changed_at;
+    private Instant archived_at;
+    @OneToMany(mappedBy = "order")
+    private List<ArchivedOrderItem> items;
+
+    /**
+     * @return the order as GET /orders/{order_id} shows orders which are not archived
+     */
+    public Order toOrder() {
+        Order order = new Order();
+        order.setOrder_id(order_id);
+        order.setUser_id(user_id);
+        order.setTotal_price(total_price);
+        order.setStatus(status);
+        order.setItems(items.stream().map(ArchivedOrderItem::toOrderItem).toList());
+        return order;
+    }
+
+    // Getters
+    public Integer getOrder_id() {
+        return order_id;
+    }
+
+    public Integer getUser_id() {
+        return user_id;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public Instant getArchived_at() {
+        return archived_at;
+    }
+}
@@ -0,0 +1,29 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import jakarta.persistence.*;
+
+/**
+ * An item of an {@link ArchivedOrder}, with the ID it had in the OrderItem table.
+ */
+@Entity
+@Table(name = "order_item_archive", indexes = @Index(name = "order_item_archive_order_id", columnList = "order_id"))
+public class ArchivedOrderItem {
+
+    @Id
+    private Integer id;
+    @ManyToOne
+    @JoinColumn(name = "order_id", nullable = false)
+    private ArchivedOrder order;
+    private Integer product_id;
+    private Integer quantity;
+    private Integer unit_price;
+
+    OrderItem toOrderItem() {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(id);
+        orderItem.setProduct_id(product_id);
+        orderItem.setQuantity(quantity);
+        orderItem.setUnit_price(unit_price);
+        return orderItem;
+    }
+}
@@ -0,0 +1,123 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and outcome of a catalog import.
+ * Returned by the /admin/catalog endpoints and updated while the import runs, so it can be polled.
+ */
+public class CatalogImport {
+
+    /**
+     * RUNNING until all rows are written, then COMPLETED, or FAILED if the import was aborted.
+     * Rejected rows do not fail an import, they are skipped and listed in the errors.
+     */
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    // Only the first errors are kept, a broken catalog of millions of rows would otherwise fill the heap
+    private static final int MAX_ERRORS = 100;
+
+    private final String source;
+    private final Instant started_at = Instant.now();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsImported = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong rowsUnchanged = new AtomicLong();
+    private final List<String> errors = new ArrayList<>();
+    private volatile Status status = Status.RUNNING;
+    private volatile String failure;
+    private volatile Instant completed_at;
+
+    public CatalogImport(String source) {
+        this.source = source;
+    }
+
+    public void rowsRead(long count) {
+        rowsRead.addAndGet(count);
+    }
+
+    public void rowsImported(long count) {
+        rowsImported.addAndGet(count);
+    }
+
+    public void rowsUnchanged(long count) {
+        rowsUnchanged.addAndGet(count);
+    }
+
+    /**
+     * Records rejected rows.
+     *
+     * @param messages the reason for each rejected row
+     */
+    public synchronized void rowsRejected(List<String> messages) {
+        rowsRejected.addAndGet(messages.size());
+        for (String message : messages) {
+            if (errors.size() >= MAX_ERRORS) {
+                break;
+            }
+            errors.add(message);
+        }
+    }
+
+    public void complete() {
+        completed_at = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    public void fail(String failure) {
+        this.failure = failure;
+        completed_at = Instant.now();
+        status = Status.FAILED;
+    }
+
+    // Getters
+    public String getSource() {
+        return source;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getRows_read() {
+        return rowsRead.get();
+    }
+
+    public long getRows_imported() {
+        return rowsImported.get();
+    }
+
+    public long getRows_unchanged() {
+        return rowsUnchanged.get();
+    }
+
+    public long getRows_rejected() {
+        return rowsRejected.get();
+    }
+
+    public long getRows_per_second() {
+        Instant end = completed_at != null ? completed_at : Instant.now();
+        long millis = Math.max(Duration.between(started_at, end).toMillis(), 1);
+        return rowsRead.get() * 1000 / millis;
+    }
+
+    public synchronized List<String> getErrors() {
+        return List.copyOf(errors);
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public Instant getStarted_at() {
+        return started_at;
+    }
+
+    public Instant getCompleted_at() {
+        return completed_at;
+    }
+}
@@ -0,0 +1,36 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Hash of the catalog row a product was last synced from.
+ * Mapped so that the table is created with the schema; the catalog sync reads and writes it in
+ * JDBC batches.
+ */
+@Entity
+@Table(name = "catalog_row_hash")
+public class CatalogRowHash {
+
+    @Id
+    private Integer product_id;
+    private String row_hash;
+
+    // Getter and Setters
+    public Integer getProduct_id() {
+        return product_id;
+    }
+
+    public void setProduct_id(Integer product_id) {
+        this.product_id = product_id;
+    }
+
+    public String getRow_hash() {
+        return row_hash;
+    }
+
+    public void setRow_hash(String row_hash) {
+        this.row_hash = row_hash;
+    }
+}
@@ -0,0 +1,77 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * Coordinates the catalog sync between marketplace replicas sharing the database.
+ * The replica holding the lease (owner, until lease_until) syncs the catalog; when done it records
+ * the hash of the synced file as ready marker, which the waiting replicas poll for.
+ * <p>
+ * catalog_version counts the catalog imports and syncs of all replicas, so that the others notice
+ * the products changed, see {@link com.onlinemarketplace.marketplaceservice.controller.CatalogVersion}.
+ */
+@Entity
+@Table(name = "catalog_sync_lease")
+public class CatalogSyncLease {
+
+    @Id
+    private String name;
+    private String owner;
+    private Instant lease_until;
+    private String synced_hash;
+    private Instant synced_at;
+    private Long catalog_version;
+
+    // Getter and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Instant getLease_until() {
+        return lease_until;
+    }
+
+    public void setLease_until(Instant lease_until) {
+        this.lease_until = lease_until;
+    }
+
+    public String getSynced_hash() {
+        return synced_hash;
+    }
+
+    public void setSynced_hash(String synced_hash) {
+        this.synced_hash = synced_hash;
+    }
+
+    public Instant getSynced_at() {
+        return synced_at;
+    }
+
+    public void setSynced_at(Instant synced_at) {
+        this.synced_at = synced_at;
+    }
+
+    public Long getCatalog_version() {
+        return catalog_version;
+    }
+
+    public void setCatalog_version(Long catalog_version) {
+        this.catalog_version = catalog_version;
+    }
+}
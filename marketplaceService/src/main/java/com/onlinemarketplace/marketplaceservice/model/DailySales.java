@@ -0,0 +1,26 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDate;
+
+/**
+ * Orders and revenue of one day (UTC), maintained from the order events by
+ * {@link com.onlinemarketplace.marketplaceservice.controller.SalesAggregator}.
+ * Mapped so that the table is created with the schema; it is read and written with JDBC.
+ */
+@Entity
+@Table(name = "daily_sales")
+public class DailySales {
+
+    @Id
+    private LocalDate sales_date;
+    private long orders_placed;
+    private long revenue;
+    private long orders_cancelled;
+    private long revenue_cancelled;
+    private long orders_delivered;
+    private long revenue_delivered;
+}
@@ -0,0 +1,45 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+/**
+ * Represents the response of the account service to a discount claim.
+ * The claim returns the user and tells whether this caller won the first-order discount.
+ */
+public class DiscountClaim {
+
+    private User user;
+
+    /**
+     * True if this claim flipped the user's discount from available to availed.
+     */
+    private Boolean discount_claimed = false;
+
+    /**
+     * Token to pass back to the account service to reset this claim, null if the claim was lost.
+     */
+    private String claim_token;
+
+    // Getters and Setters
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Boolean getDiscount_claimed() {
+        return discount_claimed;
+    }
+
+    public void setDiscount_claimed(Boolean discount_claimed) {
+        this.discount_claimed = discount_claimed;
+    }
+
+    public String getClaim_token() {
+        return claim_token;
+    }
+
+    public void setClaim_token(String claim_token) {
+        this.claim_token = claim_token;
+    }
+}
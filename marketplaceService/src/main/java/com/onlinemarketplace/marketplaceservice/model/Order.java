@@ -2,6 +2,7 @@ package com.onlinemarketplace.marketplaceservice.model;
 
 import jakarta.persistence.*;
 
+import java.time.Instant;
 import java.util.List;
 
 @Entity
@@ -24,7 +25,14 @@ public class Order {
     private Integer order_id;
     private Integer user_id;
     private Integer total_price;
-    private String status;
+    @Convert(converter = OrderStatus.Codes.class)
+    private OrderStatus status;
+    /**
+     * When the order was placed, and when it was placed or last changed status, set by the database on
+     * transitions. Terminal orders are archived by age, see {@link ArchivedOrder}. Not part of the JSON.
+     */
+    private Instant placed_at;
+    private Instant status_changed_at;
     /**
      * The list of items associated with this order.
      * This establishes a one-to-many relationship with the {@link OrderItem} entity.
@@ -59,11 +67,11 @@ public class Order {
         this.total_price = total_price;
     }
 
-    public String getStatus() {
+    public OrderStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(OrderStatus status) {
         this.status = status;
     }
 
@@ -76,6 +84,12 @@ public class Order {
         items.forEach(item -> item.setOrder(this));
     }
 
+    @PrePersist
+    void onPersist() {
+        placed_at = Instant.now();
+        status_changed_at = placed_at;
+    }
+
     @Override
     public String toString() {
         return "Order{" +
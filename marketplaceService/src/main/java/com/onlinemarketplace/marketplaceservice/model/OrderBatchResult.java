@@ -0,0 +1,42 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Outcome of one order of POST /orders/batch: the placed order with status 201, or the status and
+ * message POST /orders would have answered for it.
+ */
+public class OrderBatchResult {
+
+    private final int status;
+    private final Order order;
+    private final String error;
+
+    private OrderBatchResult(int status, Order order, String error) {
+        this.status = status;
+        this.order = order;
+        this.error = error;
+    }
+
+    public static OrderBatchResult placed(Order order) {
+        return new OrderBatchResult(HttpStatus.CREATED.value(), order, null);
+    }
+
+    public static OrderBatchResult failed(ResponseStatusException e) {
+        return new OrderBatchResult(e.getStatusCode().value(), null, e.getMessage());
+    }
+
+    // Getters
+    public int getStatus() {
+        return status;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
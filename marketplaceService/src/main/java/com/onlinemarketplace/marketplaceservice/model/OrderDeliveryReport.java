@@ -0,0 +1,53 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of PUT /orders/deliver: how many of the given orders were delivered, and which were skipped and why.
+ */
+public class OrderDeliveryReport {
+
+    private int delivered;
+    private final List<Skipped> skipped = new ArrayList<>();
+
+    public void delivered(int count) {
+        delivered += count;
+    }
+
+    public void skip(Integer order_id, String reason) {
+        skipped.add(new Skipped(order_id, reason));
+    }
+
+    // Getters
+    public int getDelivered() {
+        return delivered;
+    }
+
+    public List<Skipped> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * An order which was not delivered.
+     */
+    public static class Skipped {
+
+        private final Integer order_id;
+        private final String reason;
+
+        private Skipped(Integer order_id, String reason) {
+            this.order_id = order_id;
+            this.reason = reason;
+        }
+
+        // Getters
+        public Integer getOrder_id() {
+            return order_id;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import java.util.List;
+
+/**
+ * Payload of the ORDER_PLACED and ORDER_CANCELLED outbox events.
+ *
+ * @param order_id    the ID of the order
+ * @param user_id     the ID of the user who placed the order
+ * @param total_price the price paid for the order, after discount
+ * @param items       the ordered products, quantities and unit prices before discount
+ */
+public record OrderEvent(Integer order_id, Integer user_id, Integer total_price, List<Item> items) {
+
+    public record Item(Integer product_id, Integer quantity, Integer unit_price) {
+    }
+
+    public static OrderEvent of(Order order) {
+        return new OrderEvent(order.getOrder_id(), order.getUser_id(), order.getTotal_price(),
+                order.getItems().stream()
+                        .map(item -> new Item(item.getProduct_id(), item.getQuantity(), item.getUnit_price()))
+                        .toList());
+    }
+}
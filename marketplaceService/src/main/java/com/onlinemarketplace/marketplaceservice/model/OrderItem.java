@@ -26,6 +26,10 @@ public class OrderItem {
     private Order order;
     private Integer product_id;
     private Integer quantity;
+    /**
+     * The price of one unit when the order was placed, before any discount.
+     */
+    private Integer unit_price;
 
     // Implementing the getOrder() method may lead to infinite recursion during JSON serialization
     // as it references the parent Order object. So, omitted.
@@ -57,4 +61,12 @@ public class OrderItem {
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
     }
+
+    public Integer getUnit_price() {
+        return unit_price;
+    }
+
+    public void setUnit_price(Integer unit_price) {
+        this.unit_price = unit_price;
+    }
 }
@@ -0,0 +1,72 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of an {@link Order}.
+ * <pre>
+ * PLACED -> DELIVERED
+ *        -> CANCELLING -> CANCELLED
+ *                      -> PLACED (the cancellation failed)
+ * </pre>
+ * Stored as a one-byte code, see {@link Codes}. Transitions are made by
+ * {@link com.onlinemarketplace.marketplaceservice.repository.OrderRepository#transition}, a conditional
+ * UPDATE which only one of concurrent requests wins, on any replica.
+ */
+public enum OrderStatus {
+    PLACED(1),
+    CANCELLING(2),
+    CANCELLED(3),
+    DELIVERED(4);
+
+    private final byte code;
+
+    OrderStatus(int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * @param next the status to move to
+     * @return whether an order may move from this status to the next
+     */
+    public boolean canBecome(OrderStatus next) {
+        return successors().contains(next);
+    }
+
+    private Set<OrderStatus> successors() {
+        return switch (this) {
+            case PLACED -> EnumSet.of(DELIVERED, CANCELLING);
+            case CANCELLING -> EnumSet.of(CANCELLED, PLACED);
+            case CANCELLED, DELIVERED -> EnumSet.noneOf(OrderStatus.class);
+        };
+    }
+
+    /**
+     * Maps the statuses to their codes in the status column.
+     */
+    @Converter
+    public static class Codes implements AttributeConverter<OrderStatus, Byte> {
+
+        @Override
+        public Byte convertToDatabaseColumn(OrderStatus status) {
+            return status != null ? status.code : null;
+        }
+
+        @Override
+        public OrderStatus convertToEntityAttribute(Byte code) {
+            if (code == null) {
+                return null;
+            }
+            for (OrderStatus status : values()) {
+                if (status.code == code) {
+                    return status;
+                }
+            }
+            throw new IllegalArgumentException("Unknown order status code " + code);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import java.util.List;
+
+/**
+ * Payload of the ORDER_DELIVERED outbox event, one per delivery request.
+ * Only the IDs are published, to keep deliveries single statements; consumers read the orders.
+ *
+ * @param order_ids the IDs of the orders moved from PLACED to DELIVERED
+ */
+public record OrdersDeliveredEvent(List<Integer> order_ids) {
+}
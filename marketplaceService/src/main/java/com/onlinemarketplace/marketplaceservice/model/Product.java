@@ -1,11 +1,25 @@
 package com.onlinemarketplace.marketplaceservice.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
-
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+/**
+ * A product of the catalog, kept in the second-level cache region {@value #CACHE_REGION}.
+ * Stock updates evict the product, but the cached stock quantity can lag behind other marketplace
+ * instances until the entry expires (see ehcache.xml). Order validation therefore always reads the
+ * stock from the database and the name and price from {@link ProductDetails}.
+ */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
 public class Product {
 
+    public static final String CACHE_REGION = "product";
+
+
     @Id
     private Integer id;
     private String name;
@@ -0,0 +1,47 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Read-only view of the read-mostly columns of {@link Product}, cached in the region
+ * {@value #CACHE_REGION}. Stock updates do not touch this region, so order validation can take
+ * names and prices from memory for every order. Evicted when the catalog is loaded.
+ */
+@Entity
+@Immutable
+@Table(name = "Product")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = ProductDetails.CACHE_REGION)
+public class ProductDetails {
+
+    public static final String CACHE_REGION = "product-details";
+
+    @Id
+    private Integer id;
+    private String name;
+    private String description;
+    private Integer price;
+
+    // Getters
+    public Integer getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Integer getPrice() {
+        return price;
+    }
+}
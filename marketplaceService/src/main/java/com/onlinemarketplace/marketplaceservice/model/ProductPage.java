@@ -0,0 +1,40 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of GET /products. Each product holds only the requested fields. next_cursor continues
+ * after the last product of this page, and is null on the last page.
+ */
+public class ProductPage {
+
+    private final List<Map<String, Object>> products;
+    private final Integer page;
+    private final int size;
+    private final String next_cursor;
+
+    public ProductPage(List<Map<String, Object>> products, Integer page, int size, String next_cursor) {
+        this.products = products;
+        this.page = page;
+        this.size = size;
+        this.next_cursor = next_cursor;
+    }
+
+    // Getters
+    public List<Map<String, Object>> getProducts() {
+        return products;
+    }
+
+    public Integer getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getNext_cursor() {
+        return next_cursor;
+    }
+}
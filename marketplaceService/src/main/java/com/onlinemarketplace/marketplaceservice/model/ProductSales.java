@@ -0,0 +1,35 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Sales of one product on one day (UTC), maintained from the order events by
+ * {@link com.onlinemarketplace.marketplaceservice.controller.SalesAggregator}.
+ * Units and revenue are counted on the day the order was placed, cancellations and deliveries on the
+ * day they happened. Revenue is what was paid, the order's discount spread over its items.
+ * Mapped so that the table is created with the schema; it is read and written with JDBC.
+ */
+@Entity
+@Table(name = "product_sales")
+@IdClass(ProductSales.Key.class)
+public class ProductSales {
+
+    @Id
+    private Integer product_id;
+    @Id
+    private LocalDate sales_date;
+    private long units_sold;
+    private long revenue;
+    private long units_cancelled;
+    private long revenue_cancelled;
+    private long units_delivered;
+
+    public record Key(Integer product_id, LocalDate sales_date) implements Serializable {
+    }
+}
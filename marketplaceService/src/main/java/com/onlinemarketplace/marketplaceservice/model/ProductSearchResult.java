@@ -0,0 +1,38 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import java.util.List;
+
+/**
+ * A page of the products matching a search of GET /products/search.
+ */
+public class ProductSearchResult {
+
+    private final long total;
+    private final int page;
+    private final int size;
+    private final List<Product> products;
+
+    public ProductSearchResult(long total, int page, int size, List<Product> products) {
+        this.total = total;
+        this.page = page;
+        this.size = size;
+        this.products = products;
+    }
+
+    // Getters
+    public long getTotal() {
+        return total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+}
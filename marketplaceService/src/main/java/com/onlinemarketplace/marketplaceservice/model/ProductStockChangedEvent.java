@@ -0,0 +1,11 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+/**
+ * Published when this instance changes the stock of a product, delivered to listeners once the
+ * changing transaction committed.
+ *
+ * @param product_id the product whose stock changed
+ * @param delta      the change of its stock quantity, negative for a decrease
+ */
+public record ProductStockChangedEvent(Integer product_id, int delta) {
+}
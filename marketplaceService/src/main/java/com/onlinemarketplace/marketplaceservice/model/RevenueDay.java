@@ -0,0 +1,19 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+import java.time.LocalDate;
+
+/**
+ * A day of GET /analytics/revenue.
+ *
+ * @param date              the day, UTC
+ * @param orders_placed     orders placed that day
+ * @param revenue           revenue of the orders placed that day
+ * @param orders_cancelled  orders cancelled that day
+ * @param revenue_cancelled revenue refunded for the orders cancelled that day
+ * @param orders_delivered  orders delivered that day
+ * @param revenue_delivered revenue of the orders delivered that day
+ * @param net_revenue       revenue less revenue refunded
+ */
+public record RevenueDay(LocalDate date, long orders_placed, long revenue, long orders_cancelled,
+                         long revenue_cancelled, long orders_delivered, long revenue_delivered, long net_revenue) {
+}
@@ -0,0 +1,15 @@
+package com.onlinemarketplace.marketplaceservice.model;
+
+/**
+ * A product of GET /analytics/top-products.
+ *
+ * @param product_id      the ID of the product
+ * @param name            the name of the product, null if it no longer exists
+ * @param units_sold      units ordered and not cancelled
+ * @param revenue         revenue of the units ordered and not cancelled
+ * @param units_cancelled units ordered and cancelled
+ * @param units_delivered units delivered
+ */
+public record TopProduct(Integer product_id, String name, long units_sold, long revenue,
+                         long units_cancelled, long units_delivered) {
+}
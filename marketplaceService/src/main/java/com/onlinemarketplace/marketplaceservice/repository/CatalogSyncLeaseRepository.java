@@ -0,0 +1,47 @@
+package com.onlinemarketplace.marketplaceservice.repository;
+
+import com.onlinemarketplace.marketplaceservice.model.CatalogSyncLease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface CatalogSyncLeaseRepository extends JpaRepository<CatalogSyncLease, String> {
+
+    /**
+     * Retrieves and row-locks a lease, so that only one replica at a time can decide to take it.
+     *
+     * @param name the name of the lease
+     * @return an Optional containing the lease, or empty if it was never taken
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM CatalogSyncLease l WHERE l.name = :name")
+    Optional<CatalogSyncLease> findForUpdate(String name);
+
+    /**
+     * Extends a lease, if it is still held by the given owner.
+     *
+     * @param name        the name of the lease
+     * @param owner       the replica holding the lease
+     * @param lease_until the new expiry
+     * @return 1 if the lease was extended, 0 if it was lost
+     */
+    @Modifying
+    @Query("UPDATE CatalogSyncLease l SET l.lease_until = :lease_until WHERE l.name = :name AND l.owner = :owner")
+    int renew(String name, String owner, Instant lease_until);
+
+    /**
+     * Retrieves the catalog version recorded with a lease.
+     *
+     * @param name the name of the lease
+     * @return an Optional containing the version, or empty if the catalog was never imported
+     */
+    @Query("SELECT l.catalog_version FROM CatalogSyncLease l WHERE l.name = :name")
+    Optional<Long> findCatalog_version(String name);
+}
@@ -0,0 +1,90 @@
+package com.onlinemarketplace.marketplaceservice.repository;
+
+import com.onlinemarketplace.marketplaceservice.model.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The archive tier of the orders, see {@link com.onlinemarketplace.marketplaceservice.controller.OrderArchiver}.
+ * The move statements must run in one transaction, items before orders.
+ */
+@Repository
+public interface OrderArchiveRepository extends JpaRepository<ArchivedOrder, Integer> {
+
+    /**
+     * Retrieves an archived order with its items.
+     *
+     * @param order_id the ID of the order
+     * @return the archived order, or empty if the order is not archived
+     */
+    @Query("SELECT o FROM ArchivedOrder o LEFT JOIN FETCH o.items WHERE o.order_id = :order_id")
+    Optional<ArchivedOrder> findWithItemsById(Integer order_id);
+
+    /**
+     * Retrieves the archived orders of a user with their items.
+     *
+     * @param user_id the ID of the user
+     * @return the archived orders, by ascending ID
+     */
+    @Query("SELECT DISTINCT o FROM ArchivedOrder o LEFT JOIN FETCH o.items WHERE o.user_id = :user_id ORDER BY o.order_id")
+    List<ArchivedOrder> findAllByUserId(Integer user_id);
+
+    /**
+     * Retrieves the status of each of the given orders which is archived.
+     *
+     * @param order_ids the IDs of the orders
+     * @return rows of order ID and {@link com.onlinemarketplace.marketplaceservice.model.OrderStatus}
+     */
+    @Query("SELECT o.order_id, o.status FROM ArchivedOrder o WHERE o.order_id IN :order_ids")
+    List<Object[]> findStatusesByOrder_ids(Collection<Integer> order_ids);
+
+    /**
+     * Copies orders to the archive.
+     *
+     * @param order_ids the IDs of the orders
+     * @return the number of orders copied
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO orders_archive " +
+            "(order_id, user_id, total_price, status, placed_at, status_changed_at, archived_at) " +
+            "SELECT order_id, user_id, total_price, status, placed_at, status_changed_at, CURRENT_TIMESTAMP " +
+            "FROM orders WHERE order_id IN :order_ids")
+    int copyOrders(Collection<Integer> order_ids);
+
+    /**
+     * Copies the items of orders to the archive.
+     *
+     * @param order_ids the IDs of the orders
+     * @return the number of items copied
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO order_item_archive (id, order_id, product_id, quantity, unit_price) " +
+            "SELECT id, order_id, product_id, quantity, unit_price FROM OrderItem WHERE order_id IN :order_ids")
+    int copyItems(Collection<Integer> order_ids);
+
+    /**
+     * Deletes the items of orders from the hot table.
+     *
+     * @param order_ids the IDs of the orders
+     * @return the number of items deleted
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM OrderItem WHERE order_id IN :order_ids")
+    int deleteHotItems(Collection<Integer> order_ids);
+
+    /**
+     * Deletes orders from the hot table.
+     *
+     * @param order_ids the IDs of the orders
+     * @return the number of orders deleted
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM orders WHERE order_id IN :order_ids")
+    int deleteHotOrders(Collection<Integer> order_ids);
+}
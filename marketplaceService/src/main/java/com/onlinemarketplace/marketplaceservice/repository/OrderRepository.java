@@ -1,13 +1,20 @@
 package com.onlinemarketplace.marketplaceservice.repository;
 
 import com.onlinemarketplace.marketplaceservice.model.Order;
+import com.onlinemarketplace.marketplaceservice.model.OrderStatus;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Integer> {
@@ -22,13 +29,97 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     List<Order> findAllByUserId(Integer user_id);
 
     /**
-     * Updates the status of an order identified by its order ID.
+     * Retrieves the IDs of the orders in the given statuses which have not changed since the cutoff.
      *
-     * @param order_id the ID of the order whose status is to be updated
-     * @param status   the new status to set for the order
+     * @param statuses the statuses, terminal ones for archival
+     * @param cutoff   the last status change must be before this instant
+     * @param pageable how many IDs to retrieve, in ascending order
+     * @return the order IDs
+     */
+    @Query("SELECT o.order_id FROM Order o WHERE o.status IN :statuses " +
+            "AND (o.status_changed_at IS NULL OR o.status_changed_at < :cutoff) ORDER BY o.order_id")
+    List<Integer> findOrder_idsByStatusChangedBefore(Collection<OrderStatus> statuses, Instant cutoff, Pageable pageable);
+
+    /**
+     * Retrieves the ID of the user who placed an order.
+     *
+     * @param order_id the ID of the order
+     * @return the user ID, or empty if the order does not exist
+     */
+    @Query("SELECT o.user_id FROM Order o WHERE o.order_id = :order_id")
+    Optional<Integer> findUserIdByOrder_id(Integer order_id);
+
+    /**
+     * Moves an order to a new status if it is still in the expected one, in a single conditional UPDATE.
+     * Of concurrent transitions from the same status only one updates the row, the others find it changed.
+     * Orders already loaded in the persistence context keep their previous status.
+     *
+     * @param order_id the ID of the order
+     * @param from     the status the order must be in
+     * @param to       the new status, one {@code from} may become
+     * @return whether the order was in {@code from} and is now in {@code to}
+     * @throws org.springframework.dao.InvalidDataAccessApiUsageException if {@code from} cannot become {@code to},
+     *         the IllegalArgumentException as translated by the repository proxy
+     */
+    default boolean transition(Integer order_id, OrderStatus from, OrderStatus to) {
+        if (!from.canBecome(to)) {
+            throw new IllegalArgumentException("An order cannot become " + to + " from " + from);
+        }
+        return updateStatus(order_id, from, to) == 1;
+    }
+
+    /**
+     * Retrieves the user and status of each of the given orders which exists, and row-locks the orders
+     * until the end of the transaction, so their status cannot change in between.
+     *
+     * @param order_ids the IDs of the orders
+     * @return rows of order ID, user ID and {@link OrderStatus}
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o.order_id, o.user_id, o.status FROM Order o WHERE o.order_id IN :order_ids")
+    List<Object[]> findStatusesByOrder_idsForUpdate(Collection<Integer> order_ids);
+
+    /**
+     * Moves the orders which are still in the expected status to a new one, in a single conditional UPDATE.
+     * As for {@link #transition}, an order changed concurrently is left as the other request set it.
+     *
+     * @param order_ids the IDs of the orders
+     * @param from      the status the orders must be in
+     * @param to        the new status, one {@code from} may become
+     * @return the number of orders moved to {@code to}
+     * @throws org.springframework.dao.InvalidDataAccessApiUsageException if {@code from} cannot become {@code to},
+     *         the IllegalArgumentException as translated by the repository proxy
+     */
+    default int transitionAll(Collection<Integer> order_ids, OrderStatus from, OrderStatus to) {
+        if (!from.canBecome(to)) {
+            throw new IllegalArgumentException("An order cannot become " + to + " from " + from);
+        }
+        return updateStatuses(order_ids, from, to);
+    }
+
+    /**
+     * Sets the status of an order which is in the expected status, use {@link #transition} instead.
+     *
+     * @param order_id the ID of the order
+     * @param from     the status the order must be in
+     * @param to       the new status
+     * @return the number of updated orders, 0 or 1
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.status_changed_at = INSTANT WHERE o.order_id = :order_id AND o.status = :from")
+    int updateStatus(Integer order_id, OrderStatus from, OrderStatus to);
+
+    /**
+     * Sets the status of the orders which are in the expected status, use {@link #transitionAll} instead.
+     *
+     * @param order_ids the IDs of the orders
+     * @param from      the status the orders must be in
+     * @param to        the new status
+     * @return the number of updated orders
      */
     @Transactional
-    @Modifying
-    @Query("UPDATE Order o SET o.status = :status WHERE o.order_id = :order_id")
-    void updateStatusByOrder_id(Integer order_id, String status);
-}
\ No newline at end of file
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.status_changed_at = INSTANT WHERE o.order_id IN :order_ids AND o.status = :from")
+    int updateStatuses(Collection<Integer> order_ids, OrderStatus from, OrderStatus to);
+}
@@ -0,0 +1,18 @@
+package com.onlinemarketplace.marketplaceservice.repository;
+
+import com.onlinemarketplace.marketplaceservice.model.ProductDetails;
+import org.springframework.data.repository.Repository;
+
+import java.util.Optional;
+
+@org.springframework.stereotype.Repository
+public interface ProductDetailsRepository extends Repository<ProductDetails, Integer> {
+
+    /**
+     * Retrieves the name, description and price of a product, from the cache if present.
+     *
+     * @param product_id the ID of the product
+     * @return an {@link Optional} containing the product details if found, otherwise empty
+     */
+    Optional<ProductDetails> findById(Integer product_id);
+}
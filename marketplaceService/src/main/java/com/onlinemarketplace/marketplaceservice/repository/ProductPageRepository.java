@@ -0,0 +1,37 @@
+package com.onlinemarketplace.marketplaceservice.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pages of products with only the requested columns, for GET /products. Unlike
+ * {@link ProductRepository#findAll()} the unused columns are not even selected.
+ */
+public interface ProductPageRepository {
+
+    /**
+     * The columns of a product that can be selected, in the order they are returned.
+     */
+    List<String> FIELDS = List.of("id", "name", "description", "price", "stock_quantity");
+
+    /**
+     * The columns products can be sorted by. Ties are broken by id.
+     */
+    List<String> SORT_FIELDS = List.of("id", "name", "price", "stock_quantity");
+
+    /**
+     * Reads products with the given columns only.
+     *
+     * @param fields     the columns to select, out of {@link #FIELDS}.
+     * @param sort       the column to sort by, out of {@link #SORT_FIELDS}.
+     * @param descending whether to sort in descending order.
+     * @param afterValue with afterId, the sort value of the last product of the previous page, to
+     *                   continue after it; null to start at offset.
+     * @param afterId    the id of the last product of the previous page, or null.
+     * @param offset     products to skip.
+     * @param limit      the most products to read, or null for all.
+     * @return one map per product from column to value, in the order of {@link #FIELDS}.
+     */
+    List<Map<String, Object>> findPage(List<String> fields, String sort, boolean descending,
+                                       Object afterValue, Integer afterId, int offset, Integer limit);
+}
@@ -0,0 +1,73 @@
+package com.onlinemarketplace.marketplaceservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the JPQL select of the requested columns. Pages after a cursor are read by keyset, starting
+ * right after the (sort value, id) of the previous page, so deep pages cost as little as the first.
+ */
+public class ProductPageRepositoryImpl implements ProductPageRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findPage(List<String> fields, String sort, boolean descending,
+                                              Object afterValue, Integer afterId, int offset, Integer limit) {
+        // Only known names get into the query, the callers validate them but this keeps it injection-proof
+        List<String> selected = FIELDS.stream().filter(fields::contains).toList();
+        if (selected.isEmpty() || !SORT_FIELDS.contains(sort)) {
+            throw new IllegalArgumentException("Unknown product fields " + fields + " or sort " + sort);
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        for (int i = 0; i < selected.size(); i++) {
+            jpql.append(i > 0 ? ", " : "").append("p.").append(selected.get(i)).append(" AS ").append(selected.get(i));
+        }
+        jpql.append(" FROM Product p");
+        String comparison = descending ? "<" : ">";
+        if (afterId != null) {
+            if (sort.equals("id")) {
+                jpql.append(" WHERE p.id ").append(comparison).append(" :after_id");
+            } else {
+                jpql.append(" WHERE p.").append(sort).append(' ').append(comparison).append(" :after_value OR (p.")
+                        .append(sort).append(" = :after_value AND p.id ").append(comparison).append(" :after_id)");
+            }
+        }
+        String direction = descending ? " DESC" : " ASC";
+        jpql.append(" ORDER BY p.").append(sort).append(direction);
+        if (!sort.equals("id")) {
+            jpql.append(", p.id").append(direction);
+        }
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        if (afterId != null) {
+            query.setParameter("after_id", afterId);
+            if (!sort.equals("id")) {
+                query.setParameter("after_value", afterValue);
+            }
+        }
+        query.setFirstResult(offset);
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+
+        List<Map<String, Object>> products = new ArrayList<>();
+        for (Tuple tuple : query.getResultList()) {
+            Map<String, Object> product = new LinkedHashMap<>();
+            for (String field : selected) {
+                product.put(field, tuple.get(field));
+            }
+            products.add(product);
+        }
+        return products;
+    }
+}
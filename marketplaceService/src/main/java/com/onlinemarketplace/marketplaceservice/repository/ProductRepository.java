@@ -1,16 +1,29 @@
 package com.onlinemarketplace.marketplaceservice.repository;
 
 import com.onlinemarketplace.marketplaceservice.model.Product;
-import jakarta.transaction.Transactional;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, ProductStockRepository, ProductPageRepository {
+
+    /**
+     * Retrieves all products. The result is kept in the query cache; the products themselves
+     * are resolved from the product cache region.
+     *
+     * @return all products
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Product> findAll();
 
     /**
      * Retrieves the stock quantity of a product by its ID.
@@ -22,26 +35,13 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     Optional<Integer> findStock_quantityByProduct_id(Integer product_id);
 
     /**
-     * Decreases the stock quantity of a product by a specified amount.
-     *
-     * @param product_id the ID of the product whose stock quantity is to be decreased
-     * @param quantity   the amount by which to decrease the stock quantity
-     */
-    @Modifying
-    @Transactional
-    @Query("UPDATE Product p SET p.stock_quantity = (p.stock_quantity - :quantity) WHERE p.id = :product_id")
-    void decreaseStockQuantityByProduct_id(Integer product_id, int quantity);
-
-    /**
-     * Increases the stock quantity of a product by a specified amount.
+     * Retrieves the stock quantities of several products in one query.
      *
-     * @param product_id the ID of the product whose stock quantity is to be increased
-     * @param quantity   the amount by which to increase the stock quantity
+     * @param product_ids the IDs of the products
+     * @return the ID and stock quantity of each product found
      */
-    @Modifying
-    @Transactional
-    @Query("UPDATE Product p SET p.stock_quantity = (p.stock_quantity + :quantity) WHERE p.id = :product_id")
-    void increaseStockQuantityByProduct_id(Integer product_id, int quantity);
+    @Query("SELECT p.id, p.stock_quantity FROM Product p WHERE p.id IN :product_ids")
+    List<Object[]> findStock_quantitiesByProduct_ids(Collection<Integer> product_ids);
 
     /**
      * Retrieves the price of a product by its ID.
@@ -0,0 +1,24 @@
+package com.onlinemarketplace.marketplaceservice.repository;
+
+/**
+ * Stock updates of {@link ProductRepository} which only invalidate the cached entries of the
+ * affected products. A bulk JPQL UPDATE would evict the whole product cache region on every order.
+ */
+public interface ProductStockRepository {
+
+    /**
+     * Decreases the stock quantity of a product by a specified amount.
+     *
+     * @param product_id the ID of the product whose stock quantity is to be decreased
+     * @param quantity   the amount by which to decrease the stock quantity
+     */
+    void decreaseStockQuantityByProduct_id(Integer product_id, int quantity);
+
+    /**
+     * Increases the stock quantity of a product by a specified amount.
+     *
+     * @param product_id the ID of the product whose stock quantity is to be increased
+     * @param quantity   the amount by which to increase the stock quantity
+     */
+    void increaseStockQuantityByProduct_id(Integer product_id, int quantity);
+}
@@ -0,0 +1,69 @@
+package com.onlinemarketplace.marketplaceservice.repository;
+
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.model.ProductStockChangedEvent;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs the stock updates as native statements synchronized on a query space no entity or query
+ * uses, so Hibernate does not invalidate any cache region by itself, and evicts the updated product.
+ * The entry is evicted again after completion: a concurrent transaction may have cached the old
+ * stock before this one committed. Each update publishes a {@link ProductStockChangedEvent}.
+ */
+public class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String STOCK_QUERY_SPACE = "product_stock";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public void decreaseStockQuantityByProduct_id(Integer product_id, int quantity) {
+        updateStock("UPDATE PRODUCT SET stock_quantity = stock_quantity - :quantity WHERE id = :product_id",
+                product_id, quantity);
+        eventPublisher.publishEvent(new ProductStockChangedEvent(product_id, -quantity));
+    }
+
+    @Override
+    @Transactional
+    public void increaseStockQuantityByProduct_id(Integer product_id, int quantity) {
+        updateStock("UPDATE PRODUCT SET stock_quantity = stock_quantity + :quantity WHERE id = :product_id",
+                product_id, quantity);
+        eventPublisher.publishEvent(new ProductStockChangedEvent(product_id, quantity));
+    }
+
+    private void updateStock(String sql, Integer product_id, int quantity) {
+        entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(STOCK_QUERY_SPACE)
+                .setParameter("product_id", product_id)
+                .setParameter("quantity", quantity)
+                .executeUpdate();
+        evict(product_id);
+    }
+
+    private void evict(Integer product_id) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(Product.class, product_id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Product.class, product_id);
+                }
+            });
+        }
+    }
+}
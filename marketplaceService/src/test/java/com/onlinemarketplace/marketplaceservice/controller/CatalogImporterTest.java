@@ -0,0 +1,177 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlinemarketplace.marketplaceservice.model.CatalogImport;
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.repository.CatalogSyncLeaseRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The importer on the embedded database, two rows per chunk so that a few lines span several chunks
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+class CatalogImporterTest {
+
+	private static final String HEADER = "id,name,description,price,stock_quantity\n";
+
+	@SpringBootConfiguration
+	@EntityScan(basePackageClasses = Product.class)
+	@EnableJpaRepositories(basePackageClasses = CatalogSyncLeaseRepository.class)
+	static class Repositories {
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private CatalogSyncLeaseRepository leaseRepository;
+
+	private CatalogVersion catalogVersion;
+	private CatalogImporter catalogImporter;
+
+	@BeforeEach
+	void setUp() {
+		catalogVersion = new CatalogVersion(leaseRepository, transactionManager);
+		catalogImporter = new CatalogImporter(jdbcTemplate, transactionManager, entityManagerFactory,
+				new ProductSearchIndex(jdbcTemplate), new ProductCatalogSnapshot(jdbcTemplate, new ObjectMapper()),
+				catalogVersion, 2, 2, 1000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		catalogImporter.shutdown();
+	}
+
+	@Test
+	void keepsQuotedCommasAndQuotes() {
+		CatalogImport catalogImport = importCatalog(HEADER
+				+ "1,\"Pens, blue\",\"A \"\"fine\"\" pen, really\",10,5\n"
+				+ "2,Desk,Oak,300,1\n");
+
+		assertThat(catalogImport.getStatus()).isEqualTo(CatalogImport.Status.COMPLETED);
+		assertThat(product(1)).containsEntry("NAME", "Pens, blue").containsEntry("DESCRIPTION", "A \"fine\" pen, really");
+	}
+
+	@Test
+	void readsColumnsInAnyOrder() {
+		importCatalog("price,stock_quantity,name,id,description\n300,1,Desk,2,Oak\n");
+
+		assertThat(product(2)).containsEntry("NAME", "Desk").containsEntry("PRICE", 300).containsEntry("STOCK_QUANTITY", 1);
+	}
+
+	@Test
+	void reportsRejectedRowsAndImportsTheOthers() {
+		CatalogImport catalogImport = importCatalog(HEADER
+				+ "1,Pen,Blue,10,5\n"
+				+ "2,,Nameless,10,5\n"
+				+ "3,Lamp,Desk lamp,-1,5\n"
+				+ "x,Desk,Oak,300,1\n"
+				+ "5,Chair,Oak\n"
+				+ "6,Shelf,Pine,80,2\n");
+
+		assertThat(catalogImport.getStatus()).isEqualTo(CatalogImport.Status.COMPLETED);
+		assertThat(catalogImport.getRows_read()).isEqualTo(6);
+		assertThat(catalogImport.getRows_imported()).isEqualTo(2);
+		assertThat(catalogImport.getRows_rejected()).isEqualTo(4);
+		assertThat(catalogImport.getErrors()).containsExactly(
+				"Row 2: name is empty",
+				"Row 3: price and stock_quantity must not be negative",
+				"Row 4: invalid number format: For input string: \"x\"",
+				"Row 5: incorrect column count");
+		assertThat(productIds()).containsExactly(1, 6);
+	}
+
+	@Test
+	void lastRowOfProductListedTwiceWins() {
+		// Product 1 in the first and second chunk, product 3 twice in the second
+		CatalogImport catalogImport = importCatalog(HEADER
+				+ "1,Pen,Blue,10,5\n"
+				+ "2,Desk,Oak,300,1\n"
+				+ "1,Pen,Red,12,5\n"
+				+ "3,Lamp,Brass,40,2\n"
+				+ "3,Lamp,Brass,40,2\n");
+
+		assertThat(catalogImport.getRows_imported()).isEqualTo(4);
+		assertThat(catalogImport.getRows_unchanged()).isEqualTo(1);
+		assertThat(product(1)).containsEntry("DESCRIPTION", "Red").containsEntry("PRICE", 12);
+		assertThat(productIds()).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	void writesOnlyChangedRowsAndKeepsStock() {
+		importCatalog(HEADER + "1,Pen,Blue,10,5\n2,Desk,Oak,300,1\n3,Lamp,Brass,40,2\n");
+		// Orders since then
+		jdbcTemplate.update("UPDATE Product SET stock_quantity = 0 WHERE id IN (1, 2)");
+
+		CatalogImport unchanged = importCatalog(HEADER + "1,Pen,Blue,10,5\n2,Desk,Oak,300,1\n3,Lamp,Brass,40,2\n");
+		CatalogImport changed = importCatalog(HEADER + "1,Pen,Blue,11,5\n2,Desk,Oak,300,9\n4,Chair,Oak,90,3\n");
+
+		assertThat(unchanged.getRows_imported()).isZero();
+		assertThat(unchanged.getRows_unchanged()).isEqualTo(3);
+		assertThat(changed.getRows_imported()).isEqualTo(2);
+		assertThat(changed.getRows_unchanged()).isEqualTo(1);
+		assertThat(product(1)).containsEntry("PRICE", 11).containsEntry("STOCK_QUANTITY", 0);
+		assertThat(product(2)).containsEntry("STOCK_QUANTITY", 0);
+		assertThat(product(4)).containsEntry("STOCK_QUANTITY", 3);
+		// Products missing from the file are left alone
+		assertThat(productIds()).containsExactly(1, 2, 3, 4);
+	}
+
+	@Test
+	void failsOnMalformedCsvAndKeepsChunksWritten() {
+		// The first chunk is written once the third is read, the two validating when the parse fails are not
+		CatalogImport catalogImport = importCatalog(HEADER
+				+ "1,Pen,Blue,10,5\n2,Desk,Oak,300,1\n"
+				+ "3,Lamp,Brass,40,2\n4,Chair,Oak,90,3\n"
+				+ "5,Shelf,Pine,80,2\n6,Stool,Pine,30,4\n"
+				+ "7,\"Rug,Wool,60,1\n");
+
+		assertThat(catalogImport.getStatus()).isEqualTo(CatalogImport.Status.FAILED);
+		assertThat(catalogImport.getFailure()).startsWith("Error reading CSV file: ");
+		assertThat(catalogImport.getRows_imported()).isEqualTo(2);
+		assertThat(productIds()).containsExactly(1, 2);
+		// Other replicas reload what was written
+		assertThat(catalogVersion.current()).isEqualTo(1);
+	}
+
+	@Test
+	void failsWithoutRequiredColumns() {
+		CatalogImport catalogImport = importCatalog("id,name,price\n1,Pen,10\n");
+
+		assertThat(catalogImport.getStatus()).isEqualTo(CatalogImport.Status.FAILED);
+		assertThat(catalogImport.getFailure()).startsWith("CSV header must name the columns");
+		assertThat(productIds()).isEmpty();
+	}
+
+	private CatalogImport importCatalog(String csv) {
+		return catalogImporter.importCatalog(new StringReader(csv), "test");
+	}
+
+	private Map<String, Object> product(int id) {
+		return jdbcTemplate.queryForMap("SELECT name, description, price, stock_quantity FROM Product WHERE id = ?", id);
+	}
+
+	private List<Integer> productIds() {
+		return jdbcTemplate.queryForList("SELECT id FROM Product ORDER BY id", Integer.class);
+	}
+}
@@ -0,0 +1,178 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlinemarketplace.marketplaceservice.model.CatalogImport;
+import com.onlinemarketplace.marketplaceservice.model.CatalogSyncLease;
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.repository.CatalogSyncLeaseRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Two replicas sharing the embedded database, each with its own synchronizer
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+class CatalogSynchronizerTest {
+
+	private static final String CATALOG = "id,name,description,price,stock_quantity\n1,Pen,Blue,10,5\n2,Desk,Oak,300,1\n";
+	private static final String CHANGED_CATALOG = CATALOG + "3,Lamp,Brass,40,2\n";
+
+	@SpringBootConfiguration
+	@EntityScan(basePackageClasses = Product.class)
+	@EnableJpaRepositories(basePackageClasses = CatalogSyncLeaseRepository.class)
+	static class Repositories {
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private CatalogSyncLeaseRepository leaseRepository;
+
+	private CatalogVersion catalogVersion;
+	private CatalogImporter catalogImporter;
+	private CatalogSynchronizer replica;
+	private CatalogSynchronizer otherReplica;
+
+	@BeforeEach
+	void setUp() {
+		catalogVersion = new CatalogVersion(leaseRepository, transactionManager);
+		catalogImporter = new CatalogImporter(jdbcTemplate, transactionManager, entityManagerFactory,
+				new ProductSearchIndex(jdbcTemplate), new ProductCatalogSnapshot(jdbcTemplate, new ObjectMapper()),
+				catalogVersion, 2, 2, 1000);
+		replica = new CatalogSynchronizer(catalogImporter, leaseRepository, transactionManager, 60, 0);
+		otherReplica = new CatalogSynchronizer(catalogImporter, leaseRepository, transactionManager, 60, 0);
+	}
+
+	@AfterEach
+	void tearDown() {
+		catalogImporter.shutdown();
+	}
+
+	@Test
+	void onlyOneReplicaTakesLease() {
+		String hash = CatalogSynchronizer.hash(catalog(CATALOG));
+
+		assertThat(replica.decide(hash)).isEqualTo(CatalogSynchronizer.Decision.ACQUIRED);
+		assertThat(otherReplica.decide(hash)).isEqualTo(CatalogSynchronizer.Decision.HELD_ELSEWHERE);
+		// The owner deciding again, e.g. after a failed attempt, keeps its lease
+		assertThat(replica.decide(hash)).isEqualTo(CatalogSynchronizer.Decision.ACQUIRED);
+	}
+
+	@Test
+	void waitingReplicaFailsWhenSyncDoesNotComplete() {
+		replica.decide(CatalogSynchronizer.hash(catalog(CATALOG)));
+
+		assertThatThrownBy(() -> otherReplica.synchronize(catalog(CATALOG)))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+		assertThat(productIds()).isEmpty();
+	}
+
+	@Test
+	void takesOverLeaseOfDeadOwnerOnceExpired() {
+		String hash = CatalogSynchronizer.hash(catalog(CATALOG));
+		replica.decide(hash);
+		// The owner died without renewing
+		CatalogSyncLease lease = lease();
+		lease.setLease_until(Instant.now().minusSeconds(1));
+		leaseRepository.saveAndFlush(lease);
+		String deadOwner = lease.getOwner();
+
+		assertThat(otherReplica.decide(hash)).isEqualTo(CatalogSynchronizer.Decision.ACQUIRED);
+		assertThat(lease().getOwner()).isNotEqualTo(deadOwner);
+		assertThat(replica.decide(hash)).isEqualTo(CatalogSynchronizer.Decision.HELD_ELSEWHERE);
+	}
+
+	@Test
+	void syncSetsReadyMarkerWhichOtherReplicasSkipOn() {
+		String hash = CatalogSynchronizer.hash(catalog(CATALOG));
+
+		CatalogImport catalogImport = replica.synchronize(catalog(CATALOG)).orElseThrow();
+
+		assertThat(catalogImport.getRows_imported()).isEqualTo(2);
+		assertThat(productIds()).containsExactly(1, 2);
+		CatalogSyncLease lease = lease();
+		assertThat(lease.getSynced_hash()).isEqualTo(hash);
+		assertThat(lease.getSynced_at()).isNotNull();
+		assertThat(lease.getOwner()).isNull();
+		assertThat(lease.getLease_until()).isNull();
+
+		assertThat(otherReplica.decide(hash)).isEqualTo(CatalogSynchronizer.Decision.READY);
+		assertThat(otherReplica.synchronize(catalog(CATALOG))).isEmpty();
+		assertThat(catalogVersion.current()).isEqualTo(1);
+	}
+
+	@Test
+	void changedFileIsSyncedAgain() {
+		replica.synchronize(catalog(CATALOG));
+
+		CatalogImport catalogImport = otherReplica.synchronize(catalog(CHANGED_CATALOG)).orElseThrow();
+
+		assertThat(catalogImport.getRows_imported()).isEqualTo(1);
+		assertThat(catalogImport.getRows_unchanged()).isEqualTo(2);
+		assertThat(productIds()).containsExactly(1, 2, 3);
+		assertThat(lease().getSynced_hash()).isEqualTo(CatalogSynchronizer.hash(catalog(CHANGED_CATALOG)));
+	}
+
+	@Test
+	void runtimeImportClearsReadyMarker() {
+		replica.synchronize(catalog(CATALOG));
+		catalogImporter.importCatalog(new StringReader(CHANGED_CATALOG.replace("Pen,Blue", "Pen,Red")), "admin");
+
+		// The restart syncs the configured file over the runtime import
+		assertThat(lease().getSynced_hash()).isNull();
+		assertThat(otherReplica.synchronize(catalog(CATALOG))).isPresent();
+		assertThat(jdbcTemplate.queryForObject("SELECT description FROM Product WHERE id = 1", String.class)).isEqualTo("Blue");
+	}
+
+	@Test
+	void failedSyncReleasesLeaseWithoutMarker() {
+		assertThatThrownBy(() -> replica.synchronize(catalog("id,name,price\n1,Pen,10\n")))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR));
+
+		CatalogSyncLease lease = lease();
+		assertThat(lease.getSynced_hash()).isNull();
+		assertThat(lease.getOwner()).isNull();
+		// Another replica may try at once
+		assertThat(otherReplica.synchronize(catalog(CATALOG))).isPresent();
+	}
+
+	private CatalogSyncLease lease() {
+		return leaseRepository.findById(CatalogSynchronizer.LEASE).orElseThrow();
+	}
+
+	private List<Integer> productIds() {
+		return jdbcTemplate.queryForList("SELECT id FROM Product ORDER BY id", Integer.class);
+	}
+
+	private static Resource catalog(String csv) {
+		return new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8), "catalog");
+	}
+}
@@ -0,0 +1,149 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.common.metrics.LockMetrics;
+import com.onlinemarketplace.marketplaceservice.model.ProductDetails;
+import com.onlinemarketplace.marketplaceservice.repository.ProductDetailsRepository;
+import com.onlinemarketplace.marketplaceservice.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlashSaleAdmissionTest {
+
+	private static final int PRODUCT = 7;
+	private static final int PRICE = 100;
+
+	private final AtomicInteger stock = new AtomicInteger();
+	private final OrderLocks orderLocks = new OrderLocks();
+	private ProductRepository productRepository;
+	private FlashSaleAdmission admission;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = mock(ProductRepository.class);
+		when(productRepository.findStock_quantityByProduct_id(PRODUCT)).thenAnswer(invocation -> Optional.of(stock.get()));
+		doAnswer(invocation -> stock.addAndGet(-(int) invocation.getArgument(1)))
+				.when(productRepository).decreaseStockQuantityByProduct_id(eq(PRODUCT), anyInt());
+		doAnswer(invocation -> stock.addAndGet(invocation.getArgument(1)))
+				.when(productRepository).increaseStockQuantityByProduct_id(eq(PRODUCT), anyInt());
+		ProductDetails product = mock(ProductDetails.class);
+		when(product.getName()).thenReturn("Flash sale product");
+		when(product.getPrice()).thenReturn(PRICE);
+		ProductDetailsRepository productDetailsRepository = mock(ProductDetailsRepository.class);
+		when(productDetailsRepository.findById(PRODUCT)).thenReturn(Optional.of(product));
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+		admission = new FlashSaleAdmission(productRepository, productDetailsRepository, orderLocks,
+				new LockMetrics(new SimpleMeterRegistry()), transactionManager, new SimpleMeterRegistry(),
+				List.of(PRODUCT), 20, 500, 5000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		admission.shutdown();
+	}
+
+	@Test
+	void allocatesStockInArrivalOrder() throws Exception {
+		stock.set(4);
+		CompletableFuture<Integer> first;
+		CompletableFuture<Integer> second;
+		CompletableFuture<Integer> third;
+		CompletableFuture<Integer> fourth;
+		// The writer waits for the new order lock with the first request, the others queue up meanwhile
+		orderLocks.newOrder().lock();
+		try {
+			first = reserve(1);
+			second = reserve(2);
+			third = reserve(2);
+			fourth = reserve(1);
+		} finally {
+			orderLocks.newOrder().unlock();
+		}
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(PRICE);
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(PRICE);
+		assertThat(fourth.get(5, TimeUnit.SECONDS)).isEqualTo(PRICE);
+		assertThatThrownBy(() -> third.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.cause().isInstanceOf(ResponseStatusException.class)
+				.hasMessageContaining("out of stock");
+		assertThat(stock.get()).isZero();
+	}
+
+	@Test
+	void allocatesReleasedStockToFollowingRequests() throws Exception {
+		stock.set(1);
+		CompletableFuture<Integer> first;
+		CompletableFuture<Integer> second;
+		orderLocks.newOrder().lock();
+		try {
+			first = reserve(1);
+			admission.release(PRODUCT, 2);
+			second = reserve(2);
+		} finally {
+			orderLocks.newOrder().unlock();
+		}
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(PRICE);
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(PRICE);
+		assertThat(stock.get()).isZero();
+	}
+
+	@Test
+	void givesBackReleasedStockWhenBatchFails() throws Exception {
+		stock.set(5);
+		when(productRepository.findStock_quantityByProduct_id(PRODUCT))
+				.thenAnswer(invocation -> Optional.of(stock.get()))
+				.thenThrow(new DataAccessResourceFailureException("Database unavailable"));
+		CompletableFuture<Integer> first;
+		CompletableFuture<Integer> failed;
+		orderLocks.newOrder().lock();
+		try {
+			first = reserve(1);
+			admission.release(PRODUCT, 2);
+			failed = reserve(1);
+		} finally {
+			orderLocks.newOrder().unlock();
+		}
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(PRICE);
+		assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+				.cause().isInstanceOf(ResponseStatusException.class)
+				.hasMessageContaining("Error while reserving stock");
+		verify(productRepository, timeout(5000)).increaseStockQuantityByProduct_id(PRODUCT, 2);
+		assertThat(stock.get()).isEqualTo(6);
+	}
+
+	// Sends a reservation from its own thread, giving it time to queue up before the next one
+	private CompletableFuture<Integer> reserve(int quantity) throws InterruptedException {
+		CompletableFuture<Integer> result = CompletableFuture.supplyAsync(() -> admission.reserve(PRODUCT, quantity),
+				command -> Thread.ofVirtual().start(command));
+		Thread.sleep(100);
+		return result;
+	}
+}
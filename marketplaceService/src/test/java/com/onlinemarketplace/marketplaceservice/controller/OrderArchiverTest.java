@@ -0,0 +1,152 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.Order;
+import com.onlinemarketplace.marketplaceservice.model.OrderItem;
+import com.onlinemarketplace.marketplaceservice.model.OrderStatus;
+import com.onlinemarketplace.marketplaceservice.repository.OrderArchiveRepository;
+import com.onlinemarketplace.marketplaceservice.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Both tiers on the embedded database; terminal orders are archived after an hour
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+class OrderArchiverTest {
+
+	private static final int USER = 1;
+
+	@SpringBootConfiguration
+	@EntityScan(basePackageClasses = Order.class)
+	@EnableJpaRepositories(basePackageClasses = OrderRepository.class)
+	static class Repositories {
+	}
+
+	@Autowired
+	private OrderRepository orderRepository;
+	@Autowired
+	private OrderArchiveRepository orderArchiveRepository;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Test
+	void movesAgedTerminalOrdersWithTheirItems() {
+		Integer delivered = placeOrder(USER, OrderStatus.DELIVERED, true, 2);
+		Integer cancelled = placeOrder(USER, OrderStatus.CANCELLED, true, 1);
+		Integer recent = placeOrder(USER, OrderStatus.DELIVERED, false, 1);
+		Integer placed = placeOrder(USER, OrderStatus.PLACED, true, 1);
+
+		archiver(10, 10).archive();
+
+		assertThat(hotOrderIds()).containsExactly(recent, placed);
+		assertThat(jdbcTemplate.queryForList("SELECT order_id FROM orders_archive ORDER BY order_id", Integer.class))
+				.containsExactly(delivered, cancelled);
+		assertThat(itemOrderIds("OrderItem")).containsExactly(recent, placed);
+		assertThat(itemOrderIds("order_item_archive")).containsExactly(delivered, delivered, cancelled);
+		assertThat(orderArchiveRepository.findById(delivered).orElseThrow().getArchived_at()).isNotNull();
+	}
+
+	@Test
+	void movesAtMostMaxBatchesPerRun() {
+		List<Integer> order_ids = List.of(placeOrder(USER, OrderStatus.DELIVERED, true, 1),
+				placeOrder(USER, OrderStatus.DELIVERED, true, 1), placeOrder(USER, OrderStatus.CANCELLED, true, 1));
+		OrderArchiver archiver = archiver(2, 1);
+
+		archiver.archive();
+		assertThat(hotOrderIds()).containsExactly(order_ids.get(2));
+
+		archiver.archive();
+		assertThat(hotOrderIds()).isEmpty();
+		assertThat(orderArchiveRepository.count()).isEqualTo(3);
+	}
+
+	@Test
+	void readsOrdersFromBothTiers() {
+		Integer archived = placeOrder(USER, OrderStatus.DELIVERED, true, 2);
+		Integer hot = placeOrder(USER, OrderStatus.PLACED, false, 1);
+		Integer otherUsers = placeOrder(2, OrderStatus.CANCELLED, true, 1);
+		OrderArchiver archiver = archiver(10, 10);
+		archiver.archive();
+
+		Order order = archiver.findById(archived).orElseThrow();
+		assertThat(order.getStatus()).isEqualTo(OrderStatus.DELIVERED);
+		assertThat(order.getTotal_price()).isEqualTo(20);
+		assertThat(order.getItems()).extracting(OrderItem::getProduct_id).containsExactlyInAnyOrder(1, 2);
+		assertThat(archiver.findById(hot).orElseThrow().getStatus()).isEqualTo(OrderStatus.PLACED);
+		assertThat(archiver.findById(otherUsers + 1)).isEmpty();
+
+		assertThat(archiver.findAllByUserId(USER)).extracting(Order::getOrder_id).containsExactly(archived, hot);
+		assertThat(archiver.isArchived(archived)).isTrue();
+		assertThat(archiver.isArchived(hot)).isFalse();
+		assertThat(archiver.findArchivedStatuses(List.of(archived, otherUsers, hot)))
+				.containsOnlyKeys(archived, otherUsers)
+				.containsEntry(otherUsers, OrderStatus.CANCELLED);
+	}
+
+	@Test
+	void disabledArchiverLeavesOrdersInPlace() {
+		Integer delivered = placeOrder(USER, OrderStatus.DELIVERED, true, 1);
+
+		new OrderArchiver(orderRepository, orderArchiveRepository, transactionManager, false, 3600, 10, 10).archive();
+
+		assertThat(hotOrderIds()).containsExactly(delivered);
+	}
+
+	private OrderArchiver archiver(int batchSize, int maxBatchesPerRun) {
+		return new OrderArchiver(orderRepository, orderArchiveRepository, transactionManager, true, 3600, batchSize,
+				maxBatchesPerRun);
+	}
+
+	// An order with items of products 1, 2, ... at 10 each, its status changed two hours ago if aged
+	private Integer placeOrder(int user_id, OrderStatus status, boolean aged, int items) {
+		Order order = new Order();
+		order.setUser_id(user_id);
+		order.setTotal_price(10 * items);
+		order.setStatus(status);
+		List<OrderItem> orderItems = new ArrayList<>();
+		for (int product_id = 1; product_id <= items; product_id++) {
+			OrderItem item = new OrderItem();
+			item.setProduct_id(product_id);
+			item.setQuantity(1);
+			item.setUnit_price(10);
+			orderItems.add(item);
+		}
+		order.setItems(orderItems);
+		Integer order_id = orderRepository.saveAndFlush(order).getOrder_id();
+		if (aged) {
+			jdbcTemplate.update("UPDATE orders SET status_changed_at = ? WHERE order_id = ?",
+					Timestamp.from(Instant.now().minus(2, ChronoUnit.HOURS)), order_id);
+		}
+		// The archival moves rows underneath the persistence context, as it would for another request
+		entityManager.clear();
+		return order_id;
+	}
+
+	private List<Integer> hotOrderIds() {
+		return jdbcTemplate.queryForList("SELECT order_id FROM orders ORDER BY order_id", Integer.class);
+	}
+
+	private List<Integer> itemOrderIds(String table) {
+		return jdbcTemplate.queryForList("SELECT order_id FROM " + table + " ORDER BY order_id, id", Integer.class);
+	}
+}
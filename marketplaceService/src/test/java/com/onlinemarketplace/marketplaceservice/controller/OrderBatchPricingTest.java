@@ -0,0 +1,98 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.OrderItem;
+import com.onlinemarketplace.marketplaceservice.model.ProductDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The pricing of POST /orders/batch, against one read of the stock shared by the orders in turn
+class OrderBatchPricingTest {
+
+	private static final int PEN = 1;
+	private static final int DESK = 2;
+
+	private final Map<Integer, Integer> remainingStock = new HashMap<>(Map.of(PEN, 5, DESK, 1));
+	private final Map<Integer, ProductDetails> products = Map.of(PEN, product(PEN, "Pen", 10), DESK, product(DESK, "Desk", 300));
+
+	@Test
+	void pricesOrderAndTakesItsStock() {
+		OrderItem pens = item(PEN, 2);
+		OrderItem desk = item(DESK, 1);
+
+		assertThat(MarketplaceServiceController.reserveAndPrice(List.of(pens, desk), remainingStock, products)).isEqualTo(320);
+
+		assertThat(pens.getUnit_price()).isEqualTo(10);
+		assertThat(desk.getUnit_price()).isEqualTo(300);
+		assertThat(remainingStock).containsEntry(PEN, 3).containsEntry(DESK, 0);
+	}
+
+	@Test
+	void failedOrderLeavesStockToFollowingOrders() {
+		MarketplaceServiceController.reserveAndPrice(List.of(item(DESK, 1)), remainingStock, products);
+
+		// The second desk is out of stock, the pens of that order stay available
+		assertBadRequest(List.of(item(PEN, 3), item(DESK, 1)), "Desk is out of stock!");
+		assertThat(MarketplaceServiceController.reserveAndPrice(List.of(item(PEN, 5)), remainingStock, products)).isEqualTo(50);
+		assertThat(remainingStock).containsEntry(PEN, 0).containsEntry(DESK, 0);
+	}
+
+	@Test
+	void releasedOrderLeavesStockToFollowingOrders() {
+		List<OrderItem> refused = List.of(item(PEN, 4), item(DESK, 1));
+		MarketplaceServiceController.reserveAndPrice(refused, remainingStock, products);
+
+		// The debit of the first order was refused
+		MarketplaceServiceController.releaseReserved(refused, remainingStock);
+
+		assertThat(remainingStock).containsEntry(PEN, 5).containsEntry(DESK, 1);
+		assertThat(MarketplaceServiceController.reserveAndPrice(List.of(item(PEN, 5), item(DESK, 1)), remainingStock, products))
+				.isEqualTo(350);
+	}
+
+	@Test
+	void countsRepeatedProductOfOrderTogether() {
+		assertBadRequest(List.of(item(PEN, 3), item(PEN, 3)), "Pen is out of stock!");
+		assertThat(remainingStock).containsEntry(PEN, 5);
+	}
+
+	@Test
+	void rejectsNonPositiveQuantityAndUnknownProduct() {
+		assertBadRequest(List.of(item(PEN, 0)), "less than or equal to zero");
+		assertThatThrownBy(() -> MarketplaceServiceController.reserveAndPrice(List.of(item(3, 1)), remainingStock, products))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+		assertThat(remainingStock).containsEntry(PEN, 5);
+	}
+
+	private void assertBadRequest(List<OrderItem> items, String message) {
+		assertThatThrownBy(() -> MarketplaceServiceController.reserveAndPrice(items, remainingStock, products))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST))
+				.hasMessageContaining(message);
+	}
+
+	private static OrderItem item(int productId, int quantity) {
+		OrderItem item = new OrderItem();
+		item.setProduct_id(productId);
+		item.setQuantity(quantity);
+		return item;
+	}
+
+	private static ProductDetails product(int id, String name, int price) {
+		ProductDetails product = mock(ProductDetails.class);
+		when(product.getId()).thenReturn(id);
+		when(product.getName()).thenReturn(name);
+		when(product.getPrice()).thenReturn(price);
+		return product;
+	}
+}
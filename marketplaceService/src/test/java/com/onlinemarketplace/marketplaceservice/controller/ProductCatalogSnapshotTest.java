@@ -0,0 +1,143 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlinemarketplace.marketplaceservice.model.ProductStockChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCatalogSnapshotTest {
+
+	// Three gzip chunks, the last one partial
+	private static final int PRODUCTS = 600;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private ProductCatalogSnapshot snapshot;
+
+	@BeforeEach
+	void setUp() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:catalog-snapshot", "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE Product (id INT PRIMARY KEY, name VARCHAR(255), description VARCHAR(255), "
+				+ "price INT, stock_quantity INT)");
+		snapshot = new ProductCatalogSnapshot(jdbcTemplate, objectMapper);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("DROP TABLE Product");
+		dataSource.destroy();
+	}
+
+	@Test
+	void gzipBodyInflatesToIdentityBody() throws IOException {
+		insertProducts(PRODUCTS);
+		snapshot.rebuild();
+
+		byte[] identity = snapshot.catalog(null).bytes();
+		ProductCatalogSnapshot.Body gzip = snapshot.catalog("gzip");
+
+		assertThat(gzip.encoding()).isEqualTo("gzip");
+		assertThat(gunzip(gzip.bytes())).isEqualTo(identity);
+		JsonNode products = objectMapper.readTree(identity);
+		assertThat(products).hasSize(PRODUCTS);
+		assertThat(products.get(PRODUCTS - 1).get("name").asText()).isEqualTo("Product " + PRODUCTS);
+	}
+
+	@Test
+	void splicesRecompressedChunkOfChangedProduct() throws IOException {
+		insertProducts(PRODUCTS);
+		snapshot.rebuild();
+		byte[] before = snapshot.catalog("gzip").bytes();
+
+		snapshot.onStockChanged(new ProductStockChangedEvent(300, -4));
+		byte[] identity = snapshot.catalog(null).bytes();
+		byte[] gzip = snapshot.catalog("gzip").bytes();
+
+		assertThat(gzip).isNotEqualTo(before);
+		assertThat(gunzip(gzip)).isEqualTo(identity);
+		assertThat(objectMapper.readTree(identity).get(299).get("stock_quantity").asInt()).isEqualTo(296);
+		assertThat(objectMapper.readTree(snapshot.product(300)).get("stock_quantity").asInt()).isEqualTo(296);
+	}
+
+	@Test
+	void splicesStockReadAgainFromDatabase() throws IOException {
+		insertProducts(PRODUCTS);
+		snapshot.rebuild();
+
+		jdbcTemplate.update("UPDATE Product SET stock_quantity = 0 WHERE id IN (1, 600)");
+		snapshot.refreshStock();
+		byte[] identity = snapshot.catalog(null).bytes();
+
+		assertThat(gunzip(snapshot.catalog("gzip").bytes())).isEqualTo(identity);
+		JsonNode products = objectMapper.readTree(identity);
+		assertThat(products.get(0).get("stock_quantity").asInt()).isZero();
+		assertThat(products.get(PRODUCTS - 1).get("stock_quantity").asInt()).isZero();
+	}
+
+	@Test
+	void rebuildsWhenProductsWereAdded() throws IOException {
+		insertProducts(10);
+		snapshot.rebuild();
+
+		jdbcTemplate.update("INSERT INTO Product VALUES (11, 'Product 11', 'Added', 1100, 11)");
+		snapshot.refreshStock();
+
+		assertThat(objectMapper.readTree(gunzip(snapshot.catalog("gzip").bytes()))).hasSize(11);
+	}
+
+	@Test
+	void servesEmptyCatalog() throws IOException {
+		snapshot.rebuild();
+
+		assertThat(snapshot.catalog(null).bytes()).asString().isEqualTo("[]");
+		assertThat(gunzip(snapshot.catalog("gzip").bytes())).asString().isEqualTo("[]");
+	}
+
+	@Test
+	void servesNothingUntilBuiltAndWhileCatalogChanges() {
+		assertThat(snapshot.catalog("gzip")).isNull();
+		insertProducts(1);
+		snapshot.rebuild();
+		assertThat(snapshot.product(1)).isNotNull();
+
+		snapshot.catalogChanging();
+
+		assertThat(snapshot.catalog(null)).isNull();
+		assertThat(snapshot.product(1)).isNull();
+	}
+
+	@Test
+	void parsesAcceptEncoding() {
+		assertThat(ProductCatalogSnapshot.accepts("gzip, deflate, br", "br")).isTrue();
+		assertThat(ProductCatalogSnapshot.accepts(" GZIP ;q=0.5", "gzip")).isTrue();
+		assertThat(ProductCatalogSnapshot.accepts("gzip;q=0, br", "gzip")).isFalse();
+		assertThat(ProductCatalogSnapshot.accepts("x-gzip", "gzip")).isFalse();
+		assertThat(ProductCatalogSnapshot.accepts(null, "gzip")).isFalse();
+	}
+
+	private void insertProducts(int count) {
+		for (int id = 1; id <= count; id++) {
+			jdbcTemplate.update("INSERT INTO Product VALUES (?, ?, ?, ?, ?)",
+					id, "Product " + id, "Description, with \"quotes\" " + id, id * 100, id);
+		}
+	}
+
+	// Reading to the end checks the CRC and length of the trailer
+	private static byte[] gunzip(byte[] gzip) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+			return in.readAllBytes();
+		}
+	}
+}
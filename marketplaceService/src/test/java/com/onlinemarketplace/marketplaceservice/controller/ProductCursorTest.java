@@ -0,0 +1,63 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductCursorTest {
+
+	@Test
+	void decodesWhatItEncodes() {
+		ProductCursor byPrice = new ProductCursor("-price", 42, 1999);
+		ProductCursor byId = new ProductCursor("id", 7, null);
+
+		assertThat(ProductCursor.decode(byPrice.encode(), "-price")).isEqualTo(byPrice);
+		assertThat(ProductCursor.decode(byId.encode(), "id")).isEqualTo(byId);
+	}
+
+	@Test
+	void keepsCommasOfName() {
+		ProductCursor byName = new ProductCursor("name", 3, "Pens, blue, pack of 10");
+
+		assertThat(ProductCursor.decode(byName.encode(), "name")).isEqualTo(byName);
+	}
+
+	@Test
+	void encodesUrlSafely() {
+		String cursor = new ProductCursor("name", 3, "???>>>").encode();
+
+		assertThat(cursor).matches("[A-Za-z0-9_-]+");
+	}
+
+	@Test
+	void rejectsCursorOfAnotherSort() {
+		String cursor = new ProductCursor("price", 42, 1999).encode();
+
+		assertBadRequest(() -> ProductCursor.decode(cursor, "-price"), "does not belong to sort -price");
+	}
+
+	@Test
+	void rejectsMalformedCursor() {
+		assertBadRequest(() -> ProductCursor.decode("not base64!", "id"), "Invalid cursor!");
+		assertBadRequest(() -> ProductCursor.decode(encoded("price,42,cheap"), "price"), "Invalid cursor!");
+		assertBadRequest(() -> ProductCursor.decode(encoded("price,x,10"), "price"), "Invalid cursor!");
+		assertBadRequest(() -> ProductCursor.decode(encoded("price,42"), "price"), "does not belong to sort");
+	}
+
+	private static String encoded(String cursor) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertBadRequest(Runnable decode, String message) {
+		assertThatThrownBy(decode::run)
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST))
+				.hasMessageContaining(message);
+	}
+}
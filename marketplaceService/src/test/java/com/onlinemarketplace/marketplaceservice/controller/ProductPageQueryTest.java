@@ -0,0 +1,87 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.ProductPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductPageQueryTest {
+
+	@Test
+	void returnsPlainListWhenNotPaged() {
+		ProductPageQuery query = ProductPageQuery.of(null, null, null, "id", List.of("name"));
+		List<Map<String, Object>> products = List.of(product(1, "Pen", 100));
+
+		assertThat(query.paged()).isFalse();
+		assertThat(query.selected()).containsExactly("name");
+		assertThat(query.limit()).isNull();
+		assertThat(query.response(products)).isSameAs(products);
+	}
+
+	@Test
+	void readsOneMoreThanPageAndReturnsCursorToNext() {
+		ProductPageQuery query = ProductPageQuery.of(1, 2, null, "-price", List.of("name"));
+
+		assertThat(query.selected()).containsExactly("name", "id", "price");
+		assertThat(query.offset()).isEqualTo(2);
+		assertThat(query.limit()).isEqualTo(3);
+
+		ProductPage page = (ProductPage) query.response(products(product(5, "Desk", 300), product(4, "Lamp", 200),
+				product(3, "Pen", 100)));
+
+		assertThat(page.getProducts()).containsExactly(Map.of("name", "Desk"), Map.of("name", "Lamp"));
+		assertThat(page.getPage()).isEqualTo(1);
+		assertThat(page.getSize()).isEqualTo(2);
+		assertThat(ProductCursor.decode(page.getNext_cursor(), "-price")).isEqualTo(new ProductCursor("-price", 4, 200));
+	}
+
+	@Test
+	void continuesAfterCursorWithoutPageNumber() {
+		String cursor = new ProductCursor("id", 4, null).encode();
+		ProductPageQuery query = ProductPageQuery.of(null, 2, cursor, "id", null);
+
+		assertThat(query.after()).isEqualTo(new ProductCursor("id", 4, null));
+		assertThat(query.offset()).isZero();
+
+		ProductPage page = (ProductPage) query.response(products(product(5, "Desk", 300)));
+
+		assertThat(page.getPage()).isNull();
+		assertThat(page.getNext_cursor()).isNull();
+	}
+
+	@Test
+	void rejectsInvalidParameters() {
+		assertThatThrownBy(() -> ProductPageQuery.of(null, null, null, "description", null))
+				.isInstanceOf(ResponseStatusException.class).hasMessageContaining("sort must be one of");
+		assertThatThrownBy(() -> ProductPageQuery.of(null, null, null, "id", List.of("owner")))
+				.isInstanceOf(ResponseStatusException.class).hasMessageContaining("fields must be among");
+		assertThatThrownBy(() -> ProductPageQuery.of(0, ProductPageQuery.MAX_PAGE_SIZE + 1, null, "id", null))
+				.isInstanceOf(ResponseStatusException.class).hasMessageContaining("size between 1 and");
+		assertThatThrownBy(() -> ProductPageQuery.of(Integer.MAX_VALUE, 2, null, "id", null))
+				.isInstanceOf(ResponseStatusException.class).hasMessageContaining("page must be 0 or more");
+		String cursor = new ProductCursor("id", 4, null).encode();
+		assertThatThrownBy(() -> ProductPageQuery.of(1, 2, cursor, "id", null))
+				.isInstanceOf(ResponseStatusException.class).hasMessageContaining("either page or cursor");
+	}
+
+	// Mutable, as read from the database
+	@SafeVarargs
+	private static List<Map<String, Object>> products(Map<String, Object>... products) {
+		return new ArrayList<>(List.of(products));
+	}
+
+	private static Map<String, Object> product(int id, String name, int price) {
+		Map<String, Object> product = new HashMap<>();
+		product.put("id", id);
+		product.put("name", name);
+		product.put("price", price);
+		return product;
+	}
+}
@@ -0,0 +1,188 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.onlinemarketplace.marketplaceservice.model.Product;
+import com.onlinemarketplace.marketplaceservice.model.ProductSearchResult;
+import com.onlinemarketplace.marketplaceservice.model.ProductStockChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Every search is checked against filtering and sorting all products the plain way
+class ProductSearchIndexTest {
+
+	// Enough for the postings to span several 64-bit words, and for a page of 12 matches or fewer to be
+	// ordered by rank while more are walked
+	private static final int PRODUCTS = 200;
+	private static final String[] KINDS = {"Lamp", "Laptop", "Lantern", "Desk"};
+	private static final ProductSearchIndex.Sort[] SORTS = ProductSearchIndex.Sort.values();
+
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private ProductSearchIndex index;
+	private final Map<Integer, Integer> stock = new HashMap<>();
+
+	@BeforeEach
+	void setUp() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:product-search", "sa", "", true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE Product (id INT PRIMARY KEY, name VARCHAR(255), description VARCHAR(255), "
+				+ "price INT, stock_quantity INT)");
+		for (int id = 1; id <= PRODUCTS; id++) {
+			stock.put(id, id % 3 == 0 ? 0 : id);
+			jdbcTemplate.update("INSERT INTO Product VALUES (?, ?, ?, ?, ?)", id, name(id),
+					id % 2 == 0 ? "Color red" : "Color blue", price(id), stock.get(id));
+		}
+		index = new ProductSearchIndex(jdbcTemplate);
+		index.rebuild();
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("DROP TABLE Product");
+		dataSource.destroy();
+	}
+
+	@Test
+	void prefixMatchesUnionOfTermsStartingWithIt() {
+		assertThat(search("la*").getTotal()).isEqualTo(150);
+		assertThat(search("LAPT*").getTotal()).isEqualTo(50);
+		assertThat(search("lapt").getTotal()).isZero();
+		assertThat(search("la* red").getTotal()).isEqualTo(100);
+		assertThat(search("desk 19*").getProducts()).extracting(Product::getId).containsExactly(19, 191, 195, 199);
+		assertThat(search("zebra*").getTotal()).isZero();
+	}
+
+	@Test
+	void textSearchPagesAsFullSortInEveryOrder() {
+		// 50 matches are walked in the presorted order, the few of the narrow ones ordered by their ranks
+		for (String text : List.of("laptop", "lantern red", "desk 1*", "desk 19*", "lamp 4")) {
+			for (Integer[] prices : List.of(new Integer[]{null, null}, new Integer[]{20, 60}, new Integer[]{95, null})) {
+				assertSearches(text, prices[0], prices[1]);
+			}
+		}
+	}
+
+	@Test
+	void searchWithoutTextPagesAsFullSortInEveryOrder() {
+		// The whole catalog, a wide price range, and one narrow enough to be ordered instead of walked
+		assertSearches(null, null, null);
+		assertSearches("", 10, 90);
+		assertSearches(null, 50, 54);
+		assertSearches(null, 102, null);
+	}
+
+	@Test
+	void countsProductsInStockAsStockChanges() {
+		assertThat(searchInStock().getTotal()).isEqualTo(inStock());
+
+		// Sold out, and back in stock from 0
+		index.onStockChanged(new ProductStockChangedEvent(1, -1));
+		stock.put(1, 0);
+		index.onStockChanged(new ProductStockChangedEvent(3, 5));
+		stock.put(3, 5);
+		assertThat(searchInStock().getTotal()).isEqualTo(inStock()).isEqualTo(134);
+		assertSearches(null, null, null);
+
+		// Re-read from the database, where the changes above committed: sold out, restocked, and a change
+		// which keeps the product in stock
+		jdbcTemplate.update("UPDATE Product SET stock_quantity = 0 WHERE id = 1");
+		jdbcTemplate.update("UPDATE Product SET stock_quantity = 5 WHERE id = 3");
+		jdbcTemplate.update("UPDATE Product SET stock_quantity = 0 WHERE id IN (2, 4)");
+		jdbcTemplate.update("UPDATE Product SET stock_quantity = 7 WHERE id IN (6, 5)");
+		for (int id : new int[]{2, 4}) {
+			stock.put(id, 0);
+		}
+		for (int id : new int[]{6, 5}) {
+			stock.put(id, 7);
+		}
+		index.refreshStock();
+		assertThat(searchInStock().getTotal()).isEqualTo(inStock()).isEqualTo(133);
+		assertThat(searchInStock().getProducts()).extracting(Product::getId).containsExactly(3, 5, 6, 7, 8);
+		assertSearches("lamp", null, null);
+	}
+
+	@Test
+	void rebuildsWhenProductsWereAdded() {
+		jdbcTemplate.update("INSERT INTO Product VALUES (201, 'Lamp 201', 'Color red', 5, 1)");
+
+		index.refreshStock();
+
+		assertThat(search("lamp").getTotal()).isEqualTo(51);
+	}
+
+	private void assertSearches(String text, Integer minPrice, Integer maxPrice) {
+		for (ProductSearchIndex.Sort sort : SORTS) {
+			for (boolean inStock : new boolean[]{false, true}) {
+				List<Integer> expected = expected(text, minPrice, maxPrice, inStock, sort);
+				for (int page = 0; page <= 3; page++) {
+					ProductSearchResult result = index.search(
+							new ProductSearchIndex.Query(text, minPrice, maxPrice, inStock, sort, page, 5));
+					String description = text + " " + minPrice + ".." + maxPrice + " " + sort + (inStock ? " in stock" : "")
+							+ " page " + page;
+					assertThat(result.getTotal()).as(description).isEqualTo(expected.size());
+					assertThat(result.getProducts()).as(description).extracting(Product::getId)
+							.containsExactlyElementsOf(expected.subList(Math.min(page * 5, expected.size()),
+									Math.min(page * 5 + 5, expected.size())));
+				}
+			}
+		}
+	}
+
+	// All products matching the search, in its order; ties in price or name go by id
+	private List<Integer> expected(String text, Integer minPrice, Integer maxPrice, boolean inStock,
+								   ProductSearchIndex.Sort sort) {
+		Predicate<Integer> matches = id -> (minPrice == null || price(id) >= minPrice)
+				&& (maxPrice == null || price(id) <= maxPrice) && (!inStock || stock.get(id) > 0);
+		for (String word : text == null || text.isBlank() ? new String[0] : text.trim().split("\\s+")) {
+			String term = ProductSearchIndex.terms(word).get(0);
+			boolean prefix = word.endsWith("*");
+			matches = matches.and(id -> {
+				List<String> terms = ProductSearchIndex.terms(name(id) + " " + (id % 2 == 0 ? "Color red" : "Color blue"));
+				return terms.stream().anyMatch(t -> prefix ? t.startsWith(term) : t.equals(term));
+			});
+		}
+		Comparator<Integer> order = switch (sort) {
+			case ID, ID_DESC -> Comparator.naturalOrder();
+			case PRICE, PRICE_DESC -> Comparator.<Integer>comparingInt(ProductSearchIndexTest::price)
+					.thenComparing(Comparator.naturalOrder());
+			case NAME, NAME_DESC -> Comparator.<Integer, String>comparing(ProductSearchIndexTest::name,
+					String.CASE_INSENSITIVE_ORDER).thenComparing(Comparator.naturalOrder());
+		};
+		return stock.keySet().stream()
+				.filter(matches)
+				.sorted(sort == ProductSearchIndex.Sort.ID_DESC || sort == ProductSearchIndex.Sort.PRICE_DESC
+						|| sort == ProductSearchIndex.Sort.NAME_DESC ? order.reversed() : order)
+				.toList();
+	}
+
+	private ProductSearchResult search(String text) {
+		return index.search(new ProductSearchIndex.Query(text, null, null, false, ProductSearchIndex.Sort.ID, 0, PRODUCTS));
+	}
+
+	private ProductSearchResult searchInStock() {
+		return index.search(new ProductSearchIndex.Query(null, null, null, true, ProductSearchIndex.Sort.ID, 0, 5));
+	}
+
+	private long inStock() {
+		return stock.values().stream().filter(quantity -> quantity > 0).count();
+	}
+
+	private static String name(int id) {
+		return KINDS[id % 4] + " " + id;
+	}
+
+	// From 1 to 101, with ties
+	private static int price(int id) {
+		return id * 37 % 101 + 1;
+	}
+}
@@ -0,0 +1,212 @@
+package com.onlinemarketplace.marketplaceservice.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlinemarketplace.common.outbox.OutboxEvent;
+import com.onlinemarketplace.common.outbox.OutboxEventRepository;
+import com.onlinemarketplace.common.outbox.OutboxEventType;
+import com.onlinemarketplace.common.outbox.OutboxOffsetRepository;
+import com.onlinemarketplace.common.outbox.OutboxPublisher;
+import com.onlinemarketplace.marketplaceservice.model.Order;
+import com.onlinemarketplace.marketplaceservice.model.OrderEvent;
+import com.onlinemarketplace.marketplaceservice.model.OrderStatus;
+import com.onlinemarketplace.marketplaceservice.model.OrdersDeliveredEvent;
+import com.onlinemarketplace.marketplaceservice.model.RevenueDay;
+import com.onlinemarketplace.marketplaceservice.model.TopProduct;
+import com.onlinemarketplace.marketplaceservice.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The aggregates on the embedded database, in the tables the schema creates from the entities
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+class SalesAggregatorTest {
+
+	private static final int PEN = 1;
+	private static final int DESK = 2;
+	private static final LocalDate MONDAY = LocalDate.of(2026, 3, 2);
+	private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+	@SpringBootConfiguration
+	@EntityScan(basePackageClasses = {Order.class, OutboxEvent.class})
+	@EnableJpaRepositories(basePackageClasses = {OrderRepository.class, OutboxOffsetRepository.class})
+	static class Repositories {
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+	@Autowired
+	private OutboxOffsetRepository outboxOffsetRepository;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private OutboxPublisher outboxPublisher;
+	private SalesAggregator salesAggregator;
+
+	@BeforeEach
+	void setUp() {
+		outboxPublisher = new OutboxPublisher(outboxEventRepository, objectMapper);
+		salesAggregator = new SalesAggregator(jdbcTemplate, transactionManager, outboxPublisher, outboxOffsetRepository);
+	}
+
+	@Test
+	void spreadsDiscountedPriceOverItemsByUndiscountedPrice() {
+		assertThat(SalesAggregator.allocate(90, List.of(item(PEN, 2, 30), item(DESK, 1, 40)))).containsExactly(54, 36);
+	}
+
+	@Test
+	void givesRoundingRemainderToLastItem() {
+		assertThat(SalesAggregator.allocate(100, List.of(item(PEN, 1, 1), item(DESK, 1, 1), item(3, 1, 1))))
+				.containsExactly(33, 33, 34);
+	}
+
+	@Test
+	void spreadsByQuantityWithoutUnitPrices() {
+		assertThat(SalesAggregator.allocate(10, List.of(item(PEN, 3, null), item(DESK, 1, 25)))).containsExactly(7, 3);
+		assertThat(SalesAggregator.allocate(0, List.of())).isEmpty();
+	}
+
+	@Test
+	void foldsBatchIntoOneRowPerProductAndDay() throws JsonProcessingException {
+		salesAggregator.deliver(List.of(
+				event(OutboxEventType.ORDER_PLACED, MONDAY, order(1, 90, item(PEN, 2, 30), item(DESK, 1, 40))),
+				event(OutboxEventType.ORDER_PLACED, MONDAY, order(2, 30, item(PEN, 1, 30)))));
+
+		assertThat(productSales(PEN, MONDAY)).containsExactly(3L, 84L, 0L, 0L, 0L);
+		assertThat(productSales(DESK, MONDAY)).containsExactly(1L, 36L, 0L, 0L, 0L);
+		assertThat(salesAggregator.revenue(MONDAY, MONDAY))
+				.containsExactly(new RevenueDay(MONDAY, 2, 120, 0, 0, 0, 0, 120));
+	}
+
+	@Test
+	void addsLaterBatchesToExistingRows() throws JsonProcessingException {
+		insertOrder("orders", "OrderItem", 1, 90, OrderStatus.DELIVERED, MONDAY, TUESDAY,
+				item(PEN, 2, 30), item(DESK, 1, 40));
+		salesAggregator.deliver(List.of(
+				event(OutboxEventType.ORDER_PLACED, MONDAY, order(1, 90, item(PEN, 2, 30), item(DESK, 1, 40))),
+				event(OutboxEventType.ORDER_PLACED, MONDAY, order(2, 30, item(PEN, 1, 30)))));
+
+		// Deliveries carry only the order IDs, their items are read from the orders
+		salesAggregator.deliver(List.of(
+				event(OutboxEventType.ORDER_PLACED, MONDAY, order(3, 30, item(PEN, 1, 30))),
+				event(OutboxEventType.ORDER_CANCELLED, TUESDAY, order(2, 30, item(PEN, 1, 30))),
+				event(OutboxEventType.ORDER_DELIVERED, TUESDAY, new OrdersDeliveredEvent(List.of(1)))));
+
+		assertThat(productSales(PEN, MONDAY)).containsExactly(4L, 114L, 0L, 0L, 0L);
+		assertThat(productSales(PEN, TUESDAY)).containsExactly(0L, 0L, 1L, 30L, 2L);
+		assertThat(productSales(DESK, TUESDAY)).containsExactly(0L, 0L, 0L, 0L, 1L);
+		assertThat(salesAggregator.revenue(MONDAY, TUESDAY)).containsExactly(
+				new RevenueDay(MONDAY, 3, 150, 0, 0, 0, 0, 150),
+				new RevenueDay(TUESDAY, 0, 0, 1, 30, 1, 90, -30));
+	}
+
+	@Test
+	void ranksTopProductsWithNamesOfCatalog() throws JsonProcessingException {
+		jdbcTemplate.update("INSERT INTO Product (id, name, description, price, stock_quantity) VALUES (?, 'Pen', 'Blue', 30, 10)",
+				PEN);
+		salesAggregator.deliver(List.of(
+				event(OutboxEventType.ORDER_PLACED, MONDAY, order(1, 100, item(PEN, 2, 30), item(DESK, 1, 40))),
+				event(OutboxEventType.ORDER_PLACED, TUESDAY, order(2, 30, item(PEN, 1, 30))),
+				event(OutboxEventType.ORDER_CANCELLED, TUESDAY, order(2, 30, item(PEN, 1, 30)))));
+
+		// The desk is no longer in the catalog
+		assertThat(salesAggregator.topProducts(MONDAY, TUESDAY, 10, false)).containsExactly(
+				new TopProduct(PEN, "Pen", 2, 60, 1, 0),
+				new TopProduct(DESK, null, 1, 40, 0, 0));
+		assertThat(salesAggregator.topProducts(TUESDAY, TUESDAY, 10, false))
+				.containsExactly(new TopProduct(PEN, "Pen", 0, 0, 1, 0));
+		assertThat(salesAggregator.topProducts(MONDAY, MONDAY, 1, true))
+				.containsExactly(new TopProduct(PEN, "Pen", 2, 60, 0, 0));
+	}
+
+	@Test
+	void rebuildReplaysOrdersOfBothTiers() {
+		insertOrder("orders", "OrderItem", 1, 90, OrderStatus.PLACED, MONDAY, MONDAY,
+				item(PEN, 2, 30), item(DESK, 1, 40));
+		insertOrder("orders_archive", "order_item_archive", 2, 30, OrderStatus.CANCELLED, MONDAY, TUESDAY,
+				item(PEN, 1, 30));
+		insertOrder("orders", "OrderItem", 3, 30, OrderStatus.DELIVERED, MONDAY, TUESDAY, item(PEN, 1, 30));
+		jdbcTemplate.update("INSERT INTO product_sales (product_id, sales_date, units_sold, revenue, units_cancelled, "
+				+ "revenue_cancelled, units_delivered) VALUES (9, ?, 5, 500, 0, 0, 0)", MONDAY);
+		outboxPublisher.publish(OutboxEventType.ORDER_PLACED, 3, order(3, 30, item(PEN, 1, 30)));
+		outboxEventRepository.flush();
+		Long lastEventId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM outbox_event", Long.class);
+
+		assertThat(salesAggregator.rebuild()).isEqualTo(3);
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_sales WHERE product_id = 9", Integer.class))
+				.isZero();
+		assertThat(productSales(PEN, MONDAY)).containsExactly(4L, 114L, 0L, 0L, 0L);
+		assertThat(productSales(DESK, MONDAY)).containsExactly(1L, 36L, 0L, 0L, 0L);
+		assertThat(productSales(PEN, TUESDAY)).containsExactly(0L, 0L, 1L, 30L, 1L);
+		assertThat(salesAggregator.revenue(MONDAY, TUESDAY)).containsExactly(
+				new RevenueDay(MONDAY, 3, 150, 0, 0, 0, 0, 150),
+				new RevenueDay(TUESDAY, 0, 0, 1, 30, 1, 30, -30));
+		assertThat(outboxOffsetRepository.findById("marketplace.sales-aggregates").orElseThrow().getLast_event_id())
+				.isEqualTo(lastEventId);
+	}
+
+	private List<Long> productSales(int product_id, LocalDate day) {
+		return jdbcTemplate.queryForObject("SELECT units_sold, revenue, units_cancelled, revenue_cancelled, units_delivered "
+						+ "FROM product_sales WHERE product_id = ? AND sales_date = ?",
+				(rs, rowNum) -> List.of(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)),
+				product_id, day);
+	}
+
+	private void insertOrder(String orders, String items, int order_id, int total_price, OrderStatus status,
+							 LocalDate placed, LocalDate changed, OrderEvent.Item... orderItems) {
+		if (orders.equals("orders")) {
+			jdbcTemplate.update("INSERT INTO orders (order_id, user_id, total_price, status, placed_at, status_changed_at) "
+					+ "VALUES (?, 1, ?, ?, ?, ?)", order_id, total_price, new OrderStatus.Codes().convertToDatabaseColumn(status),
+					noon(placed), noon(changed));
+		} else {
+			jdbcTemplate.update("INSERT INTO orders_archive (order_id, user_id, total_price, status, placed_at, "
+							+ "status_changed_at, archived_at) VALUES (?, 1, ?, ?, ?, ?, ?)", order_id, total_price,
+					new OrderStatus.Codes().convertToDatabaseColumn(status), noon(placed), noon(changed), noon(changed));
+		}
+		for (int i = 0; i < orderItems.length; i++) {
+			jdbcTemplate.update("INSERT INTO " + items + " (id, order_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?, ?)",
+					order_id * 10 + i, order_id, orderItems[i].product_id(), orderItems[i].quantity(),
+					orderItems[i].unit_price());
+		}
+	}
+
+	private OutboxEvent event(OutboxEventType type, LocalDate day, Object payload) throws JsonProcessingException {
+		OutboxEvent event = new OutboxEvent();
+		event.setEvent_type(type);
+		event.setPayload(objectMapper.writeValueAsString(payload));
+		event.setCreated_at(noon(day).toInstant());
+		return event;
+	}
+
+	private static OffsetDateTime noon(LocalDate day) {
+		return day.atTime(12, 0).atOffset(ZoneOffset.UTC);
+	}
+
+	private static OrderEvent order(int order_id, int total_price, OrderEvent.Item... items) {
+		return new OrderEvent(order_id, 1, total_price, List.of(items));
+	}
+
+	private static OrderEvent.Item item(int product_id, int quantity, Integer unit_price) {
+		return new OrderEvent.Item(product_id, quantity, unit_price);
+	}
+}
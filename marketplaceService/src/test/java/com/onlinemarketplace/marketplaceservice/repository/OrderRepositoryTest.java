@@ -0,0 +1,108 @@
+package com.onlinemarketplace.marketplaceservice.repository;
+
+import com.onlinemarketplace.marketplaceservice.model.Order;
+import com.onlinemarketplace.marketplaceservice.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+// The repositories on the embedded database, without the second-level cache the transitions bypass anyway
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+class OrderRepositoryTest {
+
+	@SpringBootConfiguration
+	@EntityScan(basePackageClasses = Order.class)
+	@EnableJpaRepositories(basePackageClasses = OrderRepository.class)
+	static class Repositories {
+	}
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Test
+	void onlyFirstOfTransitionsFromSameStatusWins() {
+		Integer order_id = placeOrder();
+
+		assertThat(orderRepository.transition(order_id, OrderStatus.PLACED, OrderStatus.CANCELLING)).isTrue();
+		assertThat(orderRepository.transition(order_id, OrderStatus.PLACED, OrderStatus.DELIVERED)).isFalse();
+
+		assertThat(statusOf(order_id)).isEqualTo(OrderStatus.CANCELLING);
+	}
+
+	@Test
+	void failedCancellationReturnsOrderToPlaced() {
+		Integer order_id = placeOrder();
+
+		assertThat(orderRepository.transition(order_id, OrderStatus.PLACED, OrderStatus.CANCELLING)).isTrue();
+		assertThat(orderRepository.transition(order_id, OrderStatus.CANCELLING, OrderStatus.PLACED)).isTrue();
+		assertThat(orderRepository.transition(order_id, OrderStatus.PLACED, OrderStatus.DELIVERED)).isTrue();
+
+		assertThat(statusOf(order_id)).isEqualTo(OrderStatus.DELIVERED);
+	}
+
+	@Test
+	void rejectsTransitionsTheLifecycleDoesNotAllow() {
+		Integer order_id = placeOrder();
+
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class)
+				.isThrownBy(() -> orderRepository.transition(order_id, OrderStatus.PLACED, OrderStatus.CANCELLED));
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class)
+				.isThrownBy(() -> orderRepository.transitionAll(List.of(order_id), OrderStatus.DELIVERED, OrderStatus.PLACED));
+		assertThat(OrderStatus.CANCELLING.canBecome(OrderStatus.CANCELLED)).isTrue();
+		assertThat(OrderStatus.DELIVERED.canBecome(OrderStatus.CANCELLING)).isFalse();
+		assertThat(statusOf(order_id)).isEqualTo(OrderStatus.PLACED);
+	}
+
+	@Test
+	void transitionsOnlyOrdersStillInExpectedStatus() {
+		Integer placed = placeOrder();
+		Integer cancelling = placeOrder();
+		orderRepository.transition(cancelling, OrderStatus.PLACED, OrderStatus.CANCELLING);
+
+		assertThat(orderRepository.transitionAll(List.of(placed, cancelling), OrderStatus.PLACED, OrderStatus.DELIVERED))
+				.isEqualTo(1);
+
+		assertThat(statusOf(placed)).isEqualTo(OrderStatus.DELIVERED);
+		assertThat(statusOf(cancelling)).isEqualTo(OrderStatus.CANCELLING);
+	}
+
+	@Test
+	void storesStatusesAsTheirCodes() {
+		OrderStatus.Codes codes = new OrderStatus.Codes();
+
+		for (OrderStatus status : OrderStatus.values()) {
+			assertThat(codes.convertToEntityAttribute(codes.convertToDatabaseColumn(status))).isEqualTo(status);
+		}
+		assertThat(codes.convertToDatabaseColumn(OrderStatus.PLACED)).isEqualTo((byte) 1);
+		assertThatIllegalArgumentException().isThrownBy(() -> codes.convertToEntityAttribute((byte) 9));
+	}
+
+	private Integer placeOrder() {
+		Order order = new Order();
+		order.setUser_id(1);
+		order.setTotal_price(100);
+		order.setStatus(OrderStatus.PLACED);
+		return orderRepository.saveAndFlush(order).getOrder_id();
+	}
+
+	// The conditional UPDATE bypasses the persistence context, so read the column itself
+	private OrderStatus statusOf(Integer order_id) {
+		return orderRepository.findStatusesByOrder_idsForUpdate(List.of(order_id)).stream()
+				.map(row -> (OrderStatus) row[2])
+				.findFirst()
+				.orElseThrow();
+	}
+}
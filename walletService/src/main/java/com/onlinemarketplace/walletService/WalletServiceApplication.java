@@ -9,9 +9,10 @@ import org.springframework.web.client.RestTemplate;
 @SpringBootApplication
 public class WalletServiceApplication {
 
+	// Built from Boot's builder, which records http.client.requests for every downstream call
 	@Bean
-	public RestClient restClient() {
-		return RestClient.builder().build();
+	public RestClient restClient(RestClient.Builder restClientBuilder) {
+		return restClientBuilder.build();
 	}
 	public static void main(String[] args) {
 		SpringApplication.run(WalletServiceApplication.class, args);
@@ -1,23 +1,38 @@
 package com.onlinemarketplace.walletService.controller;
 
+import com.onlinemarketplace.common.concurrent.SingleFlight;
+import com.onlinemarketplace.common.metrics.LockMetrics;
+import com.onlinemarketplace.common.outbox.OutboxEventType;
+import com.onlinemarketplace.common.outbox.OutboxPublisher;
+import com.onlinemarketplace.common.wire.InternalWireFormat;
 import com.onlinemarketplace.walletService.model.Wallet;
+import com.onlinemarketplace.walletService.model.WalletDebitedEvent;
 import com.onlinemarketplace.walletService.model.WalletRequestBody;
 import com.onlinemarketplace.walletService.repository.WalletRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -32,38 +47,71 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class WalletServiceController {
     private final WalletRepository walletRepository;
     private final RestClient restClient;
-    private static final String accountServiceURI = "http://accountservice:8080";
+    private final OutboxPublisher outboxPublisher;
+    private final LockMetrics lockMetrics;
+    private final MeterRegistry meterRegistry;
+    private final SingleFlight<Integer, Optional<Wallet>> walletReads;
+    private final SingleFlight<Integer, ResponseEntity<Void>> userLookups;
+    private final TransactionTemplate updateTransaction;
+    private final String accountServiceURI;
+    private final InternalWireFormat internalWireFormat;
     private static final String accountServiceEndpoint = "/users/";
     
     // Cache of user-specific locks to prevent concurrent operations on the same wallet
     private final ReadWriteLock globalWalletLock = new ReentrantReadWriteLock();
 
     @Autowired
-    public WalletServiceController(final WalletRepository walletRepository, final RestClient restClient) {
+    public WalletServiceController(final WalletRepository walletRepository, final RestClient restClient,
+                                   final OutboxPublisher outboxPublisher, final LockMetrics lockMetrics,
+                                   final MeterRegistry meterRegistry, final PlatformTransactionManager transactionManager,
+                                   @Value("${services.account.uri:http://accountservice:8080}") final String accountServiceURI,
+                                   @Value("${internal.wire.format:json}") final InternalWireFormat internalWireFormat) {
         this.walletRepository = walletRepository;
         this.restClient = restClient;
+        this.outboxPublisher = outboxPublisher;
+        this.lockMetrics = lockMetrics;
+        this.meterRegistry = meterRegistry;
+        this.walletReads = new SingleFlight<>("wallet", meterRegistry);
+        this.userLookups = new SingleFlight<>("account_user", meterRegistry);
+        this.updateTransaction = new TransactionTemplate(transactionManager);
+        this.updateTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        this.accountServiceURI = accountServiceURI;
+        this.internalWireFormat = internalWireFormat;
+    }
+
+    // Records a completed phase of updateWallet in wallet.update.phase
+    private void recordPhase(String phase, String action, long startNanos) {
+        Timer.builder("wallet.update.phase")
+                .description("Duration of the completed phases of wallet updates")
+                .tag("phase", phase)
+                .tag("action", action)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
     }
 
     /**
      * Retrieves the wallet associated with the specified user ID.
+     * Concurrent requests for the same wallet share one read. The method is not transactional, so the
+     * requests waiting for the read do not hold a connection.
      *
      * @param user_id the ID of the user whose wallet is to be retrieved
      * @return ResponseEntity containing the wallet details if found,
      *         or an error message if the wallet does not exist
      */
     @GetMapping(path = "wallets/{user_id}")
-    @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
     public ResponseEntity<?> getWallet(@PathVariable("user_id") Integer user_id) {
         try {
-            // Use read lock for concurrent reads
-            globalWalletLock.readLock().lock();
-            try {
-                Wallet wallet = walletRepository.findByUser_id(user_id)
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Wallet not found!"));
-                return new ResponseEntity<>(wallet, HttpStatus.OK);
-            } finally {
-                globalWalletLock.readLock().unlock();
-            }
+            Wallet wallet = walletReads.load(user_id, () -> {
+                // Use read lock for concurrent reads
+                lockMetrics.lock(globalWalletLock.readLock(), "global_wallet.read");
+                try {
+                    return walletRepository.findByUser_id(user_id);
+                } finally {
+                    globalWalletLock.readLock().unlock();
+                }
+            }).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Wallet not found!"));
+            return new ResponseEntity<>(wallet, HttpStatus.OK);
         } catch (ResponseStatusException e) {
             return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
         }
@@ -81,76 +129,100 @@ public class WalletServiceController {
     /**
      * Updates the wallet for the specified user ID based on the provided action (credit or debit).
      * Uses optimistic locking with retries to handle concurrent updates.
+     * The user is verified with the account service before taking the write lock, once for all the
+     * concurrent updates of the user's wallet; only the update itself runs in a SERIALIZABLE transaction,
+     * which commits before the lock is released. Once committed, the reads of the wallet arriving
+     * afterwards no longer join a read started before the update.
+     * The marketplace may send the body as Smile instead of JSON, see {@link InternalWireFormat}.
      *
      * @param user_id          the ID of the user whose wallet is to be updated
      * @param walletRequestBody the request body containing the action and amount to be processed
      * @return ResponseEntity containing the updated wallet if successful,
      *         or an error message if the operation fails
      */
-    @PutMapping(value = "/wallets/{user_id}", consumes = "application/json")
-    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = Exception.class)
+    @PutMapping(value = "/wallets/{user_id}", consumes = {"application/json", InternalWireFormat.SMILE_VALUE})
     @Retryable(value = {OptimisticLockingFailureException.class, DataAccessException.class},
             maxAttempts = 3, backoff = @Backoff(delay = 500))
     public ResponseEntity<?> updateWallet(@PathVariable("user_id") Integer user_id, @RequestBody WalletRequestBody walletRequestBody) {
-        // Use write lock to ensure exclusive access during wallet update
-        globalWalletLock.writeLock().lock();
         try {
             if (!isValidPayloadForPutMethod(walletRequestBody)) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid payload!");
             }
-            
-            // Verify user exists
-            try {
-                ResponseEntity<Void> accountServiceResponse = restClient.get()
-                        .uri(accountServiceURI + accountServiceEndpoint + user_id)
-                        .retrieve()
-                        .toBodilessEntity();
-            } catch (RestClientResponseException e) {
-                throw new ResponseStatusException(e.getStatusCode(), e.getResponseBodyAsString(), e);
-            }
-            
-            if (walletRequestBody.getAmount() < 0) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount must be greater than zero!");
-            }
 
-            Optional<Wallet> walletOptional = walletRepository.findByUser_id(user_id);
-            Wallet wallet = walletOptional.orElseGet(() -> {
-                Wallet newWallet = new Wallet();
-                newWallet.setUser_id(user_id);
-                newWallet.setBalance(0);
-                return newWallet;
+            // Verify user exists
+            long phaseStart = System.nanoTime();
+            userLookups.load(user_id, () -> {
+                try {
+                    return restClient.get()
+                            .uri(accountServiceURI + accountServiceEndpoint + "{user_id}", user_id)
+                            .accept(internalWireFormat.accept())
+                            .retrieve()
+                            .toBodilessEntity();
+                } catch (RestClientResponseException e) {
+                    throw new ResponseStatusException(e.getStatusCode(), e.getResponseBodyAsString(), e);
+                }
             });
+            recordPhase("user_lookup", walletRequestBody.getAction(), phaseStart);
+        } catch (ResponseStatusException e) {
+            return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
+        }
+
+        // Use write lock to ensure exclusive access during wallet update
+        lockMetrics.lock(globalWalletLock.writeLock(), "global_wallet.write");
+        try {
+            // Committed before the write lock is released, so the next update reads this one's balance
+            return updateTransaction.execute(status -> {
+                if (walletRequestBody.getAmount() < 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount must be greater than zero!");
+                }
+                invalidateReadsAfterCommit(user_id);
 
-            if (walletRequestBody.getAction().equals("credit")) {
-                wallet.setBalance(wallet.getBalance() + walletRequestBody.getAmount());
-            } else if (walletRequestBody.getAction().equals("debit")) {
-                if (wallet.getBalance() < walletRequestBody.getAmount()) {
-                    if (!walletOptional.isPresent()) {
-                        // Save new wallet even if debit fails to maintain consistent state
-                        try {
-                            walletRepository.save(wallet);
-                        } catch (Exception e) {
-                            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while saving wallet", e);
+                Optional<Wallet> walletOptional = walletRepository.findByUser_id(user_id);
+                Wallet wallet = walletOptional.orElseGet(() -> {
+                    Wallet newWallet = new Wallet();
+                    newWallet.setUser_id(user_id);
+                    newWallet.setBalance(0);
+                    return newWallet;
+                });
+
+                if (walletRequestBody.getAction().equals("credit")) {
+                    wallet.setBalance(wallet.getBalance() + walletRequestBody.getAmount());
+                } else if (walletRequestBody.getAction().equals("debit")) {
+                    if (wallet.getBalance() < walletRequestBody.getAmount()) {
+                        if (!walletOptional.isPresent()) {
+                            // Save new wallet even if debit fails to maintain consistent state
+                            try {
+                                walletRepository.save(wallet);
+                            } catch (Exception e) {
+                                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while saving wallet", e);
+                            }
                         }
+                        meterRegistry.counter("wallet.insufficient_balance").increment();
+                        return new ResponseEntity<>("Insufficient Balance!", HttpStatus.BAD_REQUEST);
+                    } else {
+                        wallet.setBalance(wallet.getBalance() - walletRequestBody.getAmount());
                     }
-                    return new ResponseEntity<>("Insufficient Balance!", HttpStatus.BAD_REQUEST);
                 } else {
-                    wallet.setBalance(wallet.getBalance() - walletRequestBody.getAmount());
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid action!");
                 }
-            } else {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid action!");
-            }
-            
-            try {
-                walletRepository.save(wallet);
-            } catch (OptimisticLockingFailureException e) {
-                // Let @Retryable handle this
-                throw e;
-            } catch (Exception e) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while saving wallet!", e);
-            }
-            
-            return new ResponseEntity<>(wallet, HttpStatus.OK);
+
+                long phaseStart = System.nanoTime();
+                try {
+                    walletRepository.save(wallet);
+                    if (walletRequestBody.getAction().equals("debit")) {
+                        outboxPublisher.publish(OutboxEventType.WALLET_DEBITED, user_id,
+                                new WalletDebitedEvent(user_id, walletRequestBody.getAmount(), wallet.getBalance()));
+                    }
+                    recordPhase("save", walletRequestBody.getAction(), phaseStart);
+                } catch (OptimisticLockingFailureException e) {
+                    // Let @Retryable handle this
+                    throw e;
+                } catch (Exception e) {
+                    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while saving wallet!", e);
+                }
+
+                return new ResponseEntity<>(wallet, HttpStatus.OK);
+            });
         } catch (ResponseStatusException e) {
             return new ResponseEntity<>(e.getMessage(), e.getStatusCode());
         } finally {
@@ -158,6 +230,25 @@ public class WalletServiceController {
         }
     }
 
+    /**
+     * Makes the reads which arrive once the current transaction committed load the wallet again,
+     * instead of joining a read which may have started before the change, see {@link SingleFlight}.
+     *
+     * @param user_id the ID of the user whose wallet changes, null for all the wallets
+     */
+    private void invalidateReadsAfterCommit(Integer user_id) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (user_id == null) {
+                    walletReads.invalidateAll();
+                } else {
+                    walletReads.invalidate(user_id);
+                }
+            }
+        });
+    }
+
     /**
      * Deletes the wallet associated with the specified user ID.
      *
@@ -168,8 +259,9 @@ public class WalletServiceController {
     @DeleteMapping(path = "/wallets/{user_id}")
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public ResponseEntity<?> deleteWallet(@PathVariable("user_id") Integer user_id) {
-        globalWalletLock.writeLock().lock();
+        lockMetrics.lock(globalWalletLock.writeLock(), "global_wallet.write");
         try {
+            invalidateReadsAfterCommit(user_id);
             Wallet wallet = walletRepository.findByUser_id(user_id)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Wallet not found!"));
             try {
@@ -194,8 +286,9 @@ public class WalletServiceController {
     @DeleteMapping(path = "/wallets")
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public ResponseEntity<?> deleteWallets() {
-        globalWalletLock.writeLock().lock();
+        lockMetrics.lock(globalWalletLock.writeLock(), "global_wallet.write");
         try {
+            invalidateReadsAfterCommit(null);
             try {
                 walletRepository.deleteAll();
             } catch (Exception e) {
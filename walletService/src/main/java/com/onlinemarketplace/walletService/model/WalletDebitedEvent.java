@@ -0,0 +1,11 @@
+package com.onlinemarketplace.walletService.model;
+
+/**
+ * Payload of the WALLET_DEBITED outbox event.
+ *
+ * @param user_id the ID of the user whose wallet was debited
+ * @param amount  the debited amount
+ * @param balance the balance after the debit
+ */
+public record WalletDebitedEvent(Integer user_id, Integer amount, Integer balance) {
+}